@@ -5,7 +5,7 @@ package ca.odell.glazedlists.javafx;
 
 import ca.odell.glazedlists.EventList;
 import ca.odell.glazedlists.event.ListEvent;
-import ca.odell.glazedlists.event.ListEventListener;
+import ca.odell.glazedlists.event.OldValueListener;
 
 import javafx.beans.InvalidationListener;
 import javafx.collections.ListChangeListener;
@@ -32,7 +32,7 @@ import java.util.ListIterator;
  * @author <a href="mailto:rob@starlight-systems.com">Rob Eden</a>
  */
 public class EventObservableList<E> extends AbstractList<E> implements ObservableList<E>,
-        ListEventListener<E> {
+        OldValueListener<E> {
 
     private static final int[] EMPTY_INT_ARRAY = new int[0];
 
@@ -513,14 +513,15 @@ public class EventObservableList<E> extends AbstractList<E> implements Observabl
 	    }
 
         synchronized (list_listeners) {
-            for (int i = list_listeners.size() - 1; i >= 0; i--) {
-                ListEvent<E> changes_to_distribute = source_changes.copy();
+            // a reordering is the same permutation for every listener
+            final int[] permutation = source_changes.isReordering() ? toPermutation(source_changes.getReorderMap()) : null;
 
+            for (int i = list_listeners.size() - 1; i >= 0; i--) {
                 ListChangeListener.Change<E> change;
-                if (source_changes.isReordering()) {
-                    change = new GLReorderChangeWrapper(this, changes_to_distribute);
+                if (permutation != null) {
+                    change = new GLReorderChangeWrapper(this, permutation);
                 } else {
-                    change = new GLChangeWrapper(this, changes_to_distribute);
+                    change = new GLChangeWrapper(this, source_changes.copy());
                 }
 
                 // noinspection unchecked
@@ -529,21 +530,23 @@ public class EventObservableList<E> extends AbstractList<E> implements Observabl
         }
     }
 
+    private static int[] toPermutation(int[] gl_reorder_map) {
+        // NOTE: logic of GL and JFX reorder maps are flipped. In GL the index
+        // is the new index, where it's the old index in JFX.
+        int[] permutation = new int[gl_reorder_map.length];
+        for (int i = 0; i < gl_reorder_map.length; i++) {
+            permutation[gl_reorder_map[i]] = i;
+        }
+        return permutation;
+    }
+
     class GLReorderChangeWrapper extends ListChangeListener.Change<E> {
         private final int[] reorder_map;
         private boolean processed = false;
 
-        public GLReorderChangeWrapper(ObservableList<E> es, ListEvent<E> changes) {
+        public GLReorderChangeWrapper(ObservableList<E> es, int[] permutation) {
             super(es);
-
-            // NOTE: logic of GL and JFX reorder maps are flipped. In GL the
-            // index is the
-            // new index, where it's the old index in JFX.
-            int[] gl_reorder_map = changes.getReorderMap();
-            reorder_map = new int[gl_reorder_map.length];
-            for (int i = 0; i < gl_reorder_map.length; i++) {
-                reorder_map[gl_reorder_map[i]] = i;
-            }
+            reorder_map = permutation;
         }
 
         @Override
@@ -5,6 +5,9 @@ package ca.odell.glazedlists.javafx;
 
 import ca.odell.glazedlists.EventList;
 import ca.odell.glazedlists.TransformedList;
+import ca.odell.glazedlists.impl.gui.ThreadProxyEventList;
+
+import java.util.concurrent.TimeUnit;
 
 /**
  * A factory for creating all sorts of JavaFx related objects to be used with Glazed Lists.
@@ -20,4 +23,21 @@ public class GlazedListsFx {
     public static <E> TransformedList<E, E> threadProxyList(EventList<E> source) {
         return new JavaFxThreadProxyEventList<E>(source);
     }
+
+    /**
+     * Wraps the source in an {@link EventList} that fires all of its update
+     * events from the JavaFX-application thread, at most
+     * <code>maxFlushRate</code> times per second. The changes made between
+     * two events are combined into one, but no change waits longer than
+     * <code>maxBatchLatency</code>. The returned list is a
+     * {@link ThreadProxyEventList}, which records how many changes waited
+     * for each event and for how long.
+     *
+     * @see ThreadProxyEventList#setFlushRate(int, long, TimeUnit)
+     */
+    public static <E> TransformedList<E, E> threadProxyList(EventList<E> source, int maxFlushRate, long maxBatchLatency, TimeUnit unit) {
+        final JavaFxThreadProxyEventList<E> result = new JavaFxThreadProxyEventList<E>(source);
+        result.setFlushRate(maxFlushRate, maxBatchLatency, unit);
+        return result;
+    }
 }
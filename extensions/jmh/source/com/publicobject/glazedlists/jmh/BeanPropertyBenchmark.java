@@ -0,0 +1,176 @@
+/* Glazed Lists                                                 (c) 2003-2014 */
+/* http://publicobject.com/glazedlists/                      publicobject.com,*/
+/*                                                     O'Dell Engineering Ltd.*/
+package com.publicobject.glazedlists.jmh;
+
+import ca.odell.glazedlists.BasicEventList;
+import ca.odell.glazedlists.GlazedLists;
+import ca.odell.glazedlists.SortedList;
+import ca.odell.glazedlists.gui.TableFormat;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Comparator;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure the cost of reading JavaBean properties, as a table of beans does
+ * when it renders its cells and sorts its rows.
+ *
+ * <p>Each benchmark runs twice: once with the accessors that are generated
+ * for frequently used properties, and once in a JVM started with
+ * <code>-Dglazedlists.compat.reflective_bean_properties</code>, which always
+ * uses reflection.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+public class BeanPropertyBenchmark {
+
+    /** the properties of each column */
+    private static final String[] PROPERTIES = {"symbol", "price", "quantity", "account.name"};
+
+    @State(Scope.Benchmark)
+    public static class BeanTable {
+
+        @Param({"10000", "100000"})
+        public int size;
+
+        /** the number of rows visible on screen */
+        @Param({"50"})
+        public int visibleRows;
+
+        BasicEventList<Trade> source;
+        SortedList<Trade> sorted;
+        TableFormat<Trade> tableFormat;
+        Comparator<Trade> byPrice;
+        Comparator<Trade> byAccount;
+        Random dice;
+        boolean toggle;
+
+        @Setup(Level.Trial)
+        public void createTable() {
+            dice = new Random(0);
+            source = new BasicEventList<Trade>();
+            for(int i = 0; i < size; i++) {
+                source.add(new Trade(dice));
+            }
+            sorted = new SortedList<Trade>(source, null);
+            tableFormat = GlazedLists.tableFormat(Trade.class, PROPERTIES, PROPERTIES);
+            byPrice = GlazedLists.beanPropertyComparator(Trade.class, "price");
+            byAccount = GlazedLists.beanPropertyComparator(Trade.class, "account.name", "symbol");
+        }
+
+        @TearDown(Level.Trial)
+        public void disposeTable() {
+            sorted.dispose();
+            sorted = null;
+            source = null;
+        }
+    }
+
+    /**
+     * Read every cell of a random screenful of rows, as a table does when
+     * it is scrolled.
+     */
+    @Benchmark
+    public int render(BeanTable state) {
+        return renderRows(state);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g", "-Dglazedlists.compat.reflective_bean_properties=true"})
+    public int renderReflective(BeanTable state) {
+        return renderRows(state);
+    }
+
+    /**
+     * Alternate between sorting by a single property and by a navigated
+     * property then another property.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int sort(BeanTable state) {
+        return sortRows(state);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g", "-Dglazedlists.compat.reflective_bean_properties=true"})
+    public int sortReflective(BeanTable state) {
+        return sortRows(state);
+    }
+
+    private static int renderRows(BeanTable state) {
+        final TableFormat<Trade> tableFormat = state.tableFormat;
+        final int columns = tableFormat.getColumnCount();
+        final int first = state.dice.nextInt(state.size - state.visibleRows);
+
+        int result = 0;
+        for(int r = first; r < first + state.visibleRows; r++) {
+            final Trade trade = state.sorted.get(r);
+            for(int c = 0; c < columns; c++) {
+                result += tableFormat.getColumnValue(trade, c).hashCode();
+            }
+        }
+        return result;
+    }
+
+    private static int sortRows(BeanTable state) {
+        state.toggle = !state.toggle;
+        state.sorted.setComparator(state.toggle ? state.byPrice : state.byAccount);
+        return state.sorted.get(0).quantity;
+    }
+
+    /**
+     * A row of the table.
+     */
+    public static class Trade {
+        private static final String[] SYMBOLS = {"AAPL", "GOOG", "IBM", "MSFT", "ORCL", "SUNW"};
+
+        private final String symbol;
+        private final double price;
+        private final int quantity;
+        private final Account account;
+
+        Trade(Random dice) {
+            symbol = SYMBOLS[dice.nextInt(SYMBOLS.length)];
+            price = dice.nextInt(100000) / 100.0;
+            quantity = dice.nextInt(1000);
+            account = new Account("account " + dice.nextInt(100));
+        }
+
+        public String getSymbol() { return symbol; }
+        public double getPrice() { return price; }
+        public int getQuantity() { return quantity; }
+        public Account getAccount() { return account; }
+    }
+
+    /**
+     * The account that made a trade.
+     */
+    public static class Account {
+        private final String name;
+
+        Account(String name) {
+            this.name = name;
+        }
+
+        public String getName() { return name; }
+    }
+}
@@ -0,0 +1,107 @@
+/* Glazed Lists                                                 (c) 2003-2014 */
+/* http://publicobject.com/glazedlists/                      publicobject.com,*/
+/*                                                     O'Dell Engineering Ltd.*/
+package com.publicobject.glazedlists.jmh;
+
+import ca.odell.glazedlists.BasicEventList;
+import ca.odell.glazedlists.CoalescingList;
+import ca.odell.glazedlists.EventList;
+import ca.odell.glazedlists.FilterList;
+import ca.odell.glazedlists.SortedList;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure how long a burst of single row updates takes to reach a filtered and
+ * sorted view, when every update is propagated and when the updates are merged
+ * by a {@link CoalescingList}.
+ *
+ * <p>Like a feed of quotes, the updates are concentrated on a number of active
+ * rows. Merging saves the most when each active row is updated many times
+ * per window.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+public class CoalescingBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Feed {
+
+        @Param({"100000"})
+        public int size;
+
+        /** the number of updates in each burst */
+        @Param({"5000"})
+        public int updates;
+
+        /** the number of rows that are updated */
+        @Param({"500", "5000"})
+        public int activeRows;
+
+        @Param({"direct", "coalesced"})
+        public String pipeline;
+
+        EventList<Integer> source;
+        CoalescingList<Integer> coalesced;
+        FilterList<Integer> filtered;
+        SortedList<Integer> sorted;
+        Random dice;
+
+        @Setup(Level.Trial)
+        public void createPipeline() {
+            dice = new Random(0);
+            source = new BasicEventList<Integer>();
+            source.addAll(Pipeline.createData(size, 0));
+            EventList<Integer> head = source;
+            if("coalesced".equals(pipeline)) {
+                coalesced = new CoalescingList<Integer>(source, 1, TimeUnit.HOURS);
+                head = coalesced;
+            }
+            filtered = new FilterList<Integer>(head, Pipeline.EVEN);
+            sorted = new SortedList<Integer>(filtered, Pipeline.NATURAL);
+        }
+
+        @TearDown(Level.Trial)
+        public void disposePipeline() {
+            sorted.dispose();
+            filtered.dispose();
+            if(coalesced != null) coalesced.dispose();
+            sorted = null;
+            filtered = null;
+            coalesced = null;
+            source = null;
+        }
+    }
+
+    /**
+     * Replace random rows one at a time, then end the window so that the
+     * sorted view is up to date.
+     */
+    @Benchmark
+    public int updateBurst(Feed state) {
+        for(int i = 0; i < state.updates; i++) {
+            final int row = state.dice.nextInt(state.activeRows) * (state.size / state.activeRows);
+            state.source.set(row, Integer.valueOf(state.dice.nextInt(state.size)));
+        }
+        if(state.coalesced != null) state.coalesced.flush();
+        return state.sorted.size();
+    }
+}
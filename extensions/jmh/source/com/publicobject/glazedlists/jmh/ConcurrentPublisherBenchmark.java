@@ -0,0 +1,122 @@
+/* Glazed Lists                                                 (c) 2003-2014 */
+/* http://publicobject.com/glazedlists/                      publicobject.com,*/
+/*                                                     O'Dell Engineering Ltd.*/
+package com.publicobject.glazedlists.jmh;
+
+import ca.odell.glazedlists.BasicEventList;
+import ca.odell.glazedlists.EventList;
+import ca.odell.glazedlists.FilterList;
+import ca.odell.glazedlists.SortedList;
+import ca.odell.glazedlists.event.ListEventAssembler;
+import ca.odell.glazedlists.event.ListEventPublisher;
+import ca.odell.glazedlists.matchers.Matcher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure how long a change takes to reach independent branches of a
+ * pipeline, with a publisher that notifies every branch on the changing
+ * thread and with one that notifies the branches in parallel.
+ *
+ * <p>Each branch is a {@link FilterList} and a {@link SortedList} for one desk.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+public class ConcurrentPublisherBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Desks {
+
+        @Param({"100000"})
+        public int size;
+
+        /** the number of independent branches */
+        @Param({"8"})
+        public int desks;
+
+        /** the publisher shared by the pipeline */
+        @Param({"synchronous", "concurrent"})
+        public String publisher;
+
+        ExecutorService executor;
+        EventList<Integer> source;
+        List<SortedList<Integer>> sortedDesks;
+        List<Integer> batch;
+
+        @Setup(Level.Trial)
+        public void createDesks() {
+            final ListEventPublisher listEventPublisher;
+            if("concurrent".equals(publisher)) {
+                executor = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+                listEventPublisher = ListEventAssembler.createListEventPublisher(executor);
+            } else {
+                listEventPublisher = ListEventAssembler.createListEventPublisher();
+            }
+
+            source = new BasicEventList<Integer>(listEventPublisher, null);
+            source.addAll(Pipeline.createData(size, 0));
+            sortedDesks = new ArrayList<SortedList<Integer>>(desks);
+            for(int d = 0; d < desks; d++) {
+                final FilterList<Integer> filtered = new FilterList<Integer>(source, new DeskMatcher(d, desks));
+                sortedDesks.add(new SortedList<Integer>(filtered, Pipeline.NATURAL));
+            }
+            batch = Pipeline.createData(size / 10, 1);
+        }
+
+        @TearDown(Level.Trial)
+        public void disposeDesks() {
+            for(int d = 0; d < sortedDesks.size(); d++) {
+                sortedDesks.get(d).dispose();
+            }
+            if(executor != null) executor.shutdown();
+        }
+    }
+
+    /**
+     * Add a batch of values that reaches every desk, then remove it again.
+     */
+    @Benchmark
+    public int addAndRemoveBatch(Desks state) {
+        final int size = state.source.size();
+        state.source.addAll(state.batch);
+        state.source.subList(size, state.source.size()).clear();
+        return state.sortedDesks.get(0).size();
+    }
+
+    /**
+     * Matches the values that belong to a desk.
+     */
+    private static class DeskMatcher implements Matcher<Integer> {
+        private final int desk;
+        private final int desks;
+        DeskMatcher(int desk, int desks) {
+            this.desk = desk;
+            this.desks = desks;
+        }
+        @Override
+        public boolean matches(Integer item) {
+            return item.intValue() % desks == desk;
+        }
+    }
+}
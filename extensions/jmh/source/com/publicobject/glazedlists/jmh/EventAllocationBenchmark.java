@@ -0,0 +1,136 @@
+/* Glazed Lists                                                 (c) 2003-2014 */
+/* http://publicobject.com/glazedlists/                      publicobject.com,*/
+/*                                                     O'Dell Engineering Ltd.*/
+package com.publicobject.glazedlists.jmh;
+
+import ca.odell.glazedlists.BasicEventList;
+import ca.odell.glazedlists.EventList;
+import ca.odell.glazedlists.GlazedLists;
+import ca.odell.glazedlists.TransformedList;
+import ca.odell.glazedlists.event.ListEvent;
+import ca.odell.glazedlists.event.ListEventListener;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure the cost of propagating small, high frequency changes through a
+ * chain of lists that simply forward their events to a number of listeners.
+ *
+ * <p>Run with <code>-prof gc</code>. The <code>gc.alloc.rate.norm</code>
+ * figure for each benchmark should be zero, as no garbage is created while
+ * an event is published, forwarded and iterated.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+public class EventAllocationBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class ForwardingChain {
+
+        @Param({"10000"})
+        public int size;
+
+        /** the number of lists forwarding each event */
+        @Param({"1", "5"})
+        public int depth;
+
+        /** the number of listeners on the last list in the chain */
+        @Param({"1", "10", "100"})
+        public int listeners;
+
+        BasicEventList<Integer> source;
+        List<TransformedList<Integer,Integer>> chain;
+        CountingListener counter;
+        Integer[] values;
+        Random dice;
+
+        @Setup(Level.Trial)
+        public void createChain() {
+            source = new BasicEventList<Integer>();
+            source.addAll(Pipeline.createData(size, 0));
+
+            chain = new ArrayList<TransformedList<Integer,Integer>>();
+            EventList<Integer> last = source;
+            for(int i = 0; i < depth; i++) {
+                TransformedList<Integer,Integer> next = GlazedLists.readOnlyList(last);
+                chain.add(next);
+                last = next;
+            }
+
+            counter = new CountingListener();
+            for(int i = 0; i < listeners; i++) {
+                last.addListEventListener(counter);
+            }
+
+            // box the values up front so the ticks themselves don't allocate
+            values = Pipeline.createData(size, 1).toArray(new Integer[size]);
+            dice = new Random(1);
+        }
+
+        @TearDown(Level.Trial)
+        public void disposeChain() {
+            for(int i = chain.size() - 1; i >= 0; i--) {
+                chain.get(i).dispose();
+            }
+            chain = null;
+            source = null;
+        }
+    }
+
+    /**
+     * Replace a random element, as a price tick would.
+     */
+    @Benchmark
+    public int update(ForwardingChain state) {
+        int index = state.dice.nextInt(state.size);
+        state.source.set(index, state.values[index]);
+        return state.counter.changes;
+    }
+
+    /**
+     * Insert and remove an element at random locations, which changes the
+     * size of the list for each event.
+     */
+    @Benchmark
+    public int insertAndRemove(ForwardingChain state) {
+        BasicEventList<Integer> source = state.source;
+        int index = state.dice.nextInt(state.size);
+        source.add(index, state.values[index]);
+        source.remove(index);
+        return state.counter.changes;
+    }
+
+    /**
+     * Visit every change of every event, as a typical listener would.
+     */
+    private static class CountingListener implements ListEventListener<Integer> {
+        int changes;
+
+        @Override
+        public void listChanged(ListEvent<Integer> listChanges) {
+            while(listChanges.next()) {
+                changes += listChanges.getType() + listChanges.getIndex();
+            }
+        }
+    }
+}
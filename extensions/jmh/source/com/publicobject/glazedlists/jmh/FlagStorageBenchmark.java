@@ -0,0 +1,121 @@
+/* Glazed Lists                                                 (c) 2003-2014 */
+/* http://publicobject.com/glazedlists/                      publicobject.com,*/
+/*                                                     O'Dell Engineering Ltd.*/
+package com.publicobject.glazedlists.jmh;
+
+import ca.odell.glazedlists.BasicEventList;
+import ca.odell.glazedlists.FilterList;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compare the {@link FilterList#RUN_LENGTH_STORAGE} and
+ * {@link FilterList#BITSET_STORAGE} flag storage. The source values are
+ * random, so matched and unmatched elements alternate frequently, which is the
+ * worst case for run-length storage.
+ *
+ * <p>Run with <code>-prof gc</code> to compare the memory allocated by the
+ * refilter benchmark, which rebuilds every flag.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+public class FlagStorageBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class FilteredList {
+
+        @Param({"100000", "1000000", "10000000"})
+        public int size;
+
+        @Param({"runLength", "bitset"})
+        public String storage;
+
+        BasicEventList<Integer> source;
+        FilterList<Integer> filtered;
+        Random dice;
+        boolean toggle;
+
+        @Setup(Level.Trial)
+        public void createList() {
+            source = new BasicEventList<Integer>();
+            source.addAll(Pipeline.createData(size, 0));
+            filtered = new FilterList<Integer>(source);
+            filtered.setFlagStorage("bitset".equals(storage) ? FilterList.BITSET_STORAGE : FilterList.RUN_LENGTH_STORAGE);
+            filtered.setMatcher(Pipeline.EVEN);
+            dice = new Random(1);
+        }
+
+        @TearDown(Level.Trial)
+        public void disposeList() {
+            filtered.dispose();
+            filtered = null;
+            source = null;
+        }
+    }
+
+    /**
+     * Look up random elements, which translates each filtered index to a
+     * source index.
+     */
+    @Benchmark
+    public int randomGet(FilteredList state) {
+        FilterList<Integer> filtered = state.filtered;
+        int result = 0;
+        for(int i = 0; i < 100; i++) {
+            result += filtered.get(state.dice.nextInt(filtered.size())).intValue();
+        }
+        return result;
+    }
+
+    /**
+     * Insert and remove an element at random locations in the source list.
+     */
+    @Benchmark
+    public int insertAndRemove(FilteredList state) {
+        BasicEventList<Integer> source = state.source;
+        int index = state.dice.nextInt(source.size());
+        source.add(index, Integer.valueOf(state.dice.nextInt(state.size)));
+        source.remove(index);
+        return state.filtered.size();
+    }
+
+    /**
+     * Update an element at a random location in the source list, which
+     * usually changes whether it is matched.
+     */
+    @Benchmark
+    public int update(FilteredList state) {
+        BasicEventList<Integer> source = state.source;
+        source.set(state.dice.nextInt(source.size()), Integer.valueOf(state.dice.nextInt(state.size)));
+        return state.filtered.size();
+    }
+
+    /**
+     * Alternate between two unrelated matchers, so every flag is recomputed.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int refilter(FilteredList state) {
+        state.toggle = !state.toggle;
+        state.filtered.setMatcher(state.toggle ? Pipeline.THIRDS : Pipeline.EVEN);
+        return state.filtered.size();
+    }
+}
@@ -0,0 +1,195 @@
+/* Glazed Lists                                                 (c) 2003-2014 */
+/* http://publicobject.com/glazedlists/                      publicobject.com,*/
+/*                                                     O'Dell Engineering Ltd.*/
+package com.publicobject.glazedlists.jmh;
+
+import ca.odell.glazedlists.BasicEventList;
+import ca.odell.glazedlists.CollectionList;
+import ca.odell.glazedlists.EventList;
+import ca.odell.glazedlists.FilterList;
+import ca.odell.glazedlists.SortedList;
+import ca.odell.glazedlists.event.ListEventAssembler;
+import ca.odell.glazedlists.event.ListEventPublisher;
+import ca.odell.glazedlists.matchers.Matcher;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure the cost of building and disposing pipelines with thousands of
+ * listeners that share a single
+ * {@link ca.odell.glazedlists.event.ListEventPublisher}, as a screen with a
+ * {@link FilterList} per row or a {@link CollectionList} with many children does,
+ * and the cost of changing a small branch of such a pipeline.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+public class ListenerGraphBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class ListenerGraph {
+
+        /** the number of listeners to build */
+        @Param({"1000", "10000"})
+        public int listeners;
+
+        List<Integer> data;
+
+        @Setup(Level.Trial)
+        public void createData() {
+            data = Pipeline.createData(100, 0);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class BranchedGraph {
+
+        /** the number of listeners on the busy branch */
+        @Param({"1000", "10000"})
+        public int listeners;
+
+        EventList<Integer> busy;
+        EventList<Integer> quiet;
+        List<FilterList<Integer>> filterLists;
+        SortedList<Integer> sorted;
+        int value;
+
+        @Setup(Level.Trial)
+        public void createGraph() {
+            final ListEventPublisher publisher = ListEventAssembler.createListEventPublisher();
+            busy = new BasicEventList<Integer>(publisher, null);
+            busy.addAll(Pipeline.createData(100, 0));
+            filterLists = new ArrayList<FilterList<Integer>>(listeners);
+            for(int i = 0; i < listeners; i++) {
+                filterLists.add(new FilterList<Integer>(busy, new ModuloMatcher(i % 7 + 2)));
+            }
+
+            quiet = new BasicEventList<Integer>(publisher, busy.getReadWriteLock());
+            quiet.addAll(Pipeline.createData(100, 1));
+            sorted = new SortedList<Integer>(quiet);
+        }
+
+        @TearDown(Level.Trial)
+        public void disposeGraph() {
+            System.out.println(ListEventAssembler.getStatistics(busy.getPublisher()));
+            sorted.dispose();
+            for(int i = 0; i < filterLists.size(); i++) {
+                filterLists.get(i).dispose();
+            }
+            filterLists = null;
+        }
+    }
+
+    /**
+     * Change the branch with a single listener, beside a branch with many.
+     * Only the listeners of the changed branch should be visited.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public Integer changeSmallBranch(BranchedGraph state) {
+        state.quiet.set(state.value++ % 100, Integer.valueOf(state.value));
+        return state.sorted.get(0);
+    }
+
+    /**
+     * Attach a {@link FilterList} per row to a single source, then dispose them
+     * all in the order they were created.
+     */
+    @Benchmark
+    public int filterLists(ListenerGraph state) {
+        final EventList<Integer> source = new BasicEventList<Integer>();
+        source.addAll(state.data);
+
+        final List<FilterList<Integer>> filterLists = new ArrayList<FilterList<Integer>>(state.listeners);
+        for(int i = 0; i < state.listeners; i++) {
+            filterLists.add(new FilterList<Integer>(source, new ModuloMatcher(i % 7 + 2)));
+        }
+
+        // an event reaches every listener
+        source.add(Integer.valueOf(0));
+
+        int result = 0;
+        for(int i = 0; i < filterLists.size(); i++) {
+            final FilterList<Integer> filterList = filterLists.get(i);
+            result += filterList.size();
+            filterList.dispose();
+        }
+        return result;
+    }
+
+    /**
+     * Add a child list per row to a {@link CollectionList}, then remove the
+     * rows, which disposes each child.
+     */
+    @Benchmark
+    public int collectionListChildren(ListenerGraph state) {
+        final EventList<Integer> source = new BasicEventList<Integer>();
+        final CollectionList<Integer, Integer> collectionList = new CollectionList<Integer, Integer>(source, new RepeatModel(source));
+
+        for(int i = 0; i < state.listeners; i++) {
+            source.add(Integer.valueOf(i % 3));
+        }
+        final int result = collectionList.size();
+
+        while(!source.isEmpty()) {
+            source.remove(source.size() - 1);
+        }
+        collectionList.dispose();
+        return result;
+    }
+
+    /**
+     * Matches values that are multiples of a divisor.
+     */
+    private static class ModuloMatcher implements Matcher<Integer> {
+        private final int divisor;
+
+        ModuloMatcher(int divisor) {
+            this.divisor = divisor;
+        }
+
+        @Override
+        public boolean matches(Integer item) {
+            return item.intValue() % divisor == 0;
+        }
+    }
+
+    /**
+     * Creates a child {@link EventList} of each row that shares the publisher
+     * and lock of the rows.
+     */
+    private static class RepeatModel implements CollectionList.Model<Integer, Integer> {
+        private final EventList<Integer> rows;
+
+        RepeatModel(EventList<Integer> rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public List<Integer> getChildren(Integer parent) {
+            final EventList<Integer> children = new BasicEventList<Integer>(rows.getPublisher(), rows.getReadWriteLock());
+            for(int i = 0; i < parent.intValue(); i++) {
+                children.add(parent);
+            }
+            return children;
+        }
+    }
+}
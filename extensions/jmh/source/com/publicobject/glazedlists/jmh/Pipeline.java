@@ -0,0 +1,139 @@
+/* Glazed Lists                                                 (c) 2003-2014 */
+/* http://publicobject.com/glazedlists/                      publicobject.com,*/
+/*                                                     O'Dell Engineering Ltd.*/
+package com.publicobject.glazedlists.jmh;
+
+import ca.odell.glazedlists.BasicEventList;
+import ca.odell.glazedlists.EventList;
+import ca.odell.glazedlists.FilterList;
+import ca.odell.glazedlists.GlazedLists;
+import ca.odell.glazedlists.GroupingList;
+import ca.odell.glazedlists.SeparatorList;
+import ca.odell.glazedlists.SortedList;
+import ca.odell.glazedlists.TransformedList;
+import ca.odell.glazedlists.UniqueList;
+import ca.odell.glazedlists.matchers.Matcher;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A typical production chain of lists, built as
+ * <code>BasicEventList -> FilterList -> SortedList -> terminal</code>, where
+ * the terminal list is one of {@link GroupingList}, {@link UniqueList} or
+ * {@link SeparatorList}.
+ *
+ * <p>This is shared by the benchmarks so that every benchmark measures exactly
+ * the same pipeline shape.
+ */
+public class Pipeline {
+
+    /** the names of the supported terminal lists, for use as a JMH <code>@Param</code> */
+    public static final String GROUPING = "grouping";
+    public static final String UNIQUE = "unique";
+    public static final String SEPARATOR = "separator";
+
+    /** matches even values */
+    public static final Matcher<Integer> EVEN = new ModuloMatcher(2);
+    /** matches values divisible by three */
+    public static final Matcher<Integer> THIRDS = new ModuloMatcher(3);
+
+    /** sorts in natural order */
+    public static final Comparator<Integer> NATURAL = GlazedLists.comparableComparator();
+    /** sorts in reverse order */
+    public static final Comparator<Integer> REVERSE = GlazedLists.reverseComparator();
+
+    /** groups values into buckets of 16 consecutive values */
+    private static final Comparator<Integer> BUCKETS = new BucketComparator(16);
+
+    private final BasicEventList<Integer> source;
+    private final FilterList<Integer> filtered;
+    private final SortedList<Integer> sorted;
+    private final TransformedList<?,?> terminal;
+
+    /**
+     * Create an empty pipeline ending in the specified terminal list.
+     *
+     * @param terminalType one of {@link #GROUPING}, {@link #UNIQUE} or {@link #SEPARATOR}
+     */
+    public Pipeline(String terminalType) {
+        source = new BasicEventList<Integer>();
+        filtered = new FilterList<Integer>(source, EVEN);
+        sorted = new SortedList<Integer>(filtered, NATURAL);
+
+        if(GROUPING.equals(terminalType)) {
+            terminal = new GroupingList<Integer>(sorted, BUCKETS);
+        } else if(UNIQUE.equals(terminalType)) {
+            terminal = new UniqueList<Integer>(sorted, BUCKETS);
+        } else if(SEPARATOR.equals(terminalType)) {
+            terminal = new SeparatorList<Integer>(sorted, BUCKETS, 0, Integer.MAX_VALUE);
+        } else {
+            throw new IllegalArgumentException("Invalid terminal list, " + terminalType);
+        }
+    }
+
+    /**
+     * Create random data for a pipeline. Values are chosen from a range the
+     * same size as the data, so duplicates are likely.
+     */
+    public static List<Integer> createData(int size, long seed) {
+        Random dice = new Random(seed);
+        List<Integer> result = new ArrayList<Integer>(size);
+        for(int i = 0; i < size; i++) {
+            result.add(Integer.valueOf(dice.nextInt(size)));
+        }
+        return result;
+    }
+
+    public EventList<Integer> getSource() {
+        return source;
+    }
+    public FilterList<Integer> getFiltered() {
+        return filtered;
+    }
+    public SortedList<Integer> getSorted() {
+        return sorted;
+    }
+    public EventList<?> getTerminal() {
+        return terminal;
+    }
+
+    /**
+     * Detach all lists of this pipeline from each other.
+     */
+    public void dispose() {
+        terminal.dispose();
+        sorted.dispose();
+        filtered.dispose();
+    }
+
+    /**
+     * Match values that are a multiple of the specified divisor.
+     */
+    private static class ModuloMatcher implements Matcher<Integer> {
+        private final int divisor;
+        public ModuloMatcher(int divisor) {
+            this.divisor = divisor;
+        }
+        public boolean matches(Integer item) {
+            return item.intValue() % divisor == 0;
+        }
+    }
+
+    /**
+     * Compare values by the bucket they fall into.
+     */
+    private static class BucketComparator implements Comparator<Integer> {
+        private final int bucketSize;
+        public BucketComparator(int bucketSize) {
+            this.bucketSize = bucketSize;
+        }
+        public int compare(Integer a, Integer b) {
+            int aBucket = a.intValue() / bucketSize;
+            int bBucket = b.intValue() / bucketSize;
+            return aBucket < bBucket ? -1 : (aBucket == bBucket ? 0 : 1);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+/* Glazed Lists                                                 (c) 2003-2014 */
+/* http://publicobject.com/glazedlists/                      publicobject.com,*/
+/*                                                     O'Dell Engineering Ltd.*/
+package com.publicobject.glazedlists.jmh;
+
+import ca.odell.glazedlists.EventList;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure changes applied to a fully loaded {@link Pipeline}: single element
+ * churn from a feed, and the matcher and comparator changes caused by the
+ * user filtering or sorting a table.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+public class PipelineChangeBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class LoadedPipeline {
+
+        @Param({"10000", "100000", "1000000", "10000000"})
+        public int size;
+
+        @Param({Pipeline.GROUPING, Pipeline.UNIQUE, Pipeline.SEPARATOR})
+        public String terminal;
+
+        Pipeline pipeline;
+        Random dice;
+        boolean toggle;
+
+        @Setup(Level.Trial)
+        public void createPipeline() {
+            pipeline = new Pipeline(terminal);
+            pipeline.getSource().addAll(Pipeline.createData(size, 0));
+            dice = new Random(1);
+        }
+
+        @TearDown(Level.Trial)
+        public void disposePipeline() {
+            pipeline.dispose();
+            pipeline = null;
+        }
+    }
+
+    /**
+     * Insert, update and remove one element at random locations. The size of
+     * the source list is unchanged afterwards.
+     */
+    @Benchmark
+    public int singleElementChurn(LoadedPipeline state) {
+        EventList<Integer> source = state.pipeline.getSource();
+        Random dice = state.dice;
+        int size = source.size();
+
+        source.add(dice.nextInt(size + 1), Integer.valueOf(dice.nextInt(size)));
+        source.set(dice.nextInt(size + 1), Integer.valueOf(dice.nextInt(size)));
+        source.remove(dice.nextInt(size + 1));
+
+        return state.pipeline.getTerminal().size();
+    }
+
+    /**
+     * Alternate the FilterList between two unrelated matchers, so every
+     * change is a full refilter.
+     */
+    @Benchmark
+    public int matcherChange(LoadedPipeline state) {
+        state.toggle = !state.toggle;
+        state.pipeline.getFiltered().setMatcher(state.toggle ? Pipeline.THIRDS : Pipeline.EVEN);
+        return state.pipeline.getTerminal().size();
+    }
+
+    /**
+     * Alternate the SortedList between natural and reverse order, as a user
+     * clicking a column header would.
+     */
+    @Benchmark
+    public int comparatorChange(LoadedPipeline state) {
+        state.toggle = !state.toggle;
+        state.pipeline.getSorted().setComparator(state.toggle ? Pipeline.REVERSE : Pipeline.NATURAL);
+        return state.pipeline.getTerminal().size();
+    }
+}
@@ -0,0 +1,83 @@
+/* Glazed Lists                                                 (c) 2003-2014 */
+/* http://publicobject.com/glazedlists/                      publicobject.com,*/
+/*                                                     O'Dell Engineering Ltd.*/
+package com.publicobject.glazedlists.jmh;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure loading a complete data set into an empty {@link Pipeline}, which
+ * is what happens when a screen is first opened or a snapshot is reloaded.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+public class PipelineLoadBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class EmptyPipeline {
+
+        @Param({"10000", "100000", "1000000", "10000000"})
+        public int size;
+
+        @Param({Pipeline.GROUPING, Pipeline.UNIQUE, Pipeline.SEPARATOR})
+        public String terminal;
+
+        List<Integer> values;
+        Pipeline pipeline;
+
+        @Setup(Level.Trial)
+        public void createData() {
+            values = Pipeline.createData(size, 0);
+        }
+
+        @Setup(Level.Invocation)
+        public void createPipeline() {
+            pipeline = new Pipeline(terminal);
+        }
+
+        @TearDown(Level.Invocation)
+        public void disposePipeline() {
+            pipeline.dispose();
+            pipeline = null;
+        }
+    }
+
+    /**
+     * Add all values to the source list in a single event.
+     */
+    @Benchmark
+    public int bulkLoad(EmptyPipeline state) {
+        state.pipeline.getSource().addAll(state.values);
+        return state.pipeline.getTerminal().size();
+    }
+
+    /**
+     * Add all values to the source list one at a time, as a feed would.
+     */
+    @Benchmark
+    public int incrementalLoad(EmptyPipeline state) {
+        List<Integer> values = state.values;
+        for(int i = 0, n = values.size(); i < n; i++) {
+            state.pipeline.getSource().add(values.get(i));
+        }
+        return state.pipeline.getTerminal().size();
+    }
+}
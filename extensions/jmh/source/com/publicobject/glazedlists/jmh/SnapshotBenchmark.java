@@ -0,0 +1,116 @@
+/* Glazed Lists                                                 (c) 2003-2014 */
+/* http://publicobject.com/glazedlists/                      publicobject.com,*/
+/*                                                     O'Dell Engineering Ltd.*/
+package com.publicobject.glazedlists.jmh;
+
+import ca.odell.glazedlists.BasicEventList;
+import ca.odell.glazedlists.EventList;
+import ca.odell.glazedlists.SnapshotList;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure a feed writer beside a reporting thread that iterates the whole
+ * list, once while holding the read lock and once through the snapshots of
+ * a {@link SnapshotList}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+public class SnapshotBenchmark {
+
+    @State(Scope.Group)
+    public static class Feed {
+
+        @Param({"100000"})
+        public int size;
+
+        EventList<Integer> source;
+        SnapshotList<Integer> snapshots;
+        Random dice;
+
+        @Setup(Level.Trial)
+        public void createList() {
+            dice = new Random(0);
+            source = new BasicEventList<Integer>();
+            source.addAll(Pipeline.createData(size, 0));
+            snapshots = new SnapshotList<Integer>(source);
+        }
+
+        @TearDown(Level.Trial)
+        public void disposeList() {
+            snapshots.dispose();
+            snapshots = null;
+            source = null;
+        }
+
+        Integer write() {
+            source.getReadWriteLock().writeLock().lock();
+            try {
+                return source.set(dice.nextInt(size), Integer.valueOf(dice.nextInt(size)));
+            } finally {
+                source.getReadWriteLock().writeLock().unlock();
+            }
+        }
+    }
+
+    @Benchmark
+    @Group("locked")
+    @GroupThreads(1)
+    public long lockedReader(Feed feed) {
+        feed.source.getReadWriteLock().readLock().lock();
+        try {
+            return sum(feed.source);
+        } finally {
+            feed.source.getReadWriteLock().readLock().unlock();
+        }
+    }
+
+    @Benchmark
+    @Group("locked")
+    @GroupThreads(1)
+    public Integer lockedWriter(Feed feed) {
+        return feed.write();
+    }
+
+    @Benchmark
+    @Group("snapshot")
+    @GroupThreads(1)
+    public long snapshotReader(Feed feed) {
+        return sum(feed.snapshots.getSnapshot());
+    }
+
+    @Benchmark
+    @Group("snapshot")
+    @GroupThreads(1)
+    public Integer snapshotWriter(Feed feed) {
+        return feed.write();
+    }
+
+    private static long sum(Iterable<Integer> values) {
+        long result = 0;
+        for(Integer value : values) {
+            result += value.intValue();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,117 @@
+/* Glazed Lists                                                 (c) 2003-2014 */
+/* http://publicobject.com/glazedlists/                      publicobject.com,*/
+/*                                                     O'Dell Engineering Ltd.*/
+package com.publicobject.glazedlists.jmh;
+
+import ca.odell.glazedlists.BasicEventList;
+import ca.odell.glazedlists.EventList;
+import ca.odell.glazedlists.GlazedLists;
+import ca.odell.glazedlists.util.concurrent.J2SE50LockFactory;
+import ca.odell.glazedlists.util.concurrent.LockFactory;
+import ca.odell.glazedlists.util.concurrent.OptimisticLockFactory;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure how reads through a {@link GlazedLists#threadSafeList thread safe list}
+ * scale with the number of reader threads, with and without a concurrent writer.
+ * This replaces the one minute run of <code>ThreadContentionPerformance</code>.
+ *
+ * <p>Run the <code>read</code> benchmark with <code>-t 1</code>,
+ * <code>-t 4</code>, <code>-t 16</code> etc. to see how readers contend on
+ * the lock. The <code>readMostly</code> group runs seven readers beside a
+ * writer that pauses between writes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+public class ThreadContentionBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class SharedList {
+
+        @Param({"1000"})
+        public int size;
+
+        /** the lock shared by the lists */
+        @Param({"reentrant", "optimistic"})
+        public String lock;
+
+        EventList<Integer> source;
+        EventList<Integer> threadSafe;
+
+        @Setup(Level.Trial)
+        public void createList() {
+            final LockFactory lockFactory = "optimistic".equals(lock) ? new OptimisticLockFactory() : new J2SE50LockFactory();
+            source = new BasicEventList<Integer>(lockFactory.createReadWriteLock());
+            source.addAll(Pipeline.createData(size, 0));
+            threadSafe = GlazedLists.threadSafeList(source);
+        }
+
+        @TearDown(Level.Trial)
+        public void disposeList() {
+            threadSafe.dispose();
+            threadSafe = null;
+            source = null;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Dice {
+        final Random random = new Random();
+    }
+
+    /**
+     * Read the size and a random element, as a thread computing an aggregate would.
+     */
+    @Benchmark
+    public Integer read(SharedList state, Dice dice) {
+        return readElement(state, dice);
+    }
+
+    @Benchmark
+    @Group("readMostly")
+    @GroupThreads(7)
+    public Integer reader(SharedList state, Dice dice) {
+        return readElement(state, dice);
+    }
+
+    /**
+     * Replace a random element, then pause before the next write.
+     */
+    @Benchmark
+    @Group("readMostly")
+    @GroupThreads(1)
+    public Integer writer(SharedList state, Dice dice) {
+        final int index = dice.random.nextInt(state.size);
+        final Integer previous = state.threadSafe.set(index, Integer.valueOf(dice.random.nextInt(state.size)));
+        Blackhole.consumeCPU(1000);
+        return previous;
+    }
+
+    private static Integer readElement(SharedList state, Dice dice) {
+        final EventList<Integer> threadSafe = state.threadSafe;
+        final int size = threadSafe.size();
+        return threadSafe.get(dice.random.nextInt(size));
+    }
+}
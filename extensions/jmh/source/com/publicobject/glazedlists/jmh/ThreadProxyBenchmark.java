@@ -0,0 +1,95 @@
+/* Glazed Lists                                                 (c) 2003-2014 */
+/* http://publicobject.com/glazedlists/                      publicobject.com,*/
+/*                                                     O'Dell Engineering Ltd.*/
+package com.publicobject.glazedlists.jmh;
+
+import ca.odell.glazedlists.BasicEventList;
+import ca.odell.glazedlists.CoalescingList;
+import ca.odell.glazedlists.EventList;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure how long a thread proxy takes to bring its copy of a large list up
+ * to date after a few changes, as when a blotter proxied to the event
+ * dispatch thread ticks. The proxy is a {@link CoalescingList}, which is
+ * flushed on the benchmark thread rather than on a proxy thread.
+ *
+ * <p>The same scenario is measured by the japex ThreadProxyDriver for
+ * different ways of updating the copy.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx8g"})
+public class ThreadProxyBenchmark {
+
+    @State(Scope.Benchmark)
+    public static class Blotter {
+
+        @Param({"100000", "2000000"})
+        public int size;
+
+        /** the number of changes between flushes */
+        @Param({"1", "100"})
+        public int changes;
+
+        /** replace rows, or move them by removing and inserting them */
+        @Param({"update", "move"})
+        public String change;
+
+        EventList<Integer> source;
+        CoalescingList<Integer> proxy;
+        Random dice;
+
+        @Setup(Level.Trial)
+        public void createPipeline() {
+            dice = new Random(0);
+            source = new BasicEventList<Integer>();
+            source.addAll(Pipeline.createData(size, 0));
+            proxy = new CoalescingList<Integer>(source, 1, TimeUnit.HOURS);
+        }
+
+        @TearDown(Level.Trial)
+        public void disposePipeline() {
+            proxy.dispose();
+            proxy = null;
+            source = null;
+        }
+    }
+
+    /**
+     * Change random rows, then flush the proxy so its copy is up to date.
+     */
+    @Benchmark
+    public int tick(Blotter state) {
+        final boolean move = "move".equals(state.change);
+        for(int i = 0; i < state.changes; i++) {
+            final int row = state.dice.nextInt(state.size);
+            if(move) {
+                final Integer moved = state.source.remove(row);
+                state.source.add(state.dice.nextInt(state.size), moved);
+            } else {
+                state.source.set(row, Integer.valueOf(state.dice.nextInt(state.size)));
+            }
+        }
+        state.proxy.flush();
+        return state.proxy.size();
+    }
+}
@@ -9,12 +9,15 @@ import ca.odell.glazedlists.EventList;
 import ca.odell.glazedlists.ThresholdList;
 import ca.odell.glazedlists.TransformedList;
 import ca.odell.glazedlists.gui.TableFormat;
+import ca.odell.glazedlists.impl.gui.ThreadProxyEventList;
 import ca.odell.glazedlists.impl.swt.BeanItemFormat;
 import ca.odell.glazedlists.impl.swt.BoundedRangeControlFactory;
 import ca.odell.glazedlists.impl.swt.LowerThresholdViewer;
 import ca.odell.glazedlists.impl.swt.SWTThreadProxyEventList;
 import ca.odell.glazedlists.impl.swt.UpperThresholdViewer;
 
+import java.util.concurrent.TimeUnit;
+
 import org.eclipse.swt.events.SelectionListener;
 import org.eclipse.swt.widgets.Combo;
 import org.eclipse.swt.widgets.Display;
@@ -48,6 +51,22 @@ public final class GlazedListsSWT {
         return new SWTThreadProxyEventList<E>(source, display);
     }
 
+    /**
+     * Wraps the source in an {@link EventList} that fires all of its update events
+     * from the SWT user interface thread, at most <code>maxFlushRate</code>
+     * times per second. The changes made between two events are combined into
+     * one, but no change waits longer than <code>maxBatchLatency</code>. The
+     * returned list is a {@link ThreadProxyEventList}, which records how many
+     * changes waited for each event and for how long.
+     *
+     * @see ThreadProxyEventList#setFlushRate(int, long, TimeUnit)
+     */
+    public static <E> TransformedList<E, E> swtThreadProxyList(EventList<E> source, Display display, int maxFlushRate, long maxBatchLatency, TimeUnit unit) {
+        final SWTThreadProxyEventList<E> result = new SWTThreadProxyEventList<E>(source, display);
+        result.setFlushRate(maxFlushRate, maxBatchLatency, unit);
+        return result;
+    }
+
     /**
      * Returns true if <code>list</code> is an {@link EventList} that fires
      * all of its update events from the SWT event dispatch thread.
@@ -156,13 +156,12 @@ public final class BasicEventList<E> extends AbstractEventList<E> implements Ser
         // don't do an add of an empty set
         if(collection.size() == 0) return false;
 
-        // create the change event
+        // create the change event, consecutive inserts are stored as a single block
         updates.beginEvent();
-        for(Iterator<? extends E> i = collection.iterator(); i.hasNext(); ) {
-            E value = i.next();
-            updates.elementInserted(index, value);
-            data.add(index, value);
-            index++;
+        int size = data.size();
+        data.addAll(index, collection);
+        for(int i = index, end = index + data.size() - size; i < end; i++) {
+            updates.elementInserted(i, data.get(i));
         }
         // fire the event
         updates.commitEvent();
@@ -269,6 +268,72 @@ public final class BasicEventList<E> extends AbstractEventList<E> implements Ser
         return changed;
     }
 
+    /**
+     * Inserts all of the specified values starting at the specified index.
+     * Listeners receive a single event with a single block of inserts.
+     *
+     * @param index the index of the first inserted value
+     * @param values the values to insert, in order
+     * @throws IndexOutOfBoundsException if <code>index</code> is out of range
+     */
+    public void insertRange(int index, E[] values) {
+        if(index < 0 || index > size()) throw new IndexOutOfBoundsException("Cannot insert at " + index + " on list of size " + size());
+        if(values.length == 0) return;
+
+        updates.beginEvent();
+        data.addAll(index, Arrays.asList(values));
+        for(int i = 0; i < values.length; i++) {
+            updates.elementInserted(index + i, values[i]);
+        }
+        updates.commitEvent();
+    }
+
+    /**
+     * Removes the values from <code>fromIndex</code>, inclusive, to
+     * <code>toIndex</code>, exclusive. Listeners receive a single event
+     * which includes each removed value.
+     *
+     * @param fromIndex the index of the first value to remove
+     * @param toIndex the index after the last value to remove
+     * @throws IndexOutOfBoundsException if either index is out of range
+     */
+    public void removeRange(int fromIndex, int toIndex) {
+        if(fromIndex < 0 || toIndex > size() || fromIndex > toIndex) throw new IndexOutOfBoundsException("Cannot remove range " + fromIndex + "-" + toIndex + " on list of size " + size());
+        if(fromIndex == toIndex) return;
+
+        updates.beginEvent();
+        for(int i = fromIndex; i < toIndex; i++) {
+            updates.elementDeleted(fromIndex, data.get(i));
+        }
+        data.subList(fromIndex, toIndex).clear();
+        updates.commitEvent();
+    }
+
+    /**
+     * Replaces the value at each of the specified indices with the
+     * corresponding value. Listeners receive a single event, which is
+     * cheapest to process when the indices are in increasing order.
+     *
+     * @param indices the indices of the values to replace
+     * @param values the replacement values, one for each index
+     * @throws IllegalArgumentException if there are more or fewer indices than values
+     * @throws IndexOutOfBoundsException if any index is out of range
+     */
+    public void setAll(int[] indices, E[] values) {
+        if(indices.length != values.length) throw new IllegalArgumentException("Cannot set " + values.length + " values at " + indices.length + " indices");
+        for(int i = 0; i < indices.length; i++) {
+            if(indices[i] < 0 || indices[i] >= size()) throw new IndexOutOfBoundsException("Cannot set at " + indices[i] + " on list of size " + size());
+        }
+        if(indices.length == 0) return;
+
+        updates.beginEvent();
+        for(int i = 0; i < indices.length; i++) {
+            E previous = data.set(indices[i], values[i]);
+            updates.elementUpdated(indices[i], previous, values[i]);
+        }
+        updates.commitEvent();
+    }
+
     /**
      * This method does nothing. It is not necessary to dispose a BasicEventList.
      */
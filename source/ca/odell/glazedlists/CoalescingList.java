@@ -0,0 +1,219 @@
+/* Glazed Lists                                                 (c) 2003-2014 */
+/* http://publicobject.com/glazedlists/                      publicobject.com,*/
+/*                                                     O'Dell Engineering Ltd.*/
+package ca.odell.glazedlists;
+
+import ca.odell.glazedlists.impl.Preconditions;
+import ca.odell.glazedlists.impl.gui.ThreadProxyEventList;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * An {@link EventList} that merges the changes to its source into one
+ * {@link ca.odell.glazedlists.event.ListEvent} per time window. This is useful
+ * when a source changes much more often than its listeners need to hear about
+ * it, such as a feed that updates single rows thousands of times per second:
+ *
+ * <pre>
+ * EventList&lt;Quote&gt; quotes = ...
+ * CoalescingList&lt;Quote&gt; coalesced = new CoalescingList&lt;Quote&gt;(quotes, 100, TimeUnit.MILLISECONDS, 10000);
+ * SortedList&lt;Quote&gt; byPrice = new SortedList&lt;Quote&gt;(coalesced, priceComparator);</pre>
+ *
+ * <p>The first change after a flush starts the window. When the window ends,
+ * or after the specified number of changes if that comes sooner, the changes
+ * are merged and forwarded as a single event. Until then, listeners and
+ * readers of this list see it as it was at the last flush. Like the other
+ * thread proxy lists, it keeps a private copy of its source so that it is
+ * always consistent with the events it has fired, and it takes the pipeline's
+ * write lock to deliver its event. Changes are merged on the thread that makes
+ * them, while the writer holds the write lock.
+ *
+ * <p>The events that are merged and published are counted by
+ * {@link #getMergedEventCount()} and {@link #getPublishedEventCount()}.
+ *
+ * <p><table border="1" width="100%" cellpadding="3" cellspacing="0">
+ * <tr class="TableHeadingColor"><td colspan=2><font size="+2"><b>EventList Overview</b></font></td></tr>
+ * <tr><td class="TableSubHeadingColor"><b>Writable:</b></td><td>yes</td></tr>
+ * <tr><td class="TableSubHeadingColor"><b>Concurrency:</b></td><td>thread ready, not thread safe</td></tr>
+ * <tr><td class="TableSubHeadingColor"><b>Performance:</b></td><td>reads: O(1), flushes: O(N)</td></tr>
+ * <tr><td class="TableSubHeadingColor"><b>Memory:</b></td><td>a copy of the source list</td></tr>
+ * <tr><td class="TableSubHeadingColor"><b>Unit Tests:</b></td><td>CoalescingListTest</td></tr>
+ * <tr><td class="TableSubHeadingColor"><b>Issues:</b></td><td>N/A</td></tr>
+ * </table>
+ */
+public final class CoalescingList<E> extends ThreadProxyEventList<E> {
+
+    /** how long changes are merged for, in nanoseconds */
+    private final long window;
+
+    /** the number of changes that are flushed immediately, regardless of the window */
+    private final int maxMergedEvents;
+
+    /** runs the flushes at the end of each window */
+    private final ScheduledExecutorService scheduler;
+
+    /** flushes the merged changes */
+    private final Runnable flushTask = new Runnable() {
+        @Override
+        public void run() {
+            flush();
+        }
+    };
+
+    /** delivers the merged changes, or <code>null</code> if there are none */
+    private Runnable pendingUpdate;
+
+    /** the end of the current window, or <code>null</code> if there are no merged changes */
+    private ScheduledFuture<?> pendingFlush;
+
+    /** the changes merged since the last flush */
+    private int mergedSinceFlush;
+
+    /** the number of source events merged, and the number of events published */
+    private volatile long mergedEventCount;
+    private volatile long publishedEventCount;
+
+    /**
+     * Creates a {@link CoalescingList} that merges changes to the
+     * <code>source</code> for the specified time.
+     *
+     * @param source the {@link EventList} whose changes are merged
+     * @param window how long to merge changes for
+     * @param unit the unit of <code>window</code>
+     */
+    public CoalescingList(EventList<E> source, long window, TimeUnit unit) {
+        this(source, window, unit, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Creates a {@link CoalescingList} that merges changes to the
+     * <code>source</code> for the specified time, or until the specified number
+     * of changes have been merged.
+     *
+     * @param source the {@link EventList} whose changes are merged
+     * @param window how long to merge changes for
+     * @param unit the unit of <code>window</code>
+     * @param maxMergedEvents the number of source events after which changes
+     *      are published without waiting for the end of the window
+     */
+    public CoalescingList(EventList<E> source, long window, TimeUnit unit, int maxMergedEvents) {
+        this(source, window, unit, maxMergedEvents, SharedScheduler.INSTANCE);
+    }
+
+    /**
+     * Creates a {@link CoalescingList} whose windows are ended by the specified
+     * {@link ScheduledExecutorService}, rather than by a daemon thread that is
+     * shared by all coalescing lists.
+     *
+     * @param source the {@link EventList} whose changes are merged
+     * @param window how long to merge changes for
+     * @param unit the unit of <code>window</code>
+     * @param maxMergedEvents the number of source events after which changes
+     *      are published without waiting for the end of the window
+     * @param scheduler runs the flushes at the end of each window
+     */
+    public CoalescingList(EventList<E> source, long window, TimeUnit unit, int maxMergedEvents, ScheduledExecutorService scheduler) {
+        super(source);
+        Preconditions.checkNotNull(unit, "TimeUnit is undefined");
+        Preconditions.checkNotNull(scheduler, "ScheduledExecutorService is undefined");
+        if(window < 0) throw new IllegalArgumentException("Window must not be negative: " + window);
+        if(maxMergedEvents < 1) throw new IllegalArgumentException("Max merged events must be positive: " + maxMergedEvents);
+        this.window = unit.toNanos(window);
+        this.maxMergedEvents = maxMergedEvents;
+        this.scheduler = scheduler;
+    }
+
+    /**
+     * Starts a window when the first change after a flush is merged.
+     */
+    @Override
+    protected void schedule(Runnable runnable) {
+        pendingUpdate = runnable;
+        pendingFlush = scheduler.schedule(flushTask, window, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Counts the merged change, and flushes if enough have been merged.
+     */
+    @Override
+    protected void eventQueued() {
+        mergedEventCount++;
+        mergedSinceFlush++;
+        if(mergedSinceFlush >= maxMergedEvents) flush();
+    }
+
+    /**
+     * Publishes the changes merged since the last flush as a single event,
+     * without waiting for the end of the window. This does nothing if no changes
+     * have been merged.
+     */
+    public void flush() {
+        getReadWriteLock().writeLock().lock();
+        try {
+            if(pendingUpdate == null) return;
+            final Runnable update = pendingUpdate;
+            pendingUpdate = null;
+            pendingFlush.cancel(false);
+            pendingFlush = null;
+            mergedSinceFlush = 0;
+            publishedEventCount++;
+            update.run();
+        } finally {
+            getReadWriteLock().writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of source events that have been merged, including
+     * those that haven't been published yet.
+     */
+    public long getMergedEventCount() {
+        return mergedEventCount;
+    }
+
+    /**
+     * Returns the number of merged events that have been published.
+     */
+    public long getPublishedEventCount() {
+        return publishedEventCount;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void dispose() {
+        getReadWriteLock().writeLock().lock();
+        try {
+            if(pendingFlush != null) pendingFlush.cancel(false);
+            pendingFlush = null;
+            pendingUpdate = null;
+        } finally {
+            getReadWriteLock().writeLock().unlock();
+        }
+        super.dispose();
+    }
+
+    /**
+     * Ends the windows of coalescing lists that weren't given a scheduler,
+     * on a daemon thread that is only started once one is needed.
+     */
+    private static final class SharedScheduler {
+        static final ScheduledExecutorService INSTANCE;
+        static {
+            final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "Glazed Lists CoalescingList");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            executor.setKeepAliveTime(1, TimeUnit.SECONDS);
+            executor.allowCoreThreadTimeOut(true);
+            INSTANCE = executor;
+        }
+    }
+}
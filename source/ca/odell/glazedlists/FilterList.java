@@ -6,11 +6,16 @@ package ca.odell.glazedlists;
 // the core Glazed Lists packages
 import ca.odell.glazedlists.event.ListEvent;
 import ca.odell.glazedlists.impl.adt.Barcode;
-import ca.odell.glazedlists.impl.adt.BarcodeIterator;
+import ca.odell.glazedlists.impl.adt.CompactBarcode;
+import ca.odell.glazedlists.impl.adt.FlagList;
+import ca.odell.glazedlists.impl.adt.FlagListIterator;
+import ca.odell.glazedlists.impl.matchers.ParallelMatching;
 import ca.odell.glazedlists.matchers.Matcher;
 import ca.odell.glazedlists.matchers.MatcherEditor;
 import ca.odell.glazedlists.matchers.Matchers;
 
+import java.util.concurrent.ExecutorService;
+
 /**
  * An {@link EventList} that shows a subset of the elements of a source
  * {@link EventList}. This subset is composed of all elements of the source
@@ -32,7 +37,7 @@ import ca.odell.glazedlists.matchers.Matchers;
  * <tr><td class="TableSubHeadingColor"><b>Writable:</b></td><td>yes</td></tr>
  * <tr><td class="TableSubHeadingColor"><b>Concurrency:</b></td><td>thread ready, not thread safe</td></tr>
  * <tr><td class="TableSubHeadingColor"><b>Performance:</b></td><td>reads: O(log N), writes O(log N), filter changes O(N)</td></tr>
- * <tr><td class="TableSubHeadingColor"><b>Memory:</b></td><td>0 to 26 bytes per element</td></tr>
+ * <tr><td class="TableSubHeadingColor"><b>Memory:</b></td><td>0 to 26 bytes per element, or about 1.6 bits per element with {@link #BITSET_STORAGE}</td></tr>
  * <tr><td class="TableSubHeadingColor"><b>Unit Tests:</b></td><td>N/A</td></tr>
  * <tr><td class="TableSubHeadingColor"><b>Issues:</b></td><td>
  *   <a href="https://glazedlists.dev.java.net/issues/show_bug.cgi?id=1">1</a>
@@ -50,8 +55,29 @@ import ca.odell.glazedlists.matchers.Matchers;
  */
 public final class FilterList<E> extends TransformedList<E,E> {
 
+    /**
+     * Flag storage that compresses runs of matched and unmatched elements.
+     * This uses very little memory when the matched elements are clustered
+     * together, but up to 26 bytes for each matched element when matched and
+     * unmatched elements alternate. This is the default.
+     */
+    public static final int RUN_LENGTH_STORAGE = 0;
+
+    /**
+     * Flag storage that uses a single bit for each element, plus an index for
+     * fast lookups. This uses about 1.6 bits per element no matter which
+     * elements are matched, which is best for big lists where matched and
+     * unmatched elements alternate frequently. Index lookups and changes to
+     * which elements are matched remain O(log N), but inserting or removing
+     * elements anywhere but the end of the source list is O(N / 64).
+     */
+    public static final int BITSET_STORAGE = 1;
+
     /** the flag list contains Barcode.BLACK for items that match the current filter and Barcode.WHITE for others */
-    private Barcode flagList = new Barcode();
+    private FlagList flagList = new Barcode();
+
+    /** one of {@link #RUN_LENGTH_STORAGE} or {@link #BITSET_STORAGE} */
+    private int flagStorage = RUN_LENGTH_STORAGE;
 
     /** the matcher determines whether elements get filtered in or out */
     private Matcher<? super E> currentMatcher = Matchers.trueMatcher();
@@ -62,6 +88,9 @@ public final class FilterList<E> extends TransformedList<E,E> {
     /** listener handles changes to the matcher */
     private final MatcherEditor.Listener listener = new PrivateMatcherEditorListener();
 
+    /** matches elements concurrently when refiltering, or <code>null</code> to match on the calling thread */
+    private ExecutorService matcherExecutor = null;
+
     /** is this list already disposed? */
     private volatile boolean disposed;
 
@@ -151,6 +180,80 @@ public final class FilterList<E> extends TransformedList<E,E> {
         }
     }
 
+    /**
+     * Set the {@link ExecutorService} used to match elements when this list
+     * is refiltered because its {@link Matcher} has changed. The source
+     * elements are split into chunks which are matched concurrently, and the
+     * resulting changes are fired as a single event as usual.
+     *
+     * <p>This is only worthwhile for big lists or expensive {@link Matcher}s.
+     * Small lists are always matched on the calling thread, as are individual
+     * inserts and updates to the source list.
+     *
+     * <p><strong><font color="#FF0000">Warning:</font></strong> all
+     * {@link Matcher}s used by this list must be thread safe when an
+     * {@link ExecutorService} is set, since they will be called from several
+     * threads at once.
+     *
+     * @param executor the {@link ExecutorService} to match elements with, or
+     *      <code>null</code> to match elements on the calling thread.
+     */
+    public void setMatcherExecutor(ExecutorService executor) {
+        this.matcherExecutor = executor;
+    }
+
+    /**
+     * Get the {@link ExecutorService} used to match elements when this list
+     * is refiltered, or <code>null</code> if elements are matched on the
+     * calling thread.
+     */
+    public ExecutorService getMatcherExecutor() {
+        return matcherExecutor;
+    }
+
+    /**
+     * Set how this list keeps track of which source elements are matched.
+     *
+     * @param flagStorage either {@link #RUN_LENGTH_STORAGE} or {@link #BITSET_STORAGE}.
+     */
+    public void setFlagStorage(int flagStorage) {
+        if(flagStorage != RUN_LENGTH_STORAGE && flagStorage != BITSET_STORAGE) throw new IllegalArgumentException("Flag storage must be either FilterList.RUN_LENGTH_STORAGE or FilterList.BITSET_STORAGE");
+        if(flagStorage == this.flagStorage) return;
+
+        // copy the flags one run at a time
+        FlagList copy = createFlagList(flagStorage);
+        int runStart = 0;
+        Object runColour = Barcode.BLACK;
+        for(FlagListIterator i = flagList.iterator(); i.hasNext();) {
+            Object colour = i.next();
+            if(colour == runColour) continue;
+            copy.add(runStart, runColour, i.getIndex() - runStart);
+            runStart = i.getIndex();
+            runColour = colour;
+        }
+        copy.add(runStart, runColour, flagList.size() - runStart);
+
+        this.flagList = copy;
+        this.flagStorage = flagStorage;
+    }
+
+    /**
+     * Get how this list keeps track of which source elements are matched.
+     *
+     * @return one of {@link #RUN_LENGTH_STORAGE} (default) or {@link #BITSET_STORAGE}.
+     */
+    public int getFlagStorage() {
+        return flagStorage;
+    }
+
+    /**
+     * Creates an empty {@link FlagList} for the specified flag storage.
+     */
+    private static FlagList createFlagList(int flagStorage) {
+        if(flagStorage == BITSET_STORAGE) return new CompactBarcode();
+        return new Barcode();
+    }
+
     /** @inheritDoc */
     @Override
     public void dispose() {
@@ -179,8 +282,8 @@ public final class FilterList<E> extends TransformedList<E,E> {
             int[] filterReorderMap = new int[flagList.blackSize()];
 
             // adjust the flaglist & construct a reorder map to propagate
-            Barcode previousFlagList = flagList;
-            flagList = new Barcode();
+            FlagList previousFlagList = flagList;
+            flagList = createFlagList(flagStorage);
             for(int i = 0; i < sourceReorderMap.length; i++) {
                 Object flag = previousFlagList.get(sourceReorderMap[i]);
                 flagList.add(i, flag, 1);
@@ -341,7 +444,7 @@ public final class FilterList<E> extends TransformedList<E,E> {
         // fact that i.getIndex() == i.blackIndex() when all flags before
         // are conceptually black. Otherwise we would need to change flags
         // to black as we go so that flag offsets are correct
-        for(BarcodeIterator i = flagList.iterator(); i.hasNextWhite();) {
+        for(FlagListIterator i = flagList.iterator(); i.hasNextWhite();) {
             i.nextWhite();
             int index = i.getIndex();
             updates.elementInserted(index, source.get(index));
@@ -359,14 +462,19 @@ public final class FilterList<E> extends TransformedList<E,E> {
      * due to the relaxation of the filter.
      */
     private void relaxed() {
+        // match all filtered items at once if we can
+        boolean[] matches = matchWithExecutor(Barcode.WHITE);
+
         // all of these changes to this list happen "atomically"
         updates.beginEvent();
 
         // for all filtered items, see what the change is
-        for(BarcodeIterator i = flagList.iterator(); i.hasNextWhite();) {
+        int whiteIndex = 0;
+        for(FlagListIterator i = flagList.iterator(); i.hasNextWhite(); whiteIndex++) {
             i.nextWhite();
             E element = source.get(i.getIndex());
-            if(currentMatcher.matches(element)) {
+            boolean include = matches != null ? matches[whiteIndex] : currentMatcher.matches(element);
+            if(include) {
                 updates.elementInserted(i.setBlack(), element);
             }
         }
@@ -381,17 +489,22 @@ public final class FilterList<E> extends TransformedList<E,E> {
      * to the constraining of the filter.
      */
     private void constrained() {
+        // match all unfiltered items at once if we can
+        boolean[] matches = matchWithExecutor(Barcode.BLACK);
+
         // all of these changes to this list happen "atomically"
         updates.beginEvent();
 
         // for all unfiltered items, see what the change is
-        for(BarcodeIterator i = flagList.iterator(); i.hasNextBlack();) {
+        int blackIndex = 0;
+        for(FlagListIterator i = flagList.iterator(); i.hasNextBlack(); blackIndex++) {
             i.nextBlack();
             E value = source.get(i.getIndex());
-            if(!currentMatcher.matches(value)) {
-                int blackIndex = i.getBlackIndex();
+            boolean include = matches != null ? matches[blackIndex] : currentMatcher.matches(value);
+            if(!include) {
+                int filteredIndex = i.getBlackIndex();
                 i.setWhite();
-                updates.elementDeleted(blackIndex, value);
+                updates.elementDeleted(filteredIndex, value);
             }
         }
 
@@ -404,11 +517,14 @@ public final class FilterList<E> extends TransformedList<E,E> {
      * of this {@link EventList} as elements are filtered and unfiltered.
      */
     private void changed() {
+        // match all source items at once if we can
+        boolean[] matches = matchWithExecutor(null);
+
         // all of these changes to this list happen "atomically"
         updates.beginEvent();
 
         // for all source items, see what the change is
-        for(BarcodeIterator i = flagList.iterator();i.hasNext();) {
+        for(FlagListIterator i = flagList.iterator();i.hasNext();) {
             i.next();
 
             // determine if this value was already filtered out or not
@@ -416,7 +532,7 @@ public final class FilterList<E> extends TransformedList<E,E> {
             boolean wasIncluded = filteredIndex != -1;
             // whether we should add this item
             E value = source.get(i.getIndex());
-            boolean include = currentMatcher.matches(value);
+            boolean include = matches != null ? matches[i.getIndex()] : currentMatcher.matches(value);
 
             // this element is being removed as a result of the change
             if(wasIncluded && !include) {
@@ -433,6 +549,40 @@ public final class FilterList<E> extends TransformedList<E,E> {
         updates.commitEvent();
     }
 
+    /**
+     * Match the source elements of the specified colour with the current
+     * {@link Matcher}, all at once using the matcher executor.
+     *
+     * @param colour the colour of the elements to match, or <code>null</code>
+     *      to match all elements.
+     * @return whether each element of that colour is matched, in source order.
+     *      This is <code>null</code> if the elements should be matched one at
+     *      a time on the calling thread instead.
+     */
+    private boolean[] matchWithExecutor(Object colour) {
+        if(matcherExecutor == null) return null;
+
+        // small lists are faster on the calling thread
+        int count = colour == null ? flagList.size() : flagList.colourSize(colour);
+        if(count < ParallelMatching.MINIMUM_CHUNK_SIZE * 2) return null;
+
+        // copy the elements so other threads don't need to read the source
+        E[] values;
+        if(colour == null) {
+            values = (E[])source.toArray();
+        } else {
+            values = (E[])new Object[count];
+            int index = 0;
+            for(FlagListIterator i = flagList.iterator(); i.hasNextColour(colour); index++) {
+                i.nextColour(colour);
+                values[index] = source.get(i.getIndex());
+            }
+        }
+
+        int chunks = Runtime.getRuntime().availableProcessors() * 4;
+        return ParallelMatching.matches(currentMatcher, values, matcherExecutor, chunks);
+    }
+
     /**
      * Listens to changes from the current {@link MatcherEditor} and handles them.
      */
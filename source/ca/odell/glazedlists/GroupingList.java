@@ -242,11 +242,31 @@ public final class GroupingList<E> extends TransformedList<E, List<E>> {
             updates.addInsert(0, size() - 1);
 
         } else {
-            grouper.listChanged(listChanges);
+            // a reordering that only moves elements within their groups leaves the groups in place
+            final int[] groupBoundaries = listChanges.isReordering() ? grouper.getGroupBoundaries(listChanges.getReorderMap()) : null;
+            if(groupBoundaries != null) {
+                updateReorderedGroups(listChanges.getReorderMap(), groupBoundaries);
+            } else {
+                grouper.listChanged(listChanges);
+            }
         }
         updates.commitEvent();
     }
 
+    /**
+     * Fire an update for each group whose elements have been reordered.
+     */
+    private void updateReorderedGroups(int[] reorderMap, int[] groupBoundaries) {
+        for(int group = 0; group < groupBoundaries.length - 1; group++) {
+            for(int i = groupBoundaries[group]; i < groupBoundaries[group + 1]; i++) {
+                if(reorderMap[i] == i) continue;
+                final List<E> groupList = get(group);
+                updates.elementUpdated(group, groupList, groupList);
+                break;
+            }
+        }
+    }
+
     /** {@inheritDoc} */
     @Override
     public List<E> get(int index) {
@@ -0,0 +1,150 @@
+/* Glazed Lists                                                 (c) 2003-2014 */
+/* http://publicobject.com/glazedlists/                      publicobject.com,*/
+/*                                                     O'Dell Engineering Ltd.*/
+package ca.odell.glazedlists;
+
+import ca.odell.glazedlists.event.ListEvent;
+import ca.odell.glazedlists.impl.adt.CopyOnWriteTree;
+
+import java.util.AbstractList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * An {@link EventList} that shows the current contents of its source
+ * {@link EventList}, and provides snapshots of it that can be read without
+ * locking. This is useful when a thread needs to iterate a large list without
+ * holding the read lock, which would block the threads that change it:
+ *
+ * <pre>
+ * SnapshotList&lt;Trade&gt; trades = new SnapshotList&lt;Trade&gt;(feed);
+ * ...
+ * // on a reporting thread, without acquiring any locks
+ * for(Trade trade : trades.getSnapshot()) {
+ *     ...
+ * }</pre>
+ *
+ * <p>A snapshot is a {@link List} that never changes. Getting one takes
+ * constant time, and returns the source as it was after the most recent
+ * {@link ListEvent}. Snapshots are ordinary objects, which are garbage
+ * collected when they are no longer referenced.
+ *
+ * <p>The snapshots are versions of a copy of the source, which is kept in a
+ * tree of small arrays. Applying a change copies the path from the root of
+ * the tree to the change, once per event, so the previous versions are never
+ * modified.
+ *
+ * <p><strong><font color="#FF0000">Warning:</font></strong> This class is
+ * thread ready but not thread safe. See {@link EventList} for an example
+ * of thread safe code. Only {@link #getSnapshot()} may be called without
+ * holding a lock.
+ *
+ * <p><table border="1" width="100%" cellpadding="3" cellspacing="0">
+ * <tr class="TableHeadingColor"><td colspan=2><font size="+2"><b>EventList Overview</b></font></td></tr>
+ * <tr><td class="TableSubHeadingColor"><b>Writable:</b></td><td>yes</td></tr>
+ * <tr><td class="TableSubHeadingColor"><b>Concurrency:</b></td><td>thread ready, not thread safe; snapshots thread safe</td></tr>
+ * <tr><td class="TableSubHeadingColor"><b>Performance:</b></td><td>reads: O(1), writes O(log N), snapshots O(1)</td></tr>
+ * <tr><td class="TableSubHeadingColor"><b>Memory:</b></td><td>a copy of the source list, plus the paths changed since each live snapshot</td></tr>
+ * <tr><td class="TableSubHeadingColor"><b>Unit Tests:</b></td><td>SnapshotListTest</td></tr>
+ * <tr><td class="TableSubHeadingColor"><b>Issues:</b></td><td>N/A</td></tr>
+ * </table>
+ */
+public final class SnapshotList<E> extends TransformedList<E, E> {
+
+    /** a copy of the source, whose previous versions are snapshots */
+    private final CopyOnWriteTree<E> tree;
+
+    /** the most recent version of the source */
+    private volatile Snapshot<E> snapshot;
+
+    /**
+     * Creates a {@link SnapshotList} that provides snapshots of the specified
+     * source {@link EventList}.
+     */
+    public SnapshotList(EventList<E> source) {
+        super(source);
+        tree = new CopyOnWriteTree<E>(source);
+        snapshot = new Snapshot<E>(tree.snapshot());
+        source.addListEventListener(this);
+    }
+
+    /**
+     * Get the contents of the source as they were after its most recent
+     * change. The snapshot may be read by any thread without locking, and
+     * doesn't change when the source does.
+     */
+    public Snapshot<E> getSnapshot() {
+        return snapshot;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    protected boolean isWritable() {
+        return true;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public void listChanged(ListEvent<E> listChanges) {
+        // apply the changes to the tree, then publish the new version
+        if(listChanges.isReordering()) {
+            for(int i = 0, size = source.size(); i < size; i++) {
+                tree.set(i, source.get(i));
+            }
+        } else {
+            while(listChanges.next()) {
+                final int index = listChanges.getIndex();
+                final int type = listChanges.getType();
+                if(type == ListEvent.INSERT) {
+                    tree.add(index, source.get(index));
+                } else if(type == ListEvent.DELETE) {
+                    tree.remove(index);
+                } else if(type == ListEvent.UPDATE) {
+                    tree.set(index, source.get(index));
+                }
+            }
+        }
+        listChanges.reset();
+        snapshot = new Snapshot<E>(tree.snapshot());
+
+        updates.forwardEvent(listChanges);
+    }
+
+    /**
+     * The contents of a {@link SnapshotList} at a particular version, which
+     * never change.
+     */
+    public static final class Snapshot<E> extends AbstractList<E> {
+        private final CopyOnWriteTree.Snapshot<E> delegate;
+
+        Snapshot(CopyOnWriteTree.Snapshot<E> delegate) {
+            this.delegate = delegate;
+        }
+
+        /**
+         * Get the version of the source this is a snapshot of. Each change to
+         * the source makes a new version, with a greater number.
+         */
+        public long getVersion() {
+            return delegate.getVersion();
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public E get(int index) {
+            return delegate.get(index);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public int size() {
+            return delegate.size();
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Iterator<E> iterator() {
+            return delegate.iterator();
+        }
+    }
+}
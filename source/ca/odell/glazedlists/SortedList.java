@@ -8,8 +8,10 @@ import ca.odell.glazedlists.impl.GlazedListsImpl;
 import ca.odell.glazedlists.impl.adt.barcode2.Element;
 import ca.odell.glazedlists.impl.adt.barcode2.SimpleTree;
 import ca.odell.glazedlists.impl.adt.barcode2.SimpleTreeIterator;
+import ca.odell.glazedlists.impl.sort.IndexMergeSort;
 
 import java.util.*;
+import java.util.concurrent.CancellationException;
 
 /**
  * An {@link EventList} that shows its source {@link EventList} in sorted order.
@@ -84,6 +86,16 @@ public final class SortedList<E> extends TransformedList<E,E> {
     /** one of {@link #STRICT_SORT_ORDER} or {@link #AVOID_MOVING_ELEMENTS}. */
     private int mode = STRICT_SORT_ORDER;
 
+    /** extracts the part of each element that the comparator depends upon, or <code>null</code> */
+    private FunctionList.Function<? super E,?> sortKeyFunction = null;
+    /** the sort key of each element in source order, or <code>null</code> if there is no sort key function */
+    private SimpleTree<Object> sortKeys = null;
+    /** compares the cached sort keys in place of the elements, or <code>null</code> to compare the elements */
+    private Comparator sortKeyComparator = null;
+
+    /** counts the changes to the source, so background sorts of a previous version aren't applied */
+    private int sourceVersion = 0;
+
     /**
      * Creates a {@link SortedList} that sorts the specified {@link EventList}.
      * All elements in the specified {@link EventList} must implement {@link Comparable}.
@@ -136,7 +148,7 @@ public final class SortedList<E> extends TransformedList<E,E> {
         // we need to re-sort the table on the off-chance that an element
         // was out of order before
         if(this.mode == STRICT_SORT_ORDER) {
-            setComparator(getComparator());
+            applyComparator(getComparator(), null);
         }
     }
     /**
@@ -149,9 +161,96 @@ public final class SortedList<E> extends TransformedList<E,E> {
         return this.mode;
     }
 
+    /**
+     * Set the function that extracts the part of each element that the
+     * {@link Comparator} depends upon, such as a price or a name. Each
+     * element's sort key is cached, and when an element is updated without
+     * changing its sort key, the element is known to be in sorted order and
+     * its position doesn't need to be checked. This makes updates to the other
+     * parts of an element, such as a ticking volume in a table sorted by
+     * name, very cheap.
+     *
+     * <p>The function must be consistent with the {@link Comparator}: whenever
+     * two values of an element have {@link Object#equals equal} sort keys, the
+     * {@link Comparator} must order both values the same way. Otherwise an
+     * updated element may be left out of sorted order.
+     *
+     * <p>The sort keys are only used to detect unchanged elements, the
+     * elements themselves are still compared. To compare the sort keys
+     * instead, use {@link #setComparator(Comparator, FunctionList.Function, Comparator)}.
+     * The function is cleared whenever the {@link Comparator} is changed.
+     *
+     * <p>Performance Note: setting the function will take <code>O(N)</code>
+     * time to compute the sort key of each element.
+     *
+     * @param sortKeyFunction the function to extract the sort key of each
+     *      element, or <code>null</code> to check the position of every
+     *      updated element.
+     */
+    public void setSortKeyFunction(FunctionList.Function<? super E,?> sortKeyFunction) {
+        this.sortKeyFunction = sortKeyFunction;
+        this.sortKeyComparator = null;
+        this.sortKeys = sortKeyFunction != null ? createSortKeys(evaluateSortKeys()) : null;
+    }
+
+    /**
+     * Get the function that extracts the part of each element that the
+     * {@link Comparator} depends upon.
+     *
+     * @return the function, or <code>null</code> if none has been set.
+     */
+    public FunctionList.Function<? super E,?> getSortKeyFunction() {
+        return sortKeyFunction;
+    }
+
+    /**
+     * Get the {@link Comparator} that compares the cached sort keys.
+     *
+     * @return the {@link Comparator}, or <code>null</code> if the elements
+     *      themselves are compared.
+     */
+    public Comparator<?> getSortKeyComparator() {
+        return sortKeyComparator;
+    }
+
+    /**
+     * Computes the sort key of every element in the source list.
+     */
+    private Object[] evaluateSortKeys() {
+        Object[] keys = new Object[source.size()];
+        for(int i = 0; i < keys.length; i++) {
+            keys[i] = sortKeyFunction.evaluate(source.get(i));
+        }
+        return keys;
+    }
+
+    /**
+     * Builds a tree of the specified sort keys in a single pass.
+     */
+    private static SimpleTree<Object> createSortKeys(Object[] keys) {
+        SimpleTree<Object> result = new SimpleTree<Object>();
+        result.addAll(keys);
+        return result;
+    }
+
+    /**
+     * Gets the cached sort keys, in source order.
+     */
+    private Object[] getSortKeysArray() {
+        Object[] keys = new Object[sortKeys.size()];
+        int index = 0;
+        for(SimpleTreeIterator<Object> i = new SimpleTreeIterator<Object>(sortKeys); i.hasNext(); index++) {
+            i.next();
+            keys[index] = i.value();
+        }
+        return keys;
+    }
+
     /** {@inheritDoc} */
     @Override
     public void listChanged(ListEvent<E> listChanges) {
+        sourceVersion++;
+
         // handle reordering events
         if(listChanges.isReordering()) {
             int[] sourceReorder = listChanges.getReorderMap();
@@ -172,14 +271,29 @@ public final class SortedList<E> extends TransformedList<E,E> {
             }
 
             // reorder the unsorted nodes to get the new sorted order
-            Element<Element>[] unsortedNodes = new Element[unsorted.size()];
+            Element<Element>[] sourceNodes = new Element[unsorted.size()];
             index = 0;
             for(SimpleTreeIterator<Element> i = new SimpleTreeIterator<Element>(unsorted); i.hasNext(); index++) {
                 i.next();
                 Element<Element> unsortedNode = i.node();
-                unsortedNodes[index] = unsortedNode;
+                sourceNodes[index] = unsortedNode;
+            }
+            // the sort keys follow their elements to their new source indices
+            Object[] keys = null;
+            if(sortKeys != null) {
+                Object[] previousKeys = getSortKeysArray();
+                keys = new Object[previousKeys.length];
+                for(int i = 0; i < keys.length; i++) {
+                    keys[i] = previousKeys[sourceReorder[i]];
+                }
+                sortKeys = createSortKeys(keys);
+            }
+
+            int[] order = sortKeyComparator != null ? sortIndices(keys, sortKeyComparator) : sortIndices(source.toArray(), comparator);
+            Element<Element>[] unsortedNodes = new Element[order.length];
+            for(int i = 0; i < order.length; i++) {
+                unsortedNodes[i] = sourceNodes[order[i]];
             }
-            Arrays.sort(unsortedNodes, sorted.getComparator());
 
             // create a new reorder map to send the changes forward
             int[] reorderMap = new int[sorted.size()];
@@ -191,7 +305,7 @@ public final class SortedList<E> extends TransformedList<E,E> {
                 Element<Element> unsortedNode = unsortedNodes[index];
                 sortedNode.set(unsortedNode);
                 unsortedNode.set(sortedNode);
-                int unsortedIndex = unsorted.indexOfNode(unsortedNode, ALL_COLORS);
+                int unsortedIndex = order[index];
                 reorderMap[index] = newIndexToSortedIndex[unsortedIndex];
                 indexChanged = indexChanged || (index != reorderMap[index]);
             }
@@ -248,12 +362,13 @@ public final class SortedList<E> extends TransformedList<E,E> {
             if(changeType == ListEvent.INSERT) {
                 Element<Element> unsortedNode = unsorted.add(unsortedIndex, EMPTY_ELEMENT, 1);
                 insertNodes.addLast(unsortedNode);
+                if(sortKeys != null) sortKeys.add(unsortedIndex, null, 1);
 
             // on update, mark the updated node as unsorted and save it so it can be moved
             } else if(changeType == ListEvent.UPDATE) {
                 Element<Element> unsortedNode = unsorted.get(unsortedIndex);
                 Element sortedNode = unsortedNode.get();
-                sortedNode.setSorted(Element.PENDING);
+                if(sortKeys == null) sortedNode.setSorted(Element.PENDING);
                 updateNodes.add(sortedNode);
                 previousValues.add(listChanges.getOldValue());
 
@@ -264,10 +379,29 @@ public final class SortedList<E> extends TransformedList<E,E> {
                 unsorted.remove(unsortedNode);
                 int deleteSortedIndex = deleteByUnsortedNode(unsortedNode);
                 updates.elementDeleted(deleteSortedIndex, deleted);
+                if(sortKeys != null) sortKeys.remove(unsortedIndex, 1);
 
             }
         }
 
+        // now that the unsorted tree matches the source, refresh the sort keys.
+        // Updated elements whose sort key is unchanged are still in sorted order
+        if(sortKeys != null) {
+            for(Iterator<Element> i = insertNodes.iterator(); i.hasNext(); ) {
+                int index = unsorted.indexOfNode(i.next(), ALL_COLORS);
+                sortKeys.get(index).set(sortKeyFunction.evaluate(source.get(index)));
+            }
+            for(int i = 0, size = updateNodes.size(); i < size; i++) {
+                Element<Element> sortedNode = updateNodes.get(i);
+                int index = unsorted.indexOfNode(sortedNode.get(), ALL_COLORS);
+                Element<Object> sortKey = sortKeys.get(index);
+                Object newSortKey = sortKeyFunction.evaluate(source.get(index));
+                if(GlazedListsImpl.equal(sortKey.get(), newSortKey)) continue;
+                sortKey.set(newSortKey);
+                sortedNode.setSorted(Element.PENDING);
+            }
+        }
+
         // decide which updated elements need to be shifted. We walk through the
         // tree, marking updated elements as sorted or unsorted depending on their
         // value relative to their neighbours
@@ -418,7 +552,9 @@ public final class SortedList<E> extends TransformedList<E,E> {
      * Set the {@link Comparator} in use in this {@link EventList}. This will
      * sort the source {@link EventList} into a new order.
      *
-     * <p>Performance Note: sorting will take <code>O(N * Log N)</code> time.
+     * <p>Performance Note: sorting will take <code>O(N * Log N)</code> time. The
+     * elements are sorted once and the new order is built in linear time, which
+     * is much faster than inserting the elements one at a time.
      *
      * <p><strong><font color="#FF0000">Warning:</font></strong> This method is
      * thread ready but not thread safe. See {@link EventList} for an example
@@ -431,6 +567,120 @@ public final class SortedList<E> extends TransformedList<E,E> {
      *      this {@link SortedList} in unsorted order.
      */
     public void setComparator(Comparator<? super E> comparator) {
+        setComparator(comparator, null, null);
+    }
+
+    /**
+     * Set the {@link Comparator} in use in this {@link EventList}, and sort
+     * by comparing a cached sort key of each element rather than the elements
+     * themselves. This is a good fit when extracting the sort key is
+     * expensive, such as for bean properties or table columns: the key of
+     * each element is extracted once rather than on every comparison, and
+     * again only when that element is updated.
+     *
+     * <p>The {@link Comparator}s must be consistent: comparing two elements
+     * must give the same result as comparing their sort keys. The element
+     * {@link Comparator} is still used by methods that take an object rather
+     * than an index, such as {@link #indexOf} and {@link #sortIndex}, and it
+     * is returned by {@link #getComparator()}. Like {@link #setSortKeyFunction},
+     * updated elements whose sort key is unchanged are not repositioned.
+     *
+     * <p>Performance Note: sorting will take <code>O(N * Log N)</code> time
+     * but only <code>O(N)</code> sort keys are extracted.
+     *
+     * @param comparator the {@link Comparator} to specify how to sort the list,
+     *      or <code>null</code> to put this {@link SortedList} in unsorted order.
+     * @param sortKeyFunction the function to extract the sort key of each
+     *      element, or <code>null</code> to compare the elements.
+     * @param sortKeyComparator the {@link Comparator} to compare the sort
+     *      keys with, or <code>null</code> to only use the sort keys to detect
+     *      unchanged elements.
+     * @throws IllegalArgumentException if there is a sort key comparator but
+     *      no element comparator or sort key function.
+     */
+    public <K> void setComparator(Comparator<? super E> comparator, FunctionList.Function<? super E,K> sortKeyFunction, Comparator<? super K> sortKeyComparator) {
+        if(sortKeyComparator != null && (comparator == null || sortKeyFunction == null)) throw new IllegalArgumentException("Comparing sort keys requires both a Comparator and a sort key function");
+
+        // extract the sort keys before sorting with them
+        this.sortKeyFunction = sortKeyFunction;
+        this.sortKeyComparator = sortKeyComparator;
+        this.sortKeys = sortKeyFunction != null ? createSortKeys(evaluateSortKeys()) : null;
+
+        applyComparator(comparator, null);
+    }
+
+    /**
+     * Prepare to set the {@link Comparator} in use in this {@link EventList},
+     * by sorting a copy of its elements on another thread. Only copying the
+     * elements needs a lock, extracting the sort keys and sorting them doesn't.
+     * The result is applied with {@link #applySort}, as a single reordering:
+     *
+     * <pre>
+     * final SortedList.BackgroundSort&lt;Trade&gt; sort;
+     * trades.getReadWriteLock().readLock().lock();
+     * try {
+     *     sort = trades.prepareSort(comparator, null, null);
+     * } finally {
+     *     trades.getReadWriteLock().readLock().unlock();
+     * }
+     * executor.execute(sort);
+     * ...
+     * // once the sort has run
+     * trades.getReadWriteLock().writeLock().lock();
+     * try {
+     *     if(!trades.applySort(sort)) trades.setComparator(comparator);
+     * } finally {
+     *     trades.getReadWriteLock().writeLock().unlock();
+     * }</pre>
+     *
+     * <p>The {@link Comparator}s and sort key function are called on the
+     * thread that runs the sort, so they must be safe to call while the
+     * elements are being read by other threads.
+     *
+     * <p><strong><font color="#FF0000">Warning:</font></strong> This method is
+     * thread ready but not thread safe. See {@link EventList} for an example
+     * of thread safe code.
+     *
+     * @see #setComparator(Comparator, FunctionList.Function, Comparator)
+     */
+    public <K> BackgroundSort<E> prepareSort(Comparator<? super E> comparator, FunctionList.Function<? super E,K> sortKeyFunction, Comparator<? super K> sortKeyComparator) {
+        if(sortKeyComparator != null && (comparator == null || sortKeyFunction == null)) throw new IllegalArgumentException("Comparing sort keys requires both a Comparator and a sort key function");
+        return new BackgroundSort<E>(this, sourceVersion, comparator, sortKeyFunction, sortKeyComparator, source.toArray());
+    }
+
+    /**
+     * Set the {@link Comparator} in use in this {@link EventList} to the one
+     * of a {@link BackgroundSort} that has finished, using the order it found.
+     * This only takes <code>O(N)</code> time, and the change is fired as a
+     * single reordering, just like {@link #setComparator}.
+     *
+     * <p><strong><font color="#FF0000">Warning:</font></strong> This method is
+     * thread ready but not thread safe. See {@link EventList} for an example
+     * of thread safe code.
+     *
+     * @return <code>true</code> if the sort was applied, or <code>false</code>
+     *      if it was cancelled, hasn't finished, is for another list, or the
+     *      source has changed since it was prepared
+     */
+    public boolean applySort(BackgroundSort<E> sort) {
+        if(sort.sortedList != this || !sort.isDone() || sort.sourceVersion != sourceVersion) return false;
+
+        this.sortKeyFunction = sort.sortKeyFunction;
+        this.sortKeyComparator = sort.sortKeyComparator;
+        this.sortKeys = sortKeyFunction != null ? createSortKeys(sort.keys) : null;
+
+        applyComparator(sort.comparator, sort.order);
+        return true;
+    }
+
+    /**
+     * Sorts the source list into a new order with the specified
+     * {@link Comparator} and the current sort keys.
+     *
+     * @param order the source indices in their new order, or <code>null</code>
+     *      to sort them now
+     */
+    private void applyComparator(Comparator<? super E> comparator, int[] order) {
         // save this comparator
         this.comparator = comparator;
         // keep the old trees to construct the reordering
@@ -442,37 +692,47 @@ public final class SortedList<E> extends TransformedList<E,E> {
         sorted = new SimpleTree<Element>(treeComparator);
 
         // create a list which knows the offsets of the indexes to initialize this list
+        Element<Element>[] unsortedNodes;
+        int[] previousSortedIndices = null;
         if(previousSorted == null && unsorted == null) {
             unsorted = new SimpleTree<Element>();
             // add all elements in the source list, in order
-            for(int i = 0, n = source.size(); i < n; i++) {
-                Element unsortedNode = unsorted.add(i, EMPTY_ELEMENT, 1);
-                insertByUnsortedNode(unsortedNode);
+            unsortedNodes = unsorted.addAll(new Element[source.size()]);
+
+        } else {
+            // if the lists are empty, we're done
+            if(source.isEmpty()) return;
+
+            // remember where each element was sorted before
+            unsortedNodes = new Element[unsorted.size()];
+            previousSortedIndices = new int[unsorted.size()];
+            int index = 0;
+            for(SimpleTreeIterator<Element> i = new SimpleTreeIterator<Element>(unsorted); i.hasNext(); index++) {
+                i.next();
+                unsortedNodes[index] = i.node();
+                previousSortedIndices[index] = previousSorted.indexOfNode(i.value(), ALL_COLORS);
             }
-            // this is the first sort so we're done
-            return;
         }
 
-        // if the lists are empty, we're done
-        if(source.isEmpty()) return;
-
-        // rebuild the sorted tree to reflect the new Comparator
-        for(SimpleTreeIterator<Element> i = new SimpleTreeIterator<Element>(unsorted); i.hasNext(); ) {
-            i.next();
-            Element unsortedNode = i.node();
-            insertByUnsortedNode(unsortedNode);
+        // sort everything at once and build the sorted tree in a single pass,
+        // ties are broken by source index just like the tree comparator does
+        if(order == null) order = sortKeyComparator != null ? sortIndices(getSortKeysArray(), sortKeyComparator) : sortIndices(source.toArray(), comparator);
+        Element[] sortedValues = new Element[order.length];
+        for(int i = 0; i < order.length; i++) {
+            sortedValues[i] = unsortedNodes[order[i]];
+        }
+        Element<Element>[] sortedNodes = sorted.addAll(sortedValues);
+        for(int i = 0; i < sortedNodes.length; i++) {
+            sortedValues[i].set(sortedNodes[i]);
         }
 
+        // this is the first sort so we're done
+        if(previousSortedIndices == null) return;
+
         // construct the reorder map
-        int[] reorderMap = new int[size()];
-        int oldSortedIndex = 0;
-        for(SimpleTreeIterator<Element> i = new SimpleTreeIterator<Element>(previousSorted); i.hasNext(); oldSortedIndex++) {
-            i.next();
-            Element oldSortedNode = i.node();
-            Element unsortedNode = (Element)oldSortedNode.get();
-            Element newSortedNode = (Element)unsortedNode.get();
-            int newSortedIndex = sorted.indexOfNode(newSortedNode, ALL_COLORS);
-            reorderMap[newSortedIndex] = oldSortedIndex;
+        int[] reorderMap = new int[order.length];
+        for(int i = 0; i < order.length; i++) {
+            reorderMap[i] = previousSortedIndices[order[i]];
         }
 
         // notification about the big change
@@ -636,6 +896,17 @@ public final class SortedList<E> extends TransformedList<E,E> {
             Object betaObject = beta;
             int alphaIndex = -1;
             int betaIndex = -1;
+
+            // compare the cached sort keys of two elements, objects that are
+            // looked up, such as by indexOf(), use the element comparator
+            if(sortKeyComparator != null && alpha instanceof Element && beta instanceof Element) {
+                alphaIndex = unsorted.indexOfNode((Element)alpha, ALL_COLORS);
+                betaIndex = unsorted.indexOfNode((Element)beta, ALL_COLORS);
+                int result = sortKeyComparator.compare(sortKeys.get(alphaIndex).get(), sortKeys.get(betaIndex).get());
+                if(result != 0) return result;
+                return alphaIndex - betaIndex;
+            }
+
             if(alpha instanceof Element) {
                 Element alphaTreeNode = (Element)alpha;
                 alphaIndex = unsorted.indexOfNode(alphaTreeNode, ALL_COLORS);
@@ -712,4 +983,132 @@ public final class SortedList<E> extends TransformedList<E,E> {
             treeIterator = new SimpleTreeIterator(sorted, indexToRemove, ALL_COLORS);
         }
     }
+
+    /**
+     * Sort the indices of the specified elements or sort keys, with a
+     * {@link Comparator} for them. The cast is safe since the
+     * {@link Comparator} is only given the values it sorts.
+     */
+    @SuppressWarnings("unchecked")
+    private static int[] sortIndices(Object[] values, Comparator<?> comparator) {
+        return IndexMergeSort.sort(values, (Comparator<Object>)comparator);
+    }
+
+    /**
+     * A sort of the elements of a {@link SortedList} with a new
+     * {@link Comparator}, that runs on any thread. It is created by
+     * {@link SortedList#prepareSort}, and its result is applied by
+     * {@link SortedList#applySort}.
+     */
+    public static final class BackgroundSort<E> implements Runnable {
+
+        /** how many sort keys are extracted between checks for cancellation */
+        private static final int CANCELLATION_INTERVAL = 1024;
+
+        private final SortedList<E> sortedList;
+        private final int sourceVersion;
+        private final Comparator<? super E> comparator;
+        private final FunctionList.Function sortKeyFunction;
+        private final Comparator sortKeyComparator;
+
+        /** a copy of the source elements, which is released once they're sorted */
+        private Object[] elements;
+
+        /** the sort key of each element, and the source indices in sorted order */
+        private Object[] keys;
+        private int[] order;
+
+        private volatile boolean cancelled = false;
+        private volatile boolean done = false;
+
+        BackgroundSort(SortedList<E> sortedList, int sourceVersion, Comparator<? super E> comparator, FunctionList.Function sortKeyFunction, Comparator sortKeyComparator, Object[] elements) {
+            this.sortedList = sortedList;
+            this.sourceVersion = sourceVersion;
+            this.comparator = comparator;
+            this.sortKeyFunction = sortKeyFunction;
+            this.sortKeyComparator = sortKeyComparator;
+            this.elements = elements;
+        }
+
+        /**
+         * Extract the sort keys and sort the elements. This does nothing if the
+         * sort has been cancelled or has already run, and stops early if it
+         * is cancelled while running. Exceptions thrown by the sort key function
+         * or the comparators are thrown by this method, and leave the sort
+         * unfinished.
+         */
+        @Override
+        public synchronized void run() {
+            if(cancelled || done) return;
+            try {
+                if(sortKeyFunction != null) {
+                    final Object[] sortKeys = new Object[elements.length];
+                    for(int i = 0; i < sortKeys.length; i++) {
+                        if(i % CANCELLATION_INTERVAL == 0) checkCancelled();
+                        sortKeys[i] = sortKeyFunction.evaluate(elements[i]);
+                    }
+                    keys = sortKeys;
+                }
+                if(sortKeyComparator != null) order = sortIndices(keys, new CancellableComparator(sortKeyComparator));
+                else if(comparator != null) order = sortIndices(elements, new CancellableComparator(comparator));
+                else order = sortIndices(elements, null);
+                done = true;
+            } catch(CancellationException e) {
+                // the sort was replaced, so its result isn't needed
+            } finally {
+                elements = null;
+                if(!done) keys = null;
+            }
+        }
+
+        /**
+         * Stop the sort if it is running, and prevent it from being run or
+         * applied.
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        /**
+         * Get whether this sort has been cancelled.
+         */
+        public boolean isCancelled() {
+            return cancelled;
+        }
+
+        /**
+         * Get whether this sort has finished and can be applied.
+         */
+        public boolean isDone() {
+            return done && !cancelled;
+        }
+
+        /**
+         * Get the {@link Comparator} that this sort applies.
+         */
+        public Comparator<? super E> getComparator() {
+            return comparator;
+        }
+
+        private void checkCancelled() {
+            if(cancelled) throw new CancellationException();
+        }
+
+        /**
+         * Stops the sort from within the {@link Comparator} once it is cancelled.
+         */
+        private final class CancellableComparator implements Comparator {
+            private final Comparator delegate;
+
+            CancellableComparator(Comparator delegate) {
+                this.delegate = delegate;
+            }
+
+            @Override
+            public int compare(Object alpha, Object beta) {
+                checkCancelled();
+                return delegate.compare(alpha, beta);
+            }
+        }
+    }
 }
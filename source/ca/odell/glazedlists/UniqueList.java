@@ -277,12 +277,39 @@ public final class UniqueList<E> extends TransformedList<E, E> {
             }
 
         } else {
-            grouper.listChanged(listChanges);
+            // a reordering that only moves duplicates leaves the unique values in place
+            final int[] groupBoundaries = listChanges.isReordering() ? grouper.getGroupBoundaries(listChanges.getReorderMap()) : null;
+            if(groupBoundaries != null) {
+                updateReorderedGroups(listChanges.getReorderMap(), groupBoundaries);
+            } else {
+                grouper.listChanged(listChanges);
+            }
         }
 
         updates.commitEvent();
     }
 
+    /**
+     * Fire an update for each unique value whose first duplicate has been
+     * replaced by another by a reordering of the source.
+     */
+    private void updateReorderedGroups(int[] reorderMap, int[] groupBoundaries) {
+        for(int group = 0; group < groupBoundaries.length - 1; group++) {
+            final int first = groupBoundaries[group];
+            if(reorderMap[first] == first) continue;
+
+            // find where the previous first duplicate went
+            E previous = ListEvent.<E>unknownValue();
+            for(int i = first + 1; i < groupBoundaries[group + 1]; i++) {
+                if(reorderMap[i] == first) {
+                    previous = source.get(i);
+                    break;
+                }
+            }
+            updates.elementUpdated(group, previous, source.get(first));
+        }
+    }
+
     /**
      * Returns the number of duplicates of the value found at the specified index.
      */
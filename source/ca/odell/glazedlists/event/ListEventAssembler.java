@@ -11,6 +11,7 @@ import ca.odell.glazedlists.impl.event.Tree4Deltas;
 
 import java.util.ConcurrentModificationException;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * Models a continuous stream of changes on a list. Changes of the same type
@@ -41,9 +42,14 @@ public final class ListEventAssembler<E> {
     /** prefer to use the linear blocks, which are more performant but handle only a subset of all cases */
     private BlockSequence<E> blockSequence = new BlockSequence<E>();
     private boolean useListBlocksLinear = false;
+    /** whether the current event keeps the previous and new values of its changes */
+    private boolean retainValues = true;
     /** fall back to list tree4deltas, which are capable of all list changes */
     private Tree4Deltas<E> listDeltas = new Tree4Deltas<E>();
 
+    /** the fewest changed elements for an event to reach independent branches in parallel */
+    private static final int CONCURRENT_CHANGE_SIZE = 256;
+
     private final SequenceDependenciesEventPublisher publisher;
     private final ListEvent<E> listEvent;
     private final ListEventFormat eventFormat = new ListEventFormat();
@@ -58,6 +64,81 @@ public final class ListEventAssembler<E> {
         return new SequenceDependenciesEventPublisher();
     }
 
+    /**
+     * Create a new {@link ListEventPublisher} that notifies independent
+     * branches of a pipeline in parallel, using the specified {@link Executor}.
+     * For example, if a list has a {@link ca.odell.glazedlists.FilterList} for
+     * each desk, each with its own {@link ca.odell.glazedlists.SortedList},
+     * a change to the list can update each desk's lists on a different thread.
+     *
+     * <p>The thread that changes a list waits for all branches to be notified
+     * before the change returns, so the pipeline can be read afterwards as
+     * usual. Listeners on other threads are notified while the changing thread
+     * holds the pipeline's write lock, so they must not acquire the lock
+     * themselves or change lists outside their own branch.
+     *
+     * <p>Only changes to hundreds of elements are worth notifying in parallel,
+     * smaller changes are notified on the changing thread as usual. Executors
+     * that run tasks one at a time, or on the Swing event dispatch thread,
+     * aren't appropriate. If the executor rejects a branch, the branch is
+     * notified on the thread that changed the list.
+     */
+    public static ListEventPublisher createListEventPublisher(Executor executor) {
+        Preconditions.checkNotNull(executor, "Executor is undefined");
+        return new SequenceDependenciesEventPublisher(executor);
+    }
+
+    /**
+     * Get the counts of listeners visited by the events that the specified
+     * {@link ListEventPublisher} has delivered.
+     */
+    public static ListEventPublisherStatistics getStatistics(ListEventPublisher publisher) {
+        return ((SequenceDependenciesEventPublisher) publisher).getStatistics();
+    }
+
+    /**
+     * Time every listener notified by the specified {@link ListEventPublisher}
+     * with the specified {@link ListEventMonitor}, such as a
+     * {@link ListEventMetrics}. Monitoring stops when the monitor is
+     * <code>null</code>, which is the default. Unmonitored publishers don't
+     * read the clock.
+     */
+    public static void setMonitor(ListEventPublisher publisher, ListEventMonitor monitor) {
+        ((SequenceDependenciesEventPublisher) publisher).setMonitor(monitor);
+    }
+
+    /**
+     * Get the {@link ListEventMonitor} that times the listeners notified by
+     * the specified {@link ListEventPublisher}, or <code>null</code> if they
+     * aren't timed.
+     */
+    public static ListEventMonitor getMonitor(ListEventPublisher publisher) {
+        return ((SequenceDependenciesEventPublisher) publisher).getMonitor();
+    }
+
+    /**
+     * Choose which previous values the events of the specified
+     * {@link ListEventPublisher} keep. By default they keep
+     * {@link OldValueRetention#ALL all} of them, so that
+     * {@link ListEvent#getOldValue()} can report them. Pipelines whose
+     * listeners don't read previous values can keep
+     * {@link OldValueRetention#NONE none}, so that clearing or replacing a
+     * huge list doesn't reference every previous element until the event has
+     * been delivered. The policy applies to events that begin after it is set.
+     */
+    public static void setOldValueRetention(ListEventPublisher publisher, OldValueRetention oldValueRetention) {
+        Preconditions.checkNotNull(oldValueRetention, "OldValueRetention is undefined");
+        ((SequenceDependenciesEventPublisher) publisher).setOldValueRetention(oldValueRetention);
+    }
+
+    /**
+     * Get which previous values the events of the specified
+     * {@link ListEventPublisher} keep.
+     */
+    public static OldValueRetention getOldValueRetention(ListEventPublisher publisher) {
+        return ((SequenceDependenciesEventPublisher) publisher).getOldValueRetention();
+    }
+
     /**
      * Creates a new ListEventAssembler that tracks changes for the specified list.
      */
@@ -108,6 +189,7 @@ public final class ListEventAssembler<E> {
         if(eventThread == null) {
             this.eventThread = Thread.currentThread();
             useListBlocksLinear = true;
+            retainValues = publisher.retainsOldValues();
         }
 
         // track how deeply nested we are
@@ -229,6 +311,12 @@ public final class ListEventAssembler<E> {
      * @param endIndex the inclusive end index
      */
     private void addChange(int type, int startIndex, int endIndex, E oldValue, E newValue) {
+        // drop the values the publisher doesn't keep, so the event doesn't reference them
+        if(!retainValues) {
+            oldValue = ListEvent.<E>unknownValue();
+            newValue = ListEvent.<E>unknownValue();
+        }
+
         // try the linear holder first
         if(useListBlocksLinear) {
             final boolean success = blockSequence.addChange(type, startIndex, endIndex + 1, oldValue, newValue);
@@ -242,7 +330,8 @@ public final class ListEventAssembler<E> {
 
         // try the good old reliable tree4deltas
         switch (type) {
-            case ListEvent.INSERT: listDeltas.targetInsert(startIndex, endIndex + 1, newValue); break;
+            // inserted values aren't reported, leaving them out lets runs of inserts share a node
+            case ListEvent.INSERT: listDeltas.targetInsert(startIndex, endIndex + 1, ListEvent.<E>unknownValue()); break;
             case ListEvent.UPDATE: listDeltas.targetUpdate(startIndex, endIndex + 1, oldValue, newValue); break;
             case ListEvent.DELETE: listDeltas.targetDelete(startIndex, endIndex + 1, oldValue); break;
         }
@@ -270,15 +359,26 @@ public final class ListEventAssembler<E> {
      * because it is heavily optimized.
      *
      * <p>Note that currently this implementation does a best effort to preserve
-     * reorderings. This means that a reordering is lost if it is combined with
-     * any other ListEvent.
+     * reorderings. Consecutive reorderings are combined into a single
+     * reordering, but a reordering is lost if it is combined with any other
+     * ListEvent.
      */
     public void forwardEvent(ListEvent<?> listChanges) {
         beginEvent(false);
-        this.reorderMap = null;
         if(isEventEmpty() && listChanges.isReordering()) {
             reorder(listChanges.getReorderMap());
+
+        // a reordering of a reordering is still a reordering
+        } else if(reorderMap != null && !eventIsBeingPublished && listChanges.isReordering()) {
+            final int[] nextReorderMap = listChanges.getReorderMap();
+            final int[] combined = new int[nextReorderMap.length];
+            for(int i = 0; i < nextReorderMap.length; i++) {
+                combined[i] = reorderMap[nextReorderMap[i]];
+            }
+            this.reorderMap = combined;
+
         } else {
+            this.reorderMap = null;
             while(listChanges.next()) {
                 int type = listChanges.getType();
                 int index = listChanges.getIndex();
@@ -376,7 +476,7 @@ public final class ListEventAssembler<E> {
      * @param listChangeListener event listener != null
      * @throws NullPointerException if the specified listener is null
      */
-    public synchronized void addListEventListener(ListEventListener<? super E> listChangeListener) {
+    public void addListEventListener(ListEventListener<? super E> listChangeListener) {
     	Preconditions.checkNotNull(listChangeListener, "ListEventListener is undefined");
         publisher.addListener(sourceList, listChangeListener, eventFormat);
     }
@@ -393,7 +493,7 @@ public final class ListEventAssembler<E> {
      * @throws NullPointerException if the specified listener is null
      * @throws IllegalArgumentException if the specified listener wasn't added before
      */
-    public synchronized void removeListEventListener(ListEventListener<? super E> listChangeListener) {
+    public void removeListEventListener(ListEventListener<? super E> listChangeListener) {
     	Preconditions.checkNotNull(listChangeListener, "ListEventListener is undefined");
         publisher.removeListener(sourceList, listChangeListener);
     }
@@ -427,11 +527,33 @@ public final class ListEventAssembler<E> {
     /**
      * Adapt {@link SequenceDependenciesEventPublisher.EventFormat} for use with {@link ListEvent}s.
      */
-    private class ListEventFormat implements SequenceDependenciesEventPublisher.EventFormat<EventList<E>,ListEventListener<? super E>,ListEvent<E>> {
+    private class ListEventFormat implements SequenceDependenciesEventPublisher.ConcurrentEventFormat<EventList<E>,ListEventListener<? super E>,ListEvent<E>> {
         @Override
         public void fire(EventList<E> subject, ListEvent<E> event, ListEventListener<? super E> listener) {
+            final ListEventMonitor monitor = publisher.getMonitor();
             event.reset();
-            listener.listChanged((ListEvent) event);
+            if(monitor == null) {
+                listener.listChanged((ListEvent) event);
+                return;
+            }
+
+            final long start = System.nanoTime();
+            try {
+                listener.listChanged((ListEvent) event);
+            } finally {
+                final long nanos = System.nanoTime() - start;
+                event.reset();
+                monitor.listenerNotified(event, listener, nanos);
+            }
+        }
+        @Override
+        public boolean shouldNotifyConcurrently(ListEvent<E> event) {
+            final int changeSize = useListBlocksLinear ? blockSequence.changeSize(CONCURRENT_CHANGE_SIZE) : listDeltas.changeSize();
+            return changeSize >= CONCURRENT_CHANGE_SIZE;
+        }
+        @Override
+        public ListEvent<E> copy(ListEvent<E> event) {
+            return event.copy();
         }
         @Override
         public void postEvent(EventList<E> subject) {
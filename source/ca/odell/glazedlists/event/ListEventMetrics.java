@@ -0,0 +1,185 @@
+/* Glazed Lists                                                 (c) 2003-2014 */
+/* http://publicobject.com/glazedlists/                      publicobject.com,*/
+/*                                                     O'Dell Engineering Ltd.*/
+package ca.odell.glazedlists.event;
+
+import ca.odell.glazedlists.impl.Preconditions;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * A {@link ListEventMonitor} that keeps {@link ListenerMetrics} for every
+ * listener it is told about. Since each list in a pipeline listens to its
+ * source, the slowest listeners are the lists that are the bottleneck of a
+ * pipeline:
+ *
+ * <pre>
+ * ListEventMetrics metrics = new ListEventMetrics();
+ * ListEventAssembler.setMonitor(source.getPublisher(), metrics);
+ * ...
+ * for(ListenerMetrics listener : metrics.getListenerMetrics()) {
+ *     System.out.println(listener);
+ * }</pre>
+ *
+ * <p>The metrics can also be published as MXBeans with
+ * {@link #registerMBeans(MBeanServer, String)}.
+ *
+ * <p>Each listener's metrics refer to the listener, so disposed lists can't
+ * be garbage collected until they are {@link #clear() cleared}.
+ */
+public final class ListEventMetrics implements ListEventMonitor {
+
+    /** orders metrics by their total time, slowest first */
+    private static final Comparator<ListenerMetrics> SLOWEST_FIRST = new Comparator<ListenerMetrics>() {
+        @Override
+        public int compare(ListenerMetrics a, ListenerMetrics b) {
+            final long aNanos = a.getTotalNanos();
+            final long bNanos = b.getTotalNanos();
+            return aNanos > bNanos ? -1 : aNanos == bNanos ? 0 : 1;
+        }
+    };
+
+    /** the metrics of each listener */
+    private final Map<Object,ListenerMetrics> metricsByListener = new IdentityHashMap<Object,ListenerMetrics>();
+
+    /** where metrics are registered as MXBeans, or <code>null</code> if they aren't */
+    private MBeanServer server;
+    private String domain;
+    private final List<ObjectName> registeredNames = new ArrayList<ObjectName>();
+
+    /**
+     * Count the blocks and elements of the event and record them with the time
+     * it took the listener to handle it.
+     */
+    @Override
+    public void listenerNotified(ListEvent<?> listChanges, ListEventListener<?> listener, long nanos) {
+        int blocks = 0;
+        int elements = 0;
+        while(listChanges.nextBlock()) {
+            blocks++;
+            elements += listChanges.getBlockEndIndex() - listChanges.getBlockStartIndex() + 1;
+        }
+        getOrCreateMetrics(listener).eventHandled(nanos, blocks, elements);
+    }
+
+    /**
+     * Get the metrics of the specified listener, creating them if it hasn't
+     * been notified before.
+     */
+    private synchronized ListenerMetrics getOrCreateMetrics(Object listener) {
+        ListenerMetrics metrics = metricsByListener.get(listener);
+        if(metrics == null) {
+            metrics = new ListenerMetrics(nameOf(listener));
+            metricsByListener.put(listener, metrics);
+            if(server != null) {
+                try {
+                    register(metrics);
+                } catch(JMException e) {
+                    // the metrics are still available from this object
+                }
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * Get a name for the specified listener that is unique while it is in use.
+     */
+    private static String nameOf(Object listener) {
+        final String className = listener.getClass().getName();
+        return className.substring(className.lastIndexOf('.') + 1) + "@" + Integer.toHexString(System.identityHashCode(listener));
+    }
+
+    /**
+     * Get the metrics of the specified listener, or <code>null</code> if it
+     * hasn't been notified since the metrics were last cleared.
+     */
+    public synchronized ListenerMetrics getListenerMetrics(ListEventListener<?> listener) {
+        return metricsByListener.get(listener);
+    }
+
+    /**
+     * Get the metrics of every listener that has been notified since the
+     * metrics were last cleared, ordered by the total time the listeners
+     * have spent handling events, slowest first.
+     */
+    public List<ListenerMetrics> getListenerMetrics() {
+        final List<ListenerMetrics> result;
+        synchronized(this) {
+            result = new ArrayList<ListenerMetrics>(metricsByListener.values());
+        }
+        Collections.sort(result, SLOWEST_FIRST);
+        return result;
+    }
+
+    /**
+     * Start counting from zero again for every listener.
+     */
+    public synchronized void reset() {
+        for(ListenerMetrics metrics : metricsByListener.values()) {
+            metrics.reset();
+        }
+    }
+
+    /**
+     * Forget every listener, and unregister their MXBeans.
+     */
+    public synchronized void clear() {
+        metricsByListener.clear();
+        if(server != null) unregisterAll();
+    }
+
+    /**
+     * Register the metrics of every listener as an MXBean, named
+     * <code><i>domain</i>:type=ListenerMetrics,name=<i>listener</i></code>.
+     * Listeners notified later are registered when they are first notified.
+     *
+     * @throws JMException if a listener's metrics can't be registered
+     */
+    public synchronized void registerMBeans(MBeanServer server, String domain) throws JMException {
+        Preconditions.checkNotNull(server, "MBeanServer is undefined");
+        Preconditions.checkNotNull(domain, "Domain is undefined");
+        if(this.server != null) unregisterMBeans();
+        this.server = server;
+        this.domain = domain;
+        for(ListenerMetrics metrics : metricsByListener.values()) {
+            register(metrics);
+        }
+    }
+
+    /**
+     * Unregister the MXBeans of every listener.
+     */
+    public synchronized void unregisterMBeans() {
+        if(server == null) return;
+        unregisterAll();
+        server = null;
+        domain = null;
+    }
+
+    private void register(ListenerMetrics metrics) throws JMException {
+        final ObjectName name = new ObjectName(domain + ":type=ListenerMetrics,name=" + ObjectName.quote(metrics.getName()));
+        server.registerMBean(metrics, name);
+        registeredNames.add(name);
+    }
+
+    private void unregisterAll() {
+        for(ObjectName name : registeredNames) {
+            try {
+                server.unregisterMBean(name);
+            } catch(JMException e) {
+                // it has already been unregistered
+            }
+        }
+        registeredNames.clear();
+    }
+}
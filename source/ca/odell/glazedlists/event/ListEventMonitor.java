@@ -0,0 +1,35 @@
+/* Glazed Lists                                                 (c) 2003-2014 */
+/* http://publicobject.com/glazedlists/                      publicobject.com,*/
+/*                                                     O'Dell Engineering Ltd.*/
+package ca.odell.glazedlists.event;
+
+/**
+ * Receives the time each {@link ListEventListener} took to handle each
+ * {@link ListEvent} delivered by a {@link ListEventPublisher}. This can be used
+ * to find the lists in a pipeline that are slowest to respond to changes,
+ * since every {@link ca.odell.glazedlists.TransformedList} is a listener of its
+ * source.
+ *
+ * <p>A monitor is called on the thread that notified the listener, while it
+ * holds the pipeline's write lock. If the publisher notifies independent
+ * branches of the pipeline in parallel, it is called by several threads at
+ * once. Monitors must be quick, and must not change the pipeline.
+ *
+ * @see ListEventAssembler#setMonitor(ListEventPublisher, ListEventMonitor)
+ * @see ListEventMetrics
+ */
+public interface ListEventMonitor {
+
+    /**
+     * Record that the specified listener handled an event.
+     *
+     * @param listChanges the event, which is positioned before its first change
+     *      and may be iterated again. The time spent doing so isn't counted
+     * @param listener the listener that handled the event, which is a
+     *      {@link ca.odell.glazedlists.TransformedList} for events within a pipeline
+     * @param nanos the time the listener took to handle the event, including
+     *      the time it took to record any events it fired, but not the time
+     *      taken by the listeners of those events
+     */
+    public void listenerNotified(ListEvent<?> listChanges, ListEventListener<?> listener, long nanos);
+}
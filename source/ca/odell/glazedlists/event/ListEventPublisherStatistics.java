@@ -0,0 +1,94 @@
+/* Glazed Lists                                                 (c) 2003-2014 */
+/* http://publicobject.com/glazedlists/                      publicobject.com,*/
+/*                                                     O'Dell Engineering Ltd.*/
+package ca.odell.glazedlists.event;
+
+/**
+ * Counts the work done by a {@link ListEventPublisher} to deliver events. An
+ * event only visits the listeners that it reaches from the list that changed,
+ * so in a large pipeline that shares a single publisher, the number of
+ * listeners visited per event shows how much of the pipeline each change
+ * affects.
+ *
+ * <p>The counts are updated by the thread firing events while it holds the
+ * pipeline's write lock, and can be read by any thread without locking.
+ *
+ * @see ListEventAssembler#getStatistics(ListEventPublisher)
+ */
+public final class ListEventPublisherStatistics {
+
+    private volatile long eventCount;
+    private volatile long visitedListenerCount;
+    private volatile int lastVisitedListenerCount;
+    private volatile int maxVisitedListenerCount;
+
+    ListEventPublisherStatistics() {
+        // only publishers keep statistics
+    }
+
+    /**
+     * Record that an event and the events it caused were delivered to the
+     * specified number of listeners.
+     */
+    void eventFired(int visitedListeners) {
+        eventCount++;
+        visitedListenerCount += visitedListeners;
+        lastVisitedListenerCount = visitedListeners;
+        if(visitedListeners > maxVisitedListenerCount) maxVisitedListenerCount = visitedListeners;
+    }
+
+    /**
+     * Get the number of events fired, not counting the events that listeners
+     * fired in response to them.
+     */
+    public long getEventCount() {
+        return eventCount;
+    }
+
+    /**
+     * Get the total number of listeners that have received an event.
+     */
+    public long getVisitedListenerCount() {
+        return visitedListenerCount;
+    }
+
+    /**
+     * Get the number of listeners that received the most recent event,
+     * including the events that listeners fired in response to it.
+     */
+    public int getLastVisitedListenerCount() {
+        return lastVisitedListenerCount;
+    }
+
+    /**
+     * Get the largest number of listeners that received any one event.
+     */
+    public int getMaxVisitedListenerCount() {
+        return maxVisitedListenerCount;
+    }
+
+    /**
+     * Get the average number of listeners that received each event.
+     */
+    public double getAverageVisitedListenerCount() {
+        final long events = eventCount;
+        return events == 0 ? 0.0 : (double)visitedListenerCount / events;
+    }
+
+    /**
+     * Start counting from zero again.
+     */
+    public void reset() {
+        eventCount = 0;
+        visitedListenerCount = 0;
+        lastVisitedListenerCount = 0;
+        maxVisitedListenerCount = 0;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return "events=" + eventCount + ", visited listeners=" + visitedListenerCount
+            + ", last=" + lastVisitedListenerCount + ", max=" + maxVisitedListenerCount;
+    }
+}
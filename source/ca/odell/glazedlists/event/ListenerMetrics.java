@@ -0,0 +1,133 @@
+/* Glazed Lists                                                 (c) 2003-2014 */
+/* http://publicobject.com/glazedlists/                      publicobject.com,*/
+/*                                                     O'Dell Engineering Ltd.*/
+package ca.odell.glazedlists.event;
+
+import java.util.Arrays;
+
+/**
+ * The times and sizes of the events handled by a single listener, as recorded
+ * by a {@link ListEventMetrics}.
+ *
+ * <p>The metrics are updated by the threads notifying the listener and can be
+ * read by any thread.
+ */
+public final class ListenerMetrics implements ListenerMetricsMXBean {
+
+    /** the number of ranges of times counted by the histogram */
+    static final int HISTOGRAM_SIZE = 24;
+
+    private final String name;
+
+    private long eventCount;
+    private long blockCount;
+    private long elementCount;
+    private long totalNanos;
+    private long maxNanos;
+    private long firstEventNanos;
+    private long lastEventNanos;
+    private final long[] histogram = new long[HISTOGRAM_SIZE];
+
+    ListenerMetrics(String name) {
+        this.name = name;
+    }
+
+    /**
+     * Record that the listener spent the specified time handling an event of
+     * the specified size.
+     */
+    synchronized void eventHandled(long nanos, int blocks, int elements) {
+        final long now = System.nanoTime();
+        if(eventCount == 0) firstEventNanos = now - nanos;
+        lastEventNanos = now;
+        eventCount++;
+        blockCount += blocks;
+        elementCount += elements;
+        totalNanos += nanos;
+        if(nanos > maxNanos) maxNanos = nanos;
+        histogram[histogramIndex(nanos)]++;
+    }
+
+    /**
+     * Get the element of the histogram that counts the specified time.
+     */
+    static int histogramIndex(long nanos) {
+        final int index = 64 - Long.numberOfLeadingZeros(nanos / 1000);
+        return Math.min(index, HISTOGRAM_SIZE - 1);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized long getEventCount() {
+        return eventCount;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized long getBlockCount() {
+        return blockCount;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized long getElementCount() {
+        return elementCount;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized long getTotalNanos() {
+        return totalNanos;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized long getMaxNanos() {
+        return maxNanos;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized double getAverageNanos() {
+        return eventCount == 0 ? 0.0 : (double)totalNanos / eventCount;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized double getEventsPerSecond() {
+        final long elapsed = lastEventNanos - firstEventNanos;
+        return elapsed <= 0 ? 0.0 : eventCount * 1e9 / elapsed;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized long[] getLatencyHistogram() {
+        return histogram.clone();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized void reset() {
+        eventCount = 0;
+        blockCount = 0;
+        elementCount = 0;
+        totalNanos = 0;
+        maxNanos = 0;
+        firstEventNanos = 0;
+        lastEventNanos = 0;
+        Arrays.fill(histogram, 0);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized String toString() {
+        return name + ": events=" + eventCount + ", blocks=" + blockCount + ", elements=" + elementCount
+            + ", total=" + totalNanos / 1000 + "us, max=" + maxNanos / 1000 + "us";
+    }
+}
@@ -0,0 +1,66 @@
+/* Glazed Lists                                                 (c) 2003-2014 */
+/* http://publicobject.com/glazedlists/                      publicobject.com,*/
+/*                                                     O'Dell Engineering Ltd.*/
+package ca.odell.glazedlists.event;
+
+/**
+ * The management interface of the {@link ListenerMetrics} of a single listener.
+ *
+ * @see ListEventMetrics#registerMBeans(javax.management.MBeanServer, String)
+ */
+public interface ListenerMetricsMXBean {
+
+    /**
+     * Get the class and identity of the listener.
+     */
+    public String getName();
+
+    /**
+     * Get the number of events the listener has handled.
+     */
+    public long getEventCount();
+
+    /**
+     * Get the number of blocks of changes in the events the listener has handled.
+     */
+    public long getBlockCount();
+
+    /**
+     * Get the number of changed elements in the events the listener has handled.
+     */
+    public long getElementCount();
+
+    /**
+     * Get the total time the listener has spent handling events, in nanoseconds.
+     */
+    public long getTotalNanos();
+
+    /**
+     * Get the longest time the listener has spent handling an event, in nanoseconds.
+     */
+    public long getMaxNanos();
+
+    /**
+     * Get the average time the listener has spent handling an event, in nanoseconds.
+     */
+    public double getAverageNanos();
+
+    /**
+     * Get the number of events the listener has handled per second, since its
+     * first event.
+     */
+    public double getEventsPerSecond();
+
+    /**
+     * Get the number of events handled in each range of times. The first
+     * element counts events handled in less than a microsecond, and each
+     * following element counts events that took up to twice as long as the
+     * previous one. The last element counts all longer events.
+     */
+    public long[] getLatencyHistogram();
+
+    /**
+     * Start counting from zero again.
+     */
+    public void reset();
+}
@@ -0,0 +1,17 @@
+/* Glazed Lists                                                 (c) 2003-2014 */
+/* http://publicobject.com/glazedlists/                      publicobject.com,*/
+/*                                                     O'Dell Engineering Ltd.*/
+package ca.odell.glazedlists.event;
+
+/**
+ * A {@link ListEventListener} that reads the previous values of deleted and
+ * updated elements with {@link ListEvent#getOldValue()}. Publishers with
+ * {@link OldValueRetention#DECLARED} retention only keep previous values while
+ * one of their listeners implements this interface.
+ *
+ * <p>Since each list in a pipeline forwards the previous values it receives,
+ * the values are kept by every list of the publisher, not only by the list
+ * this listener is attached to.
+ */
+public interface OldValueListener<E> extends ListEventListener<E> {
+}
@@ -0,0 +1,34 @@
+/* Glazed Lists                                                 (c) 2003-2014 */
+/* http://publicobject.com/glazedlists/                      publicobject.com,*/
+/*                                                     O'Dell Engineering Ltd.*/
+package ca.odell.glazedlists.event;
+
+/**
+ * Which previous values the {@link ListEvent}s of a {@link ListEventPublisher}
+ * keep, for {@link ListEvent#getOldValue()}. Keeping them references every
+ * deleted and replaced element until the event is delivered, which can be
+ * most of the heap when a very large list is cleared or replaced in a single
+ * event.
+ *
+ * <p>Values that aren't kept are reported as {@link ListEvent#UNKNOWN_VALUE}.
+ *
+ * @see ListEventAssembler#setOldValueRetention(ListEventPublisher, OldValueRetention)
+ */
+public enum OldValueRetention {
+
+    /** keep the previous value of every deleted and updated element, the default */
+    ALL,
+
+    /**
+     * keep no values, so every previous value is {@link ListEvent#UNKNOWN_VALUE}.
+     * Listeners that require them, such as an {@link OldValueListener}, must
+     * not be attached
+     */
+    NONE,
+
+    /**
+     * keep the values only while a listener of the publisher is an
+     * {@link OldValueListener}, which declares that it reads them
+     */
+    DECLARED
+}
@@ -4,11 +4,14 @@
 package ca.odell.glazedlists.event;
 
 import ca.odell.glazedlists.EventList;
-import ca.odell.glazedlists.impl.adt.IdentityMultimap;
 
 import java.io.ObjectStreamException;
 import java.io.Serializable;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * Manage listeners, firing events, and making sure that events arrive in order.
@@ -25,6 +28,14 @@ import java.util.*;
  * by queueing events and not necessarily firing them during the {@link #fireEvent}
  * method.
  *
+ * <p>If this publisher has an {@link Executor}, an event that reaches
+ * independent branches of the pipeline, whose listeners don't share any
+ * downstream listeners, notifies each branch on its own thread. The thread
+ * that fired the event notifies one branch and waits for the others, so all
+ * listeners have been notified when {@link #fireEvent} returns. The listeners
+ * of each branch are notified in the usual order, while the thread that fired
+ * the event holds the pipeline's write lock on their behalf.
+ *
  * @author <a href="mailto:jesse@swank.ca">Jesse Wilson</a>
  */
 final class SequenceDependenciesEventPublisher implements ListEventPublisher, Serializable {
@@ -50,22 +61,43 @@ final class SequenceDependenciesEventPublisher implements ListEventPublisher, Se
     /** keep track of how many times the fireEvent() method is on the stack */
     private transient int reentrantFireEventCount;
 
-    /** subject to cleanup when this event is completely distributed */
-    private transient final Map<Object,EventFormat> subjectsToCleanUp = new IdentityHashMap<Object,EventFormat>();
+    /** the listeners with pending events, notified by the thread that fired the topmost event */
+    private transient final Dispatch dispatch = new Dispatch();
+
+    /** notifies independent branches of the pipeline, or <code>null</code> to notify them all on one thread */
+    private transient final Executor executor;
+
+    /** the branch being notified by the current thread, if it's notifying a branch for another thread */
+    private transient final ThreadLocal<Dispatch> currentBranch;
 
     /** for proper dependency management, when a listener and subject aren't the same identity */
     private transient final Map<Object,Object> listenersToRelatedSubjects = new IdentityHashMap<Object,Object>();
 
-    /** the last listener notified, the next one will be beyond it in the list */
-    private transient int nextToNotify;
+    /** how many listeners were visited by the events fired so far */
+    private transient final ListEventPublisherStatistics statistics = new ListEventPublisherStatistics();
+
+    /** times each listener, or <code>null</code> if listeners aren't timed */
+    private transient volatile ListEventMonitor monitor;
+
+    /** which previous values events keep */
+    private transient volatile OldValueRetention oldValueRetention = OldValueRetention.ALL;
+
+    /** the number of listeners that declare they read previous values */
+    private transient volatile int oldValueListenerCount;
 
     /**
      * A mix of different subjects and listeners pairs in a deliberate order.
-     * We should be careful not to make changes to this list directly and instead
-     * create a copy as necessary
+     * This is rebuilt from the dependency graph whenever it's needed after the
+     * graph has changed, and never changed afterwards.
      */
     private transient List<SubjectAndListener> subjectAndListeners = Collections.emptyList();
 
+    /** the positions in {@link #subjectAndListeners} of each subject's listeners */
+    private transient Map<Object,int[]> positionsBySubject = Collections.emptyMap();
+
+    /** whether {@link #subjectAndListeners} must be rebuilt from the dependency graph */
+    private transient boolean subjectAndListenersChanged;
+
     /**
      * We use copy-on-write on the listeners list. This is a copy of the
      * listeners list as it looked immediately before the current change
@@ -73,6 +105,48 @@ final class SequenceDependenciesEventPublisher implements ListEventPublisher, Se
      * then this should be null.
      */
     private transient List<SubjectAndListener> subjectsAndListenersForCurrentEvent;
+    private transient Map<Object,int[]> positionsForCurrentEvent;
+
+    /** the subjects and listeners of the dependency graph */
+    private transient final Map<Object,DependencyNode> nodes = new IdentityHashMap<Object,DependencyNode>();
+
+    /**
+     * The nodes of the dependency graph in a topological order, indexed by
+     * their rank. Removed nodes leave a <code>null</code> behind until there
+     * are enough of them to be worth compacting.
+     */
+    private transient final List<DependencyNode> nodesInOrder = new ArrayList<DependencyNode>();
+
+    /** the number of <code>null</code>s in {@link #nodesInOrder} */
+    private transient int removedNodeCount;
+
+    /** the number of subject/listener pairs in the dependency graph */
+    private transient int subjectAndListenerCount;
+
+    /** identifies the nodes visited by the current search of the graph */
+    private transient int searchId;
+
+    /** scratch space for searching the graph */
+    private transient final List<DependencyNode> searchStack = new ArrayList<DependencyNode>();
+    private transient final List<DependencyNode> downstreamNodes = new ArrayList<DependencyNode>();
+    private transient final List<DependencyNode> upstreamNodes = new ArrayList<DependencyNode>();
+
+    /**
+     * Create a publisher that notifies all listeners on the thread that fires
+     * each event.
+     */
+    SequenceDependenciesEventPublisher() {
+        this(null);
+    }
+
+    /**
+     * Create a publisher that notifies independent branches of the pipeline
+     * using the specified {@link Executor}.
+     */
+    SequenceDependenciesEventPublisher(Executor executor) {
+        this.executor = executor;
+        this.currentBranch = executor != null ? new ThreadLocal<Dispatch>() : null;
+    }
 
     /** Returns a proper initialized publisher object during deserialization. */
     private Object readResolve() throws ObjectStreamException {
@@ -80,117 +154,205 @@ final class SequenceDependenciesEventPublisher implements ListEventPublisher, Se
     }
 
     /**
-     * Rebuild the subject and listeners list so that all required invariants
-     * are met with respect to notification order. That is, for any listener
-     * T, all of the subjects S that T listens to have been updated before T
-     * receives a change event from any S.
+     * Keep the nodes in a topological order when an edge from the specified
+     * subject to the specified listener is added. That is, for any listener
+     * T, all of the subjects S that T listens to are ordered before T, so
+     * they will have been updated before T receives a change event from any S.
      *
-     * <p>This implementation still has some problems and work left to do:
-     *  <li>it's big! Can we optimize it? Perhaps shortcutting all the graph
-     *     work for simple cases (the 99% case)
-     *  <li>it's complex! Can we simplify it?
-     *  <li>could we keep the datastructures around? it may be wasteful to
-     *     reconstruct them every single time a listener is added
-     */
-    private List<SubjectAndListener> orderSubjectsAndListeners(List<SubjectAndListener> subjectsAndListeners) {
-
-        // since we're regenerating the subjectAndListeners list, clear it and re-add the elements
-        List<SubjectAndListener> result = new ArrayList<SubjectAndListener>();
-
-        // HashMaps of unprocessed elements, keyed by both source and target
-        IdentityMultimap<Object,SubjectAndListener> sourceToPairs = new IdentityMultimap<Object,SubjectAndListener>();
-        IdentityMultimap<Object,SubjectAndListener> targetToPairs = new IdentityMultimap<Object,SubjectAndListener>();
-
-        // everything that has all of its listeners already notified in subjectAndListeners
-        Map<Object,Boolean> satisfied = new IdentityHashMap<Object,Boolean>();
-        // everything that has a listener already notified
-        List<Object> satisfiedToDo = new ArrayList<Object>();
-
-        // prepare the initial collections: maps that show how each element is
-        // used as source and target in directed edges, plus a list of nodes
-        // that have no incoming edges
-        for(int i = 0, size = subjectsAndListeners.size(); i < size; i++) {
-            SubjectAndListener subjectAndListener = subjectsAndListeners.get(i);
-            Object source = subjectAndListener.subject;
-            Object target = getRelatedSubject(subjectAndListener.listener);
-            sourceToPairs.addValue(source, subjectAndListener);
-            targetToPairs.addValue(target, subjectAndListener);
-
-            satisfied.remove(target);
-            if(targetToPairs.count(source) == 0) {
-                satisfied.put(source, Boolean.TRUE);
-            }
-        }
-
-        // start with the initial set of sources that don't have dependencies
-        satisfiedToDo.addAll(satisfied.keySet());
-
-        // We have a subject which has all of its dependencies satisfied.
-        // ie. all edges where this subject is a target are already in
-        // subjectAndListeners. Now we want to find further edges from this
-        // subject to further objects. We find all of its listeners, and look
-        // for one of them where all of its dependencies are in the
-        // satisfied list. If we find such a listener, add all its edges
-        // to subjectAndListeners and enque it to find it's listeners
-        // iteratively
-        while(!satisfiedToDo.isEmpty()) {
-
-            // for everything that's not a target,
-            Object subject = satisfiedToDo.remove(0);
-
-            // get all listeners to this subject, we try this set because
-            // we know at least one of their edges is satisfied, and
-            // we hope that all of their edges is satisfied.
-            List<SubjectAndListener> sourceTargets = sourceToPairs.get(subject);
-
-            // can we satisfy this target?
-            tryEachTarget:
-            for(int t = 0, targetsSize = sourceTargets.size(); t < targetsSize; t++) {
-                Object sourceTarget = getRelatedSubject(sourceTargets.get(t).listener);
-
-                // make sure we can satisfy this if all its sources are in satisfiedSources
-                List<SubjectAndListener> allSourcesForSourceTarget = targetToPairs.get(sourceTarget);
-                // we've since processed this entire target, we shouldn't process it twice
-                if(allSourcesForSourceTarget.size() == 0) continue;
-                for(int s = 0, sourcesSize = allSourcesForSourceTarget.size(); s < sourcesSize; s++) {
-                    SubjectAndListener sourceAndTarget = allSourcesForSourceTarget.get(s);
-                    if(!satisfied.containsKey(sourceAndTarget.subject)) {
-                        continue tryEachTarget;
-                    }
+     * <p>This only reorders the nodes between the listener and the subject, as
+     * described by Pearce and Kelly in "A Dynamic Topological Sort Algorithm
+     * for Directed Acyclic Graphs". Nodes that are downstream of the listener
+     * and upstream of the subject are moved to the ranks of nodes that are
+     * upstream of the subject and downstream of the listener respectively.
+     *
+     * @throws IllegalStateException if the edge would create a cycle
+     */
+    private void orderForEdge(DependencyNode subject, DependencyNode listener) {
+        if(subject == listener) throw new IllegalStateException("Listener cycle detected, " + subject.object + " listens to itself");
+
+        // the order is already correct
+        if(subject.rank < listener.rank) return;
+
+        // find everything downstream of the listener that's ordered before the subject
+        final int search = ++searchId;
+        downstreamNodes.clear();
+        searchStack.add(listener);
+        listener.searchId = search;
+        while(!searchStack.isEmpty()) {
+            final DependencyNode node = searchStack.remove(searchStack.size() - 1);
+            downstreamNodes.add(node);
+            for(SubjectAndListener s = node.firstOutgoing; s != null; s = s.nextOutgoing) {
+                final DependencyNode target = s.listenerNode;
+                if(target == subject) {
+                    searchStack.clear();
+                    throw new IllegalStateException("Listener cycle detected, " + subject.object + " depends on " + listener.object);
                 }
-
-                // we know we can satisfy this target, add all its edges
-                result.addAll(allSourcesForSourceTarget);
-                targetToPairs.remove(sourceTarget);
-
-                // this target is no longer considered a target, since all
-                // its dependencies are satisfied
-                satisfiedToDo.add(sourceTarget);
-                satisfied.put(sourceTarget, Boolean.TRUE);
+                if(target.searchId == search || target.rank > subject.rank) continue;
+                target.searchId = search;
+                searchStack.add(target);
             }
         }
 
-        // if there's remaining targets, we never covered everything
-        if(!targetToPairs.isEmpty()) {
-            throw new IllegalStateException("Listener cycle detected, " + targetToPairs.values());
+        // find everything upstream of the subject that's ordered after the listener
+        upstreamNodes.clear();
+        searchStack.add(subject);
+        subject.searchId = search;
+        while(!searchStack.isEmpty()) {
+            final DependencyNode node = searchStack.remove(searchStack.size() - 1);
+            upstreamNodes.add(node);
+            for(SubjectAndListener s = node.firstIncoming; s != null; s = s.nextIncoming) {
+                final DependencyNode source = s.subjectNode;
+                if(source.searchId == search || source.rank < listener.rank) continue;
+                source.searchId = search;
+                searchStack.add(source);
+            }
         }
 
-        // success!
-        return result;
+        // move the upstream nodes before the downstream nodes, using the same ranks
+        Collections.sort(upstreamNodes, DependencyNode.RANK_ORDER);
+        Collections.sort(downstreamNodes, DependencyNode.RANK_ORDER);
+        final int[] ranks = new int[upstreamNodes.size() + downstreamNodes.size()];
+        int r = 0;
+        for(int i = 0, n = upstreamNodes.size(); i < n; i++) ranks[r++] = upstreamNodes.get(i).rank;
+        for(int i = 0, n = downstreamNodes.size(); i < n; i++) ranks[r++] = downstreamNodes.get(i).rank;
+        Arrays.sort(ranks);
+        r = 0;
+        for(int i = 0, n = upstreamNodes.size(); i < n; i++) setRank(upstreamNodes.get(i), ranks[r++]);
+        for(int i = 0, n = downstreamNodes.size(); i < n; i++) setRank(downstreamNodes.get(i), ranks[r++]);
+
+        upstreamNodes.clear();
+        downstreamNodes.clear();
     }
+    private void setRank(DependencyNode node, int rank) {
+        node.rank = rank;
+        nodesInOrder.set(rank, node);
+    }
+
     private Object getRelatedSubject(Object listener) {
         Object subject = listenersToRelatedSubjects.get(listener);
         if(subject == null) return listener;
         return subject;
     }
 
+    /**
+     * Get the node for the specified subject or listener, creating it if
+     * necessary. New nodes are ordered after all existing nodes.
+     */
+    private DependencyNode getOrCreateNode(Object object) {
+        DependencyNode node = nodes.get(object);
+        if(node == null) {
+            node = new DependencyNode(object, nodesInOrder.size());
+            nodes.put(object, node);
+            nodesInOrder.add(node);
+        }
+        return node;
+    }
+
+    /**
+     * Remove the specified node if it's no longer a subject or a listener.
+     */
+    private void removeIfUnused(DependencyNode node) {
+        if(node.firstIncoming != null || node.firstOutgoing != null) return;
+        if(nodes.remove(node.object) == null) return;
+        nodesInOrder.set(node.rank, null);
+        removedNodeCount++;
+
+        // compact the ranks once most of them are unused
+        if(removedNodeCount > 16 && removedNodeCount * 2 > nodesInOrder.size()) {
+            int rank = 0;
+            for(int i = 0, n = nodesInOrder.size(); i < n; i++) {
+                final DependencyNode current = nodesInOrder.get(i);
+                if(current == null) continue;
+                current.rank = rank;
+                nodesInOrder.set(rank, current);
+                rank++;
+            }
+            nodesInOrder.subList(rank, nodesInOrder.size()).clear();
+            removedNodeCount = 0;
+        }
+    }
+
+    /**
+     * Rebuild the subject and listener pairs in notification order from the
+     * dependency graph if it has changed, along with the positions of each
+     * subject's listeners. Stale listeners are removed from the graph as a side
+     * effect.
+     */
+    private void updateSubjectAndListeners() {
+        if(!subjectAndListenersChanged) return;
+
+        final List<SubjectAndListener> result = new ArrayList<SubjectAndListener>(subjectAndListenerCount);
+        List<SubjectAndListener> stale = null;
+        for(int i = 0, n = nodesInOrder.size(); i < n; i++) {
+            final DependencyNode node = nodesInOrder.get(i);
+            if(node == null) continue;
+
+            // all edges into a node are notified together, in the order they were added
+            for(SubjectAndListener s = node.firstIncoming; s != null; s = s.nextIncoming) {
+                if(s.eventFormat.isStale(s.subject, s.listener)) {
+                    if(stale == null) stale = new ArrayList<SubjectAndListener>();
+                    stale.add(s);
+                } else {
+                    result.add(s);
+                }
+            }
+        }
+
+        // if this listener is stale, forget it
+        if(stale != null) {
+            for(int i = 0, n = stale.size(); i < n; i++) {
+                unlink(stale.get(i));
+            }
+        }
+
+        // index the listeners by subject, so an event only visits its own listeners
+        final Map<Object,int[]> positions = new IdentityHashMap<Object,int[]>();
+        for(int i = 0, n = result.size(); i < n; i++) {
+            final SubjectAndListener subjectAndListener = result.get(i);
+            final int[] subjectPositions = positions.get(subjectAndListener.subject);
+            if(subjectPositions == null) {
+                positions.put(subjectAndListener.subject, new int[] { i });
+            } else {
+                final int[] grown = new int[subjectPositions.length + 1];
+                System.arraycopy(subjectPositions, 0, grown, 0, subjectPositions.length);
+                grown[subjectPositions.length] = i;
+                positions.put(subjectAndListener.subject, grown);
+            }
+        }
+
+        subjectAndListeners = Collections.unmodifiableList(result);
+        positionsBySubject = positions;
+        subjectAndListenersChanged = false;
+    }
+
+    /**
+     * Keep the subjects and listeners as they are at the beginning of the
+     * topmost event, they won't change because we copy on write.
+     */
+    private synchronized void prepareForEvent() {
+        updateSubjectAndListeners();
+        subjectsAndListenersForCurrentEvent = subjectAndListeners;
+        positionsForCurrentEvent = positionsBySubject;
+    }
+
     /**
      * Register the specified listener to receive events from the specified
      * subject whenever they are fired.
+     *
+     * <p>The listener is ordered by its related subject, if any. Changing the
+     * related subject later reorders the listener.
      */
     public synchronized <Subject,Listener,Event> void addListener(Subject subject, Listener listener, EventFormat<Subject,Listener,Event> eventFormat) {
-        List<SubjectAndListener> unordered = updateListEventListeners(subject, listener, null, eventFormat);
-        subjectAndListeners = orderSubjectsAndListeners(unordered);
+        final DependencyNode subjectNode = getOrCreateNode(subject);
+        final DependencyNode listenerNode = getOrCreateNode(getRelatedSubject(listener));
+        try {
+            orderForEdge(subjectNode, listenerNode);
+        } catch(IllegalStateException e) {
+            removeIfUnused(subjectNode);
+            removeIfUnused(listenerNode);
+            throw e;
+        }
+        link(new SubjectAndListener<Subject,Listener,Event>(subject, listener, eventFormat, subjectNode, listenerNode));
     }
 
     /**
@@ -198,52 +360,87 @@ final class SequenceDependenciesEventPublisher implements ListEventPublisher, Se
      * subject.
      */
     public synchronized void removeListener(Object subject, Object listener) {
-        subjectAndListeners = updateListEventListeners(subject, null, listener, null);
+        final SubjectAndListener subjectAndListener = findSubjectAndListener(subject, listener);
+
+        // sanity check to ensure we found the listener we were asked to remove, if any.
+        // Removing a listener from a publisher without any has always failed
+        if(subjectAndListener == null) {
+            if(DO_NONEXISTENT_LISTENER_CHECK || subjectAndListenerCount == 0) throw new IllegalArgumentException("Cannot remove nonexistent listener " + listener);
+            return;
+        }
+
+        unlink(subjectAndListener);
     }
 
     /**
-     * Support method for adding and removing listeners, that also cleans up
-     * stale listeners, such as those from weak references.
-     *
-     * @param listenerToAdd a listener to be added, or <code>null</code>
-     * @param listenerToRemove a listener to be removed, or <code>null</code>
-     */
-    private <Subject,Listener,Event> List<SubjectAndListener> updateListEventListeners(Subject subject, Listener listenerToAdd, Listener listenerToRemove, EventFormat<Subject,Listener,Event> eventFormat) {
-        // we'll want to output a copy of all the listeners
-        int anticipatedSize = this.subjectAndListeners.size() + (listenerToAdd == null ? - 1 : 1);
-        List<SubjectAndListener> result = new ArrayList<SubjectAndListener>(anticipatedSize);
-
-        // walk through, adding all the old listeners to the new listeners list,
-        // unless a particular listener is slated for removal for some reaosn
-        for(int i = 0, n = subjectAndListeners.size(); i < n; i++) {
-            final SubjectAndListener originalSubjectAndListener = subjectAndListeners.get(i);
-
-            // if we're supposed to remove this listener, skip it
-            if(originalSubjectAndListener.listener == listenerToRemove && originalSubjectAndListener.subject == subject) {
-                listenerToRemove = null;
-                continue;
-            }
-
-            // if this listener is stale, skip it
-            if(originalSubjectAndListener.eventFormat.isStale(originalSubjectAndListener.subject, originalSubjectAndListener.listener)) {
-                continue;
+     * Find the first pair for the specified subject and listener, by searching
+     * the shorter of the subject's listeners and the listener's subjects.
+     */
+    private SubjectAndListener findSubjectAndListener(Object subject, Object listener) {
+        final DependencyNode subjectNode = nodes.get(subject);
+        if(subjectNode == null) return null;
+
+        final DependencyNode listenerNode = nodes.get(getRelatedSubject(listener));
+        if(listenerNode != null && listenerNode.incomingCount < subjectNode.outgoingCount) {
+            for(SubjectAndListener s = listenerNode.firstIncoming; s != null; s = s.nextIncoming) {
+                if(s.subject == subject && s.listener == listener) return s;
             }
-
-            // this listener's still good, keep it!
-            result.add(originalSubjectAndListener);
         }
-
-        // sanity check to ensure we found the listener we were asked to remove, if any
-        if(DO_NONEXISTENT_LISTENER_CHECK && listenerToRemove != null) {
-            throw new IllegalArgumentException("Cannot remove nonexistent listener " + listenerToRemove);
+        for(SubjectAndListener s = subjectNode.firstOutgoing; s != null; s = s.nextOutgoing) {
+            if(s.listener == listener) return s;
         }
+        return null;
+    }
 
-        // add the listener we were asked to add, if any
-        if(listenerToAdd != null) {
-            result.add(new SubjectAndListener(subject, listenerToAdd, eventFormat));
-        }
+    /**
+     * Add the specified pair to the dependency graph. The nodes must already
+     * be in a suitable order.
+     */
+    private void link(SubjectAndListener subjectAndListener) {
+        final DependencyNode subjectNode = subjectAndListener.subjectNode;
+        subjectAndListener.previousOutgoing = subjectNode.lastOutgoing;
+        if(subjectNode.lastOutgoing != null) subjectNode.lastOutgoing.nextOutgoing = subjectAndListener;
+        else subjectNode.firstOutgoing = subjectAndListener;
+        subjectNode.lastOutgoing = subjectAndListener;
+        subjectNode.outgoingCount++;
+
+        final DependencyNode listenerNode = subjectAndListener.listenerNode;
+        subjectAndListener.previousIncoming = listenerNode.lastIncoming;
+        if(listenerNode.lastIncoming != null) listenerNode.lastIncoming.nextIncoming = subjectAndListener;
+        else listenerNode.firstIncoming = subjectAndListener;
+        listenerNode.lastIncoming = subjectAndListener;
+        listenerNode.incomingCount++;
+
+        subjectAndListenerCount++;
+        if(subjectAndListener.listener instanceof OldValueListener) oldValueListenerCount++;
+        subjectAndListenersChanged = true;
+    }
 
-        return result;
+    /**
+     * Remove the specified pair from the dependency graph, along with any
+     * nodes that are no longer used.
+     */
+    private void unlink(SubjectAndListener subjectAndListener) {
+        final DependencyNode subjectNode = subjectAndListener.subjectNode;
+        if(subjectAndListener.previousOutgoing != null) subjectAndListener.previousOutgoing.nextOutgoing = subjectAndListener.nextOutgoing;
+        else subjectNode.firstOutgoing = subjectAndListener.nextOutgoing;
+        if(subjectAndListener.nextOutgoing != null) subjectAndListener.nextOutgoing.previousOutgoing = subjectAndListener.previousOutgoing;
+        else subjectNode.lastOutgoing = subjectAndListener.previousOutgoing;
+        subjectNode.outgoingCount--;
+
+        final DependencyNode listenerNode = subjectAndListener.listenerNode;
+        if(subjectAndListener.previousIncoming != null) subjectAndListener.previousIncoming.nextIncoming = subjectAndListener.nextIncoming;
+        else listenerNode.firstIncoming = subjectAndListener.nextIncoming;
+        if(subjectAndListener.nextIncoming != null) subjectAndListener.nextIncoming.previousIncoming = subjectAndListener.previousIncoming;
+        else listenerNode.lastIncoming = subjectAndListener.previousIncoming;
+        listenerNode.incomingCount--;
+
+        subjectAndListenerCount--;
+        if(subjectAndListener.listener instanceof OldValueListener) oldValueListenerCount--;
+        subjectAndListenersChanged = true;
+
+        removeIfUnused(subjectNode);
+        removeIfUnused(listenerNode);
     }
 
     /** {@inheritDoc} */
@@ -275,33 +472,132 @@ final class SequenceDependenciesEventPublisher implements ListEventPublisher, Se
 
     /** {@inheritDoc} */
     @Override
-    public void setRelatedSubject(Object listener, Object relatedSubject) {
+    public synchronized void setRelatedSubject(Object listener, Object relatedSubject) {
+        final Object previousRelatedSubject = listenersToRelatedSubjects.get(listener);
         if(relatedSubject != null) {
             listenersToRelatedSubjects.put(listener, relatedSubject);
         } else {
             listenersToRelatedSubjects.remove(listener);
         }
+        relinkListener(listener, previousRelatedSubject);
     }
 
     /** {@inheritDoc} */
     @Override
-    public void clearRelatedSubject(Object listener) {
-        listenersToRelatedSubjects.remove(listener);
+    public synchronized void clearRelatedSubject(Object listener) {
+        final Object previousRelatedSubject = listenersToRelatedSubjects.remove(listener);
+        relinkListener(listener, previousRelatedSubject);
+    }
+
+    /**
+     * Move the pairs of a listener that is already registered to the node of
+     * its new related subject, so it is ordered by the new related subject just
+     * as if it had been added after the change.
+     *
+     * @param previousRelatedSubject the listener's related subject before the
+     *      change, or <code>null</code> if it had none
+     */
+    private void relinkListener(Object listener, Object previousRelatedSubject) {
+        final Object previousNodeObject = previousRelatedSubject == null ? listener : previousRelatedSubject;
+        final Object nodeObject = getRelatedSubject(listener);
+        if(previousNodeObject == nodeObject) return;
+        final DependencyNode previousNode = nodes.get(previousNodeObject);
+        if(previousNode == null) return;
+
+        final List<SubjectAndListener> moved = new ArrayList<SubjectAndListener>();
+        for(SubjectAndListener s = previousNode.firstIncoming; s != null; s = s.nextIncoming) {
+            if(s.listener == listener) moved.add(s);
+        }
+        if(moved.isEmpty()) return;
+
+        // order the new edges first, so a cycle leaves everything as it was
+        final DependencyNode listenerNode = getOrCreateNode(nodeObject);
+        try {
+            for(int i = 0, n = moved.size(); i < n; i++) {
+                orderForEdge(moved.get(i).subjectNode, listenerNode);
+            }
+        } catch(IllegalStateException e) {
+            if(previousRelatedSubject != null) listenersToRelatedSubjects.put(listener, previousRelatedSubject);
+            else listenersToRelatedSubjects.remove(listener);
+            removeIfUnused(listenerNode);
+            throw e;
+        }
+
+        // link the new pairs before unlinking the old ones, which keeps their subjects' nodes
+        for(int i = 0, n = moved.size(); i < n; i++) {
+            final SubjectAndListener s = moved.get(i);
+            link(new SubjectAndListener(s.subject, s.listener, s.eventFormat, s.subjectNode, listenerNode));
+        }
+        for(int i = 0, n = moved.size(); i < n; i++) {
+            unlink(moved.get(i));
+        }
     }
 
     /**
      * Get all listeners of the specified object.
      */
     public synchronized <Listener> List<Listener> getListeners(Object subject) {
-        List<Listener> result = new ArrayList<Listener>();
-        for(int i = 0, size = subjectAndListeners.size(); i < size; i++) {
-            SubjectAndListener<?,Listener,?> subjectAndListener = subjectAndListeners.get(i);
-            if(subjectAndListener.subject != subject) continue;
+        updateSubjectAndListeners();
+        final int[] positions = positionsBySubject.get(subject);
+        if(positions == null) return new ArrayList<Listener>(0);
+
+        List<Listener> result = new ArrayList<Listener>(positions.length);
+        for(int i = 0; i < positions.length; i++) {
+            SubjectAndListener<?,Listener,?> subjectAndListener = subjectAndListeners.get(positions[i]);
             result.add(subjectAndListener.listener);
         }
         return result;
     }
 
+    /**
+     * Get the counts of listeners visited by the events fired so far.
+     */
+    ListEventPublisherStatistics getStatistics() {
+        return statistics;
+    }
+
+    /**
+     * Get the monitor that times each listener, or <code>null</code> if
+     * listeners aren't timed.
+     */
+    ListEventMonitor getMonitor() {
+        return monitor;
+    }
+
+    /**
+     * Set the monitor that times each listener, or <code>null</code> to
+     * stop timing listeners.
+     */
+    void setMonitor(ListEventMonitor monitor) {
+        this.monitor = monitor;
+    }
+
+    /**
+     * Get which previous values events keep.
+     */
+    OldValueRetention getOldValueRetention() {
+        return oldValueRetention;
+    }
+
+    /**
+     * Set which previous values events keep.
+     */
+    void setOldValueRetention(OldValueRetention oldValueRetention) {
+        this.oldValueRetention = oldValueRetention;
+    }
+
+    /**
+     * Whether events that begin now should keep the previous values of the
+     * elements they delete and update.
+     */
+    boolean retainsOldValues() {
+        switch(oldValueRetention) {
+            case NONE: return false;
+            case DECLARED: return oldValueListenerCount > 0;
+            default: return true;
+        }
+    }
+
     /**
      * Notify all listeners of the specified subject of the specified event.
      *
@@ -311,11 +607,20 @@ final class SequenceDependenciesEventPublisher implements ListEventPublisher, Se
      *     used for a callback when this event is complete
      */
     public <Subject,Listener,Event> void fireEvent(Subject subject, Event event, EventFormat<Subject,Listener,Event> eventFormat) {
+        // events fired in response on another thread belong to its branch
+        if(executor != null) {
+            final Dispatch branch = currentBranch.get();
+            if(branch != null) {
+                branch.addPendingEvents(subject, event, eventFormat);
+                return;
+            }
+        }
+
         // keep the subjects and listeners as they are at the beginning of
         // the topmost event, the list won't change because we copy on write
         if(reentrantFireEventCount == 0) {
-            subjectsAndListenersForCurrentEvent = subjectAndListeners;
-            nextToNotify = Integer.MAX_VALUE;
+            prepareForEvent();
+            dispatch.clearPendingEvents();
         }
 
         // keep track of whether this method is being reentered because one
@@ -323,64 +628,40 @@ final class SequenceDependenciesEventPublisher implements ListEventPublisher, Se
         reentrantFireEventCount++;
         try {
 
-            // record this subject as firing an event, so we can clean up later
-            EventFormat previous = subjectsToCleanUp.put(subject, eventFormat);
-            if(previous != null) throw new IllegalStateException("Reentrant fireEvent() by \"" + subject + "\"");
-
             // Mark the listeners who need this event
-            int subjectAndListenersSize = subjectsAndListenersForCurrentEvent.size();
-            // was i = lastNotified + 1
-            for(int i = 0; i < subjectAndListenersSize; i++) {
-                SubjectAndListener subjectAndListener = subjectsAndListenersForCurrentEvent.get(i);
-                if(subjectAndListener.subject != subject) continue;
-                if(i < nextToNotify) nextToNotify = i;
-                subjectAndListener.addPendingEvent(event);
-            }
+            dispatch.addPendingEvents(subject, event, eventFormat);
 
             // If this method is reentrant, let someone higher up the stack handle this
             if(reentrantFireEventCount != 1) return;
 
-            // remember any runtime exceptions thrown to rethrow later
-            RuntimeException toRethrow = null;
-
-            // fire events to listeners in order
-            while(true) {
-                SubjectAndListener nextToFire = null;
-
-                // find the next listener still pending
-                for(int i = nextToNotify; i < subjectAndListenersSize; i++) {
-                    SubjectAndListener subjectAndListener = subjectsAndListenersForCurrentEvent.get(i);
-                    if(subjectAndListener.hasPendingEvent()) {
-                        nextToFire = subjectAndListener;
-                        nextToNotify = i + 1;
-                        break;
-                    }
-                }
+            // hand independent branches to other threads
+            final List<Dispatch> branches = executor != null ? forkIndependentBranches(event, eventFormat) : null;
 
-                // there's nobody to notify, we're done firing events
-                if(nextToFire == null) break;
+            // fire events to listeners in order, remembering any runtime
+            // exceptions thrown to rethrow later
+            RuntimeException toRethrow = dispatch.firePendingEvents(null);
+            int visited = dispatch.visited;
 
-                // notify this listener
-                try {
-                    nextToFire.firePendingEvent();
-                } catch(RuntimeException e) {
-                    if(toRethrow == null) toRethrow = e;
+            // wait for the other branches to finish
+            if(branches != null) {
+                toRethrow = joinBranches(branches, toRethrow);
+                for(int i = 0, n = branches.size(); i < n; i++) {
+                    visited += branches.get(i).visited;
                 }
             }
 
             // clean up all the subjects now that we're done firing events
-            for(Iterator<Map.Entry<Object,EventFormat>> i = subjectsToCleanUp.entrySet().iterator(); i.hasNext(); ) {
-                Map.Entry<Object,EventFormat> subjectAndEventFormat = i.next();
-                try {
-                    subjectAndEventFormat.getValue().postEvent(subjectAndEventFormat.getKey());
-                } catch(RuntimeException e) {
-                    if(toRethrow == null) toRethrow = e;
+            toRethrow = dispatch.postEvents(toRethrow);
+            if(branches != null) {
+                for(int i = 0, n = branches.size(); i < n; i++) {
+                    toRethrow = branches.get(i).postEvents(toRethrow);
                 }
             }
-            subjectsToCleanUp.clear();
 
             // this event is completely finished
             subjectsAndListenersForCurrentEvent = null;
+            positionsForCurrentEvent = null;
+            statistics.eventFired(visited);
 
             // rethrow any exceptions
             if(toRethrow != null) throw toRethrow;
@@ -390,6 +671,120 @@ final class SequenceDependenciesEventPublisher implements ListEventPublisher, Se
         }
     }
 
+    /**
+     * Move the listeners with pending events that don't share any downstream
+     * listeners with the first pending listener into their own branches, and
+     * start notifying those branches on the {@link #executor}.
+     *
+     * @return the branches, or <code>null</code> if all pending listeners are
+     *      in the same branch
+     */
+    private <Subject,Listener,Event> List<Dispatch> forkIndependentBranches(Event event, EventFormat<Subject,Listener,Event> eventFormat) {
+        // each branch needs its own copy of the event to iterate
+        if(dispatch.pendingCount < 2 || !(eventFormat instanceof ConcurrentEventFormat)) return null;
+        final ConcurrentEventFormat<Subject,Listener,Event> concurrentEventFormat = (ConcurrentEventFormat<Subject,Listener,Event>)eventFormat;
+        if(!concurrentEventFormat.shouldNotifyConcurrently(event)) return null;
+
+        // label everything downstream of each pending listener, merging the
+        // labels of listeners that share a downstream listener
+        final int[] pending = Arrays.copyOf(dispatch.pendingPositions, dispatch.pendingCount);
+        Arrays.sort(pending);
+        final int[] labels = new int[pending.length];
+        final Map<Object,Integer> labelsByNode = new IdentityHashMap<Object,Integer>();
+        final List<DependencyNode> searchStack = new ArrayList<DependencyNode>();
+        for(int p = 0; p < pending.length; p++) {
+            labels[p] = p;
+            searchStack.add(subjectsAndListenersForCurrentEvent.get(pending[p]).listenerNode);
+            while(!searchStack.isEmpty()) {
+                final DependencyNode node = searchStack.remove(searchStack.size() - 1);
+                final Integer label = labelsByNode.get(node.object);
+                if(label != null) {
+                    union(labels, p, label.intValue());
+                    continue;
+                }
+                labelsByNode.put(node.object, Integer.valueOf(p));
+                final int[] downstream = positionsForCurrentEvent.get(node.object);
+                if(downstream == null) continue;
+                for(int d = 0; d < downstream.length; d++) {
+                    searchStack.add(subjectsAndListenersForCurrentEvent.get(downstream[d]).listenerNode);
+                }
+            }
+        }
+
+        // this thread keeps the branch of the first listener
+        final int keep = find(labels, 0);
+        final Map<Integer,Dispatch> branchesByLabel = new LinkedHashMap<Integer,Dispatch>();
+        dispatch.pendingCount = 0;
+        for(int p = 0; p < pending.length; p++) {
+            final int label = find(labels, p);
+            if(label == keep) {
+                dispatch.addPendingPosition(pending[p]);
+                continue;
+            }
+
+            Dispatch branch = branchesByLabel.get(Integer.valueOf(label));
+            if(branch == null) {
+                branch = new Dispatch();
+                branch.event = concurrentEventFormat.copy(event);
+                branchesByLabel.put(Integer.valueOf(label), branch);
+            }
+            subjectsAndListenersForCurrentEvent.get(pending[p]).pendingEvent = branch.event;
+            branch.addPendingPosition(pending[p]);
+        }
+        if(branchesByLabel.isEmpty()) return null;
+
+        // start the branches, or notify them on this thread if the executor is busy
+        final List<Dispatch> branches = new ArrayList<Dispatch>(branchesByLabel.values());
+        for(int i = 0, n = branches.size(); i < n; i++) {
+            final Dispatch branch = branches.get(i);
+            try {
+                executor.execute(branch.task);
+            } catch(RejectedExecutionException e) {
+                branch.task.run();
+            }
+        }
+        return branches;
+    }
+    private static int find(int[] labels, int label) {
+        while(labels[label] != label) label = labels[label];
+        return label;
+    }
+    private static void union(int[] labels, int a, int b) {
+        a = find(labels, a);
+        b = find(labels, b);
+        if(a < b) labels[b] = a;
+        else labels[a] = b;
+    }
+
+    /**
+     * Wait for all of the specified branches to be notified, even if this
+     * thread is interrupted.
+     *
+     * @return the first exception thrown by a listener
+     */
+    private RuntimeException joinBranches(List<Dispatch> branches, RuntimeException toRethrow) {
+        boolean interrupted = false;
+        Error error = null;
+        for(int i = 0, n = branches.size(); i < n; i++) {
+            final Dispatch branch = branches.get(i);
+            while(true) {
+                try {
+                    branch.task.get();
+                    break;
+                } catch(InterruptedException e) {
+                    interrupted = true;
+                } catch(ExecutionException e) {
+                    if(error == null && e.getCause() instanceof Error) error = (Error)e.getCause();
+                    break;
+                }
+            }
+            if(toRethrow == null) toRethrow = branch.failure;
+        }
+        if(interrupted) Thread.currentThread().interrupt();
+        if(error != null) throw error;
+        return toRethrow;
+    }
+
     /**
      * Adapt any observer-style interface to a common format.
      */
@@ -415,6 +810,179 @@ final class SequenceDependenciesEventPublisher implements ListEventPublisher, Se
         boolean isStale(Subject subject, Listener listener);
     }
 
+    /**
+     * An {@link EventFormat} whose events can be delivered to listeners on
+     * different threads at the same time, each using its own copy.
+     */
+    public interface ConcurrentEventFormat<Subject,Listener,Event> extends EventFormat<Subject,Listener,Event> {
+
+        /**
+         * Whether the specified event is big enough that notifying independent
+         * listeners in parallel is likely to be faster than notifying them in
+         * turn, which saves handing small events to other threads.
+         */
+        boolean shouldNotifyConcurrently(Event event);
+
+        /**
+         * Create a copy of the specified event that can be read independently.
+         */
+        Event copy(Event event);
+    }
+
+    /**
+     * The listeners with pending events in a branch of the pipeline, and the
+     * subjects to clean up once the branch has been notified.
+     */
+    private final class Dispatch implements Runnable {
+
+        /**
+         * The positions in {@link #subjectsAndListenersForCurrentEvent} of the
+         * listeners with pending events, as a binary heap so that the listener
+         * that's earliest in the notification order is always notified next.
+         */
+        private int[] pendingPositions = new int[16];
+        private int pendingCount;
+
+        /** subject to cleanup when this event is completely distributed */
+        private final Map<Object,EventFormat> subjectsToCleanUp = new IdentityHashMap<Object,EventFormat>();
+
+        /** the keys of {@link #subjectsToCleanUp} in order, so cleaning up creates no garbage */
+        private final List<Object> subjectsToCleanUpInOrder = new ArrayList<Object>();
+
+        /** the number of listeners that have received the current event */
+        private int visited;
+
+        /** for a branch, the copy of the event for its first listeners */
+        private Object event;
+
+        /** for a branch, notifies its listeners on another thread */
+        private final FutureTask<Object> task = new FutureTask<Object>(this, null);
+
+        /** for a branch, the first exception thrown by its listeners */
+        private RuntimeException failure;
+
+        /**
+         * Forget the listeners and counts of a previous event, in case it
+         * was abandoned.
+         */
+        void clearPendingEvents() {
+            pendingCount = 0;
+            visited = 0;
+        }
+
+        /**
+         * Record the specified subject as firing an event, and mark its
+         * listeners as needing the event.
+         */
+        <Subject,Listener,Event> void addPendingEvents(Subject subject, Event event, EventFormat<Subject,Listener,Event> eventFormat) {
+            // record this subject as firing an event, so we can clean up later
+            EventFormat previous = subjectsToCleanUp.put(subject, eventFormat);
+            if(previous != null) throw new IllegalStateException("Reentrant fireEvent() by \"" + subject + "\"");
+            subjectsToCleanUpInOrder.add(subject);
+
+            // Mark the listeners who need this event
+            final int[] positions = positionsForCurrentEvent.get(subject);
+            if(positions != null) {
+                for(int i = 0; i < positions.length; i++) {
+                    subjectsAndListenersForCurrentEvent.get(positions[i]).addPendingEvent(event);
+                    addPendingPosition(positions[i]);
+                }
+                visited += positions.length;
+            }
+        }
+
+        /**
+         * Fire events to listeners in order, until there's nobody to notify.
+         *
+         * @return the first exception thrown by a listener
+         */
+        RuntimeException firePendingEvents(RuntimeException toRethrow) {
+            while(pendingCount > 0) {
+                SubjectAndListener nextToFire = subjectsAndListenersForCurrentEvent.get(removeFirstPendingPosition());
+
+                // notify this listener
+                try {
+                    nextToFire.firePendingEvent();
+                } catch(RuntimeException e) {
+                    if(toRethrow == null) toRethrow = e;
+                }
+            }
+            return toRethrow;
+        }
+
+        /**
+         * Clean up all the subjects now that we're done firing events.
+         *
+         * @return the first exception thrown by a listener or a subject
+         */
+        RuntimeException postEvents(RuntimeException toRethrow) {
+            for(int i = 0, size = subjectsToCleanUpInOrder.size(); i < size; i++) {
+                Object subjectToCleanUp = subjectsToCleanUpInOrder.get(i);
+                try {
+                    subjectsToCleanUp.get(subjectToCleanUp).postEvent(subjectToCleanUp);
+                } catch(RuntimeException e) {
+                    if(toRethrow == null) toRethrow = e;
+                }
+            }
+            subjectsToCleanUp.clear();
+            subjectsToCleanUpInOrder.clear();
+            return toRethrow;
+        }
+
+        /**
+         * Notify this branch's listeners on the current thread.
+         */
+        @Override
+        public void run() {
+            currentBranch.set(this);
+            try {
+                failure = firePendingEvents(null);
+            } finally {
+                currentBranch.remove();
+            }
+        }
+
+        /**
+         * Add the specified position to the heap of pending positions.
+         */
+        void addPendingPosition(int position) {
+            if(pendingCount == pendingPositions.length) {
+                pendingPositions = Arrays.copyOf(pendingPositions, pendingCount * 2);
+            }
+
+            // sift up
+            int child = pendingCount++;
+            while(child > 0) {
+                final int parent = (child - 1) >>> 1;
+                if(pendingPositions[parent] <= position) break;
+                pendingPositions[child] = pendingPositions[parent];
+                child = parent;
+            }
+            pendingPositions[child] = position;
+        }
+
+        /**
+         * Remove and return the smallest position from the heap of pending positions.
+         */
+        private int removeFirstPendingPosition() {
+            final int first = pendingPositions[0];
+            final int last = pendingPositions[--pendingCount];
+
+            // sift down
+            int parent = 0;
+            while(true) {
+                int child = (parent << 1) + 1;
+                if(child >= pendingCount) break;
+                if(child + 1 < pendingCount && pendingPositions[child + 1] < pendingPositions[child]) child++;
+                if(last <= pendingPositions[child]) break;
+                pendingPositions[parent] = pendingPositions[child];
+                parent = child;
+            }
+            pendingPositions[parent] = last;
+            return first;
+        }
+    }
+
     /**
      * An EventFormat used to specify explicit dependencies, but that doesn't
      * actually fire events.
@@ -447,10 +1015,20 @@ final class SequenceDependenciesEventPublisher implements ListEventPublisher, Se
         private final EventFormat<Subject,Listener,Event> eventFormat;
         private Event pendingEvent;
 
-        public SubjectAndListener(Subject subject, Listener listener, EventFormat<Subject,Listener,Event> eventFormat) {
+        /** the edge of the dependency graph, and the neighbouring edges of its nodes */
+        private final DependencyNode subjectNode;
+        private final DependencyNode listenerNode;
+        private SubjectAndListener previousOutgoing;
+        private SubjectAndListener nextOutgoing;
+        private SubjectAndListener previousIncoming;
+        private SubjectAndListener nextIncoming;
+
+        public SubjectAndListener(Subject subject, Listener listener, EventFormat<Subject,Listener,Event> eventFormat, DependencyNode subjectNode, DependencyNode listenerNode) {
             this.subject = subject;
             this.listener = listener;
             this.eventFormat = eventFormat;
+            this.subjectNode = subjectNode;
+            this.listenerNode = listenerNode;
         }
 
         public boolean hasPendingEvent() {
@@ -478,4 +1056,46 @@ final class SequenceDependenciesEventPublisher implements ListEventPublisher, Se
             return subject + separator + listener;
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * A subject or listener in the dependency graph, with the pairs it is the
+     * subject of and the listener of.
+     */
+    private static class DependencyNode {
+        /** orders nodes by rank */
+        static final Comparator<DependencyNode> RANK_ORDER = new Comparator<DependencyNode>() {
+            @Override
+            public int compare(DependencyNode a, DependencyNode b) {
+                return a.rank - b.rank;
+            }
+        };
+
+        private final Object object;
+
+        /** this node's position in the topological order */
+        private int rank;
+
+        /** the last search that visited this node */
+        private int searchId;
+
+        /** the pairs where this is the subject, in the order they were added */
+        private SubjectAndListener firstOutgoing;
+        private SubjectAndListener lastOutgoing;
+        private int outgoingCount;
+
+        /** the pairs where this is the listener, in the order they were added */
+        private SubjectAndListener firstIncoming;
+        private SubjectAndListener lastIncoming;
+        private int incomingCount;
+
+        DependencyNode(Object object, int rank) {
+            this.object = object;
+            this.rank = rank;
+        }
+
+        @Override
+        public String toString() {
+            return rank + ":" + object;
+        }
+    }
+}
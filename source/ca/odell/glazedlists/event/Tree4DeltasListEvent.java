@@ -18,6 +18,10 @@ class Tree4DeltasListEvent<E> extends ListEvent<E> {
     private Tree4Deltas.Iterator deltasIterator;
     private BlockSequence.Iterator linearIterator;
 
+    /** iterators kept between events so that resetting creates no garbage */
+    private Tree4Deltas.Iterator reusableDeltasIterator;
+    private BlockSequence.Iterator reusableLinearIterator;
+
     private ListEventAssembler deltasAssembler;
 
     public Tree4DeltasListEvent(ListEventAssembler deltasAssembler, EventList<E> sourceList) {
@@ -41,12 +45,16 @@ class Tree4DeltasListEvent<E> extends ListEvent<E> {
     public void reset() {
         // prefer to use the linear blocks, which are faster
         if(deltasAssembler.getUseListBlocksLinear()) {
-            this.linearIterator = deltasAssembler.getListBlocksLinear().iterator();
+            if(reusableLinearIterator == null) reusableLinearIterator = deltasAssembler.getListBlocksLinear().iterator();
+            else reusableLinearIterator.reset();
+            this.linearIterator = reusableLinearIterator;
             this.deltasIterator = null;
 
         // otherwise use the deltas, which are more general
         } else {
-            this.deltasIterator = deltasAssembler.getListDeltas().iterator();
+            if(reusableDeltasIterator == null) reusableDeltasIterator = deltasAssembler.getListDeltas().iterator();
+            else reusableDeltasIterator.reset();
+            this.deltasIterator = reusableDeltasIterator;
             this.linearIterator = null;
         }
     }
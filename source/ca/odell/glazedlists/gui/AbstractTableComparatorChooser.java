@@ -9,6 +9,7 @@ import ca.odell.glazedlists.impl.gui.MouseOnlySortingStrategy;
 import ca.odell.glazedlists.impl.gui.SortingState;
 import ca.odell.glazedlists.impl.gui.MouseOnlySortingStrategyWithUndo;
 import ca.odell.glazedlists.impl.sort.TableColumnComparator;
+import ca.odell.glazedlists.impl.sort.TableColumnSortKeys;
 
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
@@ -111,6 +112,9 @@ public abstract class AbstractTableComparatorChooser<E> {
     /** manage which columns are sorted and in which order */
     protected SortingState sortingState;
 
+    /** whether the sorted list caches the column values it sorts by */
+    private boolean sortKeysCached = false;
+
     /**
      * Create a {@link AbstractTableComparatorChooser} that sorts the specified
      * {@link SortedList} over the specified columns.
@@ -147,17 +151,56 @@ public abstract class AbstractTableComparatorChooser<E> {
      */
     protected void rebuildComparator() {
         final Comparator<E> rebuiltComparator = sortingState.buildComparator();
+        final TableColumnSortKeys<E> sortKeys = createSortKeys(rebuiltComparator);
 
         // select the new comparator
         sortedList.getReadWriteLock().writeLock().lock();
         try {
             sortedListComparator = rebuiltComparator;
-            sortedList.setComparator(rebuiltComparator);
+            if(sortKeys != null) sortedList.setComparator(rebuiltComparator, sortKeys, sortKeys.getSortKeyComparator());
+            else sortedList.setComparator(rebuiltComparator);
         } finally {
             sortedList.getReadWriteLock().writeLock().unlock();
         }
     }
 
+    /**
+     * Get the sort keys to cache in the {@link SortedList} for the specified
+     * comparator, or <code>null</code> to sort by the comparator alone. Keys
+     * are only cached when {@link #setSortKeysCached enabled}, and when the
+     * comparator only compares column values.
+     */
+    protected TableColumnSortKeys<E> createSortKeys(Comparator<E> comparator) {
+        if(!sortKeysCached || comparator == null) return null;
+        return TableColumnSortKeys.create(comparator);
+    }
+
+    /**
+     * Set whether the {@link SortedList} caches the column values it sorts by,
+     * rather than getting them from the {@link TableFormat} on every comparison.
+     * This is off by default.
+     *
+     * <p>With cached values, an updated row is only moved when its column
+     * values are no longer {@link Object#equals equal} to the cached ones. So
+     * this must only be enabled if the {@link TableFormat} returns a new value
+     * when a row changes, rather than the row itself or a mutable object that
+     * is changed in place.
+     */
+    public void setSortKeysCached(boolean sortKeysCached) {
+        if(this.sortKeysCached == sortKeysCached) return;
+        this.sortKeysCached = sortKeysCached;
+
+        // sort again, with or without the cached values
+        if(!getSortingColumns().isEmpty()) rebuildComparator();
+    }
+
+    /**
+     * Get whether the {@link SortedList} caches the column values it sorts by.
+     */
+    public boolean isSortKeysCached() {
+        return sortKeysCached;
+    }
+
     /**
      * Adjusts the TableFormat this comparator chooser uses when selecting
      * comparators. Calling this method will clear any active sorting.
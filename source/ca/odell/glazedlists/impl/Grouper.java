@@ -6,6 +6,7 @@ package ca.odell.glazedlists.impl;
 import ca.odell.glazedlists.SortedList;
 import ca.odell.glazedlists.event.ListEvent;
 import ca.odell.glazedlists.impl.adt.Barcode;
+import ca.odell.glazedlists.impl.adt.BarcodeIterator;
 
 import java.util.Comparator;
 import java.util.LinkedList;
@@ -104,6 +105,37 @@ public class Grouper<E> {
         return barcode;
     }
 
+    /**
+     * Get the groups of a reordering of the {@link SortedList} that only moves
+     * elements within their groups, as when its source is reordered without
+     * changing its comparator. Such a reordering doesn't change the groups,
+     * so it needn't be handled by {@link #listChanged(ListEvent)}.
+     *
+     * @return the index of the first element of each group, followed by the
+     *      size of the source, or <code>null</code> if the reordering moves an
+     *      element to another group
+     */
+    public int[] getGroupBoundaries(int[] reorderMap) {
+        if(reorderMap.length != barcode.size()) return null;
+
+        final int groupCount = barcode.colourSize(UNIQUE);
+        final int[] boundaries = new int[groupCount + 1];
+        int group = 0;
+        for(BarcodeIterator b = barcode.iterator(); b.hasNextBlack(); group++) {
+            b.nextBlack();
+            boundaries[group] = b.getIndex();
+        }
+        boundaries[groupCount] = barcode.size();
+
+        // make sure every element comes from its own group
+        for(int g = 0; g < groupCount; g++) {
+            for(int i = boundaries[g]; i < boundaries[g + 1]; i++) {
+                if(reorderMap[i] < boundaries[g] || reorderMap[i] >= boundaries[g + 1]) return null;
+            }
+        }
+        return boundaries;
+    }
+
     /**
      * Handle changes from the {@link SortedList} by modifying the grouping state.
      * During this method, callbacks will be made to the {@link Client} who is
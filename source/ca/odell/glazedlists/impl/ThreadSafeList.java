@@ -6,9 +6,11 @@ package ca.odell.glazedlists.impl;
 import ca.odell.glazedlists.EventList;
 import ca.odell.glazedlists.TransformedList;
 import ca.odell.glazedlists.event.ListEvent;
+import ca.odell.glazedlists.util.concurrent.OptimisticReadWriteLock;
 import ca.odell.glazedlists.util.concurrent.ReadWriteLock;
 
 import java.util.Collection;
+import java.util.RandomAccess;
 
 /**
  * An {@link EventList} that obtains a {@link ReadWriteLock} for all operations.
@@ -18,6 +20,10 @@ import java.util.Collection;
  *
  * <p>Using a {@link ThreadSafeList} for concurrent access to lists can be expensive
  * because a {@link ReadWriteLock} is aquired and released for every operation.
+ * When the lock is an {@link OptimisticReadWriteLock} and the source is a
+ * {@link RandomAccess} list, such as a {@link ca.odell.glazedlists.BasicEventList},
+ * {@link #get(int) get()} and {@link #size() size()} read optimistically instead,
+ * and only acquire the lock if a write interferes.
  *
  * <p><strong><font color="#FF0000">Warning:</font></strong> Although this class
  * provides thread safe access, it does not provide any guarantees that changes
@@ -40,6 +46,9 @@ import java.util.Collection;
  */
 public final class ThreadSafeList<E> extends TransformedList<E, E> {
 
+    /** the lock to read optimistically with, or <code>null</code> to always lock */
+    private final OptimisticReadWriteLock optimisticLock;
+
     /**
      * Creates a {@link ThreadSafeList} that provides thread safe access to all
      * methods in the source {@link EventList}.
@@ -47,6 +56,13 @@ public final class ThreadSafeList<E> extends TransformedList<E, E> {
     public ThreadSafeList(EventList<E> source) {
         super(source);
         source.addListEventListener(this);
+
+        // only array-backed lists can be read safely while they're written
+        if(getReadWriteLock() instanceof OptimisticReadWriteLock && source instanceof RandomAccess) {
+            optimisticLock = (OptimisticReadWriteLock)getReadWriteLock();
+        } else {
+            optimisticLock = null;
+        }
     }
 
     /** {@inheritDoc} */
@@ -59,6 +75,19 @@ public final class ThreadSafeList<E> extends TransformedList<E, E> {
     /** {@inheritDoc} */
     @Override
     public E get(int index) {
+        if(optimisticLock != null) {
+            final long stamp = optimisticLock.tryOptimisticRead();
+            if(stamp != 0) {
+                try {
+                    final E result = source.get(index);
+                    if(optimisticLock.validate(stamp)) return result;
+                } catch(RuntimeException e) {
+                    // a write may have left the source inconsistent while we read it
+                    if(optimisticLock.validate(stamp)) throw e;
+                }
+            }
+        }
+
         getReadWriteLock().readLock().lock();
         try {
             return source.get(index);
@@ -70,6 +99,14 @@ public final class ThreadSafeList<E> extends TransformedList<E, E> {
     /** {@inheritDoc} */
     @Override
     public int size() {
+        if(optimisticLock != null) {
+            final long stamp = optimisticLock.tryOptimisticRead();
+            if(stamp != 0) {
+                final int result = source.size();
+                if(optimisticLock.validate(stamp)) return result;
+            }
+        }
+
         getReadWriteLock().readLock().lock();
         try {
             return source.size();
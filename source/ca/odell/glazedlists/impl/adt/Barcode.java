@@ -45,7 +45,7 @@ import java.util.Iterator;
  * @author <a href="mailto:kevin@swank.ca">Kevin Maltby</a>
  *
  */
-public final class Barcode {
+public final class Barcode implements FlagList {
 
     /** barcode colour constants */
     public static final Object WHITE = Boolean.FALSE;
@@ -12,7 +12,7 @@ import java.util.NoSuchElementException;
  *
  * @author <a href="mailto:kevin@swank.ca">Kevin Maltby</a>
  */
-public class BarcodeIterator implements Iterator {
+public class BarcodeIterator implements FlagListIterator {
 
     /** keep a reference for removes in the trailing whitespace */
     private Barcode barcode = null;
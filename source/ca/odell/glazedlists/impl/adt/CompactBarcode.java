@@ -0,0 +1,575 @@
+/* Glazed Lists                                                 (c) 2003-2014 */
+/* http://publicobject.com/glazedlists/                      publicobject.com,*/
+/*                                                     O'Dell Engineering Ltd.*/
+package ca.odell.glazedlists.impl.adt;
+
+import java.util.NoSuchElementException;
+
+/**
+ * A CompactBarcode is a {@link FlagList} that stores each flag as a single
+ * bit, where a set bit is BLACK.
+ *
+ * <p>The memory used by {@link Barcode} is proportional to the number of runs
+ * of BLACK flags, which is ideal when flags of the same colour are clustered
+ * but expensive when colours alternate frequently. The memory used by a
+ * CompactBarcode is proportional to its size instead, at about 1.6 bits per
+ * flag no matter how the colours are distributed.
+ *
+ * <p>The bits are kept in words of 64, and a Fenwick tree over the number of
+ * BLACK bits in each word finds the number of BLACK flags before any word in
+ * <code>O(log N)</code>. This gives <code>O(log N)</code> index translation
+ * in both directions, and <code>O(log N)</code> updates when flags change
+ * colour or are appended. Inserting and removing flags elsewhere requires
+ * shifting all following bits, which is <code>O(N / 64)</code>.
+ *
+ * <p>Like {@link Barcode}, this does NOT validate its arguments.
+ */
+public final class CompactBarcode implements FlagList {
+
+    /** the number of bits in a word, as a shift */
+    private static final int ADDRESS_BITS_PER_WORD = 6;
+
+    /** the flags, where the bits beyond the size are always WHITE */
+    private long[] words;
+
+    /** the number of BLACK flags in each word */
+    private byte[] counts;
+
+    /** a Fenwick tree over the counts, where node i covers words (i - lowestOneBit(i), i] */
+    private int[] tree;
+
+    /** the number of flags */
+    private int size = 0;
+
+    /** the number of BLACK flags */
+    private int blackSize = 0;
+
+    /**
+     * Creates a new, empty CompactBarcode.
+     */
+    public CompactBarcode() {
+        clear();
+    }
+
+    /**
+     * Gets the size of this barcode
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Whether or not this barcode is empty
+     */
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Gets the size of the white portion of this barcode
+     */
+    @Override
+    public int whiteSize() {
+        return size - blackSize;
+    }
+
+    /**
+     * Gets the size of the black portion of this barcode
+     */
+    @Override
+    public int blackSize() {
+        return blackSize;
+    }
+
+    /**
+     * Gets the size of the given colour portion of this barcode
+     */
+    @Override
+    public int colourSize(Object colour) {
+        if(colour == Barcode.WHITE) return whiteSize();
+        else return blackSize();
+    }
+
+    /**
+     * Inserts a sequence of the specified colour into the barcode
+     */
+    @Override
+    public void add(int index, Object colour, int length) {
+        if(length < 0) throw new IllegalStateException();
+        if(length == 0) return;
+
+        int oldSize = size;
+        ensureCapacity(size + length);
+
+        // make room for the new flags unless we're appending
+        if(index < oldSize) shift(index, index + length, oldSize - index);
+        size += length;
+        setBits(index, index + length, colour != Barcode.WHITE);
+
+        // anything from the insert onwards may have changed
+        countsChanged(index >>> ADDRESS_BITS_PER_WORD, wordCount(size));
+    }
+
+    /**
+     * Inserts a sequence of white into the barcode
+     */
+    @Override
+    public void addWhite(int index, int length) {
+        add(index, Barcode.WHITE, length);
+    }
+
+    /**
+     * Inserts a sequence of black into the barcode
+     */
+    @Override
+    public void addBlack(int index, int length) {
+        add(index, Barcode.BLACK, length);
+    }
+
+    /**
+     * Gets the value in this barcode at the specified index
+     */
+    @Override
+    public Object get(int index) {
+        return isBlack(index) ? Barcode.BLACK : Barcode.WHITE;
+    }
+
+    /**
+     * Whether the flag at the specified index is BLACK.
+     */
+    boolean isBlack(int index) {
+        return (words[index >>> ADDRESS_BITS_PER_WORD] & (1L << index)) != 0;
+    }
+
+    /**
+     * Sets the values from index to index + length.
+     */
+    @Override
+    public void set(int index, Object colour, int length) {
+        if(length < 1) throw new IllegalArgumentException();
+
+        setBits(index, index + length, colour != Barcode.WHITE);
+        countsChanged(index >>> ADDRESS_BITS_PER_WORD, wordCount(index + length));
+    }
+
+    /**
+     * Sets a sequence of values to white.
+     */
+    @Override
+    public void setWhite(int index, int length) {
+        set(index, Barcode.WHITE, length);
+    }
+
+    /**
+     * Sets a sequence of values to black.
+     */
+    @Override
+    public void setBlack(int index, int length) {
+        set(index, Barcode.BLACK, length);
+    }
+
+    /**
+     * Removes the values from index to index + length.
+     */
+    @Override
+    public void remove(int index, int length) {
+        if(length < 1) throw new IllegalArgumentException();
+
+        // the bits beyond the size are WHITE, so they clear the vacated end
+        int oldSize = size;
+        shift(index + length, index, oldSize - index - length);
+        size -= length;
+        countsChanged(index >>> ADDRESS_BITS_PER_WORD, wordCount(oldSize));
+    }
+
+    /**
+     * Clears the barcode.
+     */
+    @Override
+    public void clear() {
+        words = new long[1];
+        counts = new byte[1];
+        tree = new int[2];
+        size = 0;
+        blackSize = 0;
+    }
+
+    /**
+     * Gets the index of the value in this barcode that has the colour-centric
+     * index of colourIndex.
+     */
+    @Override
+    public int getIndex(int colourIndex, Object colour) {
+        boolean black = colour != Barcode.WHITE;
+
+        // descend the Fenwick tree to find the word that contains the flag
+        int word = 0;
+        int remaining = colourIndex;
+        for(int step = Integer.highestOneBit(words.length); step > 0; step >>>= 1) {
+            int next = word + step;
+            if(next > words.length) continue;
+            int count = black ? tree[next] : (step << ADDRESS_BITS_PER_WORD) - tree[next];
+            if(count <= remaining) {
+                word = next;
+                remaining -= count;
+            }
+        }
+
+        // find the flag within that word
+        long bits = black ? words[word] : ~words[word];
+        for(; remaining > 0; remaining--) {
+            bits &= bits - 1;
+        }
+        return (word << ADDRESS_BITS_PER_WORD) + Long.numberOfTrailingZeros(bits);
+    }
+
+    /**
+     * Gets the colour-centric index of the element at the given index, or
+     * -1 if that element is not of the given colour.
+     */
+    @Override
+    public int getColourIndex(int index, Object colour) {
+        if(colour == Barcode.WHITE) return getWhiteIndex(index);
+        else return getBlackIndex(index);
+    }
+
+    /**
+     * Gets the white-centric index of the element at the given index, or
+     * -1 if that element is black.
+     */
+    @Override
+    public int getWhiteIndex(int index) {
+        if(isBlack(index)) return -1;
+        return index - blackBefore(index);
+    }
+
+    /**
+     * Gets the black-centric index of the element at the given index, or
+     * -1 if that element is white.
+     */
+    @Override
+    public int getBlackIndex(int index) {
+        if(!isBlack(index)) return -1;
+        return blackBefore(index);
+    }
+
+    /**
+     * Gets the number of BLACK flags before the specified index.
+     */
+    int blackBefore(int index) {
+        if(index >= size) return blackSize;
+        int word = index >>> ADDRESS_BITS_PER_WORD;
+        int result = Long.bitCount(words[word] & ~(-1L << index));
+        for(int i = word; i > 0; i -= i & -i) {
+            result += tree[i];
+        }
+        return result;
+    }
+
+    /**
+     * Gets the index of the first flag of the specified colour at or after
+     * the specified index, or -1 if there is no such flag.
+     */
+    int nextIndex(int index, boolean black) {
+        if(index >= size) return -1;
+
+        int lastWord = (size - 1) >>> ADDRESS_BITS_PER_WORD;
+        int word = index >>> ADDRESS_BITS_PER_WORD;
+        long bits = (black ? words[word] : ~words[word]) & (-1L << index);
+        while(bits == 0) {
+            if(++word > lastWord) return -1;
+            bits = black ? words[word] : ~words[word];
+        }
+        int result = (word << ADDRESS_BITS_PER_WORD) + Long.numberOfTrailingZeros(bits);
+        return result < size ? result : -1;
+    }
+
+    /**
+     * Provides a specialized {@link FlagListIterator} that iterates over a
+     * {@link CompactBarcode} by scanning its words.
+     */
+    @Override
+    public FlagListIterator iterator() {
+        return new CompactBarcodeIterator();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        StringBuffer result = new StringBuffer();
+        for(int i = 0; i < size; i++) {
+            result.append(isBlack(i) ? "X" : "_");
+        }
+        return result.toString();
+    }
+
+    /**
+     * Gets the number of words required to hold the specified number of bits.
+     */
+    private static int wordCount(int bits) {
+        return (bits + 63) >>> ADDRESS_BITS_PER_WORD;
+    }
+
+    /**
+     * Grow the words so that they can hold the specified number of flags.
+     */
+    private void ensureCapacity(int capacity) {
+        int required = wordCount(capacity);
+        if(required <= words.length) return;
+
+        int length = Math.max(required, words.length + (words.length >> 1) + 1);
+        long[] newWords = new long[length];
+        System.arraycopy(words, 0, newWords, 0, words.length);
+        byte[] newCounts = new byte[length];
+        System.arraycopy(counts, 0, newCounts, 0, counts.length);
+        words = newWords;
+        counts = newCounts;
+        tree = new int[length + 1];
+        rebuildTree();
+    }
+
+    /**
+     * Gets the 64 bits starting at the specified bit index, which may be
+     * negative or beyond the end of the words, in which case the missing bits
+     * are WHITE.
+     */
+    private long bitsAt(int index) {
+        if(index <= -64) return 0;
+        if(index < 0) return words[0] << -index;
+
+        int word = index >>> ADDRESS_BITS_PER_WORD;
+        if(word >= words.length) return 0;
+        int offset = index & 63;
+        long result = words[word] >>> offset;
+        if(offset != 0 && word + 1 < words.length) result |= words[word + 1] << (64 - offset);
+        return result;
+    }
+
+    /**
+     * Moves <code>length</code> bits from <code>from</code> to <code>to</code>,
+     * word by word. The bits before the lower of the two indices are not
+     * changed. When moving bits up, the bits in between are left with
+     * arbitrary values, and when moving bits down the bits that follow are
+     * copied from beyond the end.
+     */
+    private void shift(int from, int to, int length) {
+        int low = Math.min(from, to);
+        int firstWord = low >>> ADDRESS_BITS_PER_WORD;
+        long preserved = words[firstWord] & ~(-1L << low);
+
+        // write each word from the bits shifted into it. We go against the
+        // direction of the move so that we never read a word we've written
+        int distance = from - to;
+        if(distance < 0) {
+            for(int word = (to + length - 1) >>> ADDRESS_BITS_PER_WORD; word >= firstWord; word--) {
+                words[word] = bitsAt((word << ADDRESS_BITS_PER_WORD) + distance);
+            }
+        } else {
+            int lastWord = (from + length - 1) >>> ADDRESS_BITS_PER_WORD;
+            for(int word = firstWord; word <= lastWord; word++) {
+                words[word] = bitsAt((word << ADDRESS_BITS_PER_WORD) + distance);
+            }
+        }
+
+        // restore the bits before the move
+        words[firstWord] = (words[firstWord] & (-1L << low)) | preserved;
+    }
+
+    /**
+     * Sets the bits in <code>[from, to)</code> to the specified value.
+     */
+    private void setBits(int from, int to, boolean black) {
+        int firstWord = from >>> ADDRESS_BITS_PER_WORD;
+        int lastWord = (to - 1) >>> ADDRESS_BITS_PER_WORD;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> -to;
+        for(int word = firstWord; word <= lastWord; word++) {
+            long mask = -1L;
+            if(word == firstWord) mask &= firstMask;
+            if(word == lastWord) mask &= lastMask;
+            if(black) words[word] |= mask;
+            else words[word] &= ~mask;
+        }
+    }
+
+    /**
+     * Updates the counts and the tree for the words in <code>[from, to)</code>.
+     * Updating the tree one word at a time takes <code>O(log N)</code> per
+     * word, so for large ranges we rebuild it in <code>O(N)</code> instead.
+     */
+    private void countsChanged(int from, int to) {
+        to = Math.min(to, words.length);
+        boolean rebuild = (to - from) * 32 > words.length;
+
+        for(int word = from; word < to; word++) {
+            int count = Long.bitCount(words[word]);
+            int delta = count - counts[word];
+            if(delta == 0) continue;
+
+            counts[word] = (byte)count;
+            blackSize += delta;
+            if(!rebuild) {
+                for(int i = word + 1; i < tree.length; i += i & -i) {
+                    tree[i] += delta;
+                }
+            }
+        }
+
+        if(rebuild) rebuildTree();
+    }
+
+    /**
+     * Builds the Fenwick tree from the counts in <code>O(N)</code>.
+     */
+    private void rebuildTree() {
+        for(int i = 1; i < tree.length; i++) {
+            tree[i] = counts[i - 1];
+        }
+        for(int i = 1; i < tree.length; i++) {
+            int parent = i + (i & -i);
+            if(parent < tree.length) tree[parent] += tree[i];
+        }
+    }
+
+    /**
+     * Iterates a {@link CompactBarcode}, keeping track of the number of
+     * BLACK flags before the current flag as it goes.
+     */
+    private class CompactBarcodeIterator implements FlagListIterator {
+
+        /** the current flag, or -1 before the first call to next() */
+        private int index = -1;
+
+        /** the number of BLACK flags before the current flag */
+        private int blackSoFar = 0;
+
+        /** {@inheritDoc} */
+        @Override
+        public boolean hasNext() {
+            return index < size - 1;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public boolean hasNextBlack() {
+            return nextIndex(index + 1, true) != -1;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public boolean hasNextWhite() {
+            return nextIndex(index + 1, false) != -1;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public boolean hasNextColour(Object colour) {
+            if(colour == Barcode.BLACK) return hasNextBlack();
+            return hasNextWhite();
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Object next() {
+            if(!hasNext()) throw new NoSuchElementException();
+            moveTo(index + 1);
+            return get(index);
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Object nextBlack() {
+            int next = nextIndex(index + 1, true);
+            if(next == -1) throw new NoSuchElementException();
+            moveTo(next);
+            return Barcode.BLACK;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Object nextWhite() {
+            int next = nextIndex(index + 1, false);
+            if(next == -1) throw new NoSuchElementException();
+            moveTo(next);
+            return Barcode.WHITE;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Object nextColour(Object colour) {
+            if(colour == Barcode.BLACK) return nextBlack();
+            return nextWhite();
+        }
+
+        /**
+         * Moves to the specified index, which must be after the current index.
+         * Any flags skipped over must be of the other colour than the flag
+         * we move to.
+         */
+        private void moveTo(int next) {
+            if(index != -1 && isBlack(index)) blackSoFar++;
+            if(!isBlack(next)) blackSoFar += next - index - 1;
+            index = next;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public int setWhite() {
+            if(index == -1) throw new NoSuchElementException("Cannot call setWhite() before next() is called.");
+            if(isBlack(index)) CompactBarcode.this.setWhite(index, 1);
+            return index - blackSoFar;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public int setBlack() {
+            if(index == -1) throw new NoSuchElementException("Cannot call setBlack() before next() is called.");
+            if(!isBlack(index)) CompactBarcode.this.setBlack(index, 1);
+            return blackSoFar;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public int set(Object colour) {
+            if(colour == Barcode.BLACK) return setBlack();
+            return setWhite();
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public int getIndex() {
+            return index;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public int getBlackIndex() {
+            if(index == -1 || !isBlack(index)) return -1;
+            return blackSoFar;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public int getWhiteIndex() {
+            if(index == -1 || isBlack(index)) return -1;
+            return index - blackSoFar;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public int getColourIndex(Object colour) {
+            if(colour == Barcode.BLACK) return getBlackIndex();
+            return getWhiteIndex();
+        }
+
+        /**
+         * Removing flags during iteration is not supported.
+         */
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
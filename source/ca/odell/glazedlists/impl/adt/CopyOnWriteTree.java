@@ -0,0 +1,445 @@
+/* Glazed Lists                                                 (c) 2003-2014 */
+/* http://publicobject.com/glazedlists/                      publicobject.com,*/
+/*                                                     O'Dell Engineering Ltd.*/
+package ca.odell.glazedlists.impl.adt;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A list of elements in a tree of small arrays, whose previous versions can be
+ * read while it is being changed. Each {@link #snapshot()} ends a version:
+ * the nodes of that version are never changed again, and changes to them
+ * copy the path from the root to the change instead. Changes to nodes that
+ * were created in the current version are made in place, so a version that
+ * changes many elements only copies each node once.
+ *
+ * <p>Only one thread may change the tree at a time, but any number of threads
+ * may read snapshots concurrently, without locking. A snapshot is an ordinary
+ * object, and the nodes that only it refers to are garbage collected with it.
+ *
+ * <p>Reads and writes are O(log N), taking a snapshot is O(1).
+ */
+public final class CopyOnWriteTree<E> {
+
+    /** the most elements or children in a node */
+    static final int MAX_CHILDREN = 32;
+
+    /** nodes with fewer elements or children are merged with a neighbour if possible */
+    static final int MIN_CHILDREN = MAX_CHILDREN / 4;
+
+    /** the root of the tree */
+    private Node root;
+
+    /** nodes of this version may be changed in place */
+    private long version = 1;
+
+    /**
+     * Create an empty tree.
+     */
+    public CopyOnWriteTree() {
+        root = new Node(version, true, new Object[MAX_CHILDREN], 0, 0);
+    }
+
+    /**
+     * Create a tree of the specified elements.
+     */
+    public CopyOnWriteTree(Collection<? extends E> elements) {
+        // fill leaves, then build each level of parents until there's one root
+        final Object[] values = elements.toArray();
+        int count = (values.length + MAX_CHILDREN - 1) / MAX_CHILDREN;
+        Node[] level = new Node[Math.max(count, 1)];
+        for(int i = 0; i < level.length; i++) {
+            final int start = i * MAX_CHILDREN;
+            final int length = Math.min(MAX_CHILDREN, values.length - start);
+            final Object[] items = new Object[MAX_CHILDREN];
+            System.arraycopy(values, start, items, 0, length);
+            level[i] = new Node(version, true, items, length, length);
+        }
+        while(level.length > 1) {
+            count = (level.length + MAX_CHILDREN - 1) / MAX_CHILDREN;
+            final Node[] parents = new Node[count];
+            for(int i = 0; i < count; i++) {
+                final int start = i * MAX_CHILDREN;
+                final int length = Math.min(MAX_CHILDREN, level.length - start);
+                final Object[] children = new Object[MAX_CHILDREN];
+                int size = 0;
+                for(int c = 0; c < length; c++) {
+                    children[c] = level[start + c];
+                    size += level[start + c].size;
+                }
+                parents[i] = new Node(version, false, children, length, size);
+            }
+            level = parents;
+        }
+        root = level[0];
+    }
+
+    /**
+     * Get the number of elements in the current version.
+     */
+    public int size() {
+        return root.size;
+    }
+
+    /**
+     * Get the element at the specified index in the current version.
+     */
+    public E get(int index) {
+        checkIndex(index, root.size);
+        return CopyOnWriteTree.<E>element(root.get(index));
+    }
+
+    /**
+     * Replace the element at the specified index.
+     *
+     * @return the element that was replaced
+     */
+    public E set(int index, E element) {
+        checkIndex(index, root.size);
+        Node node = root = editable(root);
+        while(!node.leaf) {
+            int c = 0;
+            for(Node child; index >= (child = (Node)node.items[c]).size; c++) {
+                index -= child.size;
+            }
+            node = editableChild(node, c);
+        }
+        final E replaced = element(node.items[index]);
+        node.items[index] = element;
+        return replaced;
+    }
+
+    /**
+     * Insert the element at the specified index.
+     */
+    public void add(int index, E element) {
+        checkIndex(index, root.size + 1);
+        root = editable(root);
+        final Node split = insert(root, index, element);
+        if(split != null) {
+            final Object[] children = new Object[MAX_CHILDREN];
+            children[0] = root;
+            children[1] = split;
+            root = new Node(version, false, children, 2, root.size + split.size);
+        }
+    }
+
+    /**
+     * Remove the element at the specified index.
+     *
+     * @return the element that was removed
+     */
+    public E remove(int index) {
+        checkIndex(index, root.size);
+        root = editable(root);
+        final E removed = element(delete(root, index));
+
+        // collapse roots with a single child
+        while(!root.leaf && root.count == 1) {
+            root = (Node)root.items[0];
+        }
+        return removed;
+    }
+
+    /**
+     * Get the current version of the tree as a list that won't change, and
+     * start a new version.
+     */
+    public Snapshot<E> snapshot() {
+        final Snapshot<E> result = new Snapshot<E>(root, version);
+        version++;
+        return result;
+    }
+
+    /**
+     * Insert the element into the subtree of the specified editable node.
+     *
+     * @return a new node to follow the specified node if it was split, or
+     *      <code>null</code> if it wasn't
+     */
+    private Node insert(Node node, int index, Object element) {
+        node.size++;
+        if(node.leaf) {
+            return insertItem(node, index, element);
+        }
+
+        // find the child to insert into, the last child may be appended to
+        int c = 0;
+        for(Node child; c < node.count - 1 && index > (child = (Node)node.items[c]).size; c++) {
+            index -= child.size;
+        }
+        if(c < node.count - 1 && index == ((Node)node.items[c]).size) {
+            // prefer appending to a child that isn't full
+            if(((Node)node.items[c]).count == MAX_CHILDREN) {
+                index = 0;
+                c++;
+            }
+        }
+        final Node child = editableChild(node, c);
+        final Node split = insert(child, index, element);
+        if(split == null) return null;
+        return insertItem(node, c + 1, split);
+    }
+
+    /**
+     * Insert an element or a child into the specified editable node, splitting
+     * it if it is full. The node's size must already count the new item.
+     *
+     * @return a new node to follow the specified node if it was split, or
+     *      <code>null</code> if it wasn't
+     */
+    private Node insertItem(Node node, int position, Object item) {
+        if(node.count < MAX_CHILDREN) {
+            System.arraycopy(node.items, position, node.items, position + 1, node.count - position);
+            node.items[position] = item;
+            node.count++;
+            return null;
+        }
+
+        // split the full node in half, then insert into the appropriate half
+        final int half = MAX_CHILDREN / 2;
+        final Object[] rightItems = new Object[MAX_CHILDREN];
+        System.arraycopy(node.items, half, rightItems, 0, MAX_CHILDREN - half);
+        Arrays.fill(node.items, half, MAX_CHILDREN, null);
+        final Node right = new Node(version, node.leaf, rightItems, MAX_CHILDREN - half, 0);
+        node.count = half;
+        if(position <= half) {
+            insertItem(node, position, item);
+        } else {
+            insertItem(right, position - half, item);
+        }
+
+        // the node's size was already incremented for the new item
+        right.size = right.itemsSize();
+        node.size = node.size - right.size;
+        return right;
+    }
+
+    /**
+     * Remove the element from the subtree of the specified editable node.
+     *
+     * @return the removed element
+     */
+    private Object delete(Node node, int index) {
+        node.size--;
+        if(node.leaf) {
+            final Object removed = node.items[index];
+            removeItem(node, index);
+            return removed;
+        }
+
+        int c = 0;
+        for(Node child; index >= (child = (Node)node.items[c]).size; c++) {
+            index -= child.size;
+        }
+        final Node child = editableChild(node, c);
+        final Object removed = delete(child, index);
+
+        // drop empty children, and merge small ones with a neighbour
+        if(child.count == 0) {
+            removeItem(node, c);
+        } else if(child.count < MIN_CHILDREN && node.count > 1) {
+            final int left = c > 0 ? c - 1 : c;
+            final Node leftNode = (Node)node.items[left];
+            final Node rightNode = (Node)node.items[left + 1];
+            if(leftNode.count + rightNode.count <= MAX_CHILDREN) {
+                final Node merged = editableChild(node, left);
+                System.arraycopy(rightNode.items, 0, merged.items, merged.count, rightNode.count);
+                merged.count += rightNode.count;
+                merged.size += rightNode.size;
+                removeItem(node, left + 1);
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Remove the element or child at the specified position of an editable node.
+     */
+    private static void removeItem(Node node, int position) {
+        System.arraycopy(node.items, position + 1, node.items, position, node.count - position - 1);
+        node.count--;
+        node.items[node.count] = null;
+    }
+
+    /**
+     * Get a copy of the specified node that may be changed in place, or the
+     * node itself if it was created in the current version.
+     */
+    private Node editable(Node node) {
+        if(node.version == version) return node;
+        return new Node(version, node.leaf, node.items.clone(), node.count, node.size);
+    }
+
+    /**
+     * Replace the specified child of an editable node with an editable copy.
+     */
+    private Node editableChild(Node parent, int position) {
+        final Node child = editable((Node)parent.items[position]);
+        parent.items[position] = child;
+        return child;
+    }
+
+    /**
+     * Get an element of the tree as its element type. Nodes hold their
+     * elements as Objects, but only ever elements of the tree's type.
+     */
+    @SuppressWarnings("unchecked")
+    private static <E> E element(Object item) {
+        return (E)item;
+    }
+
+    private static void checkIndex(int index, int size) {
+        if(index < 0 || index >= size) throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+    }
+
+    /**
+     * A leaf of elements, or a branch of child nodes.
+     */
+    private static final class Node {
+        /** the version that may change this node in place */
+        private final long version;
+        private final boolean leaf;
+        /** elements for leaves, child nodes for branches */
+        private final Object[] items;
+        /** the number of items in use */
+        private int count;
+        /** the number of elements in this subtree */
+        private int size;
+
+        Node(long version, boolean leaf, Object[] items, int count, int size) {
+            this.version = version;
+            this.leaf = leaf;
+            this.items = items;
+            this.count = count;
+            this.size = size;
+        }
+
+        Object get(int index) {
+            Node node = this;
+            while(!node.leaf) {
+                int c = 0;
+                for(Node child; index >= (child = (Node)node.items[c]).size; c++) {
+                    index -= child.size;
+                }
+                node = (Node)node.items[c];
+            }
+            return node.items[index];
+        }
+
+        int itemsSize() {
+            if(leaf) return count;
+            int result = 0;
+            for(int c = 0; c < count; c++) {
+                result += ((Node)items[c]).size;
+            }
+            return result;
+        }
+    }
+
+    /**
+     * A version of a {@link CopyOnWriteTree} that won't change, and that
+     * may be read by any thread.
+     */
+    public static final class Snapshot<E> extends AbstractList<E> {
+        private final Node root;
+        private final long version;
+
+        Snapshot(Node root, long version) {
+            this.root = root;
+            this.version = version;
+        }
+
+        /**
+         * Get the version of the tree that this is a snapshot of. Later
+         * snapshots have greater versions.
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public E get(int index) {
+            checkIndex(index, root.size);
+            return CopyOnWriteTree.<E>element(root.get(index));
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public int size() {
+            return root.size;
+        }
+
+        /**
+         * Iterate the leaves in order, rather than looking up each index.
+         */
+        @Override
+        public Iterator<E> iterator() {
+            return new SnapshotIterator<E>(root);
+        }
+    }
+
+    /**
+     * Iterates the elements of a snapshot, leaf by leaf.
+     */
+    private static final class SnapshotIterator<E> implements Iterator<E> {
+        /** the path from the root to the current leaf, and the position at each level */
+        private Node[] path = new Node[8];
+        private int[] positions = new int[8];
+        private int depth;
+        private int remaining;
+
+        SnapshotIterator(Node root) {
+            remaining = root.size;
+            path[0] = root;
+            positions[0] = 0;
+            depth = 0;
+            descend();
+        }
+
+        /**
+         * Follow the first children down to a leaf from the current level.
+         */
+        private void descend() {
+            while(!path[depth].leaf) {
+                final Node child = (Node)path[depth].items[positions[depth]];
+                depth++;
+                if(depth == path.length) {
+                    path = Arrays.copyOf(path, depth * 2);
+                    positions = Arrays.copyOf(positions, depth * 2);
+                }
+                path[depth] = child;
+                positions[depth] = 0;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return remaining > 0;
+        }
+
+        @Override
+        public E next() {
+            if(remaining == 0) throw new NoSuchElementException();
+
+            // move to the next leaf once this one is exhausted
+            while(positions[depth] == path[depth].count) {
+                depth--;
+                positions[depth]++;
+                if(positions[depth] < path[depth].count) descend();
+            }
+            remaining--;
+            return CopyOnWriteTree.<E>element(path[depth].items[positions[depth]++]);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("Snapshots cannot be changed");
+        }
+    }
+}
@@ -0,0 +1,115 @@
+/* Glazed Lists                                                 (c) 2003-2014 */
+/* http://publicobject.com/glazedlists/                      publicobject.com,*/
+/*                                                     O'Dell Engineering Ltd.*/
+package ca.odell.glazedlists.impl.adt;
+
+/**
+ * A list of {@link Barcode#BLACK} and {@link Barcode#WHITE} flags that can be
+ * indexed by overall position, or by position among the flags of one colour.
+ *
+ * <p>This is implemented by {@link Barcode}, which compresses runs of the
+ * same colour, and by {@link CompactBarcode}, which uses a single bit per
+ * flag. Like those classes, implementations are not required to validate
+ * their arguments.
+ */
+public interface FlagList {
+
+    /**
+     * Gets the total number of flags.
+     */
+    int size();
+
+    /**
+     * Whether or not there are no flags.
+     */
+    boolean isEmpty();
+
+    /**
+     * Gets the number of WHITE flags.
+     */
+    int whiteSize();
+
+    /**
+     * Gets the number of BLACK flags.
+     */
+    int blackSize();
+
+    /**
+     * Gets the number of flags of the given colour.
+     */
+    int colourSize(Object colour);
+
+    /**
+     * Inserts a sequence of the specified colour.
+     */
+    void add(int index, Object colour, int length);
+
+    /**
+     * Inserts a sequence of WHITE.
+     */
+    void addWhite(int index, int length);
+
+    /**
+     * Inserts a sequence of BLACK.
+     */
+    void addBlack(int index, int length);
+
+    /**
+     * Gets the colour of the flag at the specified index.
+     */
+    Object get(int index);
+
+    /**
+     * Sets a sequence of flags to the specified colour.
+     */
+    void set(int index, Object colour, int length);
+
+    /**
+     * Sets a sequence of flags to WHITE.
+     */
+    void setWhite(int index, int length);
+
+    /**
+     * Sets a sequence of flags to BLACK.
+     */
+    void setBlack(int index, int length);
+
+    /**
+     * Removes a sequence of flags.
+     */
+    void remove(int index, int length);
+
+    /**
+     * Removes all flags.
+     */
+    void clear();
+
+    /**
+     * Gets the overall index of the flag with the specified colour-centric
+     * index.
+     */
+    int getIndex(int colourIndex, Object colour);
+
+    /**
+     * Gets the colour-centric index of the flag at the specified overall index,
+     * or -1 if that flag is not of the specified colour.
+     */
+    int getColourIndex(int index, Object colour);
+
+    /**
+     * Gets the white-centric index of the flag at the specified overall index,
+     * or -1 if that flag is BLACK.
+     */
+    int getWhiteIndex(int index);
+
+    /**
+     * Gets the black-centric index of the flag at the specified overall index,
+     * or -1 if that flag is WHITE.
+     */
+    int getBlackIndex(int index);
+
+    /**
+     * Gets a {@link FlagListIterator} for fast sequential access.
+     */
+    FlagListIterator iterator();
+}
@@ -0,0 +1,80 @@
+/* Glazed Lists                                                 (c) 2003-2014 */
+/* http://publicobject.com/glazedlists/                      publicobject.com,*/
+/*                                                     O'Dell Engineering Ltd.*/
+package ca.odell.glazedlists.impl.adt;
+
+import java.util.Iterator;
+
+/**
+ * An {@link Iterator} over a {@link FlagList} that can skip to the next flag
+ * of a given colour and change flags as it goes.
+ */
+public interface FlagListIterator extends Iterator {
+
+    /**
+     * Returns true if there are more BLACK flags to move to.
+     */
+    boolean hasNextBlack();
+
+    /**
+     * Returns true if there are more WHITE flags to move to.
+     */
+    boolean hasNextWhite();
+
+    /**
+     * Returns true if there are more flags of the specified colour to move to.
+     */
+    boolean hasNextColour(Object colour);
+
+    /**
+     * Moves to the next BLACK flag.
+     */
+    Object nextBlack();
+
+    /**
+     * Moves to the next WHITE flag.
+     */
+    Object nextWhite();
+
+    /**
+     * Moves to the next flag of the specified colour.
+     */
+    Object nextColour(Object colour);
+
+    /**
+     * Sets the current flag to WHITE and returns its white-centric index.
+     */
+    int setWhite();
+
+    /**
+     * Sets the current flag to BLACK and returns its black-centric index.
+     */
+    int setBlack();
+
+    /**
+     * Sets the current flag to the specified colour and returns its
+     * colour-centric index.
+     */
+    int set(Object colour);
+
+    /**
+     * Gets the overall index of the current flag.
+     */
+    int getIndex();
+
+    /**
+     * Gets the black-centric index of the current flag, or -1 if it is WHITE.
+     */
+    int getBlackIndex();
+
+    /**
+     * Gets the white-centric index of the current flag, or -1 if it is BLACK.
+     */
+    int getWhiteIndex();
+
+    /**
+     * Gets the colour-centric index of the current flag, or -1 if it is not of
+     * the specified colour.
+     */
+    int getColourIndex(Object colour);
+}
@@ -363,6 +363,55 @@ public class BciiTree/*[ TYPELIST_START ]*/ <T0,T1> /*[ TYPELIST_END ]*/ {
         }
     }
 
+    /**
+     * Fill this empty tree with the specified values, one node per value, in
+     * the order they are given. This builds a perfectly balanced tree bottom-up
+     * in linear time, which is much faster than adding the values one at a
+     * time because no comparisons or rotations are necessary.
+     *
+     * @param color a bitmask value such as 1, 2, 4, 8, 16, 32, 64 or 128.
+     * @param values the node values, in the order they shall appear in the tree.
+     * @return the elements holding the values, where each element has the
+     *      same index as its value in <code>values</code>.
+     */
+    public Element<T0>[] addAll(/*[ COLORED_START ]*/ byte color, /*[ COLORED_END ]*/ T0[] values) {
+        if(root != null) throw new IllegalStateException("Tree must be empty");
+
+        Element<T0>[] elements = new Element[values.length];
+        root = buildSubtree(null, /*[ COLORED_START ]*/ color, /*[ COLORED_END ]*/ values, elements, 0, values.length);
+        assert(valid());
+        return elements;
+    }
+
+    /**
+     * Build a balanced subtree holding the values in the range
+     * <code>[start, end)</code>.
+     *
+     * @param parent the parent of the new subtree, or <code>null</code> for
+     *      the root.
+     * @return the root of the new subtree, or <code>null</code> if the range
+     *      is empty.
+     */
+    private /*[ NODENAME_START ]*/ BciiNode<T0,T1> /*[ NODENAME_END ]*/ buildSubtree(/*[ NODENAME_START ]*/ BciiNode<T0,T1> /*[ NODENAME_END ]*/ parent, /*[ COLORED_START ]*/ byte color, /*[ COLORED_END ]*/ T0[] values, Element<T0>[] elements, int start, int end) {
+        if(start == end) return null;
+
+        // the middle value is the root, so the sizes and heights of both
+        // sides differ by at most one and the subtree is AVL
+        int middle = (start + end) >>> 1;
+        /*[ NODENAME_START ]*/ BciiNode<T0,T1> /*[ NODENAME_END ]*/ node = new /*[ NODENAME_START ]*/ BciiNode<T0,T1> /*[ NODENAME_END ]*/(/*[ COLORED_START ]*/ color, /*[ COLORED_END ]*/ 1, values[middle], parent);
+        elements[middle] = node;
+        node.left = buildSubtree(node, /*[ COLORED_START ]*/ color, /*[ COLORED_END ]*/ values, elements, start, middle);
+        node.right = buildSubtree(node, /*[ COLORED_START ]*/ color, /*[ COLORED_END ]*/ values, elements, middle + 1, end);
+
+        // update height and counts
+        byte leftHeight = node.left != null ? node.left.height : 0;
+        byte rightHeight = node.right != null ? node.right.height : 0;
+        node.height = (byte)(Math.max(leftHeight, rightHeight) + 1);
+        /*[ REFRESH_COUNTS(node) ]*/ node.refreshCounts(); /*[ EXAMPLE_END ]*/
+
+        return node;
+    }
+
     /**
      * Adjust counts for all nodes (including the specified node) up the tree
      * to the root. The counts of the specified color are adjusted by delta
@@ -142,6 +142,21 @@ public class SimpleTreeIterator <  T0>   {
         return result;
     }
 
+    /**
+     * Move this iterator back to before the first element of the tree, so
+     * that it can be reused rather than creating a new one.
+     */
+    public void reset() {
+
+
+        count1 = 0;
+
+
+
+        node = null;
+        index = 0;
+    }
+
     /**
      * @return <code>true</code> if there's an element of the specified color in
      *     this tree following the current element.
@@ -0,0 +1,28 @@
+/* Glazed Lists                                                 (c) 2003-2014 */
+/* http://publicobject.com/glazedlists/                      publicobject.com,*/
+/*                                                     O'Dell Engineering Ltd.*/
+package ca.odell.glazedlists.impl.beans;
+
+/**
+ * Calls the getter and setter chains of a {@link BeanProperty} directly,
+ * without reflection. Implementations are generated at runtime by the
+ * {@link BeanAccessorCompiler}.
+ *
+ * <p>This class is public only so that generated subclasses, which live in
+ * their own {@link ClassLoader}, may extend it.
+ */
+public abstract class BeanAccessor {
+
+    /**
+     * Gets the value of the property for the specified bean, or <code>null</code>
+     * if any property along the way is <code>null</code>.
+     */
+    public abstract Object get(Object bean);
+
+    /**
+     * Sets the value of the property for the specified bean, returning the
+     * result of the setter. This does nothing and returns <code>null</code>
+     * if any property along the way is <code>null</code>.
+     */
+    public abstract Object set(Object bean, Object value);
+}
@@ -0,0 +1,484 @@
+/* Glazed Lists                                                 (c) 2003-2014 */
+/* http://publicobject.com/glazedlists/                      publicobject.com,*/
+/*                                                     O'Dell Engineering Ltd.*/
+package ca.odell.glazedlists.impl.beans;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Generates {@link BeanAccessor}s that call getter and setter chains with
+ * plain <code>invokevirtual</code> and <code>invokeinterface</code>
+ * instructions, so that the JIT can inline them like any other method call.
+ *
+ * <p>Accessors can only be generated for public, non-static methods of
+ * public classes that are visible from the bean class' {@link ClassLoader}.
+ * When that is not the case, or the accessor cannot be defined for any other
+ * reason, {@link #compile} returns <code>null</code> and the
+ * {@link BeanProperty} continues to use reflection.
+ *
+ * <p>The generated classes use the Java 5 class file format, which doesn't
+ * need stack map frames.
+ */
+final class BeanAccessorCompiler {
+
+    /** the class file version of the generated classes */
+    private static final int CLASS_FILE_VERSION = 49;
+
+    /** class file flags */
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    /** the instructions used by generated accessors */
+    private static final int ACONST_NULL = 0x01;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ALOAD_1 = 0x2b;
+    private static final int ALOAD_2 = 0x2c;
+    private static final int DUP = 0x59;
+    private static final int ARETURN = 0xb0;
+    private static final int RETURN = 0xb1;
+    private static final int INVOKEVIRTUAL = 0xb6;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKESTATIC = 0xb8;
+    private static final int INVOKEINTERFACE = 0xb9;
+    private static final int CHECKCAST = 0xc0;
+    private static final int IFNONNULL = 0xc7;
+
+    /** the wrapper class for each primitive class */
+    private static final Map<Class<?>,Class<?>> WRAPPERS = new HashMap<Class<?>,Class<?>>();
+    static {
+        WRAPPERS.put(boolean.class, Boolean.class);
+        WRAPPERS.put(byte.class, Byte.class);
+        WRAPPERS.put(char.class, Character.class);
+        WRAPPERS.put(short.class, Short.class);
+        WRAPPERS.put(int.class, Integer.class);
+        WRAPPERS.put(long.class, Long.class);
+        WRAPPERS.put(float.class, Float.class);
+        WRAPPERS.put(double.class, Double.class);
+    }
+
+    /** the internal name of the superclass of all generated accessors */
+    private static final String ACCESSOR_NAME = internalName(BeanAccessor.class);
+
+    /** gives each generated accessor a unique name */
+    private static final AtomicInteger accessorCount = new AtomicInteger();
+
+    private BeanAccessorCompiler() {
+        // prevent instantiation
+    }
+
+    /**
+     * Generates a {@link BeanAccessor} that calls the specified chains of
+     * methods directly.
+     *
+     * @param beanClass the class the chains start at
+     * @param getterChain the getters to call in sequence, or <code>null</code>
+     *      if the property isn't readable
+     * @param setterChain the getters followed by the setter to call in sequence,
+     *      or <code>null</code> if the property isn't writable
+     * @return the accessor, or <code>null</code> if no accessor could be
+     *      generated for these methods
+     */
+    static BeanAccessor compile(Class<?> beanClass, List<Method> getterChain, List<Method> setterChain) {
+        try {
+            final AccessorClassLoader classLoader = new AccessorClassLoader(beanClass.getClassLoader());
+            if(getterChain != null && !isCompilable(getterChain, classLoader)) return null;
+            if(setterChain != null && !isCompilable(setterChain, classLoader)) return null;
+
+            final String className = BeanAccessor.class.getPackage().getName() + ".GeneratedBeanAccessor" + accessorCount.incrementAndGet();
+            final byte[] classFile = generate(internalName(className), getterChain, setterChain);
+            return (BeanAccessor)classLoader.define(className, classFile).newInstance();
+
+        } catch(Exception e) {
+            // fall back to reflection
+            return null;
+        } catch(LinkageError e) {
+            // fall back to reflection
+            return null;
+        }
+    }
+
+    /**
+     * Returns <code>true</code> if the specified value can be passed to a
+     * method that takes a parameter of the specified type without any
+     * conversion other than unboxing.
+     */
+    static boolean isAssignable(Class<?> parameterType, Object value) {
+        if(parameterType.isPrimitive()) return value != null && WRAPPERS.get(parameterType) == value.getClass();
+        return value == null || parameterType.isInstance(value);
+    }
+
+    /**
+     * Returns <code>true</code> if generated code can call each of the
+     * specified methods.
+     */
+    private static boolean isCompilable(List<Method> chain, ClassLoader classLoader) {
+        for(int i = 0, n = chain.size(); i < n; i++) {
+            final Method method = chain.get(i);
+            if(Modifier.isStatic(method.getModifiers())) return false;
+            if(!isAccessible(method.getDeclaringClass(), classLoader)) return false;
+
+            final Class<?>[] parameterTypes = method.getParameterTypes();
+            for(int p = 0; p < parameterTypes.length; p++) {
+                if(!isAccessible(parameterTypes[p], classLoader)) return false;
+            }
+            if(!isVisible(method.getReturnType(), classLoader)) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns <code>true</code> if generated code can cast to the specified class.
+     */
+    private static boolean isAccessible(Class<?> type, ClassLoader classLoader) {
+        if(!isVisible(type, classLoader)) return false;
+        for(Class<?> current = type; current != null; current = current.getDeclaringClass()) {
+            if(!Modifier.isPublic(current.getModifiers())) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Returns <code>true</code> if the specified class resolves to itself from
+     * generated code.
+     */
+    private static boolean isVisible(Class<?> type, ClassLoader classLoader) {
+        if(type.isPrimitive()) return true;
+        try {
+            return Class.forName(type.getName(), false, classLoader) == type;
+        } catch(ClassNotFoundException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Generates the class file of an accessor for the specified methods.
+     */
+    private static byte[] generate(String className, List<Method> getterChain, List<Method> setterChain) throws IOException {
+        final ConstantPool constants = new ConstantPool();
+        final int thisClass = constants.classReference(className);
+        final int superClass = constants.classReference(ACCESSOR_NAME);
+        final int code = constants.utf8("Code");
+        final int constructorName = constants.utf8("<init>");
+        final int constructorDescriptor = constants.utf8("()V");
+        final int getName = constants.utf8("get");
+        final int getDescriptor = constants.utf8("(Ljava/lang/Object;)Ljava/lang/Object;");
+        final int setName = constants.utf8("set");
+        final int setDescriptor = constants.utf8("(Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;");
+
+        // public GeneratedBeanAccessor() { super(); }
+        final Bytecode constructor = new Bytecode(constants);
+        constructor.op(ALOAD_0);
+        constructor.op(INVOKESPECIAL);
+        constructor.u2(constants.methodReference(ACCESSOR_NAME, "<init>", "()V", false));
+        constructor.op(RETURN);
+
+        // public Object get(Object bean)
+        final Bytecode get = new Bytecode(constants);
+        if(getterChain != null) {
+            get.op(ALOAD_1);
+            get.invokeChain(getterChain, getterChain.size());
+            get.box(getterChain.get(getterChain.size() - 1).getReturnType());
+        } else {
+            get.op(ACONST_NULL);
+        }
+        get.op(ARETURN);
+
+        // public Object set(Object bean, Object value)
+        final Bytecode set = new Bytecode(constants);
+        if(setterChain != null) {
+            final Method setter = setterChain.get(setterChain.size() - 1);
+            set.op(ALOAD_1);
+            set.invokeChain(setterChain, setterChain.size() - 1);
+            set.checkcast(setter.getDeclaringClass());
+            set.op(ALOAD_2);
+            set.unbox(setter.getParameterTypes()[0]);
+            set.invoke(setter);
+            if(setter.getReturnType() == void.class) set.op(ACONST_NULL);
+            else set.box(setter.getReturnType());
+        } else {
+            set.op(ACONST_NULL);
+        }
+        set.op(ARETURN);
+
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(0xCAFEBABE);
+        out.writeShort(0);
+        out.writeShort(CLASS_FILE_VERSION);
+        constants.write(out);
+        out.writeShort(ACC_PUBLIC | ACC_FINAL | ACC_SUPER);
+        out.writeShort(thisClass);
+        out.writeShort(superClass);
+        out.writeShort(0); // interfaces
+        out.writeShort(0); // fields
+        out.writeShort(3); // methods
+        writeMethod(out, constructorName, constructorDescriptor, code, 1, 1, constructor);
+        writeMethod(out, getName, getDescriptor, code, 2, 2, get);
+        writeMethod(out, setName, setDescriptor, code, 4, 3, set);
+        out.writeShort(0); // attributes
+        out.flush();
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Writes a public method with the specified code.
+     */
+    private static void writeMethod(DataOutputStream out, int name, int descriptor, int codeAttribute, int maxStack, int maxLocals, Bytecode code) throws IOException {
+        final byte[] instructions = code.toByteArray();
+        out.writeShort(ACC_PUBLIC);
+        out.writeShort(name);
+        out.writeShort(descriptor);
+        out.writeShort(1); // attributes
+        out.writeShort(codeAttribute);
+        out.writeInt(12 + instructions.length);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(instructions.length);
+        out.write(instructions);
+        out.writeShort(0); // exception table
+        out.writeShort(0); // attributes
+    }
+
+    /**
+     * Gets the internal form of the specified class' name.
+     */
+    private static String internalName(Class<?> type) {
+        return internalName(type.getName());
+    }
+    private static String internalName(String className) {
+        return className.replace('.', '/');
+    }
+
+    /**
+     * Gets the descriptor of the specified class.
+     */
+    private static String descriptor(Class<?> type) {
+        if(type == void.class) return "V";
+        if(type == boolean.class) return "Z";
+        if(type == byte.class) return "B";
+        if(type == char.class) return "C";
+        if(type == short.class) return "S";
+        if(type == int.class) return "I";
+        if(type == long.class) return "J";
+        if(type == float.class) return "F";
+        if(type == double.class) return "D";
+        if(type.isArray()) return internalName(type);
+        return "L" + internalName(type) + ";";
+    }
+
+    /**
+     * Gets the descriptor of the specified method.
+     */
+    private static String descriptor(Method method) {
+        final StringBuffer result = new StringBuffer();
+        result.append('(');
+        final Class<?>[] parameterTypes = method.getParameterTypes();
+        for(int p = 0; p < parameterTypes.length; p++) {
+            result.append(descriptor(parameterTypes[p]));
+        }
+        result.append(')');
+        result.append(descriptor(method.getReturnType()));
+        return result.toString();
+    }
+
+    /**
+     * The instructions of a single method.
+     */
+    private static final class Bytecode extends ByteArrayOutputStream {
+        private final ConstantPool constants;
+
+        Bytecode(ConstantPool constants) {
+            this.constants = constants;
+        }
+
+        void op(int opcode) {
+            write(opcode);
+        }
+
+        void u2(int value) {
+            write(value >>> 8);
+            write(value);
+        }
+
+        void checkcast(Class<?> type) {
+            if(type == Object.class) return;
+            op(CHECKCAST);
+            u2(constants.classReference(internalName(type)));
+        }
+
+        /**
+         * Calls the first <code>length</code> getters of the chain on the bean
+         * on top of the stack, returning <code>null</code> whenever a getter
+         * returns <code>null</code>.
+         */
+        void invokeChain(List<Method> chain, int length) {
+            for(int i = 0; i < length; i++) {
+                final Method getter = chain.get(i);
+                checkcast(getter.getDeclaringClass());
+                invoke(getter);
+
+                // the last value of the getter chain may be null or primitive
+                if(i == chain.size() - 1) break;
+
+                // if(value == null) return null;
+                op(DUP);
+                op(IFNONNULL);
+                u2(4);
+                op(ARETURN);
+            }
+        }
+
+        void invoke(Method method) {
+            final Class<?> owner = method.getDeclaringClass();
+            if(owner.isInterface()) {
+                int arguments = 1;
+                final Class<?>[] parameterTypes = method.getParameterTypes();
+                for(int p = 0; p < parameterTypes.length; p++) {
+                    arguments += parameterTypes[p] == long.class || parameterTypes[p] == double.class ? 2 : 1;
+                }
+                op(INVOKEINTERFACE);
+                u2(constants.methodReference(internalName(owner), method.getName(), descriptor(method), true));
+                op(arguments);
+                op(0);
+            } else {
+                op(INVOKEVIRTUAL);
+                u2(constants.methodReference(internalName(owner), method.getName(), descriptor(method), false));
+            }
+        }
+
+        /**
+         * Converts the primitive on top of the stack to its wrapper.
+         */
+        void box(Class<?> type) {
+            if(!type.isPrimitive()) return;
+            final Class<?> wrapper = WRAPPERS.get(type);
+            op(INVOKESTATIC);
+            u2(constants.methodReference(internalName(wrapper), "valueOf", "(" + descriptor(type) + ")" + descriptor(wrapper), false));
+        }
+
+        /**
+         * Converts the Object on top of the stack to the specified parameter type.
+         */
+        void unbox(Class<?> type) {
+            if(!type.isPrimitive()) {
+                checkcast(type);
+                return;
+            }
+            final Class<?> wrapper = WRAPPERS.get(type);
+            checkcast(wrapper);
+            op(INVOKEVIRTUAL);
+            u2(constants.methodReference(internalName(wrapper), type.getName() + "Value", "()" + descriptor(type), false));
+        }
+    }
+
+    /**
+     * The constants referred to by a generated class.
+     */
+    private static final class ConstantPool {
+        private static final int CONSTANT_UTF8 = 1;
+        private static final int CONSTANT_CLASS = 7;
+        private static final int CONSTANT_METHODREF = 10;
+        private static final int CONSTANT_INTERFACE_METHODREF = 11;
+        private static final int CONSTANT_NAME_AND_TYPE = 12;
+
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private final Map<String,Integer> indices = new HashMap<String,Integer>();
+        private int size = 1;
+
+        int utf8(String value) {
+            final String key = "utf8 " + value;
+            Integer index = indices.get(key);
+            if(index != null) return index.intValue();
+            try {
+                out.writeByte(CONSTANT_UTF8);
+                out.writeUTF(value);
+            } catch(IOException e) {
+                throw new IllegalStateException(e.getMessage());
+            }
+            return add(key);
+        }
+
+        int classReference(String internalName) {
+            final String key = "class " + internalName;
+            Integer index = indices.get(key);
+            if(index != null) return index.intValue();
+            final int name = utf8(internalName);
+            write(CONSTANT_CLASS, name);
+            return add(key);
+        }
+
+        int methodReference(String owner, String name, String descriptor, boolean isInterface) {
+            final String key = "method " + owner + "." + name + descriptor;
+            Integer index = indices.get(key);
+            if(index != null) return index.intValue();
+            final int ownerClass = classReference(owner);
+            final int nameAndType = nameAndType(name, descriptor);
+            write(isInterface ? CONSTANT_INTERFACE_METHODREF : CONSTANT_METHODREF, ownerClass, nameAndType);
+            return add(key);
+        }
+
+        private int nameAndType(String name, String descriptor) {
+            final String key = "nameAndType " + name + descriptor;
+            Integer index = indices.get(key);
+            if(index != null) return index.intValue();
+            final int nameIndex = utf8(name);
+            final int descriptorIndex = utf8(descriptor);
+            write(CONSTANT_NAME_AND_TYPE, nameIndex, descriptorIndex);
+            return add(key);
+        }
+
+        private void write(int tag, int... references) {
+            try {
+                out.writeByte(tag);
+                for(int i = 0; i < references.length; i++) {
+                    out.writeShort(references[i]);
+                }
+            } catch(IOException e) {
+                throw new IllegalStateException(e.getMessage());
+            }
+        }
+
+        private int add(String key) {
+            final int index = size++;
+            indices.put(key, new Integer(index));
+            return index;
+        }
+
+        void write(DataOutputStream target) throws IOException {
+            out.flush();
+            target.writeShort(size);
+            bytes.writeTo(target);
+        }
+    }
+
+    /**
+     * Defines generated accessors. Classes referred to by the accessor are
+     * resolved by the bean class' {@link ClassLoader}, except for
+     * {@link BeanAccessor} itself.
+     */
+    private static final class AccessorClassLoader extends ClassLoader {
+        AccessorClassLoader(ClassLoader parent) {
+            super(parent);
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if(name.equals(BeanAccessor.class.getName())) return BeanAccessor.class;
+            return super.loadClass(name, resolve);
+        }
+
+        Class<?> define(String name, byte[] classFile) {
+            return defineClass(name, classFile, 0, classFile.length);
+        }
+    }
+}
@@ -22,6 +22,23 @@ public class BeanProperty<T> {
 
     private static final ReturnTypeResolver TYPE_RESOLVER = new J2SE50ReturnTypeResolver();
 
+    /** the number of reflective calls before the getters and setters are called directly */
+    private static final int COMPILE_THRESHOLD = 15;
+
+    // Determines whether or not accessors are generated for frequently used
+    // properties. Default behavior is to generate them.
+    private static final boolean COMPILE_ACCESSORS;
+    static {
+        boolean compile = true;
+        try {
+            compile = System.getProperty("glazedlists.compat.reflective_bean_properties") == null;
+        }
+        catch(SecurityException ex) { // probably running in an applet
+            // ignore
+        }
+        COMPILE_ACCESSORS = compile;
+    }
+
     /** the target class */
     private final Class<T> beanClass;
     /** the property name */
@@ -39,6 +56,15 @@ public class BeanProperty<T> {
     /** the chain of methods for the setter */
     private List<Method> setterChain = null;
 
+    /** the parameter type of the final setter */
+    private Class setterParameterType = null;
+
+    /** calls the getter and setter chains directly, once they're used frequently */
+    private volatile BeanAccessor accessor = null;
+
+    /** the number of reflective calls so far */
+    private int reflectiveCalls = 0;
+
     /** commonly used paramters */
     private static final Object[] EMPTY_ARGUMENTS = new Object[0];
     private static final Class[] EMPTY_PARAMETER_TYPES = new Class[0];
@@ -91,6 +117,7 @@ public class BeanProperty<T> {
             setterChain.addAll(commonChain);
             Method lastSetter = findSetterMethod(currentClass, propertyParts[propertyParts.length - 1]);
             setterChain.add(lastSetter);
+            setterParameterType = lastSetter.getParameterTypes()[0];
             if(valueClass == null) valueClass = TYPE_RESOLVER.getFirstParameterType(currentClass, lastSetter);
         }
     }
@@ -246,6 +273,16 @@ public class BeanProperty<T> {
         if (identityProperty)
             return member;
 
+        // call the getters directly if we can
+        final BeanAccessor accessor = getAccessor();
+        if(accessor != null && getterChain.get(0).getDeclaringClass().isInstance(member)) {
+            try {
+                return accessor.get(member);
+            } catch(Throwable e) {
+                throw new UndeclaredThrowableException(e);
+            }
+        }
+
         try {
             // do all the getters in sequence
             Object currentMember = member;
@@ -272,6 +309,16 @@ public class BeanProperty<T> {
     public Object set(T member, Object newValue) {
         if(!isWritable()) throw new IllegalStateException("Property " + propertyName + " of " + beanClass + " not writable");
 
+        // call the setter directly if we can, otherwise reflection reports bad values
+        final BeanAccessor accessor = getAccessor();
+        if(accessor != null && setterChain.get(0).getDeclaringClass().isInstance(member) && BeanAccessorCompiler.isAssignable(setterParameterType, newValue)) {
+            try {
+                return accessor.set(member, newValue);
+            } catch(Throwable e) {
+                throw new UndeclaredThrowableException(e);
+            }
+        }
+
         Method setterMethod = null;
         try {
             // everything except the last setter chain element is a getter
@@ -305,6 +352,21 @@ public class BeanProperty<T> {
         }
     }
 
+    /**
+     * Gets the {@link BeanAccessor} that calls the getter and setter chains
+     * directly, generating it once this property has been used frequently.
+     *
+     * @return the accessor, or <code>null</code> to use reflection
+     */
+    private BeanAccessor getAccessor() {
+        BeanAccessor result = accessor;
+        if(result == null && COMPILE_ACCESSORS && ++reflectiveCalls == COMPILE_THRESHOLD) {
+            result = BeanAccessorCompiler.compile(beanClass, getterChain, setterChain);
+            accessor = result;
+        }
+        return result;
+    }
+
     /**
      * This method was backported from the JDK 1.5 version of java.lang.Class.
      *
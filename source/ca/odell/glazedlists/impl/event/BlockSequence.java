@@ -11,7 +11,8 @@ import java.util.List;
 
 /**
  * Manage a very simple list of list event blocks that occur in
- * increasing-only order.
+ * increasing-only order. Consecutive inserts at the end or the start of the
+ * most recent block of inserts are added to that block in constant time.
  *
  * @author <a href="mailto:jesse@swank.ca">Jesse Wilson</a>
  */
@@ -83,9 +84,17 @@ public class BlockSequence<E> {
             lastNewValue = newValues.get(size - 1);
         }
 
+        // inserts into or beside the most recent block of inserts, such as
+        // appends and prepends, extend it. The inserted values are not
+        // reported by the ListEvent, so they needn't be the same
+        if(type == ListEvent.INSERT && lastType == ListEvent.INSERT && startIndex >= lastStartIndex && startIndex <= lastEndIndex) {
+            ends.set(size - 1, lastEndIndex + (endIndex - startIndex));
+            if(newValue != lastNewValue) newValues.set(size - 1, ListEvent.<E>unknownValue());
+            return true;
+
         // this change breaks the linear-ordering requirement, convert
         // to a more powerful list blocks manager
-        if(startIndex < lastChangedIndex) {
+        } else if(startIndex < lastChangedIndex) {
             return false;
 
         // concatenate this change on to the previous one
@@ -109,6 +118,18 @@ public class BlockSequence<E> {
         return types.isEmpty();
     }
 
+    /**
+     * @return the number of elements inserted, updated or deleted by this
+     *      sequence, counting no further than the specified limit.
+     */
+    public int changeSize(int limit) {
+        int result = 0;
+        for(int i = 0, n = types.size(); i < n && result < limit; i++) {
+            result += ends.get(i) - starts.get(i);
+        }
+        return result;
+    }
+
     public void reset() {
         starts.clear();
         ends.clear();
@@ -171,6 +192,17 @@ public class BlockSequence<E> {
             return result;
         }
 
+        /**
+         * Move this iterator back to before the first change.
+         */
+        public void reset() {
+            blockIndex = -1;
+            offset = 0;
+            startIndex = -1;
+            endIndex = -1;
+            type = -1;
+        }
+
         public int getIndex() {
             if(type == ListEvent.INSERT || type == ListEvent.UPDATE) {
                 return startIndex + offset;
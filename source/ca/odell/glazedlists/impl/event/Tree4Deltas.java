@@ -190,8 +190,19 @@ public class Tree4Deltas<E> {
     }
 
     public void reset(int size) {
-        tree.clear();
         initialCapacityKnown = true;
+
+        // if there are no changes, resize the tree in place rather than
+        // rebuilding it so that resetting an unused tree creates no garbage
+        if(isEmpty()) {
+            int currentSize = tree.size(ALL_INDICES);
+            if(size < currentSize) {
+                tree.remove(size, ALL_INDICES, currentSize - size);
+                return;
+            }
+        } else {
+            tree.clear();
+        }
         ensureCapacity(size);
     }
     private void ensureCapacity(int size) {
@@ -233,6 +244,13 @@ public class Tree4Deltas<E> {
         return tree.size(CHANGE_INDICES) == 0;
     }
 
+    /**
+     * @return the number of elements inserted, updated or deleted by this event.
+     */
+    public int changeSize() {
+        return tree.size(CHANGE_INDICES);
+    }
+
     public Iterator<E> iterator() {
         return new Iterator<E>(tree);
     }
@@ -263,6 +281,13 @@ public class Tree4Deltas<E> {
             return new Iterator<E>(tree, treeIterator.copy());
         }
 
+        /**
+         * Move this iterator back to before the first change.
+         */
+        public void reset() {
+            treeIterator.reset();
+        }
+
         public int getIndex() {
             return treeIterator.index(TARGET_INDICES);
         }
@@ -9,11 +9,18 @@ import ca.odell.glazedlists.TransformedList;
 import ca.odell.glazedlists.event.ListEvent;
 import ca.odell.glazedlists.event.ListEventAssembler;
 import ca.odell.glazedlists.event.ListEventListener;
+import ca.odell.glazedlists.impl.Preconditions;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.List;
 import java.util.RandomAccess;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 /**
  * An {@link EventList} that only forwards its events on a proxy thread,
@@ -40,9 +47,10 @@ import java.util.RandomAccess;
  * <ol>
  *   <li>First it acquires a lock to prevent further concurrent changes
  *   <li>All enqueued changes are combined into a single change. Currently this
- *       implementation does a best effort on conflict resolution. It is
- *       limited in its handling of reordering events, as caused by changing a
- *       {@link SortedList} {@link Comparator}.
+ *       implementation does a best effort on conflict resolution. Consecutive
+ *       reordering events, as caused by changing a {@link SortedList}
+ *       {@link Comparator}, are combined into a single reordering, but a
+ *       reordering combined with other changes is fired as those changes.
  *   <li>The single, combined event is fired.
  *   <li>The first listener is the {@link ThreadProxyEventList} itself. It listens
  *       to its own event because this event will be free of conflicts. It applies
@@ -51,6 +59,15 @@ import java.util.RandomAccess;
  *     <li>The lock is released.
  * </ol>
  *
+ * <p>By default the proxy thread is notified as soon as the first change
+ * arrives. A source that changes continuously can then keep the proxy thread
+ * busy with far more events than a user interface can show. Limiting the
+ * {@link #setFlushRate flush rate} delays each flush to the start of the next
+ * frame, so that all the changes within a frame are combined into a single
+ * event, and the proxy lists with the same rate flush in the same frames.
+ * The number of changes waiting to be flushed and the time they waited are
+ * recorded, see {@link #getQueueDepth()} and {@link #getMaxFlushLatencyNanos()}.
+ *
  * <p>The {@link ThreadProxyEventList} keeps a private copy of the elements of the
  * source {@link EventList}. This enables interested classes to read a consistent
  * (albeit potentially out of date) view of the data at all times.
@@ -70,6 +87,12 @@ public abstract class ThreadProxyEventList<E> extends TransformedList<E, E> impl
     /** a local cache of the source list */
     private List<E> localCache = new ArrayList<E>();
 
+    /**
+     * the cache is rebuilt rather than patched if patching would shift more
+     * than this many times its size
+     */
+    private static final int MAX_SHIFTS_PER_ELEMENT = 4;
+
     /** propagates events on the proxy thread */
     private UpdateRunner updateRunner = new UpdateRunner();
 
@@ -79,6 +102,37 @@ public abstract class ThreadProxyEventList<E> extends TransformedList<E, E> impl
     /** whether the proxy thread has been scheduled */
     private volatile boolean scheduled = false;
 
+    /** the length of a frame, in nanoseconds, or <code>0</code> to flush immediately */
+    private volatile long frameNanos = 0;
+
+    /** the longest the first change in a frame waits before its flush is scheduled */
+    private volatile long maxBatchLatencyNanos = 0;
+
+    /** notifies the proxy thread at the start of a frame */
+    private final Runnable frameTask = new Runnable() {
+        @Override
+        public void run() {
+            schedule(updateRunner);
+        }
+    };
+
+    /** the start of the next frame, or <code>null</code> if no flush is waiting for one */
+    private volatile ScheduledFuture<?> pendingFrame;
+
+    /** when the first change since the last flush was queued */
+    private long firstQueuedNanos;
+
+    /** the changes queued since the last flush */
+    private volatile int queueDepth;
+
+    /** statistics of the flushes */
+    private volatile int maxQueueDepth;
+    private volatile long queuedEventCount;
+    private volatile long flushCount;
+    private volatile long lastFlushLatencyNanos;
+    private volatile long maxFlushLatencyNanos;
+    private volatile long totalFlushLatencyNanos;
+
     /**
      * Create a {@link ThreadProxyEventList} which delivers changes to the
      * given <code>source</code> on a particular {@link Thread}, called the
@@ -104,20 +158,157 @@ public abstract class ThreadProxyEventList<E> extends TransformedList<E, E> impl
     @Override
     public final void listChanged(ListEvent<E> listChanges) {
         // if we've haven't scheduled a commit, we need to begin a new event
-        if(!scheduled) {
+        final boolean first = !scheduled;
+        if(first) {
             updates.beginEvent(true);
             cacheUpdates.beginEvent(true);
+            firstQueuedNanos = System.nanoTime();
         }
 
         // add the changes for this event to our queue
         updates.forwardEvent(listChanges);
         cacheUpdates.forwardEvent(listChanges);
+        queuedEventCount++;
+        if(++queueDepth > maxQueueDepth) maxQueueDepth = queueDepth;
 
-        // commit the event on the appropriate thread
-        if(!scheduled) {
+        // commit the event on the appropriate thread, at the next frame if the rate is limited
+        if(first) {
             scheduled = true;
-            schedule(updateRunner);
+            final long delay = flushDelayNanos(firstQueuedNanos);
+            if(delay == 0) {
+                schedule(updateRunner);
+            } else {
+                pendingFrame = FrameScheduler.INSTANCE.schedule(frameTask, delay, TimeUnit.NANOSECONDS);
+            }
         }
+
+        eventQueued();
+    }
+
+    /**
+     * Get how long a change queued at the specified time waits for its flush
+     * to be scheduled: until the start of the next frame, but no longer than
+     * the maximum batch latency.
+     */
+    private long flushDelayNanos(long now) {
+        final long frame = frameNanos;
+        if(frame == 0) return 0;
+        final long untilNextFrame = frame - ((now % frame) + frame) % frame;
+        return Math.min(untilNextFrame, maxBatchLatencyNanos);
+    }
+
+    /**
+     * Limit how often the proxy thread is notified of changes. Flushes are
+     * delayed to the start of the next frame, where a frame lasts one
+     * <code>maxFlushRate</code>th of a second, and all the changes made
+     * while waiting are delivered as a single event. Frames start at the same
+     * times for every proxy list, so proxy lists with the same rate flush
+     * together.
+     *
+     * <p>No change waits longer than <code>maxBatchLatency</code> for its flush
+     * to be scheduled, even if that means flushing more than once per frame.
+     * A latency that is longer than a frame has no effect.
+     *
+     * @param maxFlushRate the most flushes per second, or <code>0</code> to
+     *      flush as soon as the source changes
+     * @param maxBatchLatency the longest that a change may wait for its flush
+     * @param unit the unit of <code>maxBatchLatency</code>
+     */
+    public void setFlushRate(int maxFlushRate, long maxBatchLatency, TimeUnit unit) {
+        Preconditions.checkNotNull(unit, "TimeUnit is undefined");
+        if(maxFlushRate < 0) throw new IllegalArgumentException("Max flush rate must not be negative: " + maxFlushRate);
+        if(maxBatchLatency < 0) throw new IllegalArgumentException("Max batch latency must not be negative: " + maxBatchLatency);
+        maxBatchLatencyNanos = unit.toNanos(maxBatchLatency);
+        frameNanos = maxFlushRate == 0 ? 0 : TimeUnit.SECONDS.toNanos(1) / maxFlushRate;
+    }
+
+    /**
+     * Get the most flushes per second, or <code>0</code> if changes are
+     * flushed as soon as the source changes.
+     */
+    public int getMaxFlushRate() {
+        final long frame = frameNanos;
+        return frame == 0 ? 0 : (int)(TimeUnit.SECONDS.toNanos(1) / frame);
+    }
+
+    /**
+     * Get the number of changes to the source that are waiting to be flushed.
+     */
+    public int getQueueDepth() {
+        return queueDepth;
+    }
+
+    /**
+     * Get the most changes to the source that have been flushed together.
+     */
+    public int getMaxQueueDepth() {
+        return maxQueueDepth;
+    }
+
+    /**
+     * Get the number of changes to the source that have been queued, including
+     * those that haven't been flushed yet.
+     */
+    public long getQueuedEventCount() {
+        return queuedEventCount;
+    }
+
+    /**
+     * Get the number of events that have been delivered on the proxy thread.
+     */
+    public long getFlushCount() {
+        return flushCount;
+    }
+
+    /**
+     * Get the time between the first change of the most recent flush being
+     * queued, and that flush being delivered.
+     */
+    public long getLastFlushLatencyNanos() {
+        return lastFlushLatencyNanos;
+    }
+
+    /**
+     * Get the longest time between the first change of a flush being queued,
+     * and that flush being delivered.
+     */
+    public long getMaxFlushLatencyNanos() {
+        return maxFlushLatencyNanos;
+    }
+
+    /**
+     * Get the total time that flushes waited to be delivered.
+     */
+    public long getTotalFlushLatencyNanos() {
+        return totalFlushLatencyNanos;
+    }
+
+    /**
+     * Reset the statistics of the flushes. The changes waiting to be flushed
+     * are still counted by {@link #getQueueDepth()}.
+     */
+    public void resetFlushStatistics() {
+        getReadWriteLock().writeLock().lock();
+        try {
+            maxQueueDepth = queueDepth;
+            queuedEventCount = queueDepth;
+            flushCount = 0;
+            lastFlushLatencyNanos = 0;
+            maxFlushLatencyNanos = 0;
+            totalFlushLatencyNanos = 0;
+        } finally {
+            getReadWriteLock().writeLock().unlock();
+        }
+    }
+
+    /**
+     * Called after each change to the source list has been queued, while the
+     * thread that changed the source still holds the write lock. Subclasses
+     * that deliver their events by size as well as by time can run the
+     * scheduled {@link Runnable} from here.
+     */
+    protected void eventQueued() {
+        // do nothing by default
     }
 
     /**
@@ -146,15 +337,68 @@ public abstract class ThreadProxyEventList<E> extends TransformedList<E, E> impl
     }
 
     /**
-     * Apply the {@link ListEvent} to the {@link List}.
+     * Apply the {@link ListEvent} to the {@link List}. The blocks of the event
+     * are applied in place, so the cost is proportional to the change rather
+     * than to the size of the list, unless the elements after the inserted
+     * and deleted blocks would be shifted so often that rebuilding the cache
+     * is cheaper.
      *
      * @param source the EventList whose changes are being proxied to another thread
      * @param listChanges the list of changes from the <code>source</code> to be applied
      * @param localCache a private snapshot of the <code>source</code> which
      *      is now out of sync with that source list and will be repaired
-     * @return a new List to serve as the up-to-date local cache
+     * @return the List to serve as the up-to-date local cache
      */
     private List<E> applyChangeToCache(EventList<E> source, ListEvent<E> listChanges, List<E> localCache) {
+        // count the elements that inserting and deleting the blocks would shift
+        long shifts = 0;
+        int size = localCache.size();
+        while(listChanges.nextBlock()) {
+            final int startIndex = listChanges.getBlockStartIndex();
+            final int endIndex = listChanges.getBlockEndIndex() + 1;
+            final int changeType = listChanges.getType();
+            if(changeType == ListEvent.DELETE) {
+                shifts += size - endIndex;
+                size -= endIndex - startIndex;
+            } else if(changeType == ListEvent.INSERT) {
+                shifts += size - startIndex;
+                size += endIndex - startIndex;
+            }
+        }
+        listChanges.reset();
+        if(shifts > (long)MAX_SHIFTS_PER_ELEMENT * size) {
+            return rebuildCache(source, listChanges, localCache);
+        }
+
+        // patch the cache one block at a time
+        while(listChanges.nextBlock()) {
+            final int startIndex = listChanges.getBlockStartIndex();
+            final int endIndex = listChanges.getBlockEndIndex() + 1;
+            final int changeType = listChanges.getType();
+            if(changeType == ListEvent.DELETE) {
+                localCache.subList(startIndex, endIndex).clear();
+            } else if(changeType == ListEvent.INSERT) {
+                final Object[] inserted = new Object[endIndex - startIndex];
+                for(int i = 0; i < inserted.length; i++) {
+                    inserted[i] = source.get(startIndex + i);
+                }
+                localCache.addAll(startIndex, (List<E>)Arrays.asList(inserted));
+            } else if(changeType == ListEvent.UPDATE) {
+                for(int i = startIndex; i < endIndex; i++) {
+                    localCache.set(i, source.get(i));
+                }
+            }
+        }
+        return localCache;
+    }
+
+    /**
+     * Apply the {@link ListEvent} to a copy of the {@link List}, by copying
+     * every element that hasn't changed and reading every element that has.
+     *
+     * @return a new List to serve as the up-to-date local cache
+     */
+    private List<E> rebuildCache(EventList<E> source, ListEvent<E> listChanges, List<E> localCache) {
         List<E> result = new ArrayList<E>(source.size());
 
         // cacheOffset is the running index delta between localCache and result
@@ -200,6 +444,8 @@ public abstract class ThreadProxyEventList<E> extends TransformedList<E, E> impl
     /** {@inheritDoc} */
     @Override
     public void dispose() {
+        final ScheduledFuture<?> frame = pendingFrame;
+        if(frame != null) frame.cancel(false);
         super.dispose();
         cacheUpdates.removeListEventListener(updateRunner);
     }
@@ -215,9 +461,9 @@ public abstract class ThreadProxyEventList<E> extends TransformedList<E, E> impl
          * When run, this combines all events thus far and forwards them.
          *
          * <p>If a reordering event is being forwarded, the reordering may be lost
-         * if it arrives simultaneously with another event. This is somewhat of a
-         * hack for the time being. Hopefully later we can refine this so that a
-         * new event is created with these changes properly.
+         * if it arrives simultaneously with an event that isn't a reordering.
+         * This is somewhat of a hack for the time being. Hopefully later we can
+         * refine this so that a new event is created with these changes properly.
          */
         @Override
         public void run() {
@@ -232,6 +478,13 @@ public abstract class ThreadProxyEventList<E> extends TransformedList<E, E> impl
                 updates.commitEvent();
             } finally {
                 scheduled = false;
+                pendingFrame = null;
+                queueDepth = 0;
+                final long latency = System.nanoTime() - firstQueuedNanos;
+                flushCount++;
+                lastFlushLatencyNanos = latency;
+                totalFlushLatencyNanos += latency;
+                if(latency > maxFlushLatencyNanos) maxFlushLatencyNanos = latency;
                 getReadWriteLock().writeLock().unlock();
             }
         }
@@ -244,4 +497,25 @@ public abstract class ThreadProxyEventList<E> extends TransformedList<E, E> impl
             localCache = applyChangeToCache(source, listChanges, localCache);
         }
     }
+
+    /**
+     * Starts the frames of thread proxy lists whose flush rate is limited,
+     * on a daemon thread that is only started once one is needed.
+     */
+    private static final class FrameScheduler {
+        static final ScheduledExecutorService INSTANCE;
+        static {
+            final ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    final Thread thread = new Thread(runnable, "Glazed Lists ThreadProxyEventList");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            executor.setKeepAliveTime(1, TimeUnit.SECONDS);
+            executor.allowCoreThreadTimeOut(true);
+            INSTANCE = executor;
+        }
+    }
 }
\ No newline at end of file
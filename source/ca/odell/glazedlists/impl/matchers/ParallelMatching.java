@@ -0,0 +1,174 @@
+/* Glazed Lists                                                 (c) 2003-2014 */
+/* http://publicobject.com/glazedlists/                      publicobject.com,*/
+/*                                                     O'Dell Engineering Ltd.*/
+package ca.odell.glazedlists.impl.matchers;
+
+import ca.odell.glazedlists.matchers.Matcher;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Evaluates a {@link Matcher} against many values at once by splitting the
+ * values into chunks and matching the chunks concurrently.
+ *
+ * <p>The {@link Matcher} must be thread safe, since it will be called from
+ * several threads at the same time.
+ */
+public final class ParallelMatching {
+
+    /** don't bother splitting up fewer values than this */
+    public static final int MINIMUM_CHUNK_SIZE = 4096;
+
+    /**
+     * Utility class; no instances.
+     */
+    private ParallelMatching() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Match each of the specified values.
+     *
+     * <p>The calling thread matches the first chunk itself while the remaining
+     * chunks are matched by the <code>executor</code>. If the calling thread
+     * is interrupted while waiting, the remaining chunks are matched on the
+     * calling thread instead and the interrupt is restored. Chunks that the
+     * <code>executor</code> rejects, for example because it has been shut
+     * down, are matched on the calling thread too.
+     *
+     * @param matcher a thread safe {@link Matcher}
+     * @param values the values to match, these must not change while matching
+     * @param executor the executor to match the chunks with
+     * @param chunks how many chunks to split the values into, at most
+     * @return an array where element <code>i</code> is <code>true</code> if
+     *      <code>values[i]</code> is matched.
+     * @throws RuntimeException if the {@link Matcher} throws
+     */
+    public static <E> boolean[] matches(Matcher<? super E> matcher, E[] values, ExecutorService executor, int chunks) {
+        boolean[] results = new boolean[values.length];
+
+        // choose chunks that are big enough to be worth their overhead
+        int chunkSize = Math.max(MINIMUM_CHUNK_SIZE, (values.length + chunks - 1) / Math.max(chunks, 1));
+        if(executor == null || values.length <= chunkSize) {
+            new Chunk<E>(matcher, values, results, 0, values.length).call();
+            return results;
+        }
+
+        // schedule all but the first chunk, a rejected chunk has no future
+        List<Chunk<E>> pending = new ArrayList<Chunk<E>>();
+        List<Future<Void>> futures = new ArrayList<Future<Void>>();
+        for(int start = chunkSize; start < values.length; start += chunkSize) {
+            Chunk<E> chunk = new Chunk<E>(matcher, values, results, start, Math.min(start + chunkSize, values.length));
+            pending.add(chunk);
+            try {
+                futures.add(executor.submit(chunk));
+            } catch(RejectedExecutionException e) {
+                futures.add(null);
+            }
+        }
+
+        // do our share of the work while we wait
+        try {
+            new Chunk<E>(matcher, values, results, 0, chunkSize).call();
+        } catch(RuntimeException e) {
+            cancelAll(futures);
+            throw e;
+        } catch(Error e) {
+            cancelAll(futures);
+            throw e;
+        }
+
+        // collect the other chunks
+        boolean interrupted = false;
+        try {
+            for(int f = 0; f < futures.size(); f++) {
+                Future<Void> future = futures.get(f);
+                if(future == null) {
+                    // the executor wouldn't take this chunk, so match it ourselves
+                    try {
+                        pending.get(f).call();
+                    } catch(RuntimeException e) {
+                        cancelAll(futures);
+                        throw e;
+                    } catch(Error e) {
+                        cancelAll(futures);
+                        throw e;
+                    }
+                    continue;
+                }
+                if(interrupted) {
+                    // the chunk may be running already, in which case this just repeats its work
+                    future.cancel(false);
+                    pending.get(f).call();
+                    continue;
+                }
+
+                try {
+                    future.get();
+                } catch(InterruptedException e) {
+                    interrupted = true;
+                    f--;
+                } catch(CancellationException e) {
+                    // somebody else cancelled this chunk, so match it ourselves
+                    pending.get(f).call();
+                } catch(ExecutionException e) {
+                    cancelAll(futures);
+                    Throwable cause = e.getCause();
+                    if(cause instanceof RuntimeException) throw (RuntimeException)cause;
+                    if(cause instanceof Error) throw (Error)cause;
+                    throw new IllegalStateException(cause);
+                }
+            }
+        } finally {
+            if(interrupted) Thread.currentThread().interrupt();
+        }
+
+        return results;
+    }
+
+    /**
+     * Give up on all chunks that haven't started yet.
+     */
+    private static void cancelAll(List<Future<Void>> futures) {
+        for(int f = 0; f < futures.size(); f++) {
+            Future<Void> future = futures.get(f);
+            if(future != null) future.cancel(false);
+        }
+    }
+
+    /**
+     * Matches the values in <code>[start, end)</code>, writing the results
+     * to the same range of the results array.
+     */
+    private static class Chunk<E> implements Callable<Void> {
+        private final Matcher<? super E> matcher;
+        private final E[] values;
+        private final boolean[] results;
+        private final int start;
+        private final int end;
+
+        public Chunk(Matcher<? super E> matcher, E[] values, boolean[] results, int start, int end) {
+            this.matcher = matcher;
+            this.values = values;
+            this.results = results;
+            this.start = start;
+            this.end = end;
+        }
+
+        /** {@inheritDoc} */
+        @Override
+        public Void call() {
+            for(int i = start; i < end; i++) {
+                results[i] = matcher.matches(values[i]);
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/* Glazed Lists                                                 (c) 2003-2014 */
+/* http://publicobject.com/glazedlists/                      publicobject.com,*/
+/*                                                     O'Dell Engineering Ltd.*/
+package ca.odell.glazedlists.impl.sort;
+
+// for specifying a sorting algorithm
+import java.util.Comparator;
+
+/**
+ * Sorts the indices of an array rather than the array itself. The result is
+ * a permutation of indices such that the values at those indices are in
+ * sorted order.
+ *
+ * <p>The sort is stable: indices of values that compare as equal remain in
+ * increasing order. This is the same order that
+ * {@link ca.odell.glazedlists.SortedList} uses to break ties, so the result
+ * can be used to build its sorted tree directly.
+ *
+ * <p>Values are always compared later index first, the same way a value
+ * being inserted into a sorted tree is compared to the values already in it.
+ * That way even a {@link Comparator} that isn't consistent gives the same
+ * order as inserting the values one at a time.
+ */
+public final class IndexMergeSort {
+
+    /** ranges up to this size are insertion sorted rather than merged */
+    private static final int INSERTION_SORT_THRESHOLD = 7;
+
+    /**
+     * Utility class; no instances.
+     */
+    private IndexMergeSort() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * Sort the indices of the specified values.
+     *
+     * @param values the values to sort, this array is not modified.
+     * @param comparator the {@link Comparator} to sort with, or <code>null</code>
+     *      to leave the values in their current order.
+     * @return an array where element <code>i</code> is the index in
+     *      <code>values</code> of the <code>i</code>th smallest value.
+     */
+    public static <T> int[] sort(T[] values, Comparator<? super T> comparator) {
+        int[] indices = new int[values.length];
+        for(int i = 0; i < indices.length; i++) {
+            indices[i] = i;
+        }
+        if(comparator == null || indices.length < 2) return indices;
+
+        int[] buffer = indices.clone();
+        mergeSort(values, comparator, buffer, indices, 0, indices.length);
+        return indices;
+    }
+
+    /**
+     * Sort the indices in <code>[start, end)</code> of <code>source</code>
+     * into <code>target</code>. Both arrays must hold the same indices in that
+     * range on entry, and <code>source</code> is used as scratch space.
+     */
+    private static <T> void mergeSort(T[] values, Comparator<? super T> comparator, int[] source, int[] target, int start, int end) {
+        // small ranges are faster with a simple insertion sort
+        if(end - start <= INSERTION_SORT_THRESHOLD) {
+            for(int i = start + 1; i < end; i++) {
+                int index = target[i];
+                T value = values[index];
+                int j = i;
+                for(; j > start && comparator.compare(value, values[target[j - 1]]) < 0; j--) {
+                    target[j] = target[j - 1];
+                }
+                target[j] = index;
+            }
+            return;
+        }
+
+        // sort each half into the scratch array, swapping roles as we recurse
+        int middle = (start + end) >>> 1;
+        mergeSort(values, comparator, target, source, start, middle);
+        mergeSort(values, comparator, target, source, middle, end);
+
+        // if the halves are already in order, there's nothing to merge
+        if(comparator.compare(values[source[middle]], values[source[middle - 1]]) >= 0) {
+            System.arraycopy(source, start, target, start, end - start);
+            return;
+        }
+
+        // merge the halves, preferring the left half on ties to keep it stable
+        for(int t = start, l = start, r = middle; t < end; t++) {
+            if(l < middle && (r >= end || comparator.compare(values[source[r]], values[source[l]]) >= 0)) {
+                target[t] = source[l++];
+            } else {
+                target[t] = source[r++];
+            }
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/* Glazed Lists                                                 (c) 2003-2014 */
+/* http://publicobject.com/glazedlists/                      publicobject.com,*/
+/*                                                     O'Dell Engineering Ltd.*/
+package ca.odell.glazedlists.impl.sort;
+
+import ca.odell.glazedlists.FunctionList;
+import ca.odell.glazedlists.gui.TableFormat;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Extracts the sort key of a table row for a {@link Comparator} built from
+ * {@link TableColumnComparator}s, so that a SortedList can cache the column
+ * values it sorts by rather than extracting them on every comparison.
+ *
+ * <p>The sort key of a row is its value for the single sorting column, or
+ * an <code>Object[]</code> of its values for each of the sorting columns.
+ */
+public final class TableColumnSortKeys<E> implements FunctionList.Function<E,Object> {
+
+    /** extracts the column values */
+    private final TableFormat<? super E> tableFormat;
+
+    /** compares the values of each sorting column, in sort order */
+    private final TableColumnComparator<?>[] columnComparators;
+
+    /** whether each sorting column is in reverse order */
+    private final boolean[] reverse;
+
+    /** compares the sort keys */
+    private final Comparator<Object> sortKeyComparator = new SortKeyComparator();
+
+    private TableColumnSortKeys(TableFormat<? super E> tableFormat, TableColumnComparator<?>[] columnComparators, boolean[] reverse) {
+        this.tableFormat = tableFormat;
+        this.columnComparators = columnComparators;
+        this.reverse = reverse;
+    }
+
+    /**
+     * Creates the sort keys for the specified {@link Comparator}.
+     *
+     * @return the sort keys, or <code>null</code> if the {@link Comparator} is
+     *      not a {@link TableColumnComparator}, or a {@link ComparatorChain} of
+     *      possibly reversed {@link TableColumnComparator}s that share a
+     *      single {@link TableFormat}.
+     */
+    public static <E> TableColumnSortKeys<E> create(Comparator<E> comparator) {
+        List<Comparator<E>> comparators;
+        if(comparator instanceof ComparatorChain) comparators = Arrays.asList(((ComparatorChain<E>)comparator).getComparators());
+        else comparators = Collections.singletonList(comparator);
+        if(comparators.isEmpty()) return null;
+
+        TableFormat<? super E> tableFormat = null;
+        TableColumnComparator<?>[] columnComparators = new TableColumnComparator<?>[comparators.size()];
+        boolean[] reverse = new boolean[comparators.size()];
+        for(int i = 0; i < columnComparators.length; i++) {
+            Comparator<E> columnComparator = comparators.get(i);
+            if(columnComparator instanceof ReverseComparator) {
+                columnComparator = ((ReverseComparator<E>)columnComparator).getSourceComparator();
+                reverse[i] = true;
+            }
+            if(!(columnComparator instanceof TableColumnComparator)) return null;
+            TableColumnComparator<E> tableColumnComparator = (TableColumnComparator<E>)columnComparator;
+            columnComparators[i] = tableColumnComparator;
+
+            if(tableFormat == null) tableFormat = tableColumnComparator.getTableFormat();
+            else if(tableFormat != tableColumnComparator.getTableFormat()) return null;
+        }
+
+        return new TableColumnSortKeys<E>(tableFormat, columnComparators, reverse);
+    }
+
+    /**
+     * Gets the sort key of the specified row.
+     */
+    @Override
+    public Object evaluate(E row) {
+        if(columnComparators.length == 1) return tableFormat.getColumnValue(row, columnComparators[0].getColumn());
+
+        Object[] values = new Object[columnComparators.length];
+        for(int i = 0; i < values.length; i++) {
+            values[i] = tableFormat.getColumnValue(row, columnComparators[i].getColumn());
+        }
+        return new SortKey(values);
+    }
+
+    /**
+     * Gets the {@link Comparator} for the sort keys, which orders them just
+     * like the {@link Comparator} these sort keys were created for orders
+     * their rows.
+     */
+    public Comparator<Object> getSortKeyComparator() {
+        return sortKeyComparator;
+    }
+
+    /**
+     * Compares the values of each sorting column in turn.
+     */
+    private class SortKeyComparator implements Comparator<Object> {
+        @Override
+        public int compare(Object alpha, Object beta) {
+            if(columnComparators.length == 1) return compareColumn(0, alpha, beta);
+
+            Object[] alphaValues = ((SortKey)alpha).values;
+            Object[] betaValues = ((SortKey)beta).values;
+            for(int i = 0; i < columnComparators.length; i++) {
+                int result = compareColumn(i, alphaValues[i], betaValues[i]);
+                if(result != 0) return result;
+            }
+            return 0;
+        }
+
+        private int compareColumn(int index, Object alpha, Object beta) {
+            if(reverse[index]) return columnComparators[index].compareColumnValues(beta, alpha);
+            return columnComparators[index].compareColumnValues(alpha, beta);
+        }
+    }
+
+    /**
+     * The values of a row for multiple sorting columns. This defines
+     * {@link #equals} so the SortedList can detect unchanged rows.
+     */
+    private static final class SortKey {
+        private final Object[] values;
+
+        SortKey(Object[] values) {
+            this.values = values;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(this == o) return true;
+            if(!(o instanceof SortKey)) return false;
+            return Arrays.equals(values, ((SortKey)o).values);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(values);
+        }
+    }
+}
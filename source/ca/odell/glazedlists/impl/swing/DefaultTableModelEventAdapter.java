@@ -21,7 +21,8 @@ import javax.swing.table.TableModel;
  * <p>
  * The goal here is to be as accurate as possible. In particular, each list
  * event block is converted to and fired as a separate {@link TableModelEvent}.
- * So, one list event can cause multiple table model events.
+ * So, one list event can cause multiple table model events. A reordering is
+ * fired as a single update of all rows.
  * </p>
  * <p>
  * In some cases, this conversion strategy can lead to undesirable effects, such
@@ -59,6 +60,15 @@ class DefaultTableModelEventAdapter<E> implements TableModelEventAdapter<E> {
     public void listChanged(ListEvent<E> listChanges) {
         checkAccessThread();
 
+        // a reordering keeps every row, so it's a single update of all rows
+        // rather than the removal and insertion of all rows
+        if (listChanges.isReordering()) {
+            final int[] reorderMap = listChanges.getReorderMap();
+            tableModelEvent.setValues(0, reorderMap.length - 1, ListEvent.UPDATE);
+            tableModel.fireTableChanged(tableModelEvent);
+            return;
+        }
+
         // for all changes, one block at a time
         while (listChanges.nextBlock()) {
             // get the current change info
@@ -0,0 +1,118 @@
+/* Glazed Lists                                                 (c) 2003-2014 */
+/* http://publicobject.com/glazedlists/                      publicobject.com,*/
+/*                                                     O'Dell Engineering Ltd.*/
+package ca.odell.glazedlists.impl.swing;
+
+import ca.odell.glazedlists.event.ListEvent;
+
+import java.awt.Point;
+import java.awt.Rectangle;
+
+import javax.swing.JTable;
+import javax.swing.event.TableModelListener;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.TableModel;
+
+/**
+ * ViewportTableModelEventAdapter encapsulates a strategy for converting list
+ * events to table model events, that only reports updates to the rows that
+ * are visible.
+ *
+ * <p>
+ * A {@link JTable} reads the values of its cells when it paints them, so
+ * updates to rows that are scrolled out of view don't need to be reported:
+ * the rows show their current values once they are scrolled into view. For a
+ * large table with many scattered updates, this saves a
+ * {@link javax.swing.event.TableModelEvent} for each update block that is
+ * off screen. Inserts and deletes are still reported as they are by the
+ * {@link DefaultTableModelEventAdapter default adapter}, because they change
+ * the row count and move the selection.
+ * </p>
+ * <p>
+ * Updates are only dropped while the table model's only listener is a
+ * {@link JTable} that has no row sorter, since other listeners might depend
+ * on every update, and the visible rows of a sorted table can't be found
+ * from their model indices cheaply. Otherwise this adapter behaves like the
+ * default adapter.
+ * </p>
+ *
+ * @see ViewportTableModelEventAdapterFactory
+ */
+class ViewportTableModelEventAdapter<E> extends DefaultTableModelEventAdapter<E> {
+
+    /** the associated table model. */
+    private final AbstractTableModel tableModel;
+
+    /**
+     * Constructor with {@link TableModel}.
+     *
+     * @param tableModel the adapted table model
+     */
+    ViewportTableModelEventAdapter(AbstractTableModel tableModel) {
+        super(tableModel);
+        this.tableModel = tableModel;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void listChanged(ListEvent<E> listChanges) {
+        final JTable table = getViewingTable();
+        if (table == null) {
+            super.listChanged(listChanges);
+            return;
+        }
+        checkAccessThread();
+
+        if (listChanges.isReordering()) {
+            fireVisibleUpdate(table, 0, listChanges.getReorderMap().length - 1);
+            return;
+        }
+
+        while (listChanges.nextBlock()) {
+            final int startIndex = listChanges.getBlockStartIndex();
+            final int endIndex = listChanges.getBlockEndIndex();
+            final int changeType = listChanges.getType();
+            if (changeType == ListEvent.UPDATE) {
+                fireVisibleUpdate(table, startIndex, endIndex);
+            } else {
+                fireTableChanged(startIndex, endIndex, changeType);
+            }
+        }
+    }
+
+    /**
+     * Fires an update of the rows in the range <code>[startIndex, endIndex]</code>
+     * that are visible in the specified table, if there are any. The visible
+     * rows are found for each block, since the inserts and deletes before it
+     * may have changed them.
+     */
+    private void fireVisibleUpdate(JTable table, int startIndex, int endIndex) {
+        final Rectangle visible = table.getVisibleRect();
+        if (visible.isEmpty()) return;
+
+        final int firstVisible = table.rowAtPoint(new Point(visible.x, visible.y));
+        if (firstVisible == -1) return;
+        int lastVisible = table.rowAtPoint(new Point(visible.x, visible.y + visible.height - 1));
+        if (lastVisible == -1) lastVisible = table.getRowCount() - 1;
+
+        final int start = Math.max(startIndex, firstVisible);
+        final int end = Math.min(endIndex, lastVisible);
+        if (start <= end) {
+            fireTableChanged(start, end, ListEvent.UPDATE);
+        }
+    }
+
+    /**
+     * Gets the table that is the only listener to the table model, or
+     * <code>null</code> if there are other listeners or the table is sorted.
+     */
+    private JTable getViewingTable() {
+        final TableModelListener[] listeners = tableModel.getTableModelListeners();
+        if (listeners.length != 1 || !(listeners[0] instanceof JTable)) return null;
+        final JTable table = (JTable) listeners[0];
+        if (table.getRowSorter() != null) return null;
+        return table;
+    }
+}
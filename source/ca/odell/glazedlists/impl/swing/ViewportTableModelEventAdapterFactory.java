@@ -0,0 +1,37 @@
+/* Glazed Lists                                                 (c) 2003-2014 */
+/* http://publicobject.com/glazedlists/                      publicobject.com,*/
+/*                                                     O'Dell Engineering Ltd.*/
+package ca.odell.glazedlists.impl.swing;
+
+import ca.odell.glazedlists.swing.TableModelEventAdapter;
+import ca.odell.glazedlists.swing.TableModelEventAdapter.Factory;
+
+import javax.swing.table.AbstractTableModel;
+
+/**
+ * A factory for creating a {@link ViewportTableModelEventAdapter}.
+ *
+ * @param <E> list element type
+ */
+public class ViewportTableModelEventAdapterFactory<E> implements Factory<E> {
+    /** Singleton instance of ViewportTableModelEventAdapterFactory. */
+    private static final Factory<?> INSTANCE = new ViewportTableModelEventAdapterFactory<Object>();
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public TableModelEventAdapter<E> create(AbstractTableModel tableModel) {
+        return new ViewportTableModelEventAdapter<E>(tableModel);
+    }
+
+    /**
+     * Gets the factory instance singleton.
+     *
+     * @return the factory instance singleton
+     */
+    @SuppressWarnings("unchecked")
+    public static <E> Factory<E> getInstance() {
+        return (Factory<E>) INSTANCE;
+    }
+}
@@ -9,6 +9,11 @@ import ca.odell.glazedlists.event.ListEventListener;
 import ca.odell.glazedlists.gui.AdvancedTableFormat;
 import ca.odell.glazedlists.gui.TableFormat;
 import ca.odell.glazedlists.gui.WritableTableFormat;
+import ca.odell.glazedlists.impl.adt.barcode2.Element;
+import ca.odell.glazedlists.impl.adt.barcode2.SimpleTree;
+import ca.odell.glazedlists.impl.adt.barcode2.SimpleTreeIterator;
+
+import java.util.Arrays;
 
 import javax.swing.SwingUtilities;
 import javax.swing.event.TableModelEvent;
@@ -26,6 +31,13 @@ import javax.swing.table.TableModel;
  * wrap the source list (or some part of the source list's pipeline) using
  * GlazedListsSwing#swingThreadProxyList(EventList).</p>
  *
+ * <p>A {@link javax.swing.JTable} gets the value of every visible cell each
+ * time it repaints. If the {@link TableFormat} is slow, for example because it
+ * reads JavaBean properties by reflection, the values can be cached with
+ * {@link #setCellValueCacheEnabled(boolean)}. Cached values are discarded when
+ * their row is updated, inserted or deleted by a {@link ListEvent}, so the
+ * cache may only be used if every change to the elements is reported by one.</p>
+ *
  * @see <a href="http://publicobject.com/glazedlists/tutorial/">Glazed Lists Tutorial</a>
  *
  * @see GlazedListsSwing#swingThreadProxyList(EventList)
@@ -50,6 +62,15 @@ public class DefaultEventTableModel<E> extends AbstractTableModel implements Adv
     /** encapsulates the strategy how to convert {@link ListEvent}s to {@link TableModelEvent}s */
     private TableModelEventAdapter<E> eventAdapter = GlazedListsSwing.<E>defaultEventAdapterFactory().create(this);
 
+    /** marks the cells whose values aren't cached */
+    private static final Object UNCACHED = new Object();
+
+    /**
+     * the cached values of each row's cells, or <code>null</code> for rows that
+     * have none. This is <code>null</code> if the cache isn't enabled
+     */
+    private SimpleTree<Object[]> cellValues;
+
     /**
      * Creates a new table model that extracts column data from the given
      * <code>source</code> using the the given <code>tableFormat</code>.
@@ -93,9 +114,56 @@ public class DefaultEventTableModel<E> extends AbstractTableModel implements Adv
     @Override
     public void setTableFormat(TableFormat<? super E> tableFormat) {
         this.tableFormat = tableFormat;
+        if (cellValues != null) {
+            cellValues = createCellValues(source.size());
+        }
         eventAdapter.fireTableStructureChanged();
     }
 
+    /**
+     * Sets whether the values of cells are cached, so that repainting a row
+     * that hasn't changed doesn't ask the {@link TableFormat} for its values
+     * again. The values of a row are discarded when a {@link ListEvent}
+     * inserts, updates, deletes or reorders it, and all values are discarded
+     * when the table format is replaced.
+     *
+     * <p>Elements that are changed without firing a {@link ListEvent} will show
+     * their old values while the cache is enabled.
+     *
+     * @param enabled <code>true</code> to cache the cell values
+     */
+    public void setCellValueCacheEnabled(boolean enabled) {
+        if (enabled == (cellValues != null)) return;
+        if (enabled) {
+            source.getReadWriteLock().readLock().lock();
+            try {
+                cellValues = createCellValues(source.size());
+            } finally {
+                source.getReadWriteLock().readLock().unlock();
+            }
+        } else {
+            cellValues = null;
+        }
+    }
+
+    /**
+     * Gets whether the values of cells are cached.
+     *
+     * @see #setCellValueCacheEnabled(boolean)
+     */
+    public boolean isCellValueCacheEnabled() {
+        return cellValues != null;
+    }
+
+    /**
+     * Creates a cache of the specified number of rows without values.
+     */
+    private static SimpleTree<Object[]> createCellValues(int rowCount) {
+        final SimpleTree<Object[]> result = new SimpleTree<Object[]>();
+        result.addAll(new Object[rowCount][]);
+        return result;
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -117,9 +185,55 @@ public class DefaultEventTableModel<E> extends AbstractTableModel implements Adv
      */
     @Override
     public void listChanged(ListEvent<E> listChanges) {
+        // discard the cached values of the changed rows before anyone repaints them
+        if (cellValues != null) {
+            updateCellValues(listChanges);
+            listChanges.reset();
+        }
         handleListChange(listChanges);
     }
 
+    /**
+     * Applies the changes to the cache of cell values, discarding the values
+     * of the rows that were inserted, updated or deleted, and moving the
+     * values of the rows that were reordered.
+     */
+    private void updateCellValues(ListEvent<E> listChanges) {
+        if (listChanges.isReordering()) {
+            final int[] reorderMap = listChanges.getReorderMap();
+            final Object[][] previous = new Object[cellValues.size()][];
+            int index = 0;
+            for (SimpleTreeIterator<Object[]> i = new SimpleTreeIterator<Object[]>(cellValues); i.hasNext(); index++) {
+                i.next();
+                previous[index] = i.value();
+            }
+            final Object[][] reordered = new Object[reorderMap.length][];
+            for (int r = 0; r < reorderMap.length; r++) {
+                reordered[r] = previous[reorderMap[r]];
+            }
+            cellValues = new SimpleTree<Object[]>();
+            cellValues.addAll(reordered);
+            return;
+        }
+
+        while (listChanges.nextBlock()) {
+            final int startIndex = listChanges.getBlockStartIndex();
+            final int endIndex = listChanges.getBlockEndIndex();
+            final int changeType = listChanges.getType();
+            if (changeType == ListEvent.INSERT) {
+                for (int i = startIndex; i <= endIndex; i++) {
+                    cellValues.add(i, null, 1);
+                }
+            } else if (changeType == ListEvent.DELETE) {
+                cellValues.remove(startIndex, endIndex - startIndex + 1);
+            } else if (changeType == ListEvent.UPDATE) {
+                for (int i = startIndex; i <= endIndex; i++) {
+                    cellValues.get(i).set(null);
+                }
+            }
+        }
+    }
+
     /**
      * Default implementation for converting a {@link ListEvent} to
      * TableModelEvents. There will be one TableModelEvent per ListEvent block.
@@ -189,7 +303,26 @@ public class DefaultEventTableModel<E> extends AbstractTableModel implements Adv
     public Object getValueAt(int row, int column) {
         source.getReadWriteLock().readLock().lock();
         try {
-            return tableFormat.getColumnValue(source.get(row), column);
+            final E element = source.get(row);
+            if (cellValues == null) {
+                return tableFormat.getColumnValue(element, column);
+            }
+
+            // look up the cached value, fetching it if necessary
+            final Element<Object[]> rowValues = cellValues.get(row);
+            Object[] values = rowValues.get();
+            if (values == null || column >= values.length) {
+                final int oldLength = values == null ? 0 : values.length;
+                values = values == null ? new Object[Math.max(getColumnCount(), column + 1)] : Arrays.copyOf(values, column + 1);
+                Arrays.fill(values, oldLength, values.length, UNCACHED);
+                rowValues.set(values);
+            }
+            Object value = values[column];
+            if (value == UNCACHED) {
+                value = tableFormat.getColumnValue(element, column);
+                values[column] = value;
+            }
+            return value;
         } finally {
             source.getReadWriteLock().readLock().unlock();
         }
@@ -267,6 +400,7 @@ public class DefaultEventTableModel<E> extends AbstractTableModel implements Adv
         }
         // this encourages exceptions to be thrown if this model is incorrectly accessed again
         source = null;
+        cellValues = null;
     }
 
     /**
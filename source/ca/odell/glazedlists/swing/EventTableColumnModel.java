@@ -6,7 +6,7 @@ package ca.odell.glazedlists.swing;
 import ca.odell.glazedlists.EventList;
 import ca.odell.glazedlists.TransformedList;
 import ca.odell.glazedlists.event.ListEvent;
-import ca.odell.glazedlists.event.ListEventListener;
+import ca.odell.glazedlists.event.OldValueListener;
 import ca.odell.glazedlists.impl.IteratorAsEnumeration;
 
 import javax.swing.*;
@@ -28,7 +28,7 @@ import java.beans.PropertyChangeEvent;
  *
  * @author James Lemieux
  */
-public class EventTableColumnModel<T extends TableColumn> implements TableColumnModel, PropertyChangeListener, ListSelectionListener, ListEventListener<T> {
+public class EventTableColumnModel<T extends TableColumn> implements TableColumnModel, PropertyChangeListener, ListSelectionListener, OldValueListener<T> {
 
     /** the proxy moves events to the Swing Event Dispatch thread */
     protected TransformedList<T, T> swingThreadSource;
@@ -9,13 +9,17 @@ import ca.odell.glazedlists.ThresholdList;
 import ca.odell.glazedlists.TransformedList;
 import ca.odell.glazedlists.event.ListEvent;
 import ca.odell.glazedlists.gui.TableFormat;
+import ca.odell.glazedlists.impl.gui.ThreadProxyEventList;
 import ca.odell.glazedlists.impl.swing.DefaultTableModelEventAdapterFactory;
 import ca.odell.glazedlists.impl.swing.LowerThresholdRangeModel;
 import ca.odell.glazedlists.impl.swing.ManyToOneTableModelEventAdapterFactory;
 import ca.odell.glazedlists.impl.swing.SwingThreadProxyEventList;
 import ca.odell.glazedlists.impl.swing.UpperThresholdRangeModel;
+import ca.odell.glazedlists.impl.swing.ViewportTableModelEventAdapterFactory;
 import ca.odell.glazedlists.swing.TableModelEventAdapter.Factory;
 
+import java.util.concurrent.TimeUnit;
+
 import javax.swing.BoundedRangeModel;
 import javax.swing.JTable;
 import javax.swing.SwingUtilities;
@@ -45,6 +49,23 @@ public final class GlazedListsSwing {
         return new SwingThreadProxyEventList<E>(source);
     }
 
+    /**
+     * Wraps the source in an {@link EventList} that fires all of its update
+     * events from the Swing event dispatch thread, at most
+     * <code>maxFlushRate</code> times per second. The changes made between
+     * two events are combined into one, but no change waits longer than
+     * <code>maxBatchLatency</code>. The returned list is a
+     * {@link ThreadProxyEventList}, which records how many changes waited
+     * for each event and for how long.
+     *
+     * @see ThreadProxyEventList#setFlushRate(int, long, TimeUnit)
+     */
+    public static <E> TransformedList<E, E> swingThreadProxyList(EventList<E> source, int maxFlushRate, long maxBatchLatency, TimeUnit unit) {
+        final SwingThreadProxyEventList<E> result = new SwingThreadProxyEventList<E>(source);
+        result.setFlushRate(maxFlushRate, maxBatchLatency, unit);
+        return result;
+    }
+
     /**
      * Returns true iff <code>list</code> is an {@link EventList} that fires
      * all of its update events from the Swing event dispatch thread.
@@ -277,6 +298,32 @@ public final class GlazedListsSwing {
         return ManyToOneTableModelEventAdapterFactory.getInstance();
     }
 
+    /**
+     * Gets a factory for creating a {@link TableModelEventAdapter} that only
+     * reports updates to the rows that are visible.
+     * <p>
+     * A {@link JTable} reads the values of its cells when it paints them, so
+     * updates to rows that are scrolled out of view can be dropped. For a large
+     * table whose rows are updated often, this saves firing a
+     * {@link TableModelEvent} for every update that isn't on screen. Inserts
+     * and deletes are converted like the {@link #defaultEventAdapterFactory() default strategy}
+     * does, since they change the row count and the selection.
+     * </p>
+     * <p>
+     * Updates are only dropped while the table model's only listener is a
+     * {@link JTable} without a {@link JTable#getRowSorter() row sorter}.
+     * Otherwise all updates are fired, as with the default strategy.
+     * </p>
+     *
+     * @return the factory for creating a viewport aware {@link TableModelEventAdapter}
+     *
+     * @see #defaultEventAdapterFactory()
+     * @see Factory
+     */
+    public static <E> Factory<E> viewportEventAdapterFactory() {
+        return ViewportTableModelEventAdapterFactory.getInstance();
+    }
+
     // ListSelectionModel convenience creators
 
     /**
@@ -10,6 +10,7 @@ import ca.odell.glazedlists.gui.AdvancedTableFormat;
 import ca.odell.glazedlists.gui.TableFormat;
 import ca.odell.glazedlists.impl.SortIconFactory;
 import ca.odell.glazedlists.impl.gui.SortingStrategy;
+import ca.odell.glazedlists.impl.sort.TableColumnSortKeys;
 
 import java.awt.AWTEventMulticaster;
 import java.awt.Component;
@@ -21,11 +22,13 @@ import java.awt.event.MouseEvent;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.util.Comparator;
+import java.util.concurrent.ExecutorService;
 
 import javax.swing.Icon;
 import javax.swing.JLabel;
 import javax.swing.JTable;
 import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
 import javax.swing.event.TableModelEvent;
 import javax.swing.event.TableModelListener;
 import javax.swing.plaf.UIResource;
@@ -57,6 +60,12 @@ import javax.swing.table.TableColumnModel;
  * {@link AdvancedTableFormat#getColumnComparator} method will be used to
  * populate the initial column {@link Comparator}s.
  *
+ * <p>Sorting a big list can take long enough to freeze the user interface.
+ * If a {@link #setSortExecutor sort executor} is set, the new order is found
+ * on one of its threads, and then applied to the {@link SortedList} on the
+ * event dispatch thread as a single reordering. A sort that hasn't finished
+ * when the user clicks another header is cancelled.
+ *
  * @see <a href="https://glazedlists.dev.java.net/issues/show_bug.cgi?id=4">Bug 4</a>
  * @see <a href="https://glazedlists.dev.java.net/issues/show_bug.cgi?id=31">Bug 31</a>
  * @see <a href="https://glazedlists.dev.java.net/issues/show_bug.cgi?id=391">Bug 391</a>
@@ -89,6 +98,18 @@ public class TableComparatorChooser<E> extends AbstractTableComparatorChooser<E>
     /** when somebody clicks on the header, update the sorting state */
     private final HeaderClickHandler headerClickHandler;
 
+    /** sorts in the background, or <code>null</code> to sort on the event dispatch thread */
+    private ExecutorService sortExecutor;
+
+    /** the background sort that is running, or <code>null</code> if there is none */
+    private SortedList.BackgroundSort<E> pendingSort;
+
+    /**
+     * background sorts that can't be applied because the list has changed
+     * are retried this many times before sorting on the event dispatch thread
+     */
+    private static final int MAX_BACKGROUND_SORT_ATTEMPTS = 3;
+
     /**
      * Creates and installs a TableComparatorChooser.
      *
@@ -256,6 +277,38 @@ public class TableComparatorChooser<E> extends AbstractTableComparatorChooser<E>
         sortListener = AWTEventMulticaster.remove(sortListener, sortActionListener);
     }
 
+    /**
+     * Set the {@link ExecutorService} that sorts the list when the sorting
+     * columns change. A copy of the rows is sorted on one of its threads,
+     * while the table keeps showing the current order.
+     * The new order is then applied on the event dispatch thread as a single
+     * reordering. If the sorting columns change again before it is applied,
+     * the sort is cancelled.
+     *
+     * <p>If the list changes while it is being sorted, the sort is started
+     * again. After a few attempts it is sorted on the event dispatch thread.
+     *
+     * <p><strong><font color="#FF0000">Warning:</font></strong> the
+     * {@link TableFormat} and column {@link Comparator}s are called from the
+     * executor's threads when an {@link ExecutorService} is set, so they must
+     * be safe to call while the rows are being read by other threads.
+     *
+     * @param sortExecutor the {@link ExecutorService} to sort with, or
+     *      <code>null</code> to sort on the event dispatch thread
+     */
+    public void setSortExecutor(ExecutorService sortExecutor) {
+        this.sortExecutor = sortExecutor;
+    }
+
+    /**
+     * Get the {@link ExecutorService} that sorts the list when the sorting
+     * columns change, or <code>null</code> if the list is sorted on the event
+     * dispatch thread.
+     */
+    public ExecutorService getSortExecutor() {
+        return sortExecutor;
+    }
+
     /**
      * Decorates and returns the given <code>delegateRenderer</code> with
      * functionality that attempts to install a sorting icon into the Component
@@ -310,16 +363,122 @@ public class TableComparatorChooser<E> extends AbstractTableComparatorChooser<E>
      */
     @Override
     protected final void rebuildComparator() {
-        super.rebuildComparator();
+        // a newer sort replaces the one that is running
+        if(pendingSort != null) {
+            pendingSort.cancel();
+            pendingSort = null;
+        }
+
+        if(sortExecutor != null) {
+            sortInBackground(1);
+        } else {
+            super.rebuildComparator();
+        }
 
         // force the table header to redraw itself
         table.getTableHeader().revalidate();
         table.getTableHeader().repaint();
 
         // notify interested listeners that the sorting has changed
+        if(pendingSort == null) fireSortChanged();
+    }
+
+    /**
+     * Notify interested listeners that the sorting has changed.
+     */
+    private void fireSortChanged() {
         if(sortListener != null) sortListener.actionPerformed(new ActionEvent(this, 0, "sort"));
     }
 
+    /**
+     * Sorts a copy of the list with the comparator of the current sorting
+     * state on a thread of the sort executor, and then applies it on the
+     * event dispatch thread.
+     *
+     * @param attempt the number of times the sort has been started since
+     *      the sorting state changed
+     */
+    private void sortInBackground(final int attempt) {
+        final Comparator<E> comparator = sortingState.buildComparator();
+        final TableColumnSortKeys<E> sortKeys = createSortKeys(comparator);
+
+        final SortedList.BackgroundSort<E> sort;
+        sortedList.getReadWriteLock().readLock().lock();
+        try {
+            if(sortKeys != null) sort = sortedList.prepareSort(comparator, sortKeys, sortKeys.getSortKeyComparator());
+            else sort = sortedList.prepareSort(comparator, null, null);
+        } finally {
+            sortedList.getReadWriteLock().readLock().unlock();
+        }
+        pendingSort = sort;
+
+        sortExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    sort.run();
+                } catch(RuntimeException e) {
+                    // sort on the event dispatch thread instead, which reports the problem if it persists
+                    SwingUtilities.invokeLater(new Runnable() {
+                        @Override
+                        public void run() {
+                            if(sort != pendingSort) return;
+                            pendingSort = null;
+                            sortOnEventDispatchThread();
+                        }
+                    });
+                    return;
+                }
+                if(sort.isCancelled()) return;
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
+                    public void run() {
+                        applyBackgroundSort(sort, attempt);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Sorts the list with the comparator of the current sorting state on the
+     * event dispatch thread, when it can't be sorted in the background.
+     */
+    private void sortOnEventDispatchThread() {
+        super.rebuildComparator();
+        fireSortChanged();
+    }
+
+    /**
+     * Applies a finished background sort, unless it has been replaced by a
+     * newer one. If the list changed while it was being sorted, the sort is
+     * started again.
+     */
+    private void applyBackgroundSort(SortedList.BackgroundSort<E> sort, int attempt) {
+        if(sort != pendingSort) return;
+        pendingSort = null;
+
+        boolean applied;
+        sortedList.getReadWriteLock().writeLock().lock();
+        try {
+            // select the comparator first, so the reordering isn't mistaken for a foreign comparator
+            final Comparator<? super E> previousComparator = sortedListComparator;
+            sortedListComparator = sort.getComparator();
+            applied = sortedList.applySort(sort);
+            if(!applied) sortedListComparator = previousComparator;
+        } finally {
+            sortedList.getReadWriteLock().writeLock().unlock();
+        }
+
+        if(applied) {
+            fireSortChanged();
+        } else if(attempt < MAX_BACKGROUND_SORT_ATTEMPTS) {
+            sortInBackground(attempt + 1);
+        } else {
+            sortOnEventDispatchThread();
+        }
+    }
+
     /**
      * Gets the sorting style currently applied to the specified column.
      */
@@ -381,6 +540,10 @@ public class TableComparatorChooser<E> extends AbstractTableComparatorChooser<E>
      */
     @Override
     public void dispose() {
+        if(pendingSort != null) {
+            pendingSort.cancel();
+            pendingSort = null;
+        }
         super.dispose();
         headerClickHandler.dispose();
 
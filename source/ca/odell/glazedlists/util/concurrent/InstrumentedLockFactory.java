@@ -0,0 +1,267 @@
+/* Glazed Lists                                                 (c) 2003-2014 */
+/* http://publicobject.com/glazedlists/                      publicobject.com,*/
+/*                                                     O'Dell Engineering Ltd.*/
+package ca.odell.glazedlists.util.concurrent;
+
+import ca.odell.glazedlists.impl.Preconditions;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * An implementation of {@link LockFactory} whose locks record how long threads
+ * wait for them and hold them. This can be used to find the thread that is
+ * starving the others of a pipeline's lock:
+ *
+ * <pre>
+ * InstrumentedLockFactory lockFactory = new InstrumentedLockFactory();
+ * EventList source = new BasicEventList(lockFactory.createReadWriteLock());
+ * ...
+ * System.out.println(lockFactory.getWriteLockStatistics());</pre>
+ *
+ * <p>The statistics are shared by all the read locks, all the write locks and
+ * all the plain locks created by the factory, and can be published as
+ * MXBeans with {@link #registerMBeans(MBeanServer, String)}.
+ *
+ * <p>The locks delegate to the locks of another factory. If those support
+ * {@link OptimisticReadWriteLock optimistic reads}, so do the instrumented
+ * locks, although optimistic reads aren't counted.
+ */
+public class InstrumentedLockFactory implements LockFactory {
+
+    /** creates the locks that are instrumented */
+    private final LockFactory delegate;
+
+    private final LockStatistics readLockStatistics = new LockStatistics();
+    private final LockStatistics writeLockStatistics = new LockStatistics();
+    private final LockStatistics lockStatistics = new LockStatistics();
+
+    /** where statistics are registered as MXBeans, or <code>null</code> if they aren't */
+    private MBeanServer server;
+    private final List<ObjectName> registeredNames = new ArrayList<ObjectName>();
+
+    /**
+     * Creates an {@link InstrumentedLockFactory} that instruments the locks
+     * of the {@link LockFactory#DEFAULT default} factory.
+     */
+    public InstrumentedLockFactory() {
+        this(LockFactory.DEFAULT);
+    }
+
+    /**
+     * Creates an {@link InstrumentedLockFactory} that instruments the locks
+     * of the specified factory.
+     */
+    public InstrumentedLockFactory(LockFactory delegate) {
+        Preconditions.checkNotNull(delegate, "LockFactory is undefined");
+        this.delegate = delegate;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public ReadWriteLock createReadWriteLock() {
+        final ReadWriteLock lock = delegate.createReadWriteLock();
+        if(lock instanceof OptimisticReadWriteLock) {
+            return new InstrumentedOptimisticReadWriteLock((OptimisticReadWriteLock)lock, readLockStatistics, writeLockStatistics);
+        }
+        return new InstrumentedReadWriteLock(lock, readLockStatistics, writeLockStatistics);
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Lock createLock() {
+        return new InstrumentedLock(delegate.createLock(), lockStatistics);
+    }
+
+    /**
+     * Get the statistics of the read locks created by this factory.
+     */
+    public LockStatistics getReadLockStatistics() {
+        return readLockStatistics;
+    }
+
+    /**
+     * Get the statistics of the write locks created by this factory.
+     */
+    public LockStatistics getWriteLockStatistics() {
+        return writeLockStatistics;
+    }
+
+    /**
+     * Get the statistics of the plain locks created by this factory.
+     */
+    public LockStatistics getLockStatistics() {
+        return lockStatistics;
+    }
+
+    /**
+     * Register the statistics as MXBeans named
+     * <code><i>domain</i>:type=LockStatistics,name=read</code>, <code>write</code>
+     * and <code>lock</code>.
+     *
+     * @throws JMException if the statistics can't be registered
+     */
+    public synchronized void registerMBeans(MBeanServer server, String domain) throws JMException {
+        Preconditions.checkNotNull(server, "MBeanServer is undefined");
+        Preconditions.checkNotNull(domain, "Domain is undefined");
+        unregisterMBeans();
+        this.server = server;
+        register(domain, "read", readLockStatistics);
+        register(domain, "write", writeLockStatistics);
+        register(domain, "lock", lockStatistics);
+    }
+
+    /**
+     * Unregister the statistics' MXBeans.
+     */
+    public synchronized void unregisterMBeans() {
+        if(server == null) return;
+        for(ObjectName name : registeredNames) {
+            try {
+                server.unregisterMBean(name);
+            } catch(JMException e) {
+                // it has already been unregistered
+            }
+        }
+        registeredNames.clear();
+        server = null;
+    }
+
+    private void register(String domain, String name, LockStatistics statistics) throws JMException {
+        final ObjectName objectName = new ObjectName(domain + ":type=LockStatistics,name=" + name);
+        server.registerMBean(statistics, objectName);
+        registeredNames.add(objectName);
+    }
+}
+
+/**
+ * A {@link ReadWriteLock} whose read and write locks are {@link InstrumentedLock}s.
+ */
+class InstrumentedReadWriteLock implements ReadWriteLock, Serializable {
+
+    /** For versioning as a {@link Serializable} */
+    private static final long serialVersionUID = 4627352189830213317L;
+
+    private transient final Lock readLock;
+    private transient final Lock writeLock;
+
+    InstrumentedReadWriteLock(ReadWriteLock delegate, LockStatistics readLockStatistics, LockStatistics writeLockStatistics) {
+        this.readLock = new InstrumentedLock(delegate.readLock(), readLockStatistics);
+        this.writeLock = new InstrumentedLock(delegate.writeLock(), writeLockStatistics);
+    }
+
+    /** Use a {@link SerializedReadWriteLock} as a placeholder in the serialization stream. */
+    private Object writeReplace() throws ObjectStreamException {
+        return new SerializedReadWriteLock();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Lock readLock() {
+        return readLock;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Lock writeLock() {
+        return writeLock;
+    }
+}
+
+/**
+ * An {@link InstrumentedReadWriteLock} that supports the optimistic reads of
+ * its delegate.
+ */
+final class InstrumentedOptimisticReadWriteLock extends InstrumentedReadWriteLock implements OptimisticReadWriteLock {
+
+    /** For versioning as a {@link Serializable} */
+    private static final long serialVersionUID = -3329806127934580247L;
+
+    private transient final OptimisticReadWriteLock delegate;
+
+    InstrumentedOptimisticReadWriteLock(OptimisticReadWriteLock delegate, LockStatistics readLockStatistics, LockStatistics writeLockStatistics) {
+        super(delegate, readLockStatistics, writeLockStatistics);
+        this.delegate = delegate;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long tryOptimisticRead() {
+        return delegate.tryOptimisticRead();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean validate(long stamp) {
+        return delegate.validate(stamp);
+    }
+}
+
+/**
+ * A {@link Lock} that records the time each thread waits for it and holds it.
+ * Reentrant acquisitions are part of the outermost acquisition.
+ */
+final class InstrumentedLock implements Lock {
+
+    private final Lock delegate;
+    private final LockStatistics statistics;
+
+    /** how many times the current thread holds this lock, and when it acquired it */
+    private final ThreadLocal<long[]> holds = new ThreadLocal<long[]>() {
+        @Override
+        protected long[] initialValue() {
+            return new long[2];
+        }
+    };
+
+    InstrumentedLock(Lock delegate, LockStatistics statistics) {
+        this.delegate = delegate;
+        this.statistics = statistics;
+    }
+
+    @Override
+    public void lock() {
+        final long[] hold = holds.get();
+        if(hold[0] > 0) {
+            delegate.lock();
+            hold[0]++;
+            return;
+        }
+
+        // only time the threads that have to wait
+        if(delegate.tryLock()) {
+            statistics.acquired(false, 0);
+        } else {
+            final long start = System.nanoTime();
+            delegate.lock();
+            statistics.acquired(true, System.nanoTime() - start);
+        }
+        hold[0] = 1;
+        hold[1] = System.nanoTime();
+    }
+
+    @Override
+    public boolean tryLock() {
+        if(!delegate.tryLock()) return false;
+        final long[] hold = holds.get();
+        if(hold[0]++ == 0) {
+            statistics.acquired(false, 0);
+            hold[1] = System.nanoTime();
+        }
+        return true;
+    }
+
+    @Override
+    public void unlock() {
+        delegate.unlock();
+        final long[] hold = holds.get();
+        if(hold[0] == 0) return;
+        if(--hold[0] == 0) statistics.released(System.nanoTime() - hold[1]);
+    }
+}
@@ -0,0 +1,33 @@
+/* Glazed Lists                                                 (c) 2003-2006 */
+/* http://publicobject.com/glazedlists/                      publicobject.com,*/
+/*                                                     O'Dell Engineering Ltd.*/
+package ca.odell.glazedlists.util.concurrent;
+
+/**
+ * This adapts a J2SE 5.0 compatible Lock to the Glazed Lists Lock interface.
+ *
+ * @author James Lemieux
+ */
+final class LockAdapter implements Lock {
+
+    private final java.util.concurrent.locks.Lock delegateLock;
+
+    LockAdapter(java.util.concurrent.locks.Lock delegateLock) {
+        this.delegateLock = delegateLock;
+    }
+
+    @Override
+    public void lock() {
+        delegateLock.lock();
+    }
+
+    @Override
+    public boolean tryLock() {
+        return delegateLock.tryLock();
+    }
+
+    @Override
+    public void unlock() {
+        delegateLock.unlock();
+    }
+}
\ No newline at end of file
@@ -0,0 +1,170 @@
+/* Glazed Lists                                                 (c) 2003-2014 */
+/* http://publicobject.com/glazedlists/                      publicobject.com,*/
+/*                                                     O'Dell Engineering Ltd.*/
+package ca.odell.glazedlists.util.concurrent;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counts how long threads wait for and hold the locks created by an
+ * {@link InstrumentedLockFactory}. The thread that held a lock for the
+ * longest time, and the total time each thread held it, show which thread
+ * is starving the others.
+ *
+ * <p>The statistics are updated by the threads using the locks, and can be
+ * read by any thread.
+ */
+public final class LockStatistics implements LockStatisticsMXBean {
+
+    private final AtomicLong acquisitionCount = new AtomicLong();
+    private final AtomicLong contendedCount = new AtomicLong();
+    private final AtomicLong totalWaitNanos = new AtomicLong();
+    private final AtomicLong totalHoldNanos = new AtomicLong();
+    private volatile long maxWaitNanos;
+    private volatile long maxHoldNanos;
+    private String longestHolderThread;
+    private StackTraceElement[] longestHolderStack = new StackTraceElement[0];
+    private final ConcurrentMap<String,AtomicLong> holdNanosByThread = new ConcurrentHashMap<String,AtomicLong>();
+
+    LockStatistics() {
+        // only instrumented locks keep statistics
+    }
+
+    /**
+     * Record that a thread acquired the lock after waiting for the specified
+     * time, which is <code>0</code> if the lock wasn't contended.
+     */
+    void acquired(boolean contended, long waitNanos) {
+        acquisitionCount.incrementAndGet();
+        if(!contended) return;
+
+        contendedCount.incrementAndGet();
+        totalWaitNanos.addAndGet(waitNanos);
+        if(waitNanos > maxWaitNanos) {
+            synchronized(this) {
+                if(waitNanos > maxWaitNanos) maxWaitNanos = waitNanos;
+            }
+        }
+    }
+
+    /**
+     * Record that the current thread released the lock after holding it for
+     * the specified time.
+     */
+    void released(long holdNanos) {
+        totalHoldNanos.addAndGet(holdNanos);
+        final Thread thread = Thread.currentThread();
+        final String threadName = thread.getName();
+        AtomicLong threadHoldNanos = holdNanosByThread.get(threadName);
+        if(threadHoldNanos == null) {
+            final AtomicLong created = new AtomicLong();
+            threadHoldNanos = holdNanosByThread.putIfAbsent(threadName, created);
+            if(threadHoldNanos == null) threadHoldNanos = created;
+        }
+        threadHoldNanos.addAndGet(holdNanos);
+
+        // only capture the stack when there's a new longest holder
+        if(holdNanos > maxHoldNanos) {
+            final StackTraceElement[] stack = thread.getStackTrace();
+            synchronized(this) {
+                if(holdNanos > maxHoldNanos) {
+                    maxHoldNanos = holdNanos;
+                    longestHolderThread = threadName;
+                    longestHolderStack = stack;
+                }
+            }
+        }
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getAcquisitionCount() {
+        return acquisitionCount.get();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getContendedCount() {
+        return contendedCount.get();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getTotalWaitNanos() {
+        return totalWaitNanos.get();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getMaxWaitNanos() {
+        return maxWaitNanos;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getTotalHoldNanos() {
+        return totalHoldNanos.get();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long getMaxHoldNanos() {
+        return maxHoldNanos;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized String getLongestHolderThread() {
+        return longestHolderThread;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String[] getLongestHolderStack() {
+        final StackTraceElement[] stack;
+        synchronized(this) {
+            stack = longestHolderStack;
+        }
+        final String[] result = new String[stack.length];
+        for(int i = 0; i < stack.length; i++) {
+            result[i] = stack[i].toString();
+        }
+        return result;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Map<String,Long> getHoldNanosByThread() {
+        final Map<String,Long> result = new HashMap<String,Long>();
+        for(Map.Entry<String,AtomicLong> entry : holdNanosByThread.entrySet()) {
+            result.put(entry.getKey(), Long.valueOf(entry.getValue().get()));
+        }
+        return result;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public synchronized void reset() {
+        acquisitionCount.set(0);
+        contendedCount.set(0);
+        totalWaitNanos.set(0);
+        totalHoldNanos.set(0);
+        maxWaitNanos = 0;
+        maxHoldNanos = 0;
+        longestHolderThread = null;
+        longestHolderStack = new StackTraceElement[0];
+        holdNanosByThread.clear();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public String toString() {
+        return "acquisitions=" + getAcquisitionCount() + ", contended=" + getContendedCount()
+            + ", max wait=" + getMaxWaitNanos() / 1000 + "us, max hold=" + getMaxHoldNanos() / 1000
+            + "us by " + getLongestHolderThread();
+    }
+}
@@ -0,0 +1,69 @@
+/* Glazed Lists                                                 (c) 2003-2014 */
+/* http://publicobject.com/glazedlists/                      publicobject.com,*/
+/*                                                     O'Dell Engineering Ltd.*/
+package ca.odell.glazedlists.util.concurrent;
+
+import java.util.Map;
+
+/**
+ * The management interface of the {@link LockStatistics} of the read locks,
+ * write locks or plain locks created by an {@link InstrumentedLockFactory}.
+ *
+ * @see InstrumentedLockFactory#registerMBeans(javax.management.MBeanServer, String)
+ */
+public interface LockStatisticsMXBean {
+
+    /**
+     * Get the number of times the lock has been acquired, not counting
+     * reentrant acquisitions by a thread that already held it.
+     */
+    public long getAcquisitionCount();
+
+    /**
+     * Get the number of acquisitions that had to wait for another thread.
+     */
+    public long getContendedCount();
+
+    /**
+     * Get the total time threads have waited to acquire the lock, in nanoseconds.
+     */
+    public long getTotalWaitNanos();
+
+    /**
+     * Get the longest time a thread has waited to acquire the lock, in nanoseconds.
+     */
+    public long getMaxWaitNanos();
+
+    /**
+     * Get the total time threads have held the lock, in nanoseconds.
+     */
+    public long getTotalHoldNanos();
+
+    /**
+     * Get the longest time a thread has held the lock, in nanoseconds.
+     */
+    public long getMaxHoldNanos();
+
+    /**
+     * Get the name of the thread that held the lock for the longest time, or
+     * <code>null</code> if it hasn't been released.
+     */
+    public String getLongestHolderThread();
+
+    /**
+     * Get the stack of the thread that held the lock for the longest time, as
+     * it released the lock.
+     */
+    public String[] getLongestHolderStack();
+
+    /**
+     * Get the total time each thread has held the lock, in nanoseconds, by
+     * the name of the thread.
+     */
+    public Map<String,Long> getHoldNanosByThread();
+
+    /**
+     * Start counting from zero again.
+     */
+    public void reset();
+}
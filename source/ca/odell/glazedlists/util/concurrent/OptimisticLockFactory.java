@@ -0,0 +1,173 @@
+/* Glazed Lists                                                 (c) 2003-2014 */
+/* http://publicobject.com/glazedlists/                      publicobject.com,*/
+/*                                                     O'Dell Engineering Ltd.*/
+package ca.odell.glazedlists.util.concurrent;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * An implementation of {@link LockFactory} whose {@link ReadWriteLock}s are
+ * {@link OptimisticReadWriteLock}s. Pipelines that share such a lock can be
+ * read by many threads through a {@link ca.odell.glazedlists.GlazedLists#threadSafeList
+ * thread safe list} without contending on the lock:
+ *
+ * <pre>
+ * EventList source = new BasicEventList(new OptimisticLockFactory().createReadWriteLock());
+ * EventList readers = GlazedLists.threadSafeList(source);</pre>
+ *
+ * <p>Optimistic reads need memory fences, which are only available on Java 8
+ * and later virtual machines. On earlier ones every read acquires the read
+ * lock, just like it would with any other {@link LockFactory}.
+ */
+public class OptimisticLockFactory implements LockFactory {
+    @Override
+    public ReadWriteLock createReadWriteLock() {
+        return new SequenceReadWriteLock();
+    }
+
+    @Override
+    public Lock createLock() {
+        return new LockAdapter(new ReentrantLock());
+    }
+}
+
+/**
+ * An {@link OptimisticReadWriteLock} that counts acquisitions and releases of
+ * the write lock of a {@link ReentrantReadWriteLock}. The count is odd while the
+ * write lock is held, and a stamp is valid if the count hasn't changed.
+ *
+ * <p>As in <code>StampedLock</code>, a load fence keeps the reads of an
+ * optimistic read from being reordered after its validation, and a store
+ * fence keeps a writer's changes from being reordered before the count is
+ * incremented. The fences are <code>sun.misc.Unsafe</code> methods that first
+ * appeared in Java 8. Without them, optimistic reads aren't safe, so
+ * {@link #tryOptimisticRead()} always returns zero.
+ */
+final class SequenceReadWriteLock implements OptimisticReadWriteLock, Serializable {
+
+    /** For versioning as a {@link Serializable} */
+    private static final long serialVersionUID = -2938204623486013719L;
+
+    /** the lock that readers and writers block on */
+    private transient final ReentrantReadWriteLock delegate = new ReentrantReadWriteLock();
+
+    /** incremented whenever the write lock is first acquired and finally released */
+    private transient volatile long sequence = 2;
+
+    /** <code>sun.misc.Unsafe</code> and its fences, or <code>null</code> if they aren't available */
+    private static final Object UNSAFE;
+    private static final Method LOAD_FENCE;
+    private static final Method STORE_FENCE;
+    static {
+        Object unsafe = null;
+        Method loadFence = null;
+        Method storeFence = null;
+        try {
+            final Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            final Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+            loadFence = unsafeClass.getMethod("loadFence");
+            storeFence = unsafeClass.getMethod("storeFence");
+        } catch(Exception e) {
+            // no fences, so always read under the read lock
+            unsafe = null;
+            loadFence = null;
+            storeFence = null;
+        }
+        UNSAFE = unsafe;
+        LOAD_FENCE = loadFence;
+        STORE_FENCE = storeFence;
+    }
+
+    private transient final Lock readLock = new LockAdapter(delegate.readLock());
+    private transient final Lock writeLock = new WriteLock();
+
+    /** Use a {@link SerializedReadWriteLock} as a placeholder in the serialization stream. */
+    private Object writeReplace() throws ObjectStreamException {
+        return new SerializedReadWriteLock();
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Lock readLock() {
+        return readLock;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public Lock writeLock() {
+        return writeLock;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public long tryOptimisticRead() {
+        if(LOAD_FENCE == null) return 0;
+        final long stamp = sequence;
+        return (stamp & 1) == 0 ? stamp : 0;
+    }
+
+    /** {@inheritDoc} */
+    @Override
+    public boolean validate(long stamp) {
+        if(stamp == 0) return false;
+        fence(LOAD_FENCE);
+        return stamp == sequence;
+    }
+
+    /**
+     * Invoke the specified fence of <code>sun.misc.Unsafe</code>.
+     */
+    private static void fence(Method fence) {
+        try {
+            fence.invoke(UNSAFE, (Object[])null);
+        } catch(IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        } catch(InvocationTargetException e) {
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * Start a write by making the count odd. The store fence keeps the
+     * writer's changes after the count's increment.
+     */
+    private void beginWrite() {
+        sequence++;
+        if(STORE_FENCE != null) fence(STORE_FENCE);
+    }
+
+    /**
+     * Updates the sequence when the write lock is acquired and released, so
+     * that optimistic reads in the meantime can't be validated.
+     */
+    private final class WriteLock implements Lock {
+        private final ReentrantReadWriteLock.WriteLock writeLock = delegate.writeLock();
+
+        @Override
+        public void lock() {
+            writeLock.lock();
+            if(writeLock.getHoldCount() == 1) beginWrite();
+        }
+
+        @Override
+        public boolean tryLock() {
+            if(!writeLock.tryLock()) return false;
+            if(writeLock.getHoldCount() == 1) beginWrite();
+            return true;
+        }
+
+        @Override
+        public void unlock() {
+            if(writeLock.isHeldByCurrentThread() && writeLock.getHoldCount() == 1) sequence++;
+            writeLock.unlock();
+        }
+    }
+}
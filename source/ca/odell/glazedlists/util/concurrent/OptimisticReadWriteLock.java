@@ -0,0 +1,49 @@
+/* Glazed Lists                                                 (c) 2003-2014 */
+/* http://publicobject.com/glazedlists/                      publicobject.com,*/
+/*                                                     O'Dell Engineering Ltd.*/
+package ca.odell.glazedlists.util.concurrent;
+
+/**
+ * A {@link ReadWriteLock} that also supports optimistic reads, which don't
+ * block writers or contend with other readers. An optimistic read takes a
+ * stamp, reads without locking and then validates the stamp. If the stamp is
+ * no longer valid, a writer may have changed the data while it was being read,
+ * so the read must be repeated while holding the {@link #readLock() read lock}:
+ *
+ * <pre>
+ * long stamp = lock.tryOptimisticRead();
+ * if(stamp != 0) {
+ *     int size = list.size();
+ *     if(lock.validate(stamp)) return size;
+ * }
+ * lock.readLock().lock();
+ * try {
+ *     return list.size();
+ * } finally {
+ *     lock.readLock().unlock();
+ * }</pre>
+ *
+ * <p>Optimistic reads are only appropriate for data structures that can be read
+ * while they're being written without looping forever, such as array-backed
+ * lists. Any exception thrown by such a read must be discarded if the stamp
+ * doesn't validate.
+ *
+ * <p>This interface shares the method names of
+ * <code>java.util.concurrent.locks.StampedLock</code>, which first appeared in
+ * Java 8.
+ *
+ * @see OptimisticLockFactory
+ */
+public interface OptimisticReadWriteLock extends ReadWriteLock {
+
+    /**
+     * Returns a stamp for an optimistic read, or zero if the write lock is held.
+     */
+    public long tryOptimisticRead();
+
+    /**
+     * Returns <code>true</code> if the write lock hasn't been acquired since the
+     * specified stamp was issued.
+     */
+    public boolean validate(long stamp);
+}
@@ -3,11 +3,14 @@
 /*                                                     O'Dell Engineering Ltd.*/
 package ca.odell.glazedlists;
 
+import ca.odell.glazedlists.event.ListEvent;
 import ca.odell.glazedlists.event.ListEventAssembler;
+import ca.odell.glazedlists.event.ListEventListener;
 import ca.odell.glazedlists.event.ListEventPublisher;
 import ca.odell.glazedlists.impl.testing.GlazedListsTests;
 import ca.odell.glazedlists.impl.testing.GlazedListsTests.SerializableListener;
 import ca.odell.glazedlists.impl.testing.GlazedListsTests.UnserializableListener;
+import ca.odell.glazedlists.impl.testing.ListConsistencyListener;
 import ca.odell.glazedlists.util.concurrent.LockFactory;
 import ca.odell.glazedlists.util.concurrent.ReadWriteLock;
 
@@ -15,6 +18,7 @@ import java.io.IOException;
 import java.io.ObjectStreamClass;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import org.junit.Test;
@@ -197,4 +201,99 @@ public class BasicEventListTest {
             compositeList.addMemberList(eventList);
         }
     }
+
+    /**
+     * Tests the batch operations report their changes in a single event.
+     */
+    @Test
+    public void testBatchOperations() {
+        BasicEventList<String> list = new BasicEventList<String>();
+        list.addAll(GlazedListsTests.stringToList("ABCDEF"));
+        SortedList<String> sorted = SortedList.create(list);
+        ListConsistencyListener<String> listConsistencyListener = ListConsistencyListener.install(list);
+        listConsistencyListener.setPreviousElementTracked(true);
+        ListConsistencyListener.install(sorted).setPreviousElementTracked(true);
+        BlockCounter blockCounter = new BlockCounter();
+        list.addListEventListener(blockCounter);
+
+        list.insertRange(2, new String[] {"X", "Y", "Z"});
+        assertEquals(GlazedListsTests.stringToList("ABXYZCDEF"), list);
+        assertEquals(1, listConsistencyListener.getEventCount());
+        assertEquals(1, blockCounter.blocks);
+
+        list.addAll(1, GlazedListsTests.stringToList("PQ"));
+        assertEquals(GlazedListsTests.stringToList("APQBXYZCDEF"), list);
+        assertEquals(2, listConsistencyListener.getEventCount());
+        assertEquals(2, blockCounter.blocks);
+
+        list.setAll(new int[] {0, 5, 10}, new String[] {"a", "y", "f"});
+        assertEquals(GlazedListsTests.stringToList("aPQBXyZCDEf"), list);
+        assertEquals(3, listConsistencyListener.getEventCount());
+        assertEquals(3, listConsistencyListener.getChangeCount(2));
+
+        // out of order indices are reported in one event too
+        list.setAll(new int[] {10, 0}, new String[] {"F", "A"});
+        assertEquals(GlazedListsTests.stringToList("APQBXyZCDEF"), list);
+        assertEquals(4, listConsistencyListener.getEventCount());
+
+        list.removeRange(1, 7);
+        assertEquals(GlazedListsTests.stringToList("ACDEF"), list);
+        assertEquals(5, listConsistencyListener.getEventCount());
+        assertEquals(6, listConsistencyListener.getChangeCount(4));
+        assertEquals(Arrays.asList("A", "C", "D", "E", "F"), sorted);
+
+        // empty batches don't fire events
+        list.insertRange(0, new String[0]);
+        list.removeRange(2, 2);
+        list.setAll(new int[0], new String[0]);
+        assertEquals(5, listConsistencyListener.getEventCount());
+    }
+
+    /**
+     * Tests the batch operations validate their arguments.
+     */
+    @Test
+    public void testBatchOperationsRejectInvalidIndices() {
+        BasicEventList<String> list = new BasicEventList<String>();
+        list.addAll(GlazedListsTests.stringToList("ABC"));
+        try {
+            list.insertRange(4, new String[] {"X"});
+            fail();
+        } catch(IndexOutOfBoundsException e) {
+            // expected
+        }
+        try {
+            list.removeRange(2, 4);
+            fail();
+        } catch(IndexOutOfBoundsException e) {
+            // expected
+        }
+        try {
+            list.setAll(new int[] {0, 3}, new String[] {"X", "Y"});
+            fail();
+        } catch(IndexOutOfBoundsException e) {
+            // expected
+        }
+        try {
+            list.setAll(new int[] {0}, new String[] {"X", "Y"});
+            fail();
+        } catch(IllegalArgumentException e) {
+            // expected
+        }
+        assertEquals(GlazedListsTests.stringToList("ABC"), list);
+    }
+
+    /**
+     * Counts the blocks in each event.
+     */
+    private static class BlockCounter implements ListEventListener<String> {
+        int blocks;
+
+        @Override
+        public void listChanged(ListEvent<String> listChanges) {
+            while(listChanges.nextBlock()) {
+                blocks++;
+            }
+        }
+    }
 }
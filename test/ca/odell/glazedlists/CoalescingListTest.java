@@ -0,0 +1,176 @@
+/* Glazed Lists                                                 (c) 2003-2014 */
+/* http://publicobject.com/glazedlists/                      publicobject.com,*/
+/*                                                     O'Dell Engineering Ltd.*/
+package ca.odell.glazedlists;
+
+import ca.odell.glazedlists.impl.testing.GlazedListsTests;
+import ca.odell.glazedlists.impl.testing.ListConsistencyListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Make sure the {@link CoalescingList} merges changes into one event per window.
+ */
+public class CoalescingListTest {
+
+    /**
+     * Tests that changes are published once enough of them have been merged,
+     * or when the list is flushed.
+     */
+    @Test
+    public void testMaxMergedEvents() {
+        final EventList<Integer> source = new BasicEventList<Integer>();
+        final CoalescingList<Integer> coalesced = new CoalescingList<Integer>(source, 1, TimeUnit.HOURS, 10);
+        final ListConsistencyListener<Integer> listener = ListConsistencyListener.install(coalesced);
+        listener.setPreviousElementTracked(false);
+
+        for(int i = 0; i < 25; i++) source.add(new Integer(i));
+        assertEquals(20, coalesced.size());
+        assertEquals(source.subList(0, 20), coalesced);
+        assertEquals(2, listener.getEventCount());
+        assertEquals(25, coalesced.getMergedEventCount());
+        assertEquals(2, coalesced.getPublishedEventCount());
+
+        coalesced.flush();
+        assertEquals(source, coalesced);
+        assertEquals(3, listener.getEventCount());
+        assertEquals(3, coalesced.getPublishedEventCount());
+
+        // nothing to flush
+        coalesced.flush();
+        assertEquals(3, listener.getEventCount());
+        assertEquals(3, coalesced.getPublishedEventCount());
+
+        coalesced.dispose();
+    }
+
+    /**
+     * Tests that contradicting changes are merged, and readers see the list as
+     * it was at the last flush.
+     */
+    @Test
+    public void testMergedChanges() {
+        final EventList<Integer> source = new BasicEventList<Integer>();
+        source.addAll(GlazedListsTests.intArrayToIntegerCollection(new int[] {0, 1, 2, 3, 4}));
+        final CoalescingList<Integer> coalesced = new CoalescingList<Integer>(source, 1, TimeUnit.HOURS);
+        final ListConsistencyListener<Integer> listener = ListConsistencyListener.install(coalesced);
+        listener.setPreviousElementTracked(false);
+        final List<Integer> before = new ArrayList<Integer>(source);
+
+        final Random dice = new Random(14);
+        for(int i = 0; i < 500; i++) {
+            final int operation = dice.nextInt(3);
+            if(operation == 0 || source.isEmpty()) {
+                source.add(dice.nextInt(source.size() + 1), new Integer(dice.nextInt(100)));
+            } else if(operation == 1) {
+                source.remove(dice.nextInt(source.size()));
+            } else {
+                source.set(dice.nextInt(source.size()), new Integer(dice.nextInt(100)));
+            }
+        }
+        assertEquals(before, coalesced);
+        assertEquals(0, listener.getEventCount());
+
+        coalesced.flush();
+        assertEquals(source, coalesced);
+        assertEquals(1, listener.getEventCount());
+        assertEquals(500, coalesced.getMergedEventCount());
+        assertEquals(1, coalesced.getPublishedEventCount());
+
+        coalesced.dispose();
+    }
+
+    /**
+     * Tests that changes are published at the end of the window.
+     */
+    @Test
+    public void testWindow() throws InterruptedException {
+        final EventList<Integer> source = new BasicEventList<Integer>();
+        final CoalescingList<Integer> coalesced = new CoalescingList<Integer>(source, 20, TimeUnit.MILLISECONDS);
+        final ListConsistencyListener<Integer> listener = ListConsistencyListener.install(coalesced);
+        listener.setPreviousElementTracked(false);
+
+        source.getReadWriteLock().writeLock().lock();
+        try {
+            for(int i = 0; i < 100; i++) source.add(new Integer(i));
+        } finally {
+            source.getReadWriteLock().writeLock().unlock();
+        }
+
+        for(int i = 0; i < 500 && coalesced.getPublishedEventCount() == 0; i++) {
+            Thread.sleep(10);
+        }
+
+        source.getReadWriteLock().readLock().lock();
+        try {
+            assertEquals(source, coalesced);
+            assertEquals(1, listener.getEventCount());
+            assertEquals(100, coalesced.getMergedEventCount());
+            assertEquals(1, coalesced.getPublishedEventCount());
+        } finally {
+            source.getReadWriteLock().readLock().unlock();
+        }
+
+        coalesced.dispose();
+    }
+
+    /**
+     * Tests that consecutive reorderings are published as one reordering.
+     */
+    @Test
+    public void testReorderingsCombined() {
+        final EventList<String> source = GlazedLists.eventListOf("C", "A", "D", "B");
+        final SortedList<String> sorted = new SortedList<String>(source, null);
+        final CoalescingList<String> coalesced = new CoalescingList<String>(sorted, 1, TimeUnit.HOURS);
+        final ListConsistencyListener<String> listener = ListConsistencyListener.install(coalesced);
+        listener.setPreviousElementTracked(false);
+
+        sorted.setComparator(GlazedLists.<String>comparableComparator());
+        sorted.setComparator(GlazedLists.<String>reverseComparator());
+        coalesced.flush();
+        assertEquals(GlazedListsTests.stringToList("DCBA"), coalesced);
+        assertEquals(1, listener.getEventCount());
+        assertTrue(listener.isReordering(0));
+
+        coalesced.dispose();
+    }
+
+    /**
+     * Tests that the local cache is kept in sync through batches of a few
+     * changes, which patch it in place, and larger batches, which rebuild it.
+     */
+    @Test
+    public void testCacheUpdates() {
+        final EventList<Integer> source = new BasicEventList<Integer>();
+        for(int i = 0; i < 200; i++) source.add(new Integer(i));
+        final CoalescingList<Integer> coalesced = new CoalescingList<Integer>(source, 1, TimeUnit.HOURS);
+        final ListConsistencyListener<Integer> listener = ListConsistencyListener.install(coalesced);
+        listener.setPreviousElementTracked(false);
+
+        final Random dice = new Random(21);
+        for(int batch = 0; batch < 300; batch++) {
+            final int changes = batch % 10 == 0 ? 50 : 1 + dice.nextInt(3);
+            for(int i = 0; i < changes; i++) {
+                final int operation = dice.nextInt(3);
+                if(operation == 0 || source.isEmpty()) {
+                    source.add(dice.nextInt(source.size() + 1), new Integer(dice.nextInt(1000)));
+                } else if(operation == 1) {
+                    source.remove(dice.nextInt(source.size()));
+                } else {
+                    source.set(dice.nextInt(source.size()), new Integer(dice.nextInt(1000)));
+                }
+            }
+            coalesced.flush();
+            assertEquals(source, coalesced);
+        }
+
+        coalesced.dispose();
+    }
+}
@@ -13,6 +13,9 @@ import ca.odell.glazedlists.matchers.Matchers;
 import ca.odell.glazedlists.matchers.TextMatcherEditor;
 
 import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.Test;
 
@@ -188,6 +191,134 @@ public class FilterListTest {
 
     }
 
+    /**
+     * Refiltering with an executor must give the same results and events as
+     * matching elements on the calling thread.
+     */
+    @Test
+    public void testMatcherExecutor() {
+        EventList<Integer> original = new BasicEventList<Integer>();
+        Random dice = new Random(13);
+        for(int i = 0; i < 50000; i++) {
+            original.add(Integer.valueOf(dice.nextInt(100)));
+        }
+
+        AtLeastMatcherEditor editor = new AtLeastMatcherEditor();
+        FilterList<Integer> myFilterList = new FilterList<Integer>(original, editor);
+        ListConsistencyListener<Integer> listConsistencyListener = ListConsistencyListener.install(myFilterList);
+        listConsistencyListener.setPreviousElementTracked(true);
+
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        try {
+            myFilterList.setMatcherExecutor(executor);
+            assertSame(executor, myFilterList.getMatcherExecutor());
+
+            // constrain, relax and change the list
+            int[] minimums = { 50, 75, 99, 20, 0, 60 };
+            for(int m = 0; m < minimums.length; m++) {
+                editor.setMinimum(minimums[m]);
+                assertEquals(Matchers.select(original, editor.getMatcher()), myFilterList);
+            }
+            myFilterList.setMatcher(GlazedListsTests.matchAtLeast(30));
+            assertEquals(Matchers.select(original, GlazedListsTests.matchAtLeast(30)), myFilterList);
+
+            // matcher exceptions are propagated to the caller
+            try {
+                myFilterList.setMatcher(new Matcher<Integer>() {
+                    @Override
+                    public boolean matches(Integer item) {
+                        if(item.intValue() == 42) throw new IllegalStateException();
+                        return true;
+                    }
+                });
+                fail();
+            } catch(IllegalStateException e) {
+                // expected
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Chunks that the matcher executor rejects must be matched on the
+     * calling thread.
+     */
+    @Test
+    public void testMatcherExecutorRejects() {
+        EventList<Integer> original = new BasicEventList<Integer>();
+        Random dice = new Random(17);
+        for(int i = 0; i < 50000; i++) {
+            original.add(Integer.valueOf(dice.nextInt(100)));
+        }
+
+        AtLeastMatcherEditor editor = new AtLeastMatcherEditor();
+        FilterList<Integer> myFilterList = new FilterList<Integer>(original, editor);
+        ListConsistencyListener.install(myFilterList);
+
+        // a shut down executor rejects every chunk
+        ExecutorService executor = Executors.newFixedThreadPool(3);
+        executor.shutdown();
+        myFilterList.setMatcherExecutor(executor);
+        editor.setMinimum(50);
+        assertEquals(Matchers.select(original, editor.getMatcher()), myFilterList);
+        myFilterList.setMatcher(GlazedListsTests.matchAtLeast(30));
+        assertEquals(Matchers.select(original, GlazedListsTests.matchAtLeast(30)), myFilterList);
+    }
+
+    /**
+     * The bitset flag storage must behave exactly like the default storage.
+     */
+    @Test
+    public void testBitsetFlagStorage() {
+        EventList<Integer> original = new BasicEventList<Integer>();
+        Random dice = new Random(7);
+        for(int i = 0; i < 1000; i++) {
+            original.add(Integer.valueOf(dice.nextInt(20)));
+        }
+
+        // filter a sorted list so that we also get reorderings
+        SortedList<Integer> sorted = new SortedList<Integer>(original, null);
+        AtLeastMatcherEditor editor = new AtLeastMatcherEditor(10);
+        FilterList<Integer> myFilterList = new FilterList<Integer>(sorted, editor);
+        assertEquals(FilterList.RUN_LENGTH_STORAGE, myFilterList.getFlagStorage());
+        myFilterList.setFlagStorage(FilterList.BITSET_STORAGE);
+        assertEquals(FilterList.BITSET_STORAGE, myFilterList.getFlagStorage());
+        assertEquals(Matchers.select(sorted, editor.getMatcher()), myFilterList);
+
+        ListConsistencyListener<Integer> listConsistencyListener = ListConsistencyListener.install(myFilterList);
+        listConsistencyListener.setPreviousElementTracked(true);
+
+        for(int i = 0; i < 500; i++) {
+            int operation = dice.nextInt(6);
+            if(operation == 0) {
+                original.add(dice.nextInt(original.size() + 1), Integer.valueOf(dice.nextInt(20)));
+            } else if(operation == 1 && !original.isEmpty()) {
+                original.remove(dice.nextInt(original.size()));
+            } else if(operation == 2 && !original.isEmpty()) {
+                original.set(dice.nextInt(original.size()), Integer.valueOf(dice.nextInt(20)));
+            } else if(operation == 3) {
+                sorted.setComparator(dice.nextBoolean() ? GlazedLists.comparableComparator() : null);
+            } else {
+                editor.setMinimum(dice.nextInt(20));
+            }
+            assertEquals(Matchers.select(sorted, editor.getMatcher()), myFilterList);
+        }
+
+        // switching back keeps the same elements
+        myFilterList.setFlagStorage(FilterList.RUN_LENGTH_STORAGE);
+        assertEquals(Matchers.select(sorted, editor.getMatcher()), myFilterList);
+        editor.setMinimum(5);
+        assertEquals(Matchers.select(sorted, editor.getMatcher()), myFilterList);
+
+        try {
+            myFilterList.setFlagStorage(2);
+            fail();
+        } catch(IllegalArgumentException e) {
+            // expected
+        }
+    }
+
 	/**
 	 * Test Matchers that fire matchAll() and matchNone() events.
 	 */
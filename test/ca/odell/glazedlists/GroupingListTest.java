@@ -504,6 +504,30 @@ public class GroupingListTest {
     /**
      * Test the replacement of the grouping Comparator.
      */
+    /**
+     * Tests that a reordering of the source that only moves elements within
+     * their groups is forwarded as updates of those groups.
+     */
+    @Test
+    public void testReorderWithinGroups() {
+        final EventList<String> source = GlazedLists.eventListOf("Bob", "Alice", "Barry", "Carl", "Anne");
+        final SortedList<String> sortedSource = new SortedList<String>(source, null);
+        final GroupingList<String> groupingList = new GroupingList<String>(sortedSource, GlazedListsTests.getFirstLetterComparator());
+        final List<String> groupA = groupingList.get(0);
+        ListConsistencyListener<List<String>> listConsistencyListener = ListConsistencyListener.install(groupingList);
+        listConsistencyListener.setPreviousElementTracked(false);
+        assertEquals(Arrays.asList("Alice", "Anne"), groupingList.get(0));
+
+        sortedSource.setComparator(GlazedLists.reverseComparator());
+        assertEquals(3, groupingList.size());
+        assertEquals(Arrays.asList("Anne", "Alice"), groupingList.get(0));
+        assertEquals(Arrays.asList("Bob", "Barry"), groupingList.get(1));
+        assertEquals(Arrays.asList("Carl"), groupingList.get(2));
+        assertSame(groupA, groupingList.get(0));
+        assertEquals(1, listConsistencyListener.getEventCount());
+        assertEquals(1, listConsistencyListener.getChangeCount(0));
+    }
+
     @Test
     public void testSetComparator() {
         final EventList<String> source = new BasicEventList<String>();
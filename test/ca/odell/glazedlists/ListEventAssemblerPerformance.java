@@ -3,6 +3,9 @@
 /*                                                     O'Dell Engineering Ltd.*/
 package ca.odell.glazedlists;
 
+import ca.odell.glazedlists.event.ListEvent;
+import ca.odell.glazedlists.event.ListEventAssembler;
+import ca.odell.glazedlists.event.ListEventListener;
 
 /**
  * Verifies that ListEventAssembler is well behaved.
@@ -35,6 +38,44 @@ public class ListEventAssemblerPerformance {
         }
     }
 
+    /**
+     * Times events that insert many elements one at a time, at the end of the
+     * list or at its start. Both should be stored as a single block.
+     */
+    public void testInsertBatches() {
+        for(int run = 0; run < 10; run++) {
+            final long append = timeInsertBatch(200000, false);
+            final long prepend = timeInsertBatch(200000, true);
+            System.out.println("append: " + (append / 1000000) + "ms, prepend: " + (prepend / 1000000) + "ms");
+        }
+    }
+
+    /**
+     * Fire an event of the specified number of single-element inserts.
+     *
+     * @return the nanoseconds it took to build and fire the event
+     */
+    private long timeInsertBatch(int count, boolean prepend) {
+        final BasicEventList<Long> list = new BasicEventList<Long>();
+        final ListEventAssembler<Long> updates = new ListEventAssembler<Long>(list, ListEventAssembler.createListEventPublisher());
+        final int[] blocks = new int[1];
+        updates.addListEventListener(new ListEventListener<Long>() {
+            public void listChanged(ListEvent<Long> listChanges) {
+                while(listChanges.nextBlock()) blocks[0]++;
+            }
+        });
+
+        final long start = System.nanoTime();
+        updates.beginEvent(true);
+        for(int i = 0; i < count; i++) {
+            updates.elementInserted(prepend ? 0 : i, new Long(i));
+        }
+        updates.commitEvent();
+        final long elapsed = System.nanoTime() - start;
+        if(blocks[0] != 1) System.out.println("expected 1 block, found " + blocks[0]);
+        return elapsed;
+    }
+
     /**
      * Report how much memory is currently being used by the application.
      */
@@ -50,9 +91,14 @@ public class ListEventAssemblerPerformance {
     }
 
     /**
-     * Run the tests.
+     * Run the tests. Pass <code>inserts</code> to time batches of inserts
+     * rather than measure memory usage.
      */
     public static void main(String[] args) {
-        new ListEventAssemblerPerformance().testMemoryUsage();
+        if(args.length > 0 && args[0].equals("inserts")) {
+            new ListEventAssemblerPerformance().testInsertBatches();
+        } else {
+            new ListEventAssemblerPerformance().testMemoryUsage();
+        }
     }
 }
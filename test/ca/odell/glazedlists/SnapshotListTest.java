@@ -0,0 +1,143 @@
+/* Glazed Lists                                                 (c) 2003-2014 */
+/* http://publicobject.com/glazedlists/                      publicobject.com,*/
+/*                                                     O'Dell Engineering Ltd.*/
+package ca.odell.glazedlists;
+
+import ca.odell.glazedlists.impl.testing.ListConsistencyListener;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Make sure the snapshots of a {@link SnapshotList} don't change.
+ */
+public class SnapshotListTest {
+
+    /**
+     * Tests that every snapshot keeps the contents it was taken with, through
+     * random changes that grow and shrink the list.
+     */
+    @Test
+    public void testSnapshotsDontChange() {
+        final Random dice = new Random(17);
+        final EventList<Integer> source = new BasicEventList<Integer>();
+        for(int i = 0; i < 500; i++) source.add(new Integer(dice.nextInt(1000)));
+
+        final SnapshotList<Integer> snapshots = new SnapshotList<Integer>(source);
+        ListConsistencyListener.install(snapshots);
+
+        final List<SnapshotList.Snapshot<Integer>> taken = new ArrayList<SnapshotList.Snapshot<Integer>>();
+        final List<List<Integer>> expected = new ArrayList<List<Integer>>();
+        for(int i = 0; i < 3000; i++) {
+            final int operation = dice.nextInt(10);
+            // grow for a while, then shrink
+            final boolean growing = (i / 1000) % 2 == 0;
+            if(source.isEmpty() || operation < (growing ? 5 : 2)) {
+                source.add(dice.nextInt(source.size() + 1), new Integer(dice.nextInt(1000)));
+            } else if(operation < 8) {
+                source.remove(dice.nextInt(source.size()));
+            } else {
+                source.set(dice.nextInt(source.size()), new Integer(dice.nextInt(1000)));
+            }
+
+            if(i % 50 == 0) {
+                taken.add(snapshots.getSnapshot());
+                expected.add(new ArrayList<Integer>(source));
+            }
+        }
+
+        // big changes in a single event
+        source.addAll(100, new ArrayList<Integer>(source));
+        source.subList(50, 400).clear();
+        assertEquals(source, snapshots.getSnapshot());
+        assertEquals(source, snapshots);
+
+        long version = 0;
+        for(int s = 0; s < taken.size(); s++) {
+            assertEquals(expected.get(s), taken.get(s));
+            assertEquals(expected.get(s), new ArrayList<Integer>(taken.get(s)));
+            assertTrue(taken.get(s).getVersion() > version);
+            version = taken.get(s).getVersion();
+        }
+    }
+
+    /**
+     * Tests that reordering the source is reflected by the next snapshot.
+     */
+    @Test
+    public void testReorder() {
+        final EventList<String> source = GlazedLists.eventListOf("d", "a", "c", "b");
+        final SortedList<String> sorted = new SortedList<String>(source, null);
+        final SnapshotList<String> snapshots = new SnapshotList<String>(sorted);
+        final List<String> before = snapshots.getSnapshot();
+
+        sorted.setComparator(GlazedLists.<String>comparableComparator());
+        assertEquals(GlazedLists.eventListOf("a", "b", "c", "d"), snapshots.getSnapshot());
+        assertEquals(GlazedLists.eventListOf("d", "a", "c", "b"), before);
+    }
+
+    /**
+     * Tests that readers can iterate snapshots without locking while a writer
+     * changes the source.
+     */
+    @Test
+    public void testReadersDontLock() throws InterruptedException {
+        final EventList<Integer> source = new BasicEventList<Integer>();
+        for(int i = 0; i < 1000; i++) source.add(new Integer(i));
+        final TransactionList<Integer> transactions = new TransactionList<Integer>(source);
+        final SnapshotList<Integer> snapshots = new SnapshotList<Integer>(transactions);
+
+        // the writer moves elements, in one event per move
+        final Thread writer = new Thread() {
+            @Override
+            public void run() {
+                final Random dice = new Random(5);
+                for(int i = 0; i < 20000; i++) {
+                    source.getReadWriteLock().writeLock().lock();
+                    try {
+                        transactions.beginEvent(true);
+                        final int from = dice.nextInt(transactions.size());
+                        final Integer moved = transactions.remove(from);
+                        transactions.add(dice.nextInt(transactions.size() + 1), moved);
+                        transactions.commitEvent();
+                    } finally {
+                        source.getReadWriteLock().writeLock().unlock();
+                    }
+                }
+            }
+        };
+
+        final List<String> failures = new ArrayList<String>();
+        final Thread reader = new Thread() {
+            @Override
+            public void run() {
+                while(writer.isAlive()) {
+                    final List<Integer> snapshot = snapshots.getSnapshot();
+                    long sum = 0;
+                    int count = 0;
+                    for(Integer value : snapshot) {
+                        sum += value.intValue();
+                        count++;
+                    }
+                    if(sum != 999 * 1000 / 2 || count != 1000) {
+                        synchronized(failures) {
+                            failures.add("sum=" + sum + ", count=" + count);
+                        }
+                    }
+                }
+            }
+        };
+
+        writer.start();
+        reader.start();
+        writer.join();
+        reader.join();
+        assertEquals(new ArrayList<String>(), failures);
+        assertEquals(source, snapshots.getSnapshot());
+    }
+}
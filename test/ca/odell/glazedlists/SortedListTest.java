@@ -1440,6 +1440,313 @@ public class SortedListTest {
         assertSame(theUnquestionableTruth, sortedList.get(6));
     }
 
+    /**
+     * Sorting a big list with many duplicates in one go must produce the same
+     * order as sorting it one element at a time, ties broken by source order.
+     */
+    @Test
+    public void testBulkSortMatchesIncrementalSort() {
+        List<Integer> values = new ArrayList<Integer>();
+        for(int i = 0; i < 1000; i++) {
+            values.add(Integer.valueOf(random.nextInt(50)));
+        }
+        Comparator<Integer> byTens = new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return a.intValue() / 10 - b.intValue() / 10;
+            }
+        };
+
+        // sorted incrementally as values are added
+        BasicEventList<Integer> incrementalSource = new BasicEventList<Integer>();
+        SortedList<Integer> incremental = new SortedList<Integer>(incrementalSource, byTens);
+        incrementalSource.addAll(values);
+
+        // sorted in bulk on construction
+        BasicEventList<Integer> bulkSource = new BasicEventList<Integer>(values);
+        SortedList<Integer> bulk = new SortedList<Integer>(bulkSource, byTens);
+        assertEquals(incremental, bulk);
+
+        // sorted in bulk on a change of comparator
+        SortedList<Integer> resorted = new SortedList<Integer>(bulkSource, null);
+        ListConsistencyListener.install(resorted);
+        assertEquals(values, resorted);
+        resorted.setComparator(byTens);
+        assertEquals(incremental, resorted);
+        for(int i = 0; i < resorted.size(); i++) {
+            assertEquals(resorted.get(i), bulkSource.get(resorted.getSourceIndex(i)));
+        }
+        resorted.setComparator(null);
+        assertEquals(values, resorted);
+    }
+
+    /**
+     * Updates that don't change an element's sort key shall not need the
+     * comparator, and updates that do shall still move the element.
+     */
+    @Test
+    public void testSortKeyFunction() {
+        BasicEventList<Song> songs = new BasicEventList<Song>();
+        songs.add(new Song("Metallica", "Battery"));
+        songs.add(new Song("Abba", "Waterloo"));
+        songs.add(new Song("Queen", "Bicycle Race"));
+        CountingComparator comparator = new CountingComparator();
+        SortedList<Song> sortedSongs = new SortedList<Song>(songs, comparator);
+        ListConsistencyListener<Song> listConsistencyListener = ListConsistencyListener.install(sortedSongs);
+        listConsistencyListener.setPreviousElementTracked(false);
+        sortedSongs.setSortKeyFunction(new ArtistFunction());
+
+        // a new song by the same artist doesn't need to be compared
+        comparator.count = 0;
+        songs.set(0, new Song("Metallica", "Enter Sandman"));
+        assertEquals(0, comparator.count);
+        assertEquals(1, listConsistencyListener.getEventCount());
+        assertEquals(1, listConsistencyListener.getChangeCount(0));
+        assertEquals("Enter Sandman", sortedSongs.get(1).getSong());
+
+        // but a new artist moves the song
+        songs.set(1, new Song("Slayer", "Waterloo"));
+        assertTrue(comparator.count > 0);
+        assertEquals("Slayer", sortedSongs.get(2).getArtist());
+        assertEquals(2, listConsistencyListener.getEventCount());
+
+        // the keys follow inserts, deletes and reorders
+        songs.add(0, new Song("Beatles", "Help"));
+        songs.remove(2);
+        assertEquals("Beatles", sortedSongs.get(0).getArtist());
+        sortedSongs.setComparator(GlazedLists.reverseComparator(comparator));
+        assertNull(sortedSongs.getSortKeyFunction());
+        sortedSongs.setSortKeyFunction(new ArtistFunction());
+        comparator.count = 0;
+        songs.set(0, new Song("Beatles", "Yesterday"));
+        assertEquals(0, comparator.count);
+        assertEquals("Yesterday", sortedSongs.get(sortedSongs.size() - 1).getSong());
+        sortedSongs.setSortKeyFunction(null);
+        songs.set(0, new Song("Beatles", "Let It Be"));
+        assertTrue(comparator.count > 0);
+    }
+
+    /**
+     * Sorting by cached sort keys shall extract each key only once, and never
+     * compare the elements themselves.
+     */
+    @Test
+    public void testSortKeyComparator() {
+        BasicEventList<Song> songs = new BasicEventList<Song>();
+        songs.add(new Song("Metallica", "Battery"));
+        songs.add(new Song("Abba", "Waterloo"));
+        songs.add(new Song("Queen", "Bicycle Race"));
+        songs.add(new Song("Abba", "Fernando"));
+        CountingComparator comparator = new CountingComparator();
+        ArtistFunction artist = new ArtistFunction();
+        SortedList<Song> sortedSongs = new SortedList<Song>(songs, null);
+        ListConsistencyListener.install(sortedSongs);
+        sortedSongs.setComparator(comparator, artist, GlazedLists.comparableComparator());
+        assertEquals(0, comparator.count);
+        assertEquals(4, artist.count);
+        assertSame(comparator, sortedSongs.getComparator());
+        assertEquals("Waterloo", sortedSongs.get(0).getSong());
+        assertEquals("Fernando", sortedSongs.get(1).getSong());
+        assertEquals("Queen", sortedSongs.get(3).getArtist());
+
+        // keys are only extracted for changed elements
+        artist.count = 0;
+        songs.set(0, new Song("ZZ Top", "Tush"));
+        songs.add(new Song("Beatles", "Help"));
+        assertEquals(0, comparator.count);
+        assertEquals(2, artist.count);
+        assertEquals("ZZ Top", sortedSongs.get(4).getArtist());
+        assertEquals("Beatles", sortedSongs.get(2).getArtist());
+
+        // the element comparator is used to find objects
+        assertEquals(2, sortedSongs.sortIndex(new Song("Beatles", "Yesterday")));
+        assertEquals(1, sortedSongs.indexOf(new Song("Abba", "Fernando")));
+
+        // a reorder moves the keys with their elements
+        SortedList<Song> upstream = new SortedList<Song>(songs, null);
+        SortedList<Song> downstream = new SortedList<Song>(upstream, null);
+        downstream.setComparator(comparator, artist, GlazedLists.reverseComparator());
+        upstream.setComparator(comparator);
+        songs.set(1, new Song("Aerosmith", "Dream On"));
+        assertEquals("ZZ Top", downstream.get(0).getArtist());
+        assertEquals("Aerosmith", downstream.get(3).getArtist());
+        assertEquals("Abba", downstream.get(4).getArtist());
+
+        try {
+            sortedSongs.setComparator(null, artist, GlazedLists.comparableComparator());
+            fail();
+        } catch(IllegalArgumentException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Objects that are looked up in a SortedList with sort keys shall be
+     * compared by the element comparator, so they needn't be elements.
+     */
+    @Test
+    public void testSortKeyComparatorLookups() {
+        EventList<String> source = GlazedLists.eventListOf("Kevin", "James", "Jesse", "Holger");
+        SortedList<String> sorted = new SortedList<String>(source, null);
+        Comparator<Object> byText = new Comparator<Object>() {
+            @Override
+            public int compare(Object a, Object b) {
+                return a.toString().compareTo(b.toString());
+            }
+        };
+        FunctionList.Function<String,String> identity = new FunctionList.Function<String,String>() {
+            @Override
+            public String evaluate(String value) {
+                return value;
+            }
+        };
+        sorted.setComparator(byText, identity, GlazedLists.comparableComparator());
+        assertEquals(GlazedLists.eventListOf("Holger", "James", "Jesse", "Kevin"), sorted);
+
+        assertEquals(2, sorted.indexOf("Jesse"));
+
+        // probes of another type are found, but aren't equal to any element
+        assertEquals(1, sorted.sortIndex(new StringBuilder("James")));
+        assertEquals(3, sorted.sortIndex(new StringBuilder("Jim")));
+        assertEquals(3, sorted.lastSortIndex(new StringBuilder("Kevin")));
+        assertEquals(-1, sorted.indexOf(new StringBuilder("James")));
+        assertFalse(sorted.contains(new StringBuilder("Holger")));
+    }
+
+    /**
+     * A sort prepared on another thread shall be applied as a single reorder,
+     * unless the source changed or the sort was cancelled in the meantime.
+     */
+    @Test
+    public void testBackgroundSort() {
+        BasicEventList<Song> songs = new BasicEventList<Song>();
+        songs.add(new Song("Metallica", "Battery"));
+        songs.add(new Song("Abba", "Waterloo"));
+        songs.add(new Song("Queen", "Bicycle Race"));
+        songs.add(new Song("Abba", "Fernando"));
+        CountingComparator comparator = new CountingComparator();
+        ArtistFunction artist = new ArtistFunction();
+        SortedList<Song> sortedSongs = new SortedList<Song>(songs, null);
+        ListConsistencyListener<Song> listConsistencyListener = ListConsistencyListener.install(sortedSongs);
+        listConsistencyListener.setPreviousElementTracked(false);
+
+        // the list doesn't change until the finished sort is applied
+        SortedList.BackgroundSort<Song> sort = sortedSongs.prepareSort(comparator, artist, GlazedLists.comparableComparator());
+        assertFalse(sort.isDone());
+        assertFalse(sortedSongs.applySort(sort));
+        sort.run();
+        assertTrue(sort.isDone());
+        assertEquals(0, listConsistencyListener.getEventCount());
+        assertEquals("Metallica", sortedSongs.get(0).getArtist());
+        assertTrue(sortedSongs.applySort(sort));
+        assertEquals(1, listConsistencyListener.getEventCount());
+        assertTrue(listConsistencyListener.isReordering(0));
+        assertSame(comparator, sortedSongs.getComparator());
+        assertEquals(0, comparator.count);
+        assertEquals(4, artist.count);
+        assertEquals("Abba", sortedSongs.get(0).getArtist());
+        assertEquals("Queen", sortedSongs.get(3).getArtist());
+
+        // the keys are used for later changes
+        artist.count = 0;
+        songs.add(new Song("Beatles", "Help"));
+        assertEquals(1, artist.count);
+        assertEquals("Beatles", sortedSongs.get(2).getArtist());
+
+        // a sort of an outdated source is rejected
+        sort = sortedSongs.prepareSort(GlazedLists.reverseComparator(comparator), null, null);
+        songs.add(new Song("ZZ Top", "Tush"));
+        sort.run();
+        assertTrue(sort.isDone());
+        assertFalse(sortedSongs.applySort(sort));
+        assertSame(comparator, sortedSongs.getComparator());
+        assertEquals("ZZ Top", sortedSongs.get(5).getArtist());
+
+        // so is a cancelled sort
+        sort = sortedSongs.prepareSort(GlazedLists.reverseComparator(comparator), null, null);
+        sort.cancel();
+        sort.run();
+        assertTrue(sort.isCancelled());
+        assertFalse(sort.isDone());
+        assertFalse(sortedSongs.applySort(sort));
+
+        // and one prepared by another list
+        sort = new SortedList<Song>(songs, null).prepareSort(comparator, null, null);
+        sort.run();
+        assertFalse(sortedSongs.applySort(sort));
+        assertEquals("Abba", sortedSongs.get(0).getArtist());
+    }
+
+    /**
+     * A SortedList with a sort key function shall behave exactly like one
+     * without it, for any sequence of changes.
+     */
+    @Test
+    public void testSortKeyFunctionRandomChanges() {
+        BasicEventList<Integer> source = new BasicEventList<Integer>();
+        SortedList<Integer> upstream = new SortedList<Integer>(source, null);
+        Comparator<Integer> byTens = new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return a.intValue() / 10 - b.intValue() / 10;
+            }
+        };
+        SortedList<Integer> expected = new SortedList<Integer>(upstream, byTens);
+        FunctionList.Function<Integer,Integer> tens = new FunctionList.Function<Integer,Integer>() {
+            @Override
+            public Integer evaluate(Integer value) {
+                return Integer.valueOf(value.intValue() / 10);
+            }
+        };
+        SortedList<Integer> keyed = new SortedList<Integer>(upstream, byTens);
+        keyed.setSortKeyFunction(tens);
+        ListConsistencyListener.install(keyed);
+        SortedList<Integer> keyCompared = new SortedList<Integer>(upstream, null);
+        keyCompared.setComparator(byTens, tens, GlazedLists.comparableComparator());
+        ListConsistencyListener.install(keyCompared);
+
+        for(int i = 0; i < 500; i++) {
+            int operation = random.nextInt(5);
+            if(operation == 0 || source.isEmpty()) {
+                source.add(random.nextInt(source.size() + 1), Integer.valueOf(random.nextInt(100)));
+            } else if(operation == 1) {
+                source.remove(random.nextInt(source.size()));
+            } else if(operation == 2 && i % 25 == 0) {
+                upstream.setComparator(random.nextBoolean() ? GlazedLists.comparableComparator() : null);
+            } else {
+                int index = random.nextInt(source.size());
+                int value = source.get(index).intValue();
+                source.set(index, Integer.valueOf(random.nextBoolean() ? value / 10 * 10 + random.nextInt(10) : random.nextInt(100)));
+            }
+            assertEquals(expected, keyed);
+            assertEquals(expected, keyCompared);
+        }
+    }
+
+    /**
+     * Orders {@link Song}s by artist, counting the comparisons made.
+     */
+    private static class CountingComparator implements Comparator<Song> {
+        int count = 0;
+        @Override
+        public int compare(Song a, Song b) {
+            count++;
+            return a.getArtist().compareTo(b.getArtist());
+        }
+    }
+
+    /**
+     * Gets the artist of a {@link Song}.
+     */
+    private static class ArtistFunction implements FunctionList.Function<Song,String> {
+        int count = 0;
+        @Override
+        public String evaluate(Song song) {
+            count++;
+            return song.getArtist();
+        }
+    }
+
     /** test a sorted list for equality */
     public void assertSortedEquals(List<Comparable> unsorted, SortedList sorted) {
         // create a protective copy to muck with
@@ -799,6 +799,24 @@ public class UniqueListTest {
         assertEquals(uniqueList, controlList);
     }
 
+    /**
+     * Tests that a reordering of the source that only moves duplicates is
+     * forwarded as updates of the unique values whose first duplicate changed.
+     */
+    @Test
+    public void testReorderWithinGroups() {
+        EventList<String> source = GlazedLists.eventListOf("Bob", "Alice", "Barry", "Carl", "Anne");
+        SortedList<String> sortedSource = new SortedList<String>(source, null);
+        UniqueList<String> uniqueList = new UniqueList<String>(sortedSource, GlazedListsTests.getFirstLetterComparator());
+        ListConsistencyListener<String> listConsistencyListener = ListConsistencyListener.install(uniqueList);
+        listConsistencyListener.setPreviousElementTracked(true);
+        assertEquals(GlazedListsTests.delimitedStringToList("Alice Bob Carl"), uniqueList);
+
+        sortedSource.setComparator(GlazedLists.reverseComparator());
+        assertEquals(GlazedListsTests.delimitedStringToList("Anne Bob Carl"), uniqueList);
+        assertEquals(1, listConsistencyListener.getEventCount());
+        assertEquals(1, listConsistencyListener.getChangeCount(0));
+    }
 
     /** Test response to an UPDATE event  */
 
@@ -95,6 +95,7 @@ public class ListBlocksLinearTest {
         listBlocks = new BlockSequence();
         assertTrue(listBlocks.insert(0, 2));
         assertTrue(listBlocks.insert(2, 3));
+        assertTrue(listBlocks.update(4, 5));
         assertFalse(listBlocks.insert(2, 3));
 
         listBlocks = new BlockSequence();
@@ -138,6 +139,35 @@ public class ListBlocksLinearTest {
         assertFalse(listBlocks.update(1, 2));
     }
 
+    /**
+     * Test that inserts at the start, the end or the middle of the most recent
+     * block of inserts grow that block, so appends and prepends make one block.
+     */
+    @Test
+    public void testInsertsExtendBlock() {
+        BlockSequence<String> listBlocks = new BlockSequence<String>();
+        assertTrue(listBlocks.addChange(ListEvent.INSERT, 5, 6, null, "a"));
+        assertTrue(listBlocks.addChange(ListEvent.INSERT, 5, 6, null, "b"));
+        assertTrue(listBlocks.addChange(ListEvent.INSERT, 7, 8, null, "c"));
+        assertTrue(listBlocks.addChange(ListEvent.INSERT, 6, 8, null, "d"));
+
+        BlockSequence.Iterator iterator = listBlocks.iterator();
+        assertNextBlock(5, 10, ListEvent.INSERT, iterator);
+        assertEquals(false, iterator.hasNextBlock());
+
+        // inserts before the block are still out of order
+        assertFalse(listBlocks.insert(4, 5));
+
+        // prepending many elements
+        listBlocks = new BlockSequence<String>();
+        for(int i = 0; i < 1000; i++) {
+            assertTrue(listBlocks.insert(0, 1));
+        }
+        iterator = listBlocks.iterator();
+        assertNextBlock(0, 1000, ListEvent.INSERT, iterator);
+        assertEquals(false, iterator.hasNextBlock());
+    }
+
     /**
      * Test we can iterate the BlockSequence one block at a time.
      */
@@ -163,6 +193,11 @@ public class ListBlocksLinearTest {
         assertNextBlock(8, 10, ListEvent.INSERT, iterator);
         assertNextBlock(10, 12, ListEvent.UPDATE, iterator);
         assertEquals(false, iterator.hasNextBlock());
+
+        // a reset iterator starts over from the first block
+        iterator.reset();
+        assertNextBlock(0, 4, ListEvent.INSERT, iterator);
+        assertNext(1, ListEvent.INSERT, iterator);
     }
 
     public static final void assertNext(int index, int type, BlockSequence.Iterator iterator) {
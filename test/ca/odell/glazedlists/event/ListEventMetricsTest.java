@@ -0,0 +1,123 @@
+/* Glazed Lists                                                 (c) 2003-2014 */
+/* http://publicobject.com/glazedlists/                      publicobject.com,*/
+/*                                                     O'Dell Engineering Ltd.*/
+package ca.odell.glazedlists.event;
+
+import ca.odell.glazedlists.BasicEventList;
+import ca.odell.glazedlists.EventList;
+import ca.odell.glazedlists.FilterList;
+import ca.odell.glazedlists.GlazedLists;
+import ca.odell.glazedlists.SortedList;
+import ca.odell.glazedlists.impl.testing.GlazedListsTests;
+import ca.odell.glazedlists.matchers.Matcher;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Make sure {@link ListEventMetrics} times each list in a pipeline.
+ */
+public class ListEventMetricsTest {
+
+    /**
+     * Tests that each list's events are counted, and the slowest list comes first.
+     */
+    @Test
+    public void testListenerMetrics() {
+        final EventList<Integer> source = new BasicEventList<Integer>();
+        final FilterList<Integer> evens = new FilterList<Integer>(source, new SlowEvenMatcher());
+        final SortedList<Integer> sorted = new SortedList<Integer>(evens, GlazedLists.<Integer>comparableComparator());
+
+        final ListEventMetrics metrics = new ListEventMetrics();
+        ListEventAssembler.setMonitor(source.getPublisher(), metrics);
+        assertSame(metrics, ListEventAssembler.getMonitor(source.getPublisher()));
+
+        source.addAll(GlazedListsTests.intArrayToIntegerCollection(new int[] {4, 5, 6, 7}));
+        source.add(new Integer(8));
+        source.remove(1);
+        source.add(new Integer(9));
+
+        final ListenerMetrics evensMetrics = metrics.getListenerMetrics(evens);
+        assertEquals(4, evensMetrics.getEventCount());
+        assertEquals(4, evensMetrics.getBlockCount());
+        assertEquals(7, evensMetrics.getElementCount());
+        assertTrue(evensMetrics.getMaxNanos() >= 1000000);
+        assertTrue(evensMetrics.getTotalNanos() >= evensMetrics.getMaxNanos());
+        assertTrue(evensMetrics.getName().startsWith("FilterList@"));
+
+        // the sorted list only hears about the even elements
+        final ListenerMetrics sortedMetrics = metrics.getListenerMetrics(sorted);
+        assertEquals(2, sortedMetrics.getEventCount());
+        assertEquals(3, sortedMetrics.getElementCount());
+
+        long histogramTotal = 0;
+        for(long count : evensMetrics.getLatencyHistogram()) histogramTotal += count;
+        assertEquals(4, histogramTotal);
+
+        // the filter is the bottleneck
+        final List<ListenerMetrics> slowestFirst = metrics.getListenerMetrics();
+        assertSame(evensMetrics, slowestFirst.get(0));
+
+        metrics.reset();
+        assertEquals(0, evensMetrics.getEventCount());
+        assertEquals(0, evensMetrics.getTotalNanos());
+
+        // unmonitored events aren't recorded
+        ListEventAssembler.setMonitor(source.getPublisher(), null);
+        source.add(new Integer(10));
+        assertEquals(0, evensMetrics.getEventCount());
+
+        metrics.clear();
+        assertNull(metrics.getListenerMetrics(evens));
+    }
+
+    /**
+     * Tests that the metrics of each listener can be read as an MXBean.
+     */
+    @Test
+    public void testMBeans() throws Exception {
+        final EventList<Integer> source = new BasicEventList<Integer>();
+        final SortedList<Integer> sorted = new SortedList<Integer>(source, GlazedLists.<Integer>comparableComparator());
+        final ListEventMetrics metrics = new ListEventMetrics();
+        ListEventAssembler.setMonitor(source.getPublisher(), metrics);
+
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        metrics.registerMBeans(server, "ca.odell.glazedlists.test");
+        try {
+            source.add(new Integer(1));
+            source.add(new Integer(2));
+
+            final String name = metrics.getListenerMetrics(sorted).getName();
+            final ObjectName objectName = new ObjectName("ca.odell.glazedlists.test:type=ListenerMetrics,name=" + ObjectName.quote(name));
+            assertEquals(Long.valueOf(2), server.getAttribute(objectName, "EventCount"));
+            assertEquals(Long.valueOf(2), server.getAttribute(objectName, "ElementCount"));
+
+            metrics.unregisterMBeans();
+            assertFalse(server.isRegistered(objectName));
+        } finally {
+            metrics.unregisterMBeans();
+        }
+    }
+
+    /**
+     * Matches even numbers, slowly.
+     */
+    private static class SlowEvenMatcher implements Matcher<Integer> {
+        @Override
+        public boolean matches(Integer item) {
+            try {
+                Thread.sleep(1);
+            } catch(InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return item.intValue() % 2 == 0;
+        }
+    }
+}
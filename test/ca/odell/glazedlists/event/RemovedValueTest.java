@@ -51,6 +51,56 @@ public class RemovedValueTest {
         assertEquals(GlazedListsTests.stringToList("ADSSGLZLT"), removedValuesListener.deleteLog);
     }
 
+    /**
+     * Tests that the retention policy of the publisher decides whether deleted
+     * elements are kept.
+     */
+    @Test
+    public void testOldValueRetention() {
+        EventList<String> source = new BasicEventList<String>();
+        source.addAll(GlazedListsTests.stringToList("GLAZEDLISTS"));
+        RemovedValuesListener<String> removedValuesListener = new RemovedValuesListener<String>();
+        source.addListEventListener(removedValuesListener);
+        assertEquals(OldValueRetention.ALL, ListEventAssembler.getOldValueRetention(source.getPublisher()));
+
+        ListEventAssembler.setOldValueRetention(source.getPublisher(), OldValueRetention.NONE);
+        source.remove("G");
+        source.subList(0, 2).clear();
+        assertEquals(GlazedListsTests.stringToList("???"), unknownsToQuestionMarks(removedValuesListener.deleteLog));
+
+        // only kept while a listener declares it reads them
+        ListEventAssembler.setOldValueRetention(source.getPublisher(), OldValueRetention.DECLARED);
+        source.remove("Z");
+        OldValuesListener<String> oldValuesListener = new OldValuesListener<String>();
+        source.addListEventListener(oldValuesListener);
+        source.remove("E");
+        source.removeListEventListener(oldValuesListener);
+        source.remove("D");
+        assertEquals(GlazedListsTests.stringToList("????E?"), unknownsToQuestionMarks(removedValuesListener.deleteLog));
+
+        ListEventAssembler.setOldValueRetention(source.getPublisher(), OldValueRetention.ALL);
+        source.remove("T");
+        assertEquals(GlazedListsTests.stringToList("????E?T"), unknownsToQuestionMarks(removedValuesListener.deleteLog));
+    }
+
+    private static List<String> unknownsToQuestionMarks(List<String> values) {
+        final List<String> result = new ArrayList<String>();
+        for(String value : values) {
+            result.add(value == ListEvent.UNKNOWN_VALUE ? "?" : value);
+        }
+        return result;
+    }
+
+    /**
+     * A listener that declares it reads the deleted elements.
+     */
+    static class OldValuesListener<E> implements OldValueListener<E> {
+        @Override
+        public void listChanged(ListEvent<E> listChanges) {
+            // nothing to do
+        }
+    }
+
     /**
      * Record the deleted elements as they happen.
      */
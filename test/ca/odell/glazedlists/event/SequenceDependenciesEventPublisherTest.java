@@ -6,13 +6,25 @@ package ca.odell.glazedlists.event;
 import ca.odell.glazedlists.*;
 import ca.odell.glazedlists.impl.testing.GlazedListsTests;
 import ca.odell.glazedlists.impl.testing.ListConsistencyListener;
+import ca.odell.glazedlists.matchers.Matcher;
+import ca.odell.glazedlists.matchers.Matchers;
 import org.junit.Test;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 /**
@@ -271,6 +283,74 @@ public class SequenceDependenciesEventPublisherTest {
     }
 
 
+    /**
+     * Listeners added in a random order must be reordered so that every
+     * listener is notified after the subjects it depends on.
+     */
+    @Test
+    public void testRandomDependencyGraphs() {
+        final Random dice = new Random(17);
+        final SequenceDependenciesEventPublisher publisher = new SequenceDependenciesEventPublisher();
+        final DependentSubjectListener[] subjects = new DependentSubjectListener[40];
+        for(int i = 0; i < subjects.length; i++) {
+            subjects[i] = new DependentSubjectListener("" + i, publisher);
+        }
+
+        for(int i = 0; i < 500; i++) {
+            final int a = dice.nextInt(subjects.length);
+            final int b = dice.nextInt(subjects.length);
+            if(a == b) continue;
+            final DependentSubjectListener upstream = subjects[Math.min(a, b)];
+            final DependentSubjectListener downstream = subjects[Math.max(a, b)];
+
+            if(dice.nextInt(3) == 0 && !upstream.downstreamListeners.isEmpty()) {
+                // remove a listener
+                final DependentSubjectListener removed = upstream.downstreamListeners.remove(dice.nextInt(upstream.downstreamListeners.size()));
+                removed.upstreamSubjects.remove(upstream);
+                publisher.removeListener(upstream, removed);
+
+            } else if(dice.nextInt(5) == 0) {
+                // listening upstream is only a cycle if there's a path already
+                final int upstreamRevision = upstream.latestRevision;
+                try {
+                    downstream.addListener(upstream);
+                    downstream.downstreamListeners.remove(upstream);
+                    upstream.upstreamSubjects.remove(downstream);
+                    publisher.removeListener(downstream, upstream);
+                } catch(IllegalStateException e) {
+                    downstream.downstreamListeners.remove(upstream);
+                    upstream.upstreamSubjects.remove(downstream);
+                }
+                upstream.latestRevision = upstreamRevision;
+
+            } else {
+                // add a listener, and bring everything downstream up to date
+                upstream.addListener(downstream);
+                incrementToLatest(subjects, upstream);
+            }
+
+            incrementToLatest(subjects, subjects[dice.nextInt(subjects.length)]);
+        }
+
+        // every subject is still connected in a valid order
+        for(int i = 0; i < subjects.length; i++) {
+            incrementToLatest(subjects, subjects[i]);
+            subjects[i].assertDependenciesSatisfiedRecursively(subjects[i]);
+        }
+    }
+
+    /**
+     * Increment the specified subject beyond the revision of every subject, so
+     * that all of its listeners must be updated.
+     */
+    private static void incrementToLatest(DependentSubjectListener[] subjects, DependentSubjectListener subject) {
+        int latestRevision = 0;
+        for(int i = 0; i < subjects.length; i++) {
+            latestRevision = Math.max(latestRevision, subjects[i].latestRevision);
+        }
+        subject.increment(latestRevision + 1 - subject.latestRevision);
+    }
+
     /**
      * An interesting subject that uses a single integer to maintain state. The
      * integer can increase at any subject, and  all downstream listeners must
@@ -535,6 +615,58 @@ public class SequenceDependenciesEventPublisherTest {
         assertEquals(10, e.latestRevision);
     }
 
+    /**
+     * Test that a related subject set after its listener was added reorders
+     * the listener, as does clearing it.
+     */
+    @Test
+    public void testRelatedSubjectsSetLater() {
+        SequenceDependenciesEventPublisher publisher = new SequenceDependenciesEventPublisher();
+        DetachedSubject a = new DetachedSubject("A", publisher);
+        DetachedSubject b = new DetachedSubject("B", publisher);
+        DetachedSubject c = new DetachedSubject("C", publisher);
+        DetachedSubject d = new DetachedSubject("D", publisher);
+        DetachedSubject e = new DetachedSubject("E", publisher);
+
+        DetachedSubject.Listener ab = a.addUnrelatedListener(b);
+        DetachedSubject.Listener ac = a.addUnrelatedListener(c);
+        DetachedSubject.Listener ad = a.addUnrelatedListener(d);
+        b.addListener(e);
+        c.addListener(e);
+        d.addListener(e);
+        publisher.setRelatedSubject(ab, b);
+        publisher.setRelatedSubject(ac, c);
+        publisher.setRelatedSubject(ad, d);
+
+        // changing a should impact e, but only after b, c, and d
+        a.increment(10);
+        assertEquals(10, b.latestRevision);
+        assertEquals(10, c.latestRevision);
+        assertEquals(10, d.latestRevision);
+        assertEquals(10, e.latestRevision);
+        assertEquals(3, publisher.getListeners(a).size());
+
+        // a listener whose related subject is cleared is still registered
+        publisher.clearRelatedSubject(ab);
+        assertEquals(3, publisher.getListeners(a).size());
+        publisher.removeListener(a, ab);
+        publisher.removeListener(a, ac);
+        publisher.removeListener(a, ad);
+        assertEquals(0, publisher.getListeners(a).size());
+
+        // relating a listener to a subject upstream of its own subject is a cycle
+        DetachedSubject.Listener ea = e.addUnrelatedListener(a);
+        try {
+            publisher.setRelatedSubject(ea, b);
+            fail();
+        } catch(IllegalStateException expected) {
+            // expected
+        }
+        assertEquals(1, publisher.getListeners(e).size());
+        publisher.setRelatedSubject(ea, a);
+        assertEquals(1, publisher.getListeners(e).size());
+    }
+
     /**
      * A subject that listens to another subject via an inner listener class.
      * This is used to test that listener identity is not required.
@@ -559,6 +691,15 @@ public class SequenceDependenciesEventPublisherTest {
             publisher.setRelatedSubject(innerListener, innerListener.subject);
             publisher.addListener(this, innerListener, DetachedSubjectAndListenerEventFormat.INSTANCE);
         }
+        /**
+         * Add a listener without relating it to the listening subject.
+         */
+        public Listener addUnrelatedListener(DetachedSubject listener) {
+            listener.upstreamSubjects.add(this);
+            Listener innerListener = new Listener(listener);
+            publisher.addListener(this, innerListener, DetachedSubjectAndListenerEventFormat.INSTANCE);
+            return innerListener;
+        }
         public void increment(int amount) {
             this.latestRevision += amount;
             publisher.fireEvent(this, new Integer(this.latestRevision), DetachedSubjectAndListenerEventFormat.INSTANCE);
@@ -617,6 +758,210 @@ public class SequenceDependenciesEventPublisherTest {
      * Test that the ListEvent iterator isn't adjusted by calling
      * {@link ListEventAssembler#forwardEvent}.
      */
+    /**
+     * Make sure that events only visit the listeners of the lists that changed,
+     * and the listeners of those listeners.
+     */
+    @Test
+    public void testEventsOnlyVisitAffectedListeners() {
+        final ListEventPublisher publisher = ListEventAssembler.createListEventPublisher();
+        final ListEventPublisherStatistics statistics = ListEventAssembler.getStatistics(publisher);
+        final EventList<String> busy = new BasicEventList<String>(publisher, null);
+        final EventList<String> quiet = new BasicEventList<String>(publisher, busy.getReadWriteLock());
+
+        // lots of listeners on one branch, and a short chain on the other
+        final List<FilterList<String>> filterLists = new ArrayList<FilterList<String>>();
+        for(int i = 0; i < 100; i++) {
+            filterLists.add(new FilterList<String>(busy));
+        }
+        final SortedList<String> sorted = SortedList.create(quiet);
+        final ListConsistencyListener<String> listConsistencyListener = ListConsistencyListener.install(sorted);
+
+        statistics.reset();
+        quiet.add("B");
+        quiet.add("A");
+        assertEquals(2, statistics.getEventCount());
+        assertEquals(2, statistics.getLastVisitedListenerCount());
+        assertEquals(4, statistics.getVisitedListenerCount());
+        assertEquals(2, statistics.getMaxVisitedListenerCount());
+        assertEquals(2.0, statistics.getAverageVisitedListenerCount(), 0.0);
+        assertEquals(GlazedListsTests.stringToList("AB"), sorted);
+        assertEquals(2, listConsistencyListener.getEventCount());
+
+        busy.add("C");
+        assertEquals(100, statistics.getLastVisitedListenerCount());
+        assertEquals(3, statistics.getEventCount());
+        for(int i = 0; i < filterLists.size(); i++) {
+            assertEquals(GlazedListsTests.stringToList("C"), filterLists.get(i));
+        }
+
+        // disposed listeners are no longer visited
+        for(int i = 0; i < filterLists.size(); i++) {
+            filterLists.get(i).dispose();
+        }
+        busy.add("D");
+        assertEquals(0, statistics.getLastVisitedListenerCount());
+        assertEquals(100, statistics.getMaxVisitedListenerCount());
+    }
+
+    /**
+     * Make sure that independent branches of a pipeline are notified on
+     * different threads, and that branches that share a listener aren't.
+     */
+    @Test
+    public void testConcurrentBranches() throws InterruptedException {
+        final ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            final ListEventPublisher publisher = ListEventAssembler.createListEventPublisher(executor);
+            final BasicEventList<Integer> source = new BasicEventList<Integer>(publisher, null);
+
+            // a filtered and sorted branch per desk
+            final Map<Object,Thread> notifyingThreads = Collections.synchronizedMap(new IdentityHashMap<Object,Thread>());
+            final List<SortedList<Integer>> desks = new ArrayList<SortedList<Integer>>();
+            final List<ListConsistencyListener<Integer>> listConsistencyListeners = new ArrayList<ListConsistencyListener<Integer>>();
+            for(int d = 0; d < 6; d++) {
+                final FilterList<Integer> filtered = new FilterList<Integer>(source, new ModuloMatcher(d + 1));
+                final SortedList<Integer> sorted = new SortedList<Integer>(filtered, GlazedLists.reverseComparator());
+                sorted.addListEventListener(new ThreadRecorder<Integer>(sorted, notifyingThreads));
+                desks.add(sorted);
+                listConsistencyListeners.add(ListConsistencyListener.install(sorted));
+            }
+
+            // two more branches joined by a composite list
+            final CompositeList<Integer> composite = new CompositeList<Integer>(publisher, source.getReadWriteLock());
+            final FilterList<Integer> evens = new FilterList<Integer>(source, new ModuloMatcher(2));
+            final FilterList<Integer> odds = new FilterList<Integer>(source, Matchers.invert(new ModuloMatcher(2)));
+            evens.addListEventListener(new ThreadRecorder<Integer>(evens, notifyingThreads));
+            odds.addListEventListener(new ThreadRecorder<Integer>(odds, notifyingThreads));
+            composite.addMemberList(evens);
+            composite.addMemberList(odds);
+
+            // only big changes are notified in parallel, so mix big and small ones
+            ListEventAssembler.getStatistics(publisher).reset();
+            final Random dice = new Random(5);
+            for(int i = 0; i < 200; i++) {
+                notifyingThreads.clear();
+                final int change = dice.nextInt(4);
+                if(source.size() < 1000 && change == 0) {
+                    final Integer[] values = new Integer[dice.nextInt(500) + 1];
+                    for(int v = 0; v < values.length; v++) values[v] = Integer.valueOf(dice.nextInt(100));
+                    source.insertRange(dice.nextInt(source.size() + 1), values);
+                } else if(source.size() > 100 && change == 1) {
+                    final int from = dice.nextInt(source.size());
+                    source.removeRange(from, from + dice.nextInt(source.size() - from + 1));
+                } else if(source.isEmpty() || change == 2) {
+                    source.add(Integer.valueOf(dice.nextInt(100)));
+                } else {
+                    source.set(dice.nextInt(source.size()), Integer.valueOf(dice.nextInt(100)));
+                }
+
+                // everything has been notified by the time the change returns
+                for(int d = 0; d < desks.size(); d++) {
+                    final List<Integer> expected = new ArrayList<Integer>();
+                    for(Integer value : source) {
+                        if(value.intValue() % (d + 1) == 0) expected.add(value);
+                    }
+                    Collections.sort(expected, Collections.reverseOrder());
+                    assertEquals(expected, desks.get(d));
+                }
+                assertEquals(source.size(), composite.size());
+                if(notifyingThreads.containsKey(evens) && notifyingThreads.containsKey(odds)) {
+                    assertSame(notifyingThreads.get(evens), notifyingThreads.get(odds));
+                }
+            }
+
+            // big changes that reach every desk are notified on more than one thread
+            notifyingThreads.clear();
+            final Integer[] sixties = new Integer[300];
+            Arrays.fill(sixties, Integer.valueOf(60));
+            source.insertRange(0, sixties);
+            assertEquals(7, notifyingThreads.size());
+            assertTrue(notifyingThreads.containsKey(evens));
+            assertTrue(notifyingThreads.containsValue(Thread.currentThread()));
+            assertTrue(new HashSet<Thread>(notifyingThreads.values()).size() > 1);
+            assertEquals(201, ListEventAssembler.getStatistics(publisher).getEventCount());
+
+            // but small ones aren't
+            notifyingThreads.clear();
+            source.add(Integer.valueOf(60));
+            assertEquals(7, notifyingThreads.size());
+            assertEquals(Collections.singleton(Thread.currentThread()), new HashSet<Thread>(notifyingThreads.values()));
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Make sure that an exception thrown on another thread is rethrown to the
+     * thread that changed the list, after all listeners have been notified.
+     */
+    @Test
+    public void testConcurrentBranchExceptions() {
+        final ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            final BasicEventList<String> source = new BasicEventList<String>(ListEventAssembler.createListEventPublisher(executor), null);
+            final FilterList<String> first = new FilterList<String>(source);
+            final FilterList<String> second = new FilterList<String>(source);
+            second.addListEventListener(new ListEventListener<String>() {
+                @Override
+                public void listChanged(ListEvent<String> listChanges) {
+                    throw new IllegalStateException("second");
+                }
+            });
+            final FilterList<String> third = new FilterList<String>(source);
+
+            final String[] values = new String[1000];
+            Arrays.fill(values, "A");
+            try {
+                source.insertRange(0, values);
+                fail("expected IllegalStateException");
+            } catch(IllegalStateException e) {
+                assertEquals("second", e.getMessage());
+            }
+            assertEquals(1000, first.size());
+            assertEquals(1000, second.size());
+            assertEquals(1000, third.size());
+
+            // the pipeline still works afterwards
+            third.dispose();
+            second.dispose();
+            source.removeRange(0, 999);
+            assertEquals(GlazedListsTests.stringToList("A"), first);
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Matches multiples of a number.
+     */
+    private static class ModuloMatcher implements Matcher<Integer> {
+        private final int divisor;
+        public ModuloMatcher(int divisor) {
+            this.divisor = divisor;
+        }
+        @Override
+        public boolean matches(Integer item) {
+            return item.intValue() % divisor == 0;
+        }
+    }
+
+    /**
+     * Records which thread notified a list's listeners.
+     */
+    private static class ThreadRecorder<E> implements ListEventListener<E> {
+        private final Object list;
+        private final Map<Object,Thread> notifyingThreads;
+        public ThreadRecorder(Object list, Map<Object,Thread> notifyingThreads) {
+            this.list = list;
+            this.notifyingThreads = notifyingThreads;
+        }
+        @Override
+        public void listChanged(ListEvent<E> listChanges) {
+            notifyingThreads.put(list, Thread.currentThread());
+        }
+    }
+
     @Test
     public void testEventStateAfterForwardEvent() {
         EventList<String> source = new BasicEventList<String>();
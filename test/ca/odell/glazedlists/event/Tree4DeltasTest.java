@@ -84,4 +84,36 @@ public class Tree4DeltasTest {
         assertEquals("u", deltas.getTargetValue(8));
         assertEquals(ListEvent.UNKNOWN_VALUE, deltas.getTargetValue(0));
     }
+
+    /**
+     * Make sure resetting reuses the tree and the iterator correctly.
+     */
+    @Test
+    public void testReset() {
+        Tree4Deltas<Object> deltas = new Tree4Deltas<Object>();
+        deltas.reset(10);
+        deltas.reset(4);
+        assertEquals("____", deltas.toString());
+        deltas.reset(6);
+        assertEquals("______", deltas.toString());
+
+        deltas.targetInsert(1, 3, null);
+        Tree4Deltas.Iterator iterator = deltas.iterator();
+        assertEquals(true, iterator.nextNode());
+        assertEquals(1, iterator.getIndex());
+        assertEquals(false, iterator.nextNode());
+
+        // the same iterator can walk the changes again
+        iterator.reset();
+        assertEquals(true, iterator.next());
+        assertEquals(1, iterator.getIndex());
+        assertEquals(true, iterator.next());
+        assertEquals(2, iterator.getIndex());
+        assertEquals(false, iterator.next());
+
+        deltas.reset(8);
+        assertEquals("________", deltas.toString());
+        iterator.reset();
+        assertEquals(false, iterator.hasNext());
+    }
 }
@@ -7,10 +7,12 @@ import ca.odell.glazedlists.BasicEventList;
 import ca.odell.glazedlists.EventList;
 import ca.odell.glazedlists.GlazedLists;
 import ca.odell.glazedlists.SortedList;
+import ca.odell.glazedlists.impl.sort.TableColumnComparator;
 import ca.odell.glazedlists.swing.DefaultEventTableModel;
 import ca.odell.glazedlists.swing.TableComparatorChooser;
 
 import java.awt.event.MouseEvent;
+import java.util.Comparator;
 
 import javax.swing.JTable;
 import javax.swing.table.DefaultTableModel;
@@ -250,6 +252,92 @@ public class TableComparatorTest {
         assertEquals("column 1", tableComparatorChooser.toString());
     }
 
+    /**
+     * Test that sorting by columns caches the column values in the
+     * {@link SortedList} rather than extracting them on every comparison.
+     */
+    @Test
+    public void testSortsByCachedColumnValues() {
+        final EventList<String> source = GlazedLists.eventListOf("James", "jodie", "Jesse", "Kevin", "holger", "Ian");
+        final SortedList<String> sorted = new SortedList<String>(source, null);
+        final CountingTableFormat tableFormat = new CountingTableFormat();
+        final AbstractTableComparatorChooser<String> chooser = new AbstractTableComparatorChooser<String>(sorted, tableFormat) { };
+        chooser.getComparatorsForColumn(0).add(new TableColumnComparator<String>(tableFormat, 0, GlazedLists.caseInsensitiveComparator()));
+        assertFalse(chooser.isSortKeysCached());
+        chooser.setSortKeysCached(true);
+
+        // each sort extracts one value per row and sorting column
+        chooser.fromString("column 1 reversed, column 0 comparator 1");
+        assertNotNull(sorted.getSortKeyComparator());
+        assertEquals(source.size() * 2, tableFormat.count);
+        assertEquals(GlazedLists.eventListOf("holger", "James", "Jesse", "jodie", "Kevin", "Ian"), sorted);
+
+        // and each change extracts the values of the changed row only
+        tableFormat.count = 0;
+        source.set(0, "Jimmy");
+        source.add("Al");
+        assertEquals(4, tableFormat.count);
+        assertEquals(GlazedLists.eventListOf("holger", "Jesse", "Jimmy", "jodie", "Kevin", "Ian", "Al"), sorted);
+
+        chooser.fromString("column 0");
+        assertNotNull(sorted.getSortKeyComparator());
+        assertEquals(GlazedLists.eventListOf("Al", "Ian", "Jesse", "Jimmy", "Kevin", "holger", "jodie"), sorted);
+
+        chooser.clearComparator();
+        assertNull(sorted.getSortKeyComparator());
+        assertNull(sorted.getComparator());
+        chooser.dispose();
+    }
+
+    /**
+     * Test that column values aren't cached unless asked for, so rows whose
+     * column value is changed in place are still moved when they are updated.
+     */
+    @Test
+    public void testSortsByMutableColumnValues() {
+        final EventList<int[]> source = new BasicEventList<int[]>();
+        for(int i = 0; i < 5; i++) source.add(new int[] {i * 10});
+        final SortedList<int[]> sorted = new SortedList<int[]>(source, null);
+        final TableFormat<int[]> tableFormat = new TableFormat<int[]>() {
+            @Override
+            public int getColumnCount() {
+                return 1;
+            }
+            @Override
+            public String getColumnName(int column) {
+                return "value";
+            }
+            @Override
+            public Object getColumnValue(int[] baseObject, int column) {
+                return baseObject;
+            }
+        };
+        final AbstractTableComparatorChooser<int[]> chooser = new AbstractTableComparatorChooser<int[]>(sorted, tableFormat) { };
+        chooser.getComparatorsForColumn(0).clear();
+        chooser.getComparatorsForColumn(0).add(new TableColumnComparator<int[]>(tableFormat, 0, new Comparator<int[]>() {
+            @Override
+            public int compare(int[] a, int[] b) {
+                return a[0] - b[0];
+            }
+        }));
+        chooser.fromString("column 0");
+        assertNull(sorted.getSortKeyComparator());
+
+        final int[] first = source.get(0);
+        first[0] = 100;
+        source.set(0, first);
+        assertSame(first, sorted.get(4));
+        assertEquals(20, sorted.get(1)[0]);
+
+        // caching can be switched on and off again, which sorts once more
+        chooser.setSortKeysCached(true);
+        assertNotNull(sorted.getSortKeyComparator());
+        chooser.setSortKeysCached(false);
+        assertNull(sorted.getSortKeyComparator());
+        assertSame(first, sorted.get(4));
+        chooser.dispose();
+    }
+
     /**
      * A convenience method to simulate a mouse click on the table header
      * for the given table in the given column.
@@ -277,6 +365,27 @@ public class TableComparatorTest {
         }
     }
 
+    /**
+     * Shows a name and its length, counting the values extracted.
+     */
+    private static class CountingTableFormat implements TableFormat<String> {
+        private int count = 0;
+
+        @Override
+        public int getColumnCount() {
+            return 2;
+        }
+        @Override
+        public String getColumnName(int column) {
+            return column == 0 ? "Name" : "Length";
+        }
+        @Override
+        public Object getColumnValue(String baseObject, int column) {
+            count++;
+            return column == 0 ? (Object)baseObject : (Object)Integer.valueOf(baseObject.length());
+        }
+    }
+
     private static class TestTableFormat implements TableFormat<String> {
         private int columns;
 
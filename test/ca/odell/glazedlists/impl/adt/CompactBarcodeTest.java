@@ -0,0 +1,217 @@
+/* Glazed Lists                                                 (c) 2003-2014 */
+/* http://publicobject.com/glazedlists/                      publicobject.com,*/
+/*                                                     O'Dell Engineering Ltd.*/
+package ca.odell.glazedlists.impl.adt;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * This test verifies that the CompactBarcode works as expected, and that
+ * its iterator behaves exactly like a {@link BarcodeIterator}.
+ */
+public class CompactBarcodeTest {
+
+    /** for randomly choosing list indices */
+    private Random random = new Random(101);
+
+    /**
+     * Tests adding and removing at word boundaries.
+     */
+    @Test
+    public void testWordBoundaries() {
+        CompactBarcode barcode = new CompactBarcode();
+        barcode.addBlack(0, 64);
+        barcode.addWhite(64, 64);
+        assertEquals(128, barcode.size());
+        assertEquals(64, barcode.blackSize());
+        assertEquals(63, barcode.getBlackIndex(63));
+        assertEquals(0, barcode.getWhiteIndex(64));
+        assertEquals(64, barcode.getIndex(0, Barcode.WHITE));
+
+        // shift everything up by a whole word
+        barcode.addWhite(0, 64);
+        assertEquals(192, barcode.size());
+        assertEquals(Barcode.WHITE, barcode.get(63));
+        assertEquals(Barcode.BLACK, barcode.get(64));
+        assertEquals(Barcode.BLACK, barcode.get(127));
+        assertEquals(Barcode.WHITE, barcode.get(128));
+        assertEquals(64, barcode.getIndex(0, Barcode.BLACK));
+        assertEquals(128, barcode.getIndex(64, Barcode.WHITE));
+
+        // and back down again
+        barcode.remove(0, 64);
+        assertEquals("X", barcode.toString().substring(0, 1));
+        assertEquals(128, barcode.size());
+        assertEquals(64, barcode.blackSize());
+        assertEquals(63, barcode.getIndex(63, Barcode.BLACK));
+
+        barcode.remove(1, 126);
+        assertEquals("X_", barcode.toString());
+        assertEquals(1, barcode.blackSize());
+    }
+
+    /**
+     * Tests that random operations give the same results as a simple list.
+     */
+    @Test
+    public void testRandomOperations() {
+        List<Object> expected = new ArrayList<Object>();
+        CompactBarcode actual = new CompactBarcode();
+
+        for(int i = 0; i < 5000; i++) {
+            int operation = random.nextInt(4);
+            int size = expected.size();
+
+            if(operation == 0 || size == 0) {
+                int index = random.nextInt(size + 1);
+                int length = 1 + random.nextInt(random.nextBoolean() ? 4 : 150);
+                Object colour = random.nextBoolean() ? Barcode.BLACK : Barcode.WHITE;
+                expected.addAll(index, Collections.nCopies(length, colour));
+                actual.add(index, colour, length);
+
+            } else if(operation == 1) {
+                int index = random.nextInt(size);
+                int length = 1 + random.nextInt(Math.min(size - index, random.nextBoolean() ? 4 : 150));
+                expected.subList(index, index + length).clear();
+                actual.remove(index, length);
+
+            } else {
+                int index = random.nextInt(size);
+                int length = 1 + random.nextInt(Math.min(size - index, 100));
+                Object colour = random.nextBoolean() ? Barcode.BLACK : Barcode.WHITE;
+                Collections.fill(expected.subList(index, index + length), colour);
+                actual.set(index, colour, length);
+            }
+
+            assertEquals(expected.size(), actual.size());
+            if(i % 50 == 0) assertEquivalent(expected, actual);
+        }
+        assertEquivalent(expected, actual);
+    }
+
+    /**
+     * Tests iterating and changing the colours as we go.
+     */
+    @Test
+    public void testIterator() {
+        Barcode expected = new Barcode();
+        CompactBarcode actual = new CompactBarcode();
+        for(int i = 0; i < 1000; i++) {
+            Object colour = random.nextInt(3) == 0 ? Barcode.BLACK : Barcode.WHITE;
+            int length = 1 + random.nextInt(70);
+            expected.add(expected.size(), colour, length);
+            actual.add(actual.size(), colour, length);
+        }
+
+        // flip some whites
+        FlagListIterator e = expected.iterator();
+        FlagListIterator a = actual.iterator();
+        while(e.hasNextWhite()) {
+            assertTrue(a.hasNextWhite());
+            e.nextWhite();
+            a.nextWhite();
+            assertEquals(e.getIndex(), a.getIndex());
+            assertEquals(e.getWhiteIndex(), a.getWhiteIndex());
+            if(random.nextBoolean()) assertEquals(e.setBlack(), a.setBlack());
+        }
+        assertFalse(a.hasNextWhite());
+        assertEquivalent(expected, actual);
+
+        // flip some blacks
+        e = expected.iterator();
+        a = actual.iterator();
+        while(e.hasNextBlack()) {
+            assertTrue(a.hasNextBlack());
+            e.nextBlack();
+            a.nextBlack();
+            assertEquals(e.getIndex(), a.getIndex());
+            assertEquals(e.getBlackIndex(), a.getBlackIndex());
+            if(random.nextInt(3) == 0) assertEquals(e.setWhite(), a.setWhite());
+        }
+        assertFalse(a.hasNextBlack());
+        assertEquivalent(expected, actual);
+
+        // flip everything
+        e = expected.iterator();
+        a = actual.iterator();
+        while(e.hasNext()) {
+            assertTrue(a.hasNext());
+            assertEquals(e.next(), a.next());
+            assertEquals(e.getBlackIndex(), a.getBlackIndex());
+            assertEquals(e.getWhiteIndex(), a.getWhiteIndex());
+            if(e.getBlackIndex() == -1) assertEquals(e.setBlack(), a.setBlack());
+            else assertEquals(e.setWhite(), a.setWhite());
+        }
+        assertFalse(a.hasNext());
+        assertEquivalent(expected, actual);
+
+        try {
+            a.next();
+            fail();
+        } catch(NoSuchElementException ex) {
+            // expected
+        }
+    }
+
+    /**
+     * Tests an empty CompactBarcode.
+     */
+    @Test
+    public void testEmpty() {
+        CompactBarcode barcode = new CompactBarcode();
+        assertTrue(barcode.isEmpty());
+        FlagListIterator i = barcode.iterator();
+        assertFalse(i.hasNext());
+        assertFalse(i.hasNextBlack());
+        assertFalse(i.hasNextWhite());
+
+        barcode.addWhite(0, 100);
+        barcode.clear();
+        assertTrue(barcode.isEmpty());
+        assertEquals(0, barcode.blackSize());
+    }
+
+    /**
+     * Asserts that both {@link FlagList}s hold exactly the same flags.
+     */
+    private static void assertEquivalent(Barcode expected, CompactBarcode actual) {
+        List<Object> flags = new ArrayList<Object>();
+        for(int i = 0; i < expected.size(); i++) {
+            flags.add(expected.get(i));
+        }
+        assertEquivalent(flags, actual);
+    }
+
+    /**
+     * Asserts that the {@link CompactBarcode} holds exactly the specified flags.
+     */
+    private static void assertEquivalent(List<Object> expected, CompactBarcode actual) {
+        assertEquals(expected.size(), actual.size());
+        int blackCount = 0;
+        int whiteCount = 0;
+        for(int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i), actual.get(i));
+            if(expected.get(i) == Barcode.BLACK) {
+                assertEquals(blackCount, actual.getBlackIndex(i));
+                assertEquals(-1, actual.getWhiteIndex(i));
+                assertEquals(i, actual.getIndex(blackCount, Barcode.BLACK));
+                blackCount++;
+            } else {
+                assertEquals(whiteCount, actual.getWhiteIndex(i));
+                assertEquals(-1, actual.getBlackIndex(i));
+                assertEquals(i, actual.getIndex(whiteCount, Barcode.WHITE));
+                whiteCount++;
+            }
+        }
+        assertEquals(blackCount, actual.blackSize());
+        assertEquals(whiteCount, actual.whiteSize());
+    }
+}
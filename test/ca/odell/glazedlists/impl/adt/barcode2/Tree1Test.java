@@ -241,4 +241,35 @@ public class Tree1Test {
         assertEquals(-1, tree.indexOfValue("F", false, false, (byte)1));
         assertEquals(6, tree.indexOfValue("F", true, true, (byte)1));
     }
+
+    /**
+     * Make sure that building a tree in bulk yields a valid tree in the
+     * specified order.
+     */
+    @Test
+    public void testAddAll() {
+        for(int size = 0; size < 100; size++) {
+            String[] values = new String[size];
+            for(int i = 0; i < size; i++) {
+                values[i] = String.valueOf((char)('A' + random.nextInt(10)));
+            }
+
+            SimpleTree<String> tree = new SimpleTree<String>(GlazedLists.comparableComparator());
+            Element<String>[] elements = tree.addAll(values);
+
+            assertEquals(size, tree.size());
+            assertEquals(size, elements.length);
+            for(int i = 0; i < size; i++) {
+                assertSame(values[i], tree.get(i).get());
+                assertSame(elements[i], tree.get(i));
+                assertEquals(i, tree.indexOfNode(elements[i], allColors));
+            }
+
+            // the tree must still accept regular inserts and removes
+            tree.add(0, "K", 1);
+            assertEquals("K", tree.get(0).get());
+            tree.remove(0, 1);
+            assertEquals(size, tree.size());
+        }
+    }
 }
@@ -4,6 +4,10 @@
 package ca.odell.glazedlists.impl.beans;
 
 import java.awt.Color;
+import java.lang.reflect.Method;
+import java.lang.reflect.UndeclaredThrowableException;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.junit.Test;
 
@@ -156,6 +160,104 @@ public class BeanPropertyTest {
         codeProperty.set(namedCode, "C++");
         assertEquals("C++", codeProperty.get(namedCode));
     }
+
+    /**
+     * Tests that generated accessors behave like reflection.
+     */
+    @Test
+    public void testGeneratedAccessors() {
+        final BeanProperty<Invoice> quantity = new BeanProperty<Invoice>(Invoice.class, "quantity", true, true);
+        final BeanProperty<Invoice> price = new BeanProperty<Invoice>(Invoice.class, "price", true, true);
+        final BeanProperty<Invoice> customerName = new BeanProperty<Invoice>(Invoice.class, "customer.name", true, true);
+
+        // use each property often enough to generate its accessor
+        final Invoice invoice = new Invoice();
+        for(int i = 0; i < 100; i++) {
+            quantity.set(invoice, new Integer(i));
+            assertEquals(new Integer(i), quantity.get(invoice));
+            price.set(invoice, new Double(i / 4.0));
+            assertEquals(new Double(i / 4.0), price.get(invoice));
+
+            // null along the way
+            invoice.setCustomer(null);
+            assertNull(customerName.get(invoice));
+            assertNull(customerName.set(invoice, "Jesse"));
+            invoice.setCustomer(new Customer());
+            assertEquals("Java!", customerName.set(invoice, "James"));
+            assertEquals("James", customerName.get(invoice));
+        }
+
+        // values that need widening are still set by reflection
+        quantity.set(invoice, new Short((short)7));
+        assertEquals(new Integer(7), quantity.get(invoice));
+
+        // as do exceptions
+        try {
+            customerName.set(invoice, null);
+            fail();
+        } catch(UndeclaredThrowableException e) {
+            assertTrue(e.getCause() instanceof NullPointerException);
+        }
+        try {
+            quantity.get(null);
+            fail();
+        } catch(NullPointerException e) {
+            // expected
+        }
+    }
+
+    /**
+     * Tests that accessors aren't generated for methods they can't call.
+     */
+    @Test
+    public void testGeneratedAccessorsRequirePublicClasses() {
+        final List<Method> getterChain = new ArrayList<Method>();
+        getterChain.add(findMethod(Automobile.class, "getColor"));
+        assertNull(BeanAccessorCompiler.compile(Automobile.class, getterChain, null));
+
+        getterChain.clear();
+        getterChain.add(findMethod(Color.class, "getRed"));
+        final BeanAccessor red = BeanAccessorCompiler.compile(Color.class, getterChain, null);
+        assertNotNull(red);
+        assertEquals(new Integer(255), red.get(Color.red));
+    }
+
+    private static Method findMethod(Class type, String name) {
+        try {
+            return type.getMethod(name, new Class[0]);
+        } catch(NoSuchMethodException e) {
+            throw new IllegalStateException(e.getMessage());
+        }
+    }
+
+    /**
+     * Public test objects, for which accessors can be generated.
+     */
+    public static class Invoice {
+        private int quantity;
+        private double price;
+        private Customer customer = new Customer();
+
+        public int getQuantity() { return quantity; }
+        public void setQuantity(int quantity) { this.quantity = quantity; }
+
+        public double getPrice() { return price; }
+        public void setPrice(double price) { this.price = price; }
+
+        public Customer getCustomer() { return customer; }
+        public void setCustomer(Customer customer) { this.customer = customer; }
+    }
+    public static class Customer {
+        private String name = "Java!";
+
+        public String getName() { return name; }
+        public String setName(String name) {
+            if(name == null) throw new NullPointerException();
+            String previous = this.name;
+            this.name = name;
+            return previous;
+        }
+    }
 }
 
 /**
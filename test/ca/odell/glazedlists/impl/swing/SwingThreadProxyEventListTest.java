@@ -7,8 +7,11 @@ import ca.odell.glazedlists.BasicEventList;
 import ca.odell.glazedlists.EventList;
 import ca.odell.glazedlists.event.ListEvent;
 import ca.odell.glazedlists.event.ListEventListener;
+import ca.odell.glazedlists.impl.gui.ThreadProxyEventList;
 import ca.odell.glazedlists.swing.GlazedListsSwing;
 
+import java.util.concurrent.TimeUnit;
+
 import javax.swing.SwingUtilities;
 
 import org.junit.Test;
@@ -27,26 +30,96 @@ public class SwingThreadProxyEventListTest {
         assertEquals(0, recorder.getCallbackCountAndReset());
 
         // verify that the recorder is working
-        source.add("New");
+        addLocked(source, "New");
         Thread.sleep(500);
         assertEquals(1, recorder.getCallbackCountAndReset());
         assertTrue(recorder.getLastCallbackThreadWasEDT());
 
         // configure the recorder to throw an exception during its next callback
         recorder.setThrowException(true);
-        source.add("This callback throws the exception");
+        addLocked(source, "This callback throws the exception");
         Thread.sleep(500);
         assertEquals(1, recorder.getCallbackCountAndReset());
         assertTrue(recorder.getLastCallbackThreadWasEDT());
 
         // verify that the NEXT ListEvent *still* arrives on the EDT
         recorder.setThrowException(false);
-        source.add("This used to arrive in the recorder on the wrong thread");
+        addLocked(source, "This used to arrive in the recorder on the wrong thread");
         Thread.sleep(500);
         assertEquals(1, recorder.getCallbackCountAndReset());
         assertTrue(recorder.getLastCallbackThreadWasEDT());
     }
 
+    /**
+     * Tests that the changes made within a frame are delivered as one event,
+     * and that the maximum latency can shorten the wait for the next frame.
+     */
+    @Test
+    public void testFlushRate() throws Exception {
+        final EventList<String> source = new BasicEventList<String>();
+        final ThreadProxyEventList<String> threadProxy = (ThreadProxyEventList<String>)GlazedListsSwing.swingThreadProxyList(source, 2, 1, TimeUnit.SECONDS);
+        try {
+            assertEquals(2, threadProxy.getMaxFlushRate());
+
+            final ListEventRecorder recorder = new ListEventRecorder();
+            threadProxy.addListEventListener(recorder);
+
+            source.getReadWriteLock().writeLock().lock();
+            try {
+                for(int i = 0; i < 100; i++) {
+                    source.add("Change " + i);
+                }
+                assertEquals(100, threadProxy.getQueueDepth());
+            } finally {
+                source.getReadWriteLock().writeLock().unlock();
+            }
+            waitForFlushes(threadProxy, 1);
+            assertEquals(1, recorder.getCallbackCountAndReset());
+            assertTrue(recorder.getLastCallbackThreadWasEDT());
+            assertEquals(source, threadProxy);
+            assertEquals(0, threadProxy.getQueueDepth());
+            assertEquals(100, threadProxy.getMaxQueueDepth());
+            assertEquals(100, threadProxy.getQueuedEventCount());
+            assertTrue(threadProxy.getLastFlushLatencyNanos() > 0);
+            assertEquals(threadProxy.getLastFlushLatencyNanos(), threadProxy.getMaxFlushLatencyNanos());
+
+            // a one second frame, but changes wait no longer than 10ms
+            threadProxy.setFlushRate(1, 10, TimeUnit.MILLISECONDS);
+            addLocked(source, "Latest");
+            waitForFlushes(threadProxy, 2);
+            assertEquals(1, recorder.getCallbackCountAndReset());
+            assertEquals(source, threadProxy);
+            assertTrue(threadProxy.getLastFlushLatencyNanos() < TimeUnit.MILLISECONDS.toNanos(500));
+
+            threadProxy.resetFlushStatistics();
+            assertEquals(0, threadProxy.getFlushCount());
+            assertEquals(0, threadProxy.getMaxFlushLatencyNanos());
+        } finally {
+            threadProxy.dispose();
+        }
+    }
+
+    /**
+     * Adds to the source while holding its write lock, as the proxy's thread
+     * holds it while it delivers the previous change.
+     */
+    private static void addLocked(EventList<String> source, String value) {
+        source.getReadWriteLock().writeLock().lock();
+        try {
+            source.add(value);
+        } finally {
+            source.getReadWriteLock().writeLock().unlock();
+        }
+    }
+
+    private static void waitForFlushes(ThreadProxyEventList<?> threadProxy, long flushes) throws InterruptedException {
+        final long deadline = System.currentTimeMillis() + 5000;
+        while(threadProxy.getFlushCount() < flushes && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(flushes, threadProxy.getFlushCount());
+    }
+
     private static final class ListEventRecorder implements ListEventListener<String> {
 
         private int callbackCount = 0;
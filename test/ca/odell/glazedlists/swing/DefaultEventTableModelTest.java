@@ -17,17 +17,21 @@ import ca.odell.glazedlists.matchers.Matcher;
 
 import java.awt.Color;
 import java.awt.Component;
+import java.awt.Point;
 import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 
 import javax.swing.Action;
 import javax.swing.DefaultListCellRenderer;
 import javax.swing.JLabel;
 import javax.swing.JTable;
+import javax.swing.JViewport;
 import javax.swing.ListSelectionModel;
 import javax.swing.event.TableModelEvent;
 import javax.swing.event.TableModelListener;
@@ -427,6 +431,120 @@ public class DefaultEventTableModelTest extends SwingTestCase {
     }
 
 
+    /**
+     * Tests that the viewport event adapter only fires updates for visible
+     * rows, but fires every insert and delete.
+     */
+    @Test
+    public void testViewportEventAdapter() {
+        final EventList<String> list = new BasicEventList<String>();
+        for (int i = 0; i < 1000; i++) {
+            list.add("Row " + i);
+        }
+        final AdvancedTableModel<String> model = GlazedListsSwing.eventTableModel(list,
+                GlazedLists.tableFormat(new String[] {"bytes"}, new String [] {"Bytes"}),
+                GlazedListsSwing.<String>viewportEventAdapterFactory());
+        final TableEventRecorder table = new TableEventRecorder(model);
+        table.setRowHeight(10);
+
+        // show rows 100 to 109
+        final JViewport viewport = new JViewport();
+        viewport.setView(table);
+        viewport.setSize(200, 100);
+        viewport.doLayout();
+        viewport.setViewPosition(new Point(0, 1000));
+        assertEquals(new Rectangle(0, 1000, 200, 100), table.getVisibleRect());
+
+        // updates that aren't visible are dropped, the others are clipped
+        list.set(5, "Changed 5");
+        list.set(500, "Changed 500");
+        assertEquals(0, table.events.size());
+        for (int i = 95; i < 105; i++) {
+            list.set(i, "Changed " + i);
+        }
+        assertEquals(Arrays.asList("update 100-100", "update 101-101", "update 102-102", "update 103-103", "update 104-104"), table.getEventsAndReset());
+        list.set(109, "Changed 109");
+        list.set(110, "Changed 110");
+        assertEquals(Arrays.asList("update 109-109"), table.getEventsAndReset());
+
+        // inserts and deletes are always fired
+        list.add(0, "First");
+        list.remove(999);
+        list.set(104, "Changed");
+        assertEquals(Arrays.asList("insert 0-0", "delete 999-999", "update 104-104"), table.getEventsAndReset());
+        assertEquals("Changed", model.getElementAt(104));
+        assertEquals("Changed 500", model.getElementAt(501));
+
+        // other listeners get every update
+        final TableModelChangeCounter counter = new TableModelChangeCounter();
+        model.addTableModelListener(counter);
+        list.set(500, "Changed again");
+        assertEquals(Arrays.asList("update 500-500"), table.getEventsAndReset());
+        assertEquals(1, counter.getCountAndReset());
+        model.dispose();
+    }
+
+    /**
+     * Tests that cached cell values are only fetched once, and are discarded
+     * when their row changes.
+     */
+    @Test
+    public void testCellValueCache() {
+        final EventList<String> list = GlazedLists.eventListOf("d", "b", "a", "c");
+        final SortedList<String> sorted = new SortedList<String>(list, null);
+        final CountingTableFormat tableFormat = new CountingTableFormat();
+        final DefaultEventTableModel<String> model = new DefaultEventTableModel<String>(sorted, tableFormat);
+        model.setCellValueCacheEnabled(true);
+        assertTrue(model.isCellValueCacheEnabled());
+
+        assertEquals("d0", model.getValueAt(0, 0));
+        assertEquals("d1", model.getValueAt(0, 1));
+        assertEquals("d0", model.getValueAt(0, 0));
+        assertEquals(2, tableFormat.getCountAndReset());
+
+        // a reordering moves the cached values with their rows
+        model.getValueAt(1, 0);
+        tableFormat.getCountAndReset();
+        sorted.setComparator(GlazedLists.<String>comparableComparator());
+        assertEquals("d0", model.getValueAt(3, 0));
+        assertEquals("b0", model.getValueAt(1, 0));
+        assertEquals(0, tableFormat.getCountAndReset());
+
+        // changed rows are fetched again
+        list.add("e");
+        list.set(list.indexOf("b"), "bb");
+        assertEquals("bb0", model.getValueAt(1, 0));
+        assertEquals("d0", model.getValueAt(3, 0));
+        assertEquals("e0", model.getValueAt(4, 0));
+        assertEquals(2, tableFormat.getCountAndReset());
+        list.remove("a");
+        assertEquals("bb0", model.getValueAt(0, 0));
+        assertEquals(0, tableFormat.getCountAndReset());
+
+        // random changes in a single event each
+        final Random dice = new Random(3);
+        final EventList<String> source = new BasicEventList<String>();
+        final DefaultEventTableModel<String> randomModel = new DefaultEventTableModel<String>(source, tableFormat);
+        randomModel.setCellValueCacheEnabled(true);
+        for (int i = 0; i < 2000; i++) {
+            final int operation = dice.nextInt(4);
+            if (source.isEmpty() || operation == 0) {
+                source.add(dice.nextInt(source.size() + 1), "" + dice.nextInt(100));
+            } else if (operation == 1) {
+                source.remove(dice.nextInt(source.size()));
+            } else if (operation == 2) {
+                source.set(dice.nextInt(source.size()), "" + dice.nextInt(100));
+            } else {
+                source.addAll(dice.nextInt(source.size() + 1), Arrays.asList("x", "y"));
+            }
+            for (int r = 0; r < source.size(); r += 3) {
+                assertEquals(source.get(r) + "1", randomModel.getValueAt(r, 1));
+            }
+        }
+        randomModel.setCellValueCacheEnabled(false);
+        assertFalse(randomModel.isCellValueCacheEnabled());
+    }
+
     /**
      * Tests that a table selection is correctly reflected when the user presses UP- and DOWN-arrow
      * keys while the table is in sorted state.
@@ -483,6 +601,63 @@ public class DefaultEventTableModelTest extends SwingTestCase {
         }
     }
 
+    /**
+     * A table that records the TableModelEvents it receives.
+     */
+    private static class TableEventRecorder extends JTable {
+        private final List<String> events = new ArrayList<String>();
+
+        TableEventRecorder(AdvancedTableModel<?> model) {
+            super(model);
+        }
+
+        @Override
+        public void tableChanged(TableModelEvent e) {
+            // JTable receives an event while it is being constructed
+            if (events != null) {
+                final String type = e.getType() == TableModelEvent.INSERT ? "insert" : e.getType() == TableModelEvent.DELETE ? "delete" : "update";
+                events.add(type + " " + e.getFirstRow() + "-" + e.getLastRow());
+            }
+            super.tableChanged(e);
+        }
+
+        List<String> getEventsAndReset() {
+            final List<String> result = new ArrayList<String>(events);
+            events.clear();
+            return result;
+        }
+    }
+
+    /**
+     * A table format whose values are the element followed by the column,
+     * that counts how many values it has been asked for.
+     */
+    private static class CountingTableFormat implements TableFormat<String> {
+        private int count = 0;
+
+        @Override
+        public int getColumnCount() {
+            return 2;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return "Column " + column;
+        }
+
+        @Override
+        public Object getColumnValue(String baseObject, int column) {
+            count++;
+            return baseObject + column;
+        }
+
+        public int getCountAndReset() {
+            int result = count;
+            count = 0;
+            return result;
+        }
+    }
+
     /**
      * Counts the number of TableModelEvents fired.
      */
@@ -1,6 +1,7 @@
 package ca.odell.glazedlists.swing;
 
 import ca.odell.glazedlists.BasicEventList;
+import ca.odell.glazedlists.ExecuteOnMainThread;
 import ca.odell.glazedlists.EventList;
 import ca.odell.glazedlists.GlazedLists;
 import ca.odell.glazedlists.SortedList;
@@ -11,6 +12,15 @@ import org.junit.Test;
 import javax.swing.*;
 import javax.swing.table.TableCellRenderer;
 
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
 public class TableComparatorChooserTest extends SwingTestCase {
 
     @Test
@@ -37,4 +47,136 @@ public class TableComparatorChooserTest extends SwingTestCase {
         final TableCellRenderer defaultRenderer = table.getTableHeader().getDefaultRenderer();
         defaultRenderer.getTableCellRendererComponent(table, "Text", false, false, 0, 0);
     }
+
+    /**
+     * Sorts shall be applied once the sort executor has finished them, and a
+     * sort that is replaced before it finishes shall be dropped.
+     */
+    @Test
+    @ExecuteOnMainThread
+    public void testSortExecutor() throws Exception {
+        final EventList<JLabel> source = new BasicEventList<JLabel>();
+        for (String text : new String[] {"c", "a", "d", "b"}) {
+            source.add(new JLabel(text));
+        }
+        final SortedList<JLabel> sorted = new SortedList<JLabel>(source, null);
+        final TableFormat<JLabel> tableFormat = GlazedLists.tableFormat(new String[] {"text"}, new String[] {"Text"});
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final int[] sortChangedCount = new int[1];
+
+        // hold up the executor, so the sorts wait until both are started
+        executor.execute(new Runnable() {
+            @Override
+            public void run() {
+                started.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    throw new RuntimeException(e);
+                }
+            }
+        });
+        started.await();
+
+        final TableComparatorChooser<JLabel>[] chooser = new TableComparatorChooser[1];
+        SwingUtilities.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                final JTable table = new JTable(new DefaultEventTableModel<JLabel>(sorted, tableFormat));
+                chooser[0] = TableComparatorChooser.install(table, sorted, AbstractTableComparatorChooser.SINGLE_COLUMN);
+                chooser[0].setSortExecutor(executor);
+                chooser[0].addSortActionListener(new ActionListener() {
+                    @Override
+                    public void actionPerformed(ActionEvent e) {
+                        sortChangedCount[0]++;
+                    }
+                });
+
+                // the first sort is replaced by the second before it runs
+                chooser[0].appendComparator(0, 0, false);
+                chooser[0].clearComparator();
+                chooser[0].appendComparator(0, 0, true);
+                assertEquals("c", sorted.get(0).getText());
+                assertEquals(0, sortChangedCount[0]);
+            }
+        });
+
+        release.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        // wait for the sort to be applied on the event dispatch thread
+        SwingUtilities.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                assertEquals("d", sorted.get(0).getText());
+                assertEquals("a", sorted.get(3).getText());
+                assertEquals(1, sortChangedCount[0]);
+                assertEquals(1, chooser[0].getSortingColumns().size());
+                assertTrue(chooser[0].isColumnReverse(0));
+                chooser[0].dispose();
+            }
+        });
+    }
+
+    /**
+     * A sort that fails on the sort executor shall be done on the event
+     * dispatch thread instead.
+     */
+    @Test
+    @ExecuteOnMainThread
+    public void testSortExecutorFailure() throws Exception {
+        final EventList<String> source = GlazedLists.eventListOf("b", "a", "boom", "c");
+        final SortedList<String> sorted = new SortedList<String>(source, null);
+        final TableFormat<String> tableFormat = new TableFormat<String>() {
+            @Override
+            public int getColumnCount() {
+                return 1;
+            }
+            @Override
+            public String getColumnName(int column) {
+                return "Text";
+            }
+            @Override
+            public Object getColumnValue(String baseObject, int column) {
+                if ("boom".equals(baseObject) && !SwingUtilities.isEventDispatchThread()) {
+                    throw new IllegalStateException("only readable on the event dispatch thread");
+                }
+                return baseObject;
+            }
+        };
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        final int[] sortChangedCount = new int[1];
+
+        final TableComparatorChooser<String>[] chooser = new TableComparatorChooser[1];
+        SwingUtilities.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                final JTable table = new JTable(new DefaultEventTableModel<String>(sorted, tableFormat));
+                chooser[0] = TableComparatorChooser.install(table, sorted, AbstractTableComparatorChooser.SINGLE_COLUMN);
+                chooser[0].setSortExecutor(executor);
+                chooser[0].addSortActionListener(new ActionListener() {
+                    @Override
+                    public void actionPerformed(ActionEvent e) {
+                        sortChangedCount[0]++;
+                    }
+                });
+                chooser[0].appendComparator(0, 0, false);
+            }
+        });
+
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+
+        SwingUtilities.invokeAndWait(new Runnable() {
+            @Override
+            public void run() {
+                assertEquals(GlazedLists.eventListOf("a", "b", "boom", "c"), sorted);
+                assertEquals(1, sortChangedCount[0]);
+                chooser[0].dispose();
+            }
+        });
+    }
 }
\ No newline at end of file
@@ -0,0 +1,143 @@
+/* Glazed Lists                                                 (c) 2003-2014 */
+/* http://publicobject.com/glazedlists/                      publicobject.com,*/
+/*                                                     O'Dell Engineering Ltd.*/
+package ca.odell.glazedlists.util.concurrent;
+
+import ca.odell.glazedlists.BasicEventList;
+import ca.odell.glazedlists.EventList;
+import ca.odell.glazedlists.GlazedLists;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Make sure the locks of an {@link InstrumentedLockFactory} record wait and
+ * hold times.
+ */
+public class InstrumentedLockFactoryTest {
+
+    /**
+     * Tests that reentrant acquisitions count as one.
+     */
+    @Test
+    public void testReentrantAcquisitions() {
+        final InstrumentedLockFactory lockFactory = new InstrumentedLockFactory();
+        final ReadWriteLock lock = lockFactory.createReadWriteLock();
+
+        lock.writeLock().lock();
+        lock.writeLock().lock();
+        assertTrue(lock.writeLock().tryLock());
+        lock.readLock().lock();
+        lock.readLock().unlock();
+        lock.writeLock().unlock();
+        lock.writeLock().unlock();
+        lock.writeLock().unlock();
+
+        final LockStatistics writes = lockFactory.getWriteLockStatistics();
+        assertEquals(1, writes.getAcquisitionCount());
+        assertEquals(0, writes.getContendedCount());
+        assertEquals(Thread.currentThread().getName(), writes.getLongestHolderThread());
+        assertTrue(writes.getHoldNanosByThread().containsKey(Thread.currentThread().getName()));
+        assertEquals(1, lockFactory.getReadLockStatistics().getAcquisitionCount());
+
+        writes.reset();
+        assertEquals(0, writes.getAcquisitionCount());
+        assertNull(writes.getLongestHolderThread());
+    }
+
+    /**
+     * Tests that a reader waiting for a writer is counted, and the writer is
+     * the longest holder.
+     */
+    @Test
+    public void testContention() throws InterruptedException {
+        final InstrumentedLockFactory lockFactory = new InstrumentedLockFactory();
+        final EventList<Integer> list = new BasicEventList<Integer>(lockFactory.createReadWriteLock());
+        final CountDownLatch locked = new CountDownLatch(1);
+
+        final Thread writer = new Thread("slow writer") {
+            @Override
+            public void run() {
+                list.getReadWriteLock().writeLock().lock();
+                try {
+                    locked.countDown();
+                    list.add(new Integer(1));
+                    Thread.sleep(100);
+                } catch(InterruptedException e) {
+                    // finish early
+                } finally {
+                    list.getReadWriteLock().writeLock().unlock();
+                }
+            }
+        };
+        writer.start();
+        locked.await();
+
+        list.getReadWriteLock().readLock().lock();
+        try {
+            assertEquals(1, list.size());
+        } finally {
+            list.getReadWriteLock().readLock().unlock();
+        }
+        writer.join();
+
+        final LockStatistics reads = lockFactory.getReadLockStatistics();
+        assertEquals(1, reads.getAcquisitionCount());
+        assertEquals(1, reads.getContendedCount());
+        assertTrue(reads.getMaxWaitNanos() > 0);
+
+        final LockStatistics writes = lockFactory.getWriteLockStatistics();
+        assertEquals("slow writer", writes.getLongestHolderThread());
+        assertTrue(writes.getMaxHoldNanos() >= 50000000L);
+        assertTrue(Arrays.toString(writes.getLongestHolderStack()).contains(getClass().getName()));
+    }
+
+    /**
+     * Tests that optimistic reads are still available through the instrumented
+     * locks.
+     */
+    @Test
+    public void testOptimisticLocks() {
+        final InstrumentedLockFactory lockFactory = new InstrumentedLockFactory(new OptimisticLockFactory());
+        final ReadWriteLock lock = lockFactory.createReadWriteLock();
+        assertTrue(lock instanceof OptimisticReadWriteLock);
+
+        final EventList<Integer> threadSafe = GlazedLists.threadSafeList(new BasicEventList<Integer>(lock));
+        threadSafe.add(new Integer(1));
+        final long reads = lockFactory.getReadLockStatistics().getAcquisitionCount();
+        assertEquals(1, threadSafe.size());
+        assertEquals(new Integer(1), threadSafe.get(0));
+        assertEquals(reads, lockFactory.getReadLockStatistics().getAcquisitionCount());
+    }
+
+    /**
+     * Tests that the statistics can be read as MXBeans.
+     */
+    @Test
+    public void testMBeans() throws Exception {
+        final InstrumentedLockFactory lockFactory = new InstrumentedLockFactory();
+        final Lock lock = lockFactory.createLock();
+        final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        lockFactory.registerMBeans(server, "ca.odell.glazedlists.test");
+        try {
+            lock.lock();
+            lock.unlock();
+            final ObjectName name = new ObjectName("ca.odell.glazedlists.test:type=LockStatistics,name=lock");
+            assertEquals(Long.valueOf(1), server.getAttribute(name, "AcquisitionCount"));
+            assertEquals(Thread.currentThread().getName(), server.getAttribute(name, "LongestHolderThread"));
+
+            lockFactory.unregisterMBeans();
+            assertFalse(server.isRegistered(name));
+        } finally {
+            lockFactory.unregisterMBeans();
+        }
+    }
+}
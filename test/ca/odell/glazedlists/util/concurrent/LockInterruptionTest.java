@@ -24,6 +24,11 @@ public class LockInterruptionTest {
         testLockInterrupt(LockFactory.DEFAULT.createReadWriteLock());
     }
 
+    @Test
+    public void testOptimisticLockInterrupt() {
+        testLockInterrupt(new OptimisticLockFactory().createReadWriteLock());
+    }
+
     /**
      * Make sure that our locks don't throw interrupted exceptions.
      */
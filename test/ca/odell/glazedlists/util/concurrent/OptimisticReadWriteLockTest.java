@@ -0,0 +1,108 @@
+/* Glazed Lists                                                 (c) 2003-2014 */
+/* http://publicobject.com/glazedlists/                      publicobject.com,*/
+/*                                                     O'Dell Engineering Ltd.*/
+package ca.odell.glazedlists.util.concurrent;
+
+import ca.odell.glazedlists.BasicEventList;
+import ca.odell.glazedlists.EventList;
+import ca.odell.glazedlists.GlazedLists;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Make sure optimistic reads are invalidated by writes.
+ */
+public class OptimisticReadWriteLockTest {
+
+    /**
+     * Tests that stamps are only valid until the write lock is acquired.
+     */
+    @Test
+    public void testValidate() {
+        final OptimisticReadWriteLock lock = (OptimisticReadWriteLock)new OptimisticLockFactory().createReadWriteLock();
+        final long stamp = lock.tryOptimisticRead();
+        assertTrue(stamp != 0);
+        assertTrue(lock.validate(stamp));
+        assertFalse(lock.validate(0));
+
+        // readers don't invalidate stamps
+        lock.readLock().lock();
+        assertEquals(stamp, lock.tryOptimisticRead());
+        lock.readLock().unlock();
+        assertTrue(lock.validate(stamp));
+
+        // writers do, even after reentering
+        lock.writeLock().lock();
+        assertFalse(lock.validate(stamp));
+        assertEquals(0, lock.tryOptimisticRead());
+        lock.writeLock().lock();
+        lock.writeLock().unlock();
+        assertEquals(0, lock.tryOptimisticRead());
+        lock.writeLock().unlock();
+        assertFalse(lock.validate(stamp));
+
+        final long nextStamp = lock.tryOptimisticRead();
+        assertTrue(nextStamp != 0);
+        assertTrue(lock.validate(nextStamp));
+        assertTrue(lock.writeLock().tryLock());
+        assertFalse(lock.validate(nextStamp));
+        lock.writeLock().unlock();
+    }
+
+    /**
+     * Tests that a {@link ca.odell.glazedlists.impl.ThreadSafeList} never
+     * reports the results of a read that raced with a write.
+     */
+    @Test
+    public void testThreadSafeListReadsOptimistically() throws InterruptedException {
+        final EventList<Integer> source = new BasicEventList<Integer>(new OptimisticLockFactory().createReadWriteLock());
+        final EventList<Integer> threadSafe = GlazedLists.threadSafeList(source);
+        threadSafe.add(new Integer(0));
+
+        // a writer grows and shrinks the list, which reallocates its array
+        final Thread writer = new Thread() {
+            @Override
+            public void run() {
+                for(int i = 0; i < 200; i++) {
+                    for(int j = 0; j < 100; j++) threadSafe.add(new Integer(j + 1));
+                    for(int j = 0; j < 100; j++) threadSafe.remove(threadSafe.size() - 1);
+                }
+            }
+        };
+
+        // while readers check the first element, and the size never exceeds its limit
+        final List<Throwable> failures = new ArrayList<Throwable>();
+        final Thread[] readers = new Thread[4];
+        for(int r = 0; r < readers.length; r++) {
+            readers[r] = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        while(writer.isAlive()) {
+                            assertEquals(new Integer(0), threadSafe.get(0));
+                            final int size = threadSafe.size();
+                            assertTrue(size >= 1 && size <= 101);
+                        }
+                    } catch(Throwable e) {
+                        synchronized(failures) {
+                            failures.add(e);
+                        }
+                    }
+                }
+            };
+        }
+
+        writer.start();
+        for(int r = 0; r < readers.length; r++) readers[r].start();
+        writer.join();
+        for(int r = 0; r < readers.length; r++) readers[r].join();
+
+        assertEquals(new ArrayList<Throwable>(), failures);
+        assertEquals(1, threadSafe.size());
+    }
+}
@@ -13,7 +13,8 @@ import java.util.Random;
 /**
  * This application tests thread contention issues with GlazedLists. It's intended to be
  * used for benchmarking the cores locks rather than being an exhaustive test of each
- * list.
+ * list. The JMH <code>ThreadContentionBenchmark</code> measures how reads scale
+ * with the number of threads, for both the default and the optimistic locks.
  *
  * @author <a href="mailto:rob@starlight-systems.com">Rob Eden</a>
  */